@@ -0,0 +1,173 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Measures cold-start time of the data store with and without a snapshot.
+ * <p>
+ * Generates a journal of N bookings, copies it and snapshots the copy, then starts a fresh JVM
+ * on each directory a few times and reports how long {@link InMemoryDataManager} takes to load.
+ * Run with {@code ant bench-cold-start} (optionally {@code -Dbench.bookings=...}).
+ * <p>
+ * Usage: {@code ColdStartBenchmark [bookings] [workDir] [runs]}
+ */
+public class ColdStartBenchmark {
+
+    private static final String CHILD_HEAP = "-Xmx4g";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child-start")) {
+            childStart();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--child-snapshot")) {
+            new InMemoryDataManager().createSnapshot();
+            return;
+        }
+
+        int bookingCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean temporary = args.length <= 1; // A given work directory is left in place for inspection
+        Path workDir = temporary ? Files.createTempDirectory("cold-start-bench") : Paths.get(args[1]);
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        Path journalOnly = workDir.resolve("journal-only");
+        Path withSnapshot = workDir.resolve("with-snapshot");
+        deleteRecursively(workDir);
+        Files.createDirectories(journalOnly);
+
+        long start = System.nanoTime();
+        writeJournal(journalOnly, bookingCount);
+        System.out.printf("Wrote journal with %,d bookings in %.1f s%n", bookingCount, (System.nanoTime() - start) / 1e9);
+
+        copyDirectory(journalOnly, withSnapshot);
+        runChild(withSnapshot, "--child-snapshot");
+        System.out.println("Snapshot written: " + DataSnapshot.listSnapshots(withSnapshot));
+
+        for (int run = 1; run <= runs; run++) {
+            System.out.printf("run %d  journal replay:   %s%n", run, runChild(journalOnly, "--child-start"));
+            System.out.printf("run %d  snapshot + tail:  %s%n", run, runChild(withSnapshot, "--child-start"));
+        }
+        if (temporary) {
+            deleteRecursively(workDir);
+        }
+    }
+
+    // Runs inside the child JVM: time class initialization (the startup path) plus a first query
+    private static void childStart() {
+        long start = System.nanoTime();
+        InMemoryDataManager dataManager = new InMemoryDataManager();
+        long loaded = System.nanoTime();
+        int upcoming = dataManager.getUpcoming(5).size();
+        long queried = System.nanoTime();
+        System.out.printf("load %.0f ms, first dashboard query %.1f ms, %,d bookings (%d upcoming)%n",
+                (loaded - start) / 1e6, (queried - loaded) / 1e6,
+                dataManager.getStatusSummary().getTotalCount(), upcoming);
+    }
+
+    private static String runChild(Path dataDir, String mode) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                CHILD_HEAP,
+                "-D" + InMemoryDataManager.DATA_DIR_PROPERTY + "=" + dataDir,
+                "-D" + InMemoryDataManager.SNAPSHOT_THRESHOLD_PROPERTY + "=0", // Keep runs repeatable
+                "-cp", System.getProperty("java.class.path"),
+                ColdStartBenchmark.class.getName(), mode));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String lastLine = "";
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            for (String line = output.readLine(); line != null; line = output.readLine()) {
+                if (!line.contains("INFO")) {
+                    lastLine = line;
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Child JVM failed (" + mode + "): " + lastLine);
+        }
+        return String.format("%s; process %.0f ms", lastLine, (System.nanoTime() - start) / 1e6);
+    }
+
+    // Writes menu items, packages and bookings straight to the journal, as a long-running store would have
+    private static void writeJournal(Path directory, int bookingCount) throws IOException {
+        DataJournal journal = DataJournal.open(directory, 1, (type, payload) -> { });
+        try {
+            List<MenuItem> menuItems = new ArrayList<>();
+            for (int id = 1; id <= 20; id++) {
+                MenuItem item = new MenuItem(id, "Menu item " + id, 50.0 + id * 10, "per_person", true);
+                menuItems.add(item);
+                journal.append(DataJournal.MENU_ITEM_PUT, out -> StoreCodec.writeMenuItem(out, item));
+            }
+            for (int id = 1; id <= 5; id++) {
+                Package pkg = new Package(id, "Package " + id, 300.0 * id, 50 * id, true);
+                pkg.setIncludedItemsDesc("Assorted dishes");
+                journal.append(DataJournal.PACKAGE_PUT, out -> StoreCodec.writePackage(out, pkg));
+            }
+
+            String[] statuses = {"Pending", "Confirmed", "Completed", "Cancelled"};
+            LocalDate firstDate = LocalDate.now().minusYears(3);
+            int bookingItemId = 1;
+            CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+            for (int id = 1; id <= bookingCount; id++) {
+                Booking booking = new Booking();
+                booking.setBookingId(id);
+                booking.setCustomerName("Customer " + id);
+                booking.setCustomerContact("0917" + (1000000 + id % 9000000));
+                booking.setEventDate(firstDate.plusDays(id % 2000));
+                booking.setEventTime(String.format("%02d:%02d", 8 + id % 12, (id % 4) * 15));
+                booking.setVenueAddress("Venue " + (id % 500));
+                booking.setNumGuests(20 + id % 200);
+                booking.setSelectedPackageId(1 + id % 5);
+                booking.setBookingStatus(statuses[id % statuses.length]);
+                List<BookingItem> items = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    MenuItem menuItem = menuItems.get((id + i) % menuItems.size());
+                    items.add(new BookingItem(bookingItemId++, id, menuItem.getItemId(), 10 + i,
+                            menuItem.getCostPerUnit() * (10 + i), null));
+                }
+                booking.setBookingItems(items);
+                booking.setTotalCost(1000 + id % 10000);
+                last = journal.append(DataJournal.BOOKING_PUT, out -> StoreCodec.writeBooking(out, booking));
+            }
+            last.join();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static void copyDirectory(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, to.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
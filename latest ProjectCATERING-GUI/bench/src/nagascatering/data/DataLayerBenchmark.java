@@ -0,0 +1,355 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput of the data layer calls the screens make, at realistic store sizes.
+ * <p>
+ * Each (store size, fork) runs in a fresh JVM, since the in-memory store is process-wide: the
+ * child fills the configured repository ({@link DataRepositories#fromConfiguration()}) with N
+ * bookings from a seeded {@link WorkloadGenerator} through the bulk path, then runs every benchmark single-threaded and contended, with
+ * warmup and measured iterations of a fixed duration. Scores are average time per call in
+ * microseconds, per thread. Results are written as JSON in the layout JMH uses for
+ * {@code -rf json} (benchmark, mode, threads, forks, params, primaryMetric with score, 99.9%
+ * error and raw data), so runs can be diffed or loaded into the usual JMH result viewers.
+ * <p>
+ * Benchmarks: {@code saveBooking} (new booking with items), {@code getAllBookings},
+ * {@code getAllPackages} / {@code getActivePackages}, {@code deletePackageInUse} (the in-use
+ * check, which deactivates instead of deleting), {@code dashboardStats} and
+ * {@code dashboardUpcoming} (the dashboard's summary and next five events). Reads run before
+ * {@code saveBooking}, which grows the store.
+ * <p>
+ * Run with {@code ant bench-data-layer}; properties {@code bench.sizes} (default
+ * 1000,100000,1000000), {@code bench.threads} (1,4), {@code bench.forks} (1),
+ * {@code bench.warmup} / {@code bench.iterations} (3 / 5), {@code bench.seconds} (1),
+ * {@code bench.out} and {@code bench.jvmArgs} (extra child options, e.g.
+ * {@code -Dnagascatering.storage=jdbc}). The journal is off unless
+ * {@code -Dnagascatering.journal.enabled=true} is passed there, and logging is limited to
+ * severe messages so the console does not dominate the timings.
+ * <p>
+ * Usage: {@code DataLayerBenchmark sizes threads forks warmup iterations seconds out [jvmArgs...]}
+ */
+public class DataLayerBenchmark {
+
+    private static final String BENCHMARK_PREFIX = DataLayerBenchmark.class.getName() + ".";
+    private static final String CHILD_HEAP = "-Xmx4g";
+    private static final String RESULT_LINE = "RESULT ";
+    private static final long SEED = 42; // Same dataset in every fork and run
+
+    // Order matters: writes last, and deletePackageInUse deactivates a package the reads list
+    private static final String[] BENCHMARKS = {
+        "getAllPackages", "getActivePackages", "getAllBookings", "dashboardStats", "dashboardUpcoming",
+        "deletePackageInUse", "saveBooking"
+    };
+
+    private static volatile Object sink; // Keeps results reachable so calls are not optimized away
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            child(Integer.parseInt(args[1]), parseInts(args[2]), Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]), Integer.parseInt(args[5]));
+            return;
+        }
+
+        int[] sizes = parseInts(args.length > 0 ? args[0] : "1000,100000,1000000");
+        int[] threads = parseInts(args.length > 1 ? args[1] : "1,4");
+        int forks = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+        int seconds = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        Path out = Paths.get(args.length > 6 ? args[6] : "data-layer-benchmark.json");
+        List<String> jvmArgs = new ArrayList<>();
+        for (int i = 7; i < args.length; i++) {
+            if (!args[i].trim().isEmpty()) {
+                jvmArgs.addAll(Arrays.asList(args[i].trim().split("\\s+")));
+            }
+        }
+
+        // benchmark|threads|size -> raw scores of each fork
+        Map<String, List<double[]>> raw = new LinkedHashMap<>();
+        for (int size : sizes) {
+            for (int fork = 1; fork <= forks; fork++) {
+                System.out.printf("# bookings=%,d fork %d of %d%n", size, fork, forks);
+                for (String line : runChild(jvmArgs, size, threads, warmup, iterations, seconds)) {
+                    String[] fields = line.split(" ");
+                    double[] scores = Arrays.stream(fields[3].split(",")).mapToDouble(Double::parseDouble).toArray();
+                    raw.computeIfAbsent(fields[0] + "|" + fields[1] + "|" + fields[2], k -> new ArrayList<>()).add(scores);
+                }
+            }
+        }
+
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            writeJson(writer, raw, jvmArgs, forks, warmup, iterations, seconds);
+        }
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    // Runs inside the child JVM: fill the store, then every benchmark at every thread count
+    private static void child(int size, int[] threadCounts, int warmup, int iterations, int seconds) throws Exception {
+        Logger.getLogger("nagascatering").setLevel(Level.SEVERE);
+        DataRepository repository = DataRepositories.fromConfiguration();
+        long start = System.nanoTime();
+        long existing = repository.getStatusSummary().getTotalCount(); // Sample data, or a store passed in
+        new WorkloadGenerator(SEED).loadInto(repository, (int) Math.max(0, size - existing));
+        System.out.printf("# filled %,d bookings in %.1f s%n", repository.getStatusSummary().getTotalCount(),
+                (System.nanoTime() - start) / 1e9);
+
+        List<MenuItem> menuItems = repository.getAllMenuItems(false);
+        List<Integer> packageIds = repository.getAllPackages(false).stream()
+                .map(Package::getPackageId).collect(Collectors.toList());
+        AtomicInteger sequence = new AtomicInteger(size);
+
+        int packageInUse = packageIds.get(0);
+        for (String benchmark : BENCHMARKS) {
+            IntFunction<Object> operation = operation(benchmark, repository, menuItems, packageIds, packageInUse, sequence);
+            for (int threads : threadCounts) {
+                for (int i = 0; i < warmup; i++) {
+                    measure(operation, threads, seconds);
+                }
+                StringBuilder scores = new StringBuilder();
+                for (int i = 0; i < iterations; i++) {
+                    scores.append(i == 0 ? "" : ",").append(measure(operation, threads, seconds));
+                }
+                System.out.println(RESULT_LINE + benchmark + " " + threads + " " + size + " " + scores);
+            }
+        }
+        System.exit(0); // The journal writer and pool threads are not daemons
+    }
+
+    private static IntFunction<Object> operation(String benchmark, DataRepository repository, List<MenuItem> menuItems,
+                                                 List<Integer> packageIds, int packageInUse, AtomicInteger sequence) {
+        switch (benchmark) {
+            case "getAllPackages":
+                return n -> repository.getAllPackages(true);
+            case "getActivePackages":
+                return n -> repository.getAllPackages(false);
+            case "getAllBookings":
+                return n -> repository.getAllBookings();
+            case "dashboardStats":
+                return n -> repository.getStatusSummary();
+            case "dashboardUpcoming":
+                return n -> repository.getUpcoming(5);
+            case "deletePackageInUse":
+                return n -> repository.deletePackage(packageInUse);
+            case "saveBooking":
+                return n -> {
+                    int id = sequence.incrementAndGet();
+                    return repository.saveBooking(newBooking(id, packageIds), newItems(id, menuItems));
+                };
+            default:
+                throw new IllegalArgumentException("Unknown benchmark: " + benchmark);
+        }
+    }
+
+    /** One iteration: every thread calls the operation until the time is up; returns microseconds per call. */
+    private static double measure(IntFunction<Object> operation, int threads, int seconds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    long begin = System.nanoTime();
+                    long deadline = begin + seconds * 1_000_000_000L;
+                    long calls = 0;
+                    long now;
+                    do {
+                        sink = operation.apply((int) calls);
+                        calls++;
+                        now = System.nanoTime();
+                    } while (now < deadline);
+                    return new long[]{calls, now - begin};
+                }));
+            }
+            ready.await();
+            go.countDown();
+            long calls = 0;
+            long nanos = 0;
+            for (Future<long[]> result : results) {
+                long[] counts = result.get();
+                calls += counts[0];
+                nanos += counts[1];
+            }
+            return nanos / 1000.0 / calls;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Booking newBooking(int n, List<Integer> packageIds) {
+        String[] statuses = {"Pending", "Confirmed", "Completed", "Cancelled"};
+        Booking booking = new Booking();
+        booking.setCustomerName("Customer " + n);
+        booking.setCustomerContact("0917" + (1000000 + n % 9000000));
+        booking.setEventDate(LocalDate.now().minusYears(3).plusDays(n % 2000));
+        booking.setEventTime(String.format("%02d:%02d", 8 + n % 12, (n % 4) * 15));
+        booking.setVenueAddress("Venue " + (n % 500));
+        booking.setNumGuests(20 + n % 200);
+        booking.setSelectedPackageId(packageIds.get(n % packageIds.size()));
+        booking.setBookingStatus(statuses[n % statuses.length]);
+        booking.setTotalCost(1000 + n % 10000);
+        return booking;
+    }
+
+    private static List<BookingItem> newItems(int n, List<MenuItem> menuItems) {
+        List<BookingItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MenuItem menuItem = menuItems.get((n + i) % menuItems.size());
+            items.add(new BookingItem(0, 0, menuItem.getItemId(), 10 + i, menuItem.getCostPerUnit() * (10 + i), null));
+        }
+        return items;
+    }
+
+    private static List<String> runChild(List<String> jvmArgs, int size, int[] threads, int warmup,
+                                         int iterations, int seconds) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                CHILD_HEAP,
+                "-D" + InMemoryDataManager.JOURNAL_ENABLED_PROPERTY + "=false"));
+        command.addAll(jvmArgs); // Later options win, so these can override the defaults above
+        command.addAll(Arrays.asList(
+                "-cp", System.getProperty("java.class.path"),
+                DataLayerBenchmark.class.getName(), "--child", String.valueOf(size),
+                Arrays.stream(threads).mapToObj(String::valueOf).collect(Collectors.joining(",")),
+                String.valueOf(warmup), String.valueOf(iterations), String.valueOf(seconds)));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> results = new ArrayList<>();
+        String lastLine = "";
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            for (String line = output.readLine(); line != null; line = output.readLine()) {
+                if (line.startsWith(RESULT_LINE)) {
+                    results.add(line.substring(RESULT_LINE.length()));
+                    System.out.println(summarize(line.substring(RESULT_LINE.length())));
+                } else {
+                    System.out.println(line);
+                    lastLine = line;
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Child JVM failed (" + size + " bookings): " + lastLine);
+        }
+        return results;
+    }
+
+    private static String summarize(String result) {
+        String[] fields = result.split(" ");
+        double[] scores = Arrays.stream(fields[3].split(",")).mapToDouble(Double::parseDouble).toArray();
+        return String.format(Locale.ROOT, "%-20s threads=%-3s %12.3f +- %.3f us/op",
+                fields[0], fields[1], mean(scores), error(scores));
+    }
+
+    private static void writeJson(Writer writer, Map<String, List<double[]>> raw, List<String> jvmArgs, int forks,
+                                  int warmup, int iterations, int seconds) throws IOException {
+        writer.write("[\n");
+        boolean first = true;
+        for (Map.Entry<String, List<double[]>> entry : raw.entrySet()) {
+            String[] key = entry.getKey().split("\\|");
+            double[] all = entry.getValue().stream().flatMapToDouble(Arrays::stream).toArray();
+            double score = mean(all);
+            double error = error(all);
+            writer.write(first ? "" : ",\n");
+            first = false;
+            writer.write("    {\n");
+            writer.write("        \"benchmark\" : " + quote(BENCHMARK_PREFIX + key[0]) + ",\n");
+            writer.write("        \"mode\" : \"avgt\",\n");
+            writer.write("        \"threads\" : " + key[1] + ",\n");
+            writer.write("        \"forks\" : " + forks + ",\n");
+            writer.write("        \"jvm\" : " + quote(Paths.get(System.getProperty("java.home"), "bin", "java").toString()) + ",\n");
+            writer.write("        \"jvmArgs\" : [" + jvmArgs.stream().map(DataLayerBenchmark::quote).collect(Collectors.joining(", ")) + "],\n");
+            writer.write("        \"jdkVersion\" : " + quote(System.getProperty("java.version")) + ",\n");
+            writer.write("        \"vmName\" : " + quote(System.getProperty("java.vm.name")) + ",\n");
+            writer.write("        \"vmVersion\" : " + quote(System.getProperty("java.vm.version")) + ",\n");
+            writer.write("        \"warmupIterations\" : " + warmup + ",\n");
+            writer.write("        \"warmupTime\" : \"" + seconds + " s\",\n");
+            writer.write("        \"measurementIterations\" : " + iterations + ",\n");
+            writer.write("        \"measurementTime\" : \"" + seconds + " s\",\n");
+            writer.write("        \"params\" : {\n            \"bookings\" : \"" + key[2] + "\"\n        },\n");
+            writer.write("        \"primaryMetric\" : {\n");
+            writer.write("            \"score\" : " + number(score) + ",\n");
+            writer.write("            \"scoreError\" : " + number(error) + ",\n");
+            writer.write("            \"scoreConfidence\" : [" + number(score - error) + ", " + number(score + error) + "],\n");
+            writer.write("            \"scoreUnit\" : \"us/op\",\n");
+            writer.write("            \"rawData\" : [");
+            List<String> forkData = new ArrayList<>();
+            for (double[] scores : entry.getValue()) {
+                forkData.add("[" + Arrays.stream(scores).mapToObj(DataLayerBenchmark::number).collect(Collectors.joining(", ")) + "]");
+            }
+            writer.write(String.join(", ", forkData) + "]\n");
+            writer.write("        },\n");
+            writer.write("        \"secondaryMetrics\" : {}\n");
+            writer.write("    }");
+        }
+        writer.write("\n]\n");
+    }
+
+    private static double mean(double[] values) {
+        return Arrays.stream(values).average().orElse(Double.NaN);
+    }
+
+    // Half-width of the 99.9% confidence interval (Student's t), as JMH reports it
+    private static double error(double[] values) {
+        int n = values.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double mean = mean(values);
+        double squares = Arrays.stream(values).map(v -> (v - mean) * (v - mean)).sum();
+        return studentT999(n - 1) * Math.sqrt(squares / (n - 1)) / Math.sqrt(n);
+    }
+
+    // Two-sided 99.9% quantiles for 1..30 degrees of freedom; the normal value beyond
+    private static double studentT999(int degreesOfFreedom) {
+        double[] table = {
+            636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+            4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+            3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+        };
+        return degreesOfFreedom <= table.length ? table[degreesOfFreedom - 1] : 3.291;
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+    }
+}
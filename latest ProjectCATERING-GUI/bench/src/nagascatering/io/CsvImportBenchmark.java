@@ -0,0 +1,138 @@
+package nagascatering.io;
+
+import nagascatering.data.InMemoryDataManager;
+import nagascatering.data.WorkloadGenerator;
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Measures a bulk CSV import into a fresh in-memory store.
+ * <p>
+ * Writes the generated catalog and N generated bookings as CSV files, with menu items and
+ * packages referred to by name, one row in 100 invalid and one in 200 repeating the row before
+ * it. Then imports the catalog and times the booking import.
+ * Run with {@code ant bench-csv-import} (optionally {@code -Dbench.bookings=...}).
+ * <p>
+ * Usage: {@code CsvImportBenchmark [bookings] [workDir]}
+ */
+public class CsvImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int bookingCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean temporary = args.length <= 1; // A given work directory is left in place for inspection
+        Path workDir = temporary ? Files.createTempDirectory("csv-import-bench") : Paths.get(args[1]);
+        deleteRecursively(workDir);
+        Files.createDirectories(workDir.resolve("store"));
+
+        WorkloadGenerator generator = new WorkloadGenerator(42);
+        Path menuItemFile = workDir.resolve("menu-items.csv");
+        Path packageFile = workDir.resolve("packages.csv");
+        Path bookingFile = workDir.resolve("bookings.csv");
+        long start = System.nanoTime();
+        Map<Integer, String> menuItemNames = writeMenuItems(menuItemFile, generator.generateMenuItems());
+        Map<Integer, String> packageNames = writePackages(packageFile, generator.generatePackages());
+        writeBookings(bookingFile, generator.generateBookings(bookingCount), menuItemNames, packageNames);
+        System.out.printf("Wrote %,d booking rows (%,d MB) in %.1f s%n", bookingCount,
+                Files.size(bookingFile) >> 20, (System.nanoTime() - start) / 1e9);
+
+        System.setProperty(InMemoryDataManager.DATA_DIR_PROPERTY, workDir.resolve("store").toString());
+        InMemoryDataManager store = new InMemoryDataManager();
+        CsvImporter importer = new CsvImporter(store);
+        System.out.println(importer.importMenuItems(menuItemFile, null));
+        System.out.println(importer.importPackages(packageFile, null));
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        ImportResult result;
+        try (Writer report = Files.newBufferedWriter(workDir.resolve("bookings.errors.csv"), StandardCharsets.UTF_8)) {
+            result = importer.importBookings(bookingFile, report);
+        }
+        System.out.println(result);
+        System.out.printf("%,.0f rows/s, heap grew %,d MB for %,d stored bookings%n",
+                result.getRowsRead() * 1000.0 / Math.max(1, result.getElapsedMillis()),
+                (runtime.totalMemory() - runtime.freeMemory() - heapBefore) >> 20,
+                store.getStatusSummary().getTotalCount());
+
+        if (temporary) {
+            deleteRecursively(workDir);
+        }
+        System.exit(0); // The store's journal thread keeps the JVM alive
+    }
+
+    private static Map<Integer, String> writeMenuItems(Path file, List<MenuItem> items) throws IOException {
+        Map<Integer, String> names = new HashMap<>();
+        try (CsvWriter csv = new CsvWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            csv.row("name", "description", "cost_per_unit", "unit_type", "is_active");
+            for (MenuItem item : items) {
+                names.put(item.getItemId(), item.getName());
+                csv.row(item.getName(), item.getDescription(), Double.toString(item.getCostPerUnit()),
+                        item.getUnitType(), Boolean.toString(item.isActive()));
+            }
+        }
+        return names;
+    }
+
+    private static Map<Integer, String> writePackages(Path file, List<Package> packages) throws IOException {
+        Map<Integer, String> names = new HashMap<>();
+        try (CsvWriter csv = new CsvWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            csv.row("name", "description", "price", "capacity", "included_items", "is_active");
+            for (Package pkg : packages) {
+                names.put(pkg.getPackageId(), pkg.getName());
+                csv.row(pkg.getName(), pkg.getDescription(), Double.toString(pkg.getPrice()),
+                        Integer.toString(pkg.getCapacity()), pkg.getIncludedItemsDesc(), Boolean.toString(pkg.isActive()));
+            }
+        }
+        return names;
+    }
+
+    private static void writeBookings(Path file, Iterator<Booking> bookings, Map<Integer, String> menuItemNames,
+                                      Map<Integer, String> packageNames) throws IOException {
+        try (CsvWriter csv = new CsvWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            csv.row("customer_name", "customer_contact", "event_date", "event_time", "venue_address",
+                    "theme_description", "num_guests", "package", "booking_status", "custom_requests", "items");
+            String[] previous = null;
+            StringBuilder items = new StringBuilder();
+            for (int row = 1; bookings.hasNext(); row++) {
+                Booking booking = bookings.next();
+                items.setLength(0);
+                for (BookingItem item : booking.getBookingItems()) {
+                    items.append(items.length() > 0 ? ";" : "").append(menuItemNames.get(item.getItemId()))
+                            .append(':').append(item.getQuantity());
+                }
+                String[] fields = {booking.getCustomerName(),
+                        row % 100 == 0 ? "call me" : booking.getCustomerContact(), // Invalid
+                        booking.getEventDate().toString(), booking.getEventTime(), booking.getVenueAddress(),
+                        booking.getThemeDescription(), Integer.toString(booking.getNumGuests()),
+                        packageNames.get(booking.getSelectedPackageId()), booking.getBookingStatus(),
+                        booking.getCustomRequests(), items.toString()};
+                csv.row(row % 200 == 51 ? previous : fields); // Duplicate
+                previous = fields;
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
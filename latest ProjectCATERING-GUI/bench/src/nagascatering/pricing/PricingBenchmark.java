@@ -0,0 +1,120 @@
+package nagascatering.pricing;
+
+import nagascatering.data.WorkloadGenerator;
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.Package;
+import nagascatering.model.UnitType;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Quote throughput of {@link PricingEngine}, plus two checks: every quote is compared with the
+ * same price worked out in BigDecimal (so "exact to the centavo" is verified, not assumed), and
+ * the bytes the measuring thread allocates per quote are reported (expected: 0).
+ * <p>
+ * Prices N seeded bookings from {@link WorkloadGenerator} over and over, single-threaded, for
+ * warmup and measured iterations of a fixed duration. Run with {@code ant bench-pricing}
+ * (properties {@code bench.bookings}, {@code bench.warmup}, {@code bench.iterations},
+ * {@code bench.seconds}).
+ * <p>
+ * Usage: {@code PricingBenchmark [bookings] [warmup] [iterations] [seconds]}
+ */
+public class PricingBenchmark {
+
+    private static final long SEED = 42;
+
+    private static volatile long sink; // Keeps results live so the loop is not optimized away
+
+    public static void main(String[] args) {
+        int bookingCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        WorkloadGenerator generator = new WorkloadGenerator(SEED);
+        List<Package> catalog = generator.generatePackages();
+        Package[] packageById = new Package[catalog.size() + 1];
+        for (Package pkg : catalog) {
+            packageById[pkg.getPackageId()] = pkg;
+        }
+        Package[] packages = new Package[bookingCount];
+        List<List<BookingItem>> items = new ArrayList<>(bookingCount);
+        int[] guests = new int[bookingCount];
+        Iterator<Booking> bookings = generator.generateBookings(bookingCount);
+        for (int i = 0; i < bookingCount; i++) {
+            Booking booking = bookings.next();
+            packages[i] = booking.getSelectedPackageId() != null ? packageById[booking.getSelectedPackageId()] : null;
+            items.add(booking.getBookingItems());
+            guests[i] = booking.getNumGuests();
+        }
+
+        int mismatches = verify(packages, items, guests);
+        System.out.printf("Verified %,d quotes against BigDecimal: %d mismatches%n", bookingCount, mismatches);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        Quote quote = new Quote();
+        double[] scores = new double[iterations];
+        for (int iteration = -warmup; iteration < iterations; iteration++) {
+            long quotes = 0;
+            long total = 0;
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long deadline = start + seconds * 1_000_000_000L;
+            long now;
+            do {
+                for (int i = 0; i < bookingCount; i++) {
+                    total += PricingEngine.quote(packages[i], items.get(i), guests[i], quote).getTotalCentavos();
+                }
+                quotes += bookingCount;
+                now = System.nanoTime();
+            } while (now < deadline);
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            sink = total;
+            double perSecond = quotes / ((now - start) / 1e9);
+            System.out.printf("%s %d: %,.0f quotes/s, %.3f bytes allocated per quote%n",
+                    iteration < 0 ? "warmup" : "iteration", iteration < 0 ? iteration + warmup + 1 : iteration + 1,
+                    perSecond, (double) allocated / quotes);
+            if (iteration >= 0) {
+                scores[iteration] = perSecond;
+            }
+        }
+        double mean = 0;
+        for (double score : scores) {
+            mean += score / scores.length;
+        }
+        System.out.printf("Result: %,.0f quotes/s (mean of %d iterations, %,d bookings, %.1f lines per quote)%n",
+                mean, iterations, bookingCount, lineCount(items) / (double) bookingCount);
+    }
+
+    // Same rules as the engine, in BigDecimal: per-person lines by guests, the rest by quantity
+    private static int verify(Package[] packages, List<List<BookingItem>> items, int[] guests) {
+        Quote quote = new Quote();
+        int mismatches = 0;
+        for (int i = 0; i < packages.length; i++) {
+            BigDecimal expected = packages[i] != null ? BigDecimal.valueOf(packages[i].getPrice()) : BigDecimal.ZERO;
+            for (BookingItem item : items.get(i)) {
+                int units = item.getMenuItem().getUnit() == UnitType.PER_PERSON ? guests[i] : item.getQuantity();
+                expected = expected.add(BigDecimal.valueOf(item.getMenuItem().getCostPerUnit()).multiply(BigDecimal.valueOf(units)));
+            }
+            long expectedCentavos = expected.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+            if (PricingEngine.quote(packages[i], items.get(i), guests[i], quote).getTotalCentavos() != expectedCentavos) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    private static long lineCount(List<List<BookingItem>> items) {
+        long lines = 0;
+        for (List<BookingItem> list : items) {
+            lines += list.size();
+        }
+        return lines;
+    }
+}
@@ -1,5 +1,6 @@
 package nagascatering;
 
+import nagascatering.controller.MainController;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
@@ -39,8 +40,9 @@ public class MainApp extends Application {
             FXMLLoader loader = new FXMLLoader(fxmlUrl);
             root = loader.load(); // Load the FXML, controller is instantiated here
 
-            // Controller instance is obtained if needed, but setup is often done in controller's initialize
-            // MainController mainController = loader.getController();
+            // Stop background tasks and print jobs with the window rather than at JVM exit
+            MainController mainController = loader.getController();
+            primaryStage.setOnHidden(e -> mainController.shutdown());
 
             Scene scene = new Scene(root);
 
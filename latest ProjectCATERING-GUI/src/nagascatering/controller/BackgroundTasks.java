@@ -0,0 +1,60 @@
+package nagascatering.controller;
+
+import nagascatering.data.Metrics;
+import javafx.concurrent.Task;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Starts controller background tasks on the application's {@link TaskScheduler} and records how
+ * long each one ran in the {@link Metrics} histogram {@code task.<name>} (failed or cancelled runs
+ * count as errors). The time covers the task's work on the background thread, not the wait for a
+ * thread nor the UI updates that follow it.
+ */
+final class BackgroundTasks {
+
+    private static volatile TaskScheduler scheduler;
+
+    private BackgroundTasks() {}
+
+    /** Makes the scheduler the one tasks start on, e.g. the MainController's. */
+    static void install(TaskScheduler installed) {
+        scheduler = installed;
+    }
+
+    static void start(String name, Task<?> task) {
+        scheduler().execute(name, () -> {
+            long start = System.nanoTime();
+            task.run();
+            Metrics.histogram("task." + name).record(System.nanoTime() - start, failed(task));
+        }, () -> task.cancel(false));
+    }
+
+    // A controller used without the MainController still gets a configured scheduler
+    private static TaskScheduler scheduler() {
+        TaskScheduler current = scheduler;
+        if (current == null) {
+            synchronized (BackgroundTasks.class) {
+                if (scheduler == null) {
+                    scheduler = TaskScheduler.fromConfiguration();
+                }
+                current = scheduler;
+            }
+        }
+        return current;
+    }
+
+    // The task has finished running here, so get() returns at once; getException() is only set
+    // later on the FX thread
+    private static boolean failed(Task<?> task) {
+        try {
+            task.get();
+            return false;
+        } catch (ExecutionException | CancellationException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+}
@@ -1,24 +1,28 @@
 package nagascatering.controller;
 
-import nagascatering.data.InMemoryDataManager; // Ensure this is the correct data manager
+import nagascatering.data.DataRepository;
 import nagascatering.model.Booking;
 import nagascatering.model.Package;
 import nagascatering.model.BookingItem;
+import nagascatering.model.BookingRules;
 import nagascatering.model.MenuItem;
+import nagascatering.model.UnitType;
+import nagascatering.pricing.PricingEngine;
+import nagascatering.pricing.Quote;
+import nagascatering.pricing.RunningQuote;
 
 import java.net.URL;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
@@ -52,25 +56,38 @@ public class BookingFormController implements Initializable, SubControllerInterf
     @FXML private Button addItemButton;
     @FXML private Button removeItemButton;
 
-    private InMemoryDataManager dataManager;
+    private DataRepository dataManager;
     private ObservableList<Package> packageList = FXCollections.observableArrayList();
     private MainController mainController;
 
     private ObservableList<BookingItem> currentBookingItems = FXCollections.observableArrayList();
     private ObservableList<MenuItem> availableMenuItems = FXCollections.observableArrayList();
+    private final Quote quote = new Quote(); // Refilled when saving (FX thread only)
+    private final RunningQuote runningQuote = new RunningQuote(); // Kept in step with currentBookingItems
+    private boolean itemsRefreshPending;
+    private final AnimationTimer itemsRefresh = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            itemsRefreshPending = false;
+            bookingItemsListView.refresh();
+        }
+    };
 
     private static final Logger LOGGER = Logger.getLogger(BookingFormController.class.getName());
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
     @Override
     public void setMainController(MainController mainController) {
         this.mainController = mainController;
     }
 
+    @Override
+    public void setDataRepository(DataRepository dataRepository) {
+        this.dataManager = dataRepository;
+    }
+
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        // Initialize DataManager (Consider dependency injection later)
-        dataManager = new InMemoryDataManager();
         progressIndicator.setVisible(false); // Ensure hidden at start
         setupSpinners();
         setupPackageComboBox();
@@ -84,8 +101,9 @@ public class BookingFormController implements Initializable, SubControllerInterf
         SpinnerValueFactory<Integer> guestValueFactory = new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 1000, 50);
         numGuestsSpinner.setValueFactory(guestValueFactory);
         numGuestsSpinner.setEditable(true);
+        runningQuote.setGuests(guestValueFactory.getValue());
         // Recalculate cost whenever guest count changes
-        numGuestsSpinner.valueProperty().addListener((obs, oldVal, newVal) -> handleCalculateCost(null));
+        numGuestsSpinner.valueProperty().addListener((obs, oldVal, newVal) -> handleGuestsChanged());
     }
 
     private void loadInitialData() {
@@ -109,8 +127,8 @@ public class BookingFormController implements Initializable, SubControllerInterf
         loadMenuItemsTask.setOnFailed(e -> handleDataLoadFailure("menu items", loadMenuItemsTask.getException(), loadPackagesTask));
 
         // Start tasks in separate threads
-        new Thread(loadPackagesTask).start();
-        new Thread(loadMenuItemsTask).start();
+        BackgroundTasks.start("bookingForm.loadPackages", loadPackagesTask);
+        BackgroundTasks.start("bookingForm.loadMenuItems", loadMenuItemsTask);
     }
 
     private Task<List<Package>> createLoadPackagesTask() {
@@ -175,10 +193,8 @@ public class BookingFormController implements Initializable, SubControllerInterf
     }
 
     private void loadStatusOptions() {
-        statusComboBox.setItems(FXCollections.observableArrayList(
-            "Pending", "Confirmed", "Completed", "Cancelled"
-        ));
-        statusComboBox.getSelectionModel().select("Pending"); // Default status
+        statusComboBox.setItems(FXCollections.observableArrayList(BookingRules.STATUSES));
+        statusComboBox.getSelectionModel().select(BookingRules.STATUSES.get(0)); // Default status
     }
 
     private void setupCustomItemControls() {
@@ -205,15 +221,22 @@ public class BookingFormController implements Initializable, SubControllerInterf
         itemQuantitySpinner.setValueFactory(itemQtyFactory);
         itemQuantitySpinner.setEditable(true);
 
+        // Keep the running total in step with the list: each add, remove or replace is O(1)
+        currentBookingItems.addListener((ListChangeListener<BookingItem>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(runningQuote::remove);
+                change.getAddedSubList().forEach(runningQuote::add);
+            }
+        });
         bookingItemsListView.setItems(currentBookingItems);
         bookingItemsListView.setPlaceholder(new Label("No additional items added."));
-        // Customize cell display
+        // Customize cell display; costs are priced for the current guest count as cells are drawn
         bookingItemsListView.setCellFactory(lv -> new ListCell<BookingItem>() {
             @Override
             protected void updateItem(BookingItem item, boolean empty) {
                 super.updateItem(item, empty);
-                // Ensure BookingItem.toString() provides a good representation
-                setText((empty || item == null) ? null : item.toString());
+                setText((empty || item == null) ? null : String.format("%s x %d = ₱%.2f", item.getItemName(), item.getQuantity(),
+                        PricingEngine.toAmount(PricingEngine.linePrice(item, currentGuests()))));
             }
         });
 
@@ -232,57 +255,48 @@ public class BookingFormController implements Initializable, SubControllerInterf
 
     @FXML
     void handleCalculateCost(ActionEvent event) {
-        Package selectedPackage = packageComboBox.getValue();
-        double baseCost = (selectedPackage != null) ? selectedPackage.getPrice() : 0.0;
+        runningQuote.setPackage(packageComboBox.getValue());
+        runningQuote.setGuests(currentGuests());
+        updateCostLabel();
+    }
 
-        // Must recalculate per-person items FIRST, as guest count might have changed
-        recalculatePerPersonItemCosts();
+    // Runs on every spinner tick: O(1) however many items there are. Per-person lines show
+    // their new cost when the list is redrawn, at most once per pulse.
+    private void handleGuestsChanged() {
+        runningQuote.setGuests(currentGuests());
+        updateCostLabel();
+        if (runningQuote.hasPerPersonLines()) {
+            requestItemsRefresh();
+        }
+    }
 
-        // Then calculate total cost of additional items
-        double additionalCost = calculateAdditionalItemsCost();
+    private void updateCostLabel() {
+        costLabel.setText(String.format("₱ %.2f", runningQuote.toQuote(quote).getTotalCost()));
+    }
 
-        double totalCost = baseCost + additionalCost;
-        costLabel.setText(String.format("₱ %.2f", totalCost));
+    // Coalesces redraws: any number of requests within one pulse cause a single refresh
+    private void requestItemsRefresh() {
+        if (!itemsRefreshPending) {
+            itemsRefreshPending = true;
+            itemsRefresh.start();
+        }
     }
 
-    // Recalculates cost for items marked 'per_person' based on current guest count
+    // Stores the current costs in the item lines (only per-person lines depend on the guest count)
     private void recalculatePerPersonItemCosts() {
-        int currentGuests = numGuestsSpinner.getValue() != null ? numGuestsSpinner.getValue() : 0;
-        boolean costChanged = false;
-
-        for (BookingItem item : currentBookingItems) {
-            MenuItem menuItem = item.getMenuItem(); // Get the associated MenuItem
-             // Ensure menuItem is loaded and type is 'per_person' (case-insensitive)
-            if (menuItem != null && "per_person".equalsIgnoreCase(menuItem.getUnitType())) {
-                 // Cost is per unit * number of guests
-                double newCost = menuItem.getCostPerUnit() * currentGuests;
-                 // Use Double.compare for safe floating-point comparison
-                if (Double.compare(newCost, item.getCalculatedItemCost()) != 0) {
-                    item.setCalculatedItemCost(newCost);
-                    costChanged = true; // Mark that a change occurred
-                }
+        int currentGuests = currentGuests();
+        for (int i = 0; i < currentBookingItems.size(); i++) {
+            BookingItem item = currentBookingItems.get(i);
+            // Items are immutable (and may be shared with the stored booking): swap in a repriced line
+            BookingItem repriced = PricingEngine.reprice(item, currentGuests);
+            if (repriced != item) {
+                currentBookingItems.set(i, repriced);
             }
         }
-
-        // If any per-person item cost changed, refresh the list view and update total cost display
-        if (costChanged) {
-            bookingItemsListView.refresh(); // Update display of items in the list
-           // Don't call handleCalculateCost from here to avoid potential infinite loop
-           // Just update the total cost label directly after recalculating all items
-            double baseCost = (packageComboBox.getValue() != null) ? packageComboBox.getValue().getPrice() : 0.0;
-            double additionalCost = calculateAdditionalItemsCost(); // Get sum of updated item costs
-            costLabel.setText(String.format("₱ %.2f", baseCost + additionalCost));
-        }
     }
 
-
-    // Calculates the sum of costs for all items in the currentBookingItems list
-    private double calculateAdditionalItemsCost() {
-         // Ensure per-person items are updated before summing
-        // recalculatePerPersonItemCosts(); // Careful: This might be redundant if called just before
-        return currentBookingItems.stream()
-               .mapToDouble(BookingItem::getCalculatedItemCost) // Use the calculated cost
-               .sum();
+    private int currentGuests() {
+        return numGuestsSpinner.getValue() != null ? numGuestsSpinner.getValue() : 0;
     }
 
     @FXML
@@ -312,19 +326,15 @@ public class BookingFormController implements Initializable, SubControllerInterf
         for (BookingItem existingItem : currentBookingItems) {
             // Check if item ID matches AND it's NOT a per-person item
             if (existingItem.getItemId() == selectedMenuItem.getItemId() &&
-                !"per_person".equalsIgnoreCase(selectedMenuItem.getUnitType())) {
+                selectedMenuItem.getUnit() != UnitType.PER_PERSON) {
                 showAlert("Item Already Added", selectedMenuItem.getName() + " (non-per-person) is already in the list.\nRemove it first if you need to change its quantity.");
                 return;
             }
         }
 
         // Create and configure the new BookingItem
-        BookingItem newItem = new BookingItem();
-        newItem.setItemId(selectedMenuItem.getItemId());
-        newItem.setMenuItem(selectedMenuItem); // Store reference to MenuItem for details
-        newItem.setQuantity(quantity);
         // Calculate cost based on type and quantity/guests NOW
-        newItem.setCalculatedItemCost(calculateItemLineCost(selectedMenuItem, quantity));
+        BookingItem newItem = new BookingItem(selectedMenuItem, quantity, calculateItemLineCost(selectedMenuItem, quantity));
 
         currentBookingItems.add(newItem); // Add to the observable list (updates ListView)
         handleCalculateCost(null); // Update the total cost display
@@ -347,17 +357,8 @@ public class BookingFormController implements Initializable, SubControllerInterf
 
     // Calculates the cost for a single line item based on its type
     private double calculateItemLineCost(MenuItem menuItem, int quantity) {
-        if (menuItem == null || quantity <= 0) return 0.0;
-
-        int currentGuests = numGuestsSpinner.getValue() != null ? numGuestsSpinner.getValue() : 0;
-
-        if ("per_person".equalsIgnoreCase(menuItem.getUnitType())) {
-             // Cost is per unit * number of guests
-            return menuItem.getCostPerUnit() * currentGuests;
-        } else {
-            // Cost is per unit * quantity specified
-            return menuItem.getCostPerUnit() * quantity;
-        }
+        // Per-person items: unit cost * number of guests; others: unit cost * quantity
+        return PricingEngine.toAmount(PricingEngine.linePrice(menuItem, quantity, currentGuests()));
     }
 
     @FXML
@@ -383,20 +384,17 @@ public class BookingFormController implements Initializable, SubControllerInterf
 
         // Handle selected package
         Package selectedPackage = packageComboBox.getValue();
-        double baseCost = 0.0;
         if (selectedPackage != null) {
             booking.setSelectedPackageId(selectedPackage.getPackageId());
-            baseCost = selectedPackage.getPrice();
         } else {
             booking.setSelectedPackageId(null); // Explicitly null if no package
         }
 
         // Final cost calculation before saving
         recalculatePerPersonItemCosts(); // Ensure per-person items are correct
-        double additionalCost = calculateAdditionalItemsCost(); // Get final sum of added items
-        booking.setBasePackageCost(baseCost);
-        booking.setAdditionalItemsCost(additionalCost);
-        booking.setTotalCost(baseCost + additionalCost); // Sum of package + items
+        runningQuote.setPackage(selectedPackage);
+        runningQuote.setGuests(currentGuests());
+        runningQuote.toQuote(quote).applyTo(booking); // Package, items and their sum, exact to the centavo
 
         // Prepare list of items to be saved with the booking
         // Create a new list to avoid modification issues if save is async
@@ -454,7 +452,7 @@ public class BookingFormController implements Initializable, SubControllerInterf
         }));
 
         // Start the background task
-        new Thread(saveTask).start();
+        BackgroundTasks.start("bookingForm.save", saveTask);
     }
 
     // Validates required input fields and provides user feedback
@@ -465,14 +463,15 @@ public class BookingFormController implements Initializable, SubControllerInterf
         // Use a StringBuilder for a consolidated error message (optional)
         // StringBuilder errors = new StringBuilder();
 
-        if (customerNameField.getText() == null || customerNameField.getText().trim().isEmpty()) {
+        // The rules themselves are shared with the bulk importer (BookingRules)
+        if (BookingRules.isBlank(customerNameField.getText())) {
             customerNameField.getStyleClass().add("text-field-error"); isValid = false;
             // errors.append("- Customer Name is required.\n");
         }
-        if (customerContactField.getText() == null || customerContactField.getText().trim().isEmpty()) {
+        if (BookingRules.isBlank(customerContactField.getText())) {
             customerContactField.getStyleClass().add("text-field-error"); isValid = false;
             // errors.append("- Contact Number is required.\n");
-        } else if (!customerContactField.getText().trim().matches("^[\\d\\s+-]{5,}$")) {
+        } else if (!BookingRules.isValidContact(customerContactField.getText())) {
              // Basic format check (digits, spaces, plus, hyphen, min length 5)
             customerContactField.getStyleClass().add("text-field-error"); isValid = false;
             showAlert("Validation Error", "Contact Number format seems invalid. Use digits, spaces, +, -.");
@@ -491,16 +490,11 @@ public class BookingFormController implements Initializable, SubControllerInterf
         }
 
         // Validate time only if provided
-        String timeText = eventTimeField.getText().trim();
-        if (!timeText.isEmpty()) {
-            try {
-                LocalTime.parse(timeText, TIME_FORMATTER); // Try parsing HH:mm
-            } catch (DateTimeParseException ex) {
-                eventTimeField.getStyleClass().add("text-field-error");
-                showAlert("Validation Error", "Event time, if entered, must be in HH:mm format (e.g., 14:30).");
-                isValid = false;
-                // errors.append("- Event Time format is invalid (must be HH:mm or empty).\n");
-            }
+        if (!BookingRules.isValidTime(eventTimeField.getText())) {
+            eventTimeField.getStyleClass().add("text-field-error");
+            showAlert("Validation Error", "Event time, if entered, must be in HH:mm format (e.g., 14:30).");
+            isValid = false;
+            // errors.append("- Event Time format is invalid (must be HH:mm or empty).\n");
         }
 
         // Validate guest spinner
@@ -514,7 +508,7 @@ public class BookingFormController implements Initializable, SubControllerInterf
              // errors.append("- Invalid input for Number of Guests.\n");
         }
 
-        if (venueAddressArea.getText() == null || venueAddressArea.getText().trim().isEmpty()) {
+        if (BookingRules.isBlank(venueAddressArea.getText())) {
             venueAddressArea.getStyleClass().add("text-field-error"); isValid = false;
              // errors.append("- Venue Address is required.\n");
         }
@@ -557,7 +551,7 @@ public class BookingFormController implements Initializable, SubControllerInterf
         venueAddressArea.clear();
         themeField.clear();
         packageComboBox.getSelectionModel().clearSelection();
-        statusComboBox.getSelectionModel().select("Pending"); // Default status
+        statusComboBox.getSelectionModel().select(BookingRules.STATUSES.get(0)); // Default status
         customRequestsArea.clear();
         costLabel.setText("₱ 0.00"); // Reset cost display
 
@@ -1,33 +1,65 @@
 package nagascatering.controller;
 
-import nagascatering.data.InMemoryDataManager; // Added
+import nagascatering.data.BookingStatusSummary;
+import nagascatering.data.BookingTotals;
+import nagascatering.data.DataRepository;
+import nagascatering.io.BookingExporter;
 import nagascatering.model.Booking;
+import nagascatering.receipt.PrintSpooler;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ProgressIndicator; // Added
+import javafx.scene.control.TextField;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
+import java.io.File;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class DashboardController implements Initializable, SubControllerInterface {
 
     @FXML private Label upcomingEventsLabel;
     @FXML private Label statsLabel;
     @FXML private ProgressIndicator progressIndicator; // Added fx:id="progressIndicator" in FXML
+    @FXML private TextField searchField;
+    @FXML private ListView<String> searchResultsList;
+    @FXML private DatePicker exportFromPicker;
+    @FXML private DatePicker exportToPicker;
+    @FXML private Button exportButton;
+    @FXML private ProgressBar exportProgress;
+    @FXML private Button cancelExportButton;
+    @FXML private DatePicker printDayPicker;
+    @FXML private Button printDayButton;
+    @FXML private Label printDayStatusLabel;
+
+    private static final int SEARCH_RESULT_LIMIT = 20;
+    // Waits for a pause in typing so each keystroke doesn't start its own search
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(200));
 
     private MainController mainController;
-    private InMemoryDataManager dataManager; // Added
+    private DataRepository dataManager; // Added
+    private Task<Long> exportTask; // The running export, if any
+    private final List<Integer> searchResultIds = new ArrayList<>(); // Booking IDs, in list order
 
     private static final Logger LOGGER = Logger.getLogger(DashboardController.class.getName());
 
@@ -36,13 +68,106 @@ public class DashboardController implements Initializable, SubControllerInterfac
         this.mainController = mainController;
     }
 
+    @Override
+    public void setDataRepository(DataRepository dataRepository) {
+        this.dataManager = dataRepository;
+    }
+
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        dataManager = new InMemoryDataManager(); // Added
         if (progressIndicator != null) progressIndicator.setVisible(false); // Hide initially
+        if (searchField != null) {
+            searchDelay.setOnFinished(e -> runSearch(searchField.getText()));
+            searchField.textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
+        }
+        if (searchResultsList != null) {
+            searchResultsList.setOnMouseClicked(e -> {
+                int index = searchResultsList.getSelectionModel().getSelectedIndex();
+                if (e.getClickCount() == 2 && index >= 0 && index < searchResultIds.size()) {
+                    openReceipt(searchResultIds.get(index));
+                }
+            });
+        }
         loadDashboardData();
     }
 
+    private void runSearch(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            showSearchResults(null);
+            return;
+        }
+        Task<List<Booking>> searchTask = new Task<List<Booking>>() {
+            @Override
+            protected List<Booking> call() throws Exception {
+                return dataManager.searchBookings(query, SEARCH_RESULT_LIMIT);
+            }
+        };
+        searchTask.setOnSucceeded(e -> {
+            if (query.equals(searchField.getText())) { // Drop results for text that has since changed
+                showSearchResults(searchTask.getValue());
+            }
+        });
+        searchTask.setOnFailed(e -> LOGGER.log(Level.SEVERE, "Booking search failed", searchTask.getException()));
+        BackgroundTasks.start("dashboard.search", searchTask);
+    }
+
+    private void showSearchResults(List<Booking> results) {
+        boolean show = results != null;
+        searchResultsList.setVisible(show);
+        searchResultsList.setManaged(show);
+        searchResultsList.getItems().clear();
+        searchResultIds.clear();
+        if (results == null) {
+            return;
+        }
+        if (results.isEmpty()) {
+            searchResultsList.getItems().add("No matching bookings.");
+        }
+        for (Booking b : results) {
+            StringBuilder line = new StringBuilder("#").append(b.getBookingId()).append(" ")
+                    .append(b.getCustomerName() != null ? b.getCustomerName() : "N/A");
+            if (b.getEventDate() != null) {
+                line.append(" - ").append(b.getEventDate().format(java.time.format.DateTimeFormatter.ofPattern("MMM dd, yyyy")));
+            }
+            if (b.getVenueAddress() != null && !b.getVenueAddress().isEmpty()) {
+                line.append(" @ ").append(b.getVenueAddress());
+            }
+            line.append(" (").append(b.getBookingStatus()).append(")");
+            searchResultsList.getItems().add(line.toString());
+            searchResultIds.add(b.getBookingId());
+        }
+    }
+
+    // Loads the booking with its items and shows its receipt
+    private void openReceipt(int bookingId) {
+        Task<Booking> loadTask = new Task<Booking>() {
+            @Override
+            protected Booking call() throws Exception {
+                return dataManager.getBookingById(bookingId);
+            }
+        };
+        loadTask.setOnSucceeded(e -> {
+            Booking booking = loadTask.getValue();
+            if (booking == null) {
+                showAlert("Warning", "Booking #" + bookingId + " no longer exists.");
+                return;
+            }
+            if (mainController == null) {
+                showAlert("Navigation Error", "Cannot navigate. Main controller reference is missing.");
+                return;
+            }
+            ReceiptViewController receipt = mainController.navigateTo(ReceiptViewController.RECEIPT_VIEW, null);
+            if (receipt != null) {
+                receipt.loadReceiptData(booking);
+            }
+        });
+        loadTask.setOnFailed(e -> {
+            LOGGER.log(Level.SEVERE, "Failed to load booking " + bookingId, loadTask.getException());
+            showAlert("Error", "Could not load booking #" + bookingId + ".");
+        });
+        BackgroundTasks.start("dashboard.openReceipt", loadTask);
+    }
+
     private void loadDashboardData() {
         if (progressIndicator != null) progressIndicator.setVisible(true);
         upcomingEventsLabel.setText("Upcoming Events: (Loading...)");
@@ -70,26 +195,20 @@ public class DashboardController implements Initializable, SubControllerInterfac
                 checkLoadCompletion(loadUpcomingTask); // Check if upcoming task is done
             }));
 
-            new Thread(loadStatsTask).start(); // Start stats task
+            BackgroundTasks.start("dashboard.statistics", loadStatsTask); // Start stats task
         } else {
             checkLoadCompletion(loadUpcomingTask);
         }
 
-        new Thread(loadUpcomingTask).start(); // Start upcoming events task
+        BackgroundTasks.start("dashboard.upcoming", loadUpcomingTask); // Start upcoming events task
     }
 
     private Task<List<Booking>> createUpcomingEventsTask() {
          return new Task<List<Booking>>() {
              @Override
              protected List<Booking> call() throws Exception {
-                 List<Booking> allBookings = dataManager.getAllBookings(); // Updated
-                 LocalDate today = LocalDate.now();
-                 return allBookings.stream()
-                         .filter(b -> b.getEventDate() != null && !b.getEventDate().isBefore(today))
-                         .sorted(Comparator.comparing(Booking::getEventDate)
-                                   .thenComparing(Booking::getEventTime, Comparator.nullsLast(Comparator.naturalOrder())))
-                         .limit(5)
-                         .collect(Collectors.toList());
+                 // Served from the event-date index; no need to load and sort every booking
+                 return dataManager.getUpcoming(5);
             }
          };
     }
@@ -100,16 +219,23 @@ public class DashboardController implements Initializable, SubControllerInterfac
          return new Task<String>() {
              @Override
              protected String call() throws Exception {
-                 List<Booking> allBookings = dataManager.getAllBookings(); // Updated
-                 long totalBookings = allBookings.size();
-                 long confirmedBookings = allBookings.stream()
-                                                    .filter(b -> "Confirmed".equalsIgnoreCase(b.getBookingStatus()))
-                                                    .count();
-                 long pendingBookings = allBookings.stream()
-                                                    .filter(b -> "Pending".equalsIgnoreCase(b.getBookingStatus()))
-                                                    .count();
-                 return String.format("Total Bookings: %d\nConfirmed: %d | Pending: %d",
-                                      totalBookings, confirmedBookings, pendingBookings);
+                 // Counters are maintained by the data layer; no need to scan the bookings
+                 BookingStatusSummary summary = dataManager.getStatusSummary();
+                 long totalBookings = summary.getTotalCount();
+                 long confirmedBookings = summary.getCount("Confirmed");
+                 long pendingBookings = summary.getCount("Pending");
+
+                 // Aggregated from primitive columns by the data layer, not from Booking objects
+                 LocalDate today = LocalDate.now();
+                 BookingTotals month = dataManager.getBookingTotals(today.withDayOfMonth(1),
+                                                                    today.withDayOfMonth(today.lengthOfMonth()));
+                 BookingTotals.Group cancelled = month.forStatus("Cancelled");
+                 return String.format("Total Bookings: %d\nConfirmed: %d | Pending: %d"
+                                      + "\nThis Month: %d events, %d guests, revenue %,.2f",
+                                      totalBookings, confirmedBookings, pendingBookings,
+                                      month.getTotal().getCount() - cancelled.getCount(),
+                                      month.getTotal().getGuests() - cancelled.getGuests(),
+                                      month.getTotal().getRevenue() - cancelled.getRevenue());
              }
          };
      }
@@ -182,6 +308,130 @@ public class DashboardController implements Initializable, SubControllerInterfac
         loadDashboardData();
     }
 
+    // Exports the bookings in the chosen date range (either end may be left empty) for accounting,
+    // in the background with a progress bar and a cancel button
+    @FXML
+    void handleExportBookings(ActionEvent event) {
+        LocalDate from = exportFromPicker.getValue();
+        LocalDate to = exportToPicker.getValue();
+        if (from != null && to != null && to.isBefore(from)) {
+            showAlert("Export Warning", "The 'To' date is before the 'From' date.");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Bookings");
+        FileChooser.ExtensionFilter csv = new FileChooser.ExtensionFilter("CSV (*.csv)", "*.csv");
+        FileChooser.ExtensionFilter jsonLines = new FileChooser.ExtensionFilter("JSON Lines (*.jsonl)", "*.jsonl");
+        chooser.getExtensionFilters().addAll(csv, jsonLines);
+        chooser.setInitialFileName("bookings.csv");
+        File file = chooser.showSaveDialog(exportButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        Path path = file.toPath();
+        BookingExporter.Format format = chooser.getSelectedExtensionFilter() == jsonLines
+                ? BookingExporter.Format.JSON_LINES : BookingExporter.Format.forFile(path);
+
+        exportTask = new Task<Long>() {
+            @Override
+            protected Long call() throws Exception {
+                return new BookingExporter(dataManager).export(path, format, from, to,
+                        (done, total) -> updateProgress(done, total), this::isCancelled);
+            }
+        };
+        exportProgress.progressProperty().bind(exportTask.progressProperty());
+        setExporting(true);
+
+        exportTask.setOnSucceeded(e -> {
+            setExporting(false);
+            showAlert("Export Complete", exportTask.getValue() + " booking(s) exported to " + path.getFileName() + ".");
+        });
+        exportTask.setOnCancelled(e -> {
+            setExporting(false);
+            showAlert("Export Cancelled", "The export was cancelled; no file was written.");
+        });
+        exportTask.setOnFailed(e -> {
+            Throwable error = exportTask.getException();
+            LOGGER.log(Level.SEVERE, "Failed to export bookings to " + path, error);
+            setExporting(false);
+            showAlert("Export Error", "Could not export bookings: " + error.getMessage());
+        });
+
+        BackgroundTasks.start("dashboard.export", exportTask);
+    }
+
+    // Queues the receipt of every booking on the chosen event day (today if none) behind any
+    // receipt printed from the receipt screen; the UI stays usable while they print
+    @FXML
+    void handlePrintDay(ActionEvent event) {
+        LocalDate day = printDayPicker.getValue() != null ? printDayPicker.getValue() : LocalDate.now();
+        if (mainController == null) {
+            showAlert("Print Error", "Cannot print. Main controller reference is missing.");
+            return;
+        }
+        PrintSpooler spooler = mainController.getPrintSpooler();
+        LongAdder printed = new LongAdder();
+        LongAdder spooled = new LongAdder();
+        LongAdder failed = new LongAdder();
+        // Queues each booking as the day's index range yields it (receipts need the items, which
+        // getBookingsBetween may leave unloaded); only the job futures are kept
+        Task<List<CompletableFuture<?>>> queueTask = new Task<List<CompletableFuture<?>>>() {
+            @Override
+            protected List<CompletableFuture<?>> call() throws Exception {
+                List<CompletableFuture<?>> jobs = new ArrayList<>();
+                try (Stream<Booking> bookings = dataManager.streamBookingsWithItems(day, day)) {
+                    bookings.forEach(booking -> jobs.add(spooler.print(booking, PrintSpooler.Priority.BULK)
+                            .handle((outcome, error) -> {
+                                (error != null ? failed : outcome.isPrinted() ? printed : spooled).increment();
+                                return null;
+                            })));
+                }
+                return jobs;
+            }
+        };
+        printDayButton.setDisable(true);
+        queueTask.setOnSucceeded(e -> {
+            printDayButton.setDisable(false);
+            List<CompletableFuture<?>> jobs = queueTask.getValue();
+            if (jobs.isEmpty()) {
+                showAlert("Print Receipts", "There are no bookings on " + day + ".");
+                return;
+            }
+            printDayStatusLabel.setText("Printing " + jobs.size() + " receipt(s) for " + day + "...");
+            CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0])).thenRun(() -> Platform.runLater(() -> {
+                String summary = String.format("%s: %d printed, %d saved to %s, %d failed.",
+                        day, printed.sum(), spooled.sum(), spooler.getSpoolDirectory(), failed.sum());
+                printDayStatusLabel.setText(summary);
+                LOGGER.info("Day's receipts " + summary);
+            }));
+        });
+        queueTask.setOnFailed(e -> {
+            printDayButton.setDisable(false);
+            LOGGER.log(Level.SEVERE, "Failed to queue the receipts for " + day, queueTask.getException());
+            showAlert("Print Error", "Could not load the bookings for " + day + ".");
+        });
+        BackgroundTasks.start("dashboard.printDay", queueTask);
+    }
+
+    @FXML
+    void handleCancelExport(ActionEvent event) {
+        if (exportTask != null) {
+            exportTask.cancel(false); // The exporter stops between bookings; an interrupt could close a database connection
+        }
+    }
+
+    private void setExporting(boolean exporting) {
+        if (!exporting) {
+            exportProgress.progressProperty().unbind();
+            exportTask = null;
+        }
+        exportButton.setDisable(exporting);
+        exportFromPicker.setDisable(exporting);
+        exportToPicker.setDisable(exporting);
+        exportProgress.setVisible(exporting);
+        cancelExportButton.setVisible(exporting);
+    }
+
     private void navigateTo(String fxmlPath) {
          if (mainController != null) {
              mainController.navigateTo(fxmlPath);
@@ -0,0 +1,25 @@
+package nagascatering.controller;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn;
+import javafx.util.Callback;
+import java.util.function.Function;
+
+/**
+ * Table cell value factories over the plain model getters. The model classes carry no JavaFX
+ * properties; a TableView asks for cell values only for the rows it shows, so a read-only
+ * wrapper exists just for those rows rather than several properties for every loaded object.
+ * After editing a row in place, call {@code TableView.refresh()} to show the new values.
+ */
+final class FxCells {
+
+    private FxCells() {}
+
+    static <S, T> Callback<TableColumn.CellDataFeatures<S, T>, ObservableValue<T>> of(Function<S, T> getter) {
+        return features -> {
+            S row = features.getValue();
+            return row == null ? null : new ReadOnlyObjectWrapper<>(getter.apply(row));
+        };
+    }
+}
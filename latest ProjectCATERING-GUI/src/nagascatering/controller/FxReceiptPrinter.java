@@ -0,0 +1,61 @@
+package nagascatering.controller;
+
+import nagascatering.receipt.PrintSpooler;
+import nagascatering.receipt.ReceiptRenderer;
+import javafx.geometry.VPos;
+import javafx.print.PageLayout;
+import javafx.print.Printer;
+import javafx.print.PrinterJob;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import java.util.List;
+
+/**
+ * Prints receipt text on the default printer in a monospaced font, one page per node, without
+ * a dialog. JavaFX allows printing off the FX thread, so this runs on the spooler's thread.
+ */
+final class FxReceiptPrinter implements PrintSpooler.Printer {
+
+    private static final Font FONT = Font.font("Monospaced", 10);
+
+    @Override
+    public boolean isAvailable() {
+        return Printer.getDefaultPrinter() != null;
+    }
+
+    @Override
+    public void print(String jobName, String text) throws Exception {
+        PrinterJob job = PrinterJob.createPrinterJob();
+        if (job == null) {
+            throw new IllegalStateException("No printer available");
+        }
+        boolean done = false;
+        try {
+            job.getJobSettings().setJobName(jobName);
+            PageLayout layout = job.getJobSettings().getPageLayout();
+            Text probe = new Text("M");
+            probe.setFont(FONT);
+            int columns = Math.max(ReceiptRenderer.COLUMNS / 2,
+                    (int) (layout.getPrintableWidth() / probe.getLayoutBounds().getWidth()));
+            int lines = Math.max(3, (int) (layout.getPrintableHeight() / probe.getLayoutBounds().getHeight()));
+
+            List<String> pages = ReceiptRenderer.paginate(text, columns, lines);
+            for (String page : pages) {
+                Text node = new Text(page);
+                node.setFont(FONT);
+                node.setTextOrigin(VPos.TOP);
+                if (!job.printPage(node)) {
+                    throw new IllegalStateException("Printer refused page of " + jobName + ": " + job.getJobStatus());
+                }
+            }
+            done = job.endJob();
+            if (!done) {
+                throw new IllegalStateException("Printer did not finish " + jobName + ": " + job.getJobStatus());
+            }
+        } finally {
+            if (!done) {
+                job.cancelJob();
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package nagascatering.controller;
 
+import nagascatering.data.DataRepositories;
+import nagascatering.data.DataRepository;
+import nagascatering.receipt.PrintSpooler;
+import nagascatering.receipt.ReceiptRenderer;
 import java.io.IOException;
 import java.net.URL; // Import URL for checking resource existence
 import java.util.logging.Level;
@@ -21,6 +25,21 @@ public class MainController {
 
     private static final Logger LOGGER = Logger.getLogger(MainController.class.getName());
 
+    private static final long SHUTDOWN_WAIT_MILLIS = 5_000; // For running background tasks
+
+    // One repository for the whole application, handed to every sub-controller
+    private final DataRepository dataRepository = DataRepositories.fromConfiguration();
+    // One renderer, so every receipt view shares its cache
+    private final ReceiptRenderer receiptRenderer = new ReceiptRenderer(dataRepository);
+    // One print queue, so receipts from every screen print in priority order
+    private final PrintSpooler printSpooler = createPrintSpooler();
+    // Runs every controller's background tasks, a few at a time
+    private final TaskScheduler taskScheduler = TaskScheduler.fromConfiguration();
+
+    public MainController() {
+        BackgroundTasks.install(taskScheduler);
+    }
+
     @FXML
     private void initialize() {
         // Load the dashboard initially after UI setup is complete
@@ -65,6 +84,27 @@ public class MainController {
     }
 
 
+    private PrintSpooler createPrintSpooler() {
+        PrintSpooler spooler = new PrintSpooler(receiptRenderer,
+                PrintSpooler.isSpoolOnly() ? null : new FxReceiptPrinter(), PrintSpooler.configuredSpoolDirectory());
+        // Jobs still queued at exit are written to the spool directory rather than lost
+        Runtime.getRuntime().addShutdownHook(new Thread(spooler::close, "print-spooler-shutdown"));
+        return spooler;
+    }
+
+    // Creates FXML controllers and injects the shared repository before their initialize() runs
+    private Object createController(Class<?> type) {
+        try {
+            Object controller = type.getDeclaredConstructor().newInstance();
+            if (controller instanceof SubControllerInterface) {
+                ((SubControllerInterface) controller).setDataRepository(dataRepository);
+            }
+            return controller;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create controller " + type.getName(), e);
+        }
+    }
+
     // --- Helper method to load views into the content area ---
     // Updated to handle data passing (though data is null in direct calls above)
     private <T> T loadView(String fxmlPath, Object data) {
@@ -77,6 +117,7 @@ public class MainController {
             }
 
             FXMLLoader loader = new FXMLLoader(fxmlUrl);
+            loader.setControllerFactory(this::createController);
             Parent view = loader.load();
 
             // --- Setup Controller Communication & Data Passing ---
@@ -147,6 +188,25 @@ public class MainController {
 
     // --- Navigation methods accessible by sub-controllers ---
 
+    public ReceiptRenderer getReceiptRenderer() {
+        return receiptRenderer;
+    }
+
+    public PrintSpooler getPrintSpooler() {
+        return printSpooler;
+    }
+
+    /**
+     * Stops background work when the main window closes: tasks not yet started are cancelled,
+     * running ones get a few seconds to finish, and waiting print jobs are spooled.
+     */
+    public void shutdown() {
+        LOGGER.log(Level.INFO, "Shutting down: {0} background task(s) running, {1} waiting",
+                new Object[]{taskScheduler.getRunning(), taskScheduler.getQueued()});
+        taskScheduler.shutdown(SHUTDOWN_WAIT_MILLIS);
+        printSpooler.close();
+    }
+
     /**
      * Loads the specified FXML view into the main content area.
      * Ensures the path starts with '/' for absolute loading from classpath root.
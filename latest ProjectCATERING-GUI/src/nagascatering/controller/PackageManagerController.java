@@ -1,6 +1,8 @@
 package nagascatering.controller;
 
-import nagascatering.data.InMemoryDataManager;
+import nagascatering.data.BookingRepricer;
+import nagascatering.data.DataRepository;
+import nagascatering.data.SaveResult;
 import nagascatering.model.Package;
 
 import java.net.URL;
@@ -18,7 +20,6 @@ import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 
 public class PackageManagerController implements Initializable, SubControllerInterface {
 
@@ -40,7 +41,7 @@ public class PackageManagerController implements Initializable, SubControllerInt
     @FXML private Button newButton;
     @FXML private Button clearButton;
 
-    private InMemoryDataManager dataManager;
+    private DataRepository dataManager;
     private ObservableList<Package> packageList = FXCollections.observableArrayList();
     private Package currentlySelectedPackage = null;
     private MainController mainController;
@@ -52,9 +53,13 @@ public class PackageManagerController implements Initializable, SubControllerInt
         this.mainController = mainController;
     }
 
+    @Override
+    public void setDataRepository(DataRepository dataRepository) {
+        this.dataManager = dataRepository;
+    }
+
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        dataManager = new InMemoryDataManager();
         progressIndicator.setVisible(false);
         configureTable();
         loadPackages();
@@ -69,10 +74,10 @@ public class PackageManagerController implements Initializable, SubControllerInt
         packageTableView.setItems(packageList);
         packageTableView.setPlaceholder(new Label("No packages found. Create one using 'New'."));
 
-        colPackageName.setCellValueFactory(new PropertyValueFactory<>("name"));
-        colPrice.setCellValueFactory(new PropertyValueFactory<>("price"));
-        colCapacity.setCellValueFactory(new PropertyValueFactory<>("capacity"));
-        colIsActive.setCellValueFactory(new PropertyValueFactory<>("active"));
+        colPackageName.setCellValueFactory(FxCells.of(Package::getName));
+        colPrice.setCellValueFactory(FxCells.of(Package::getPrice));
+        colCapacity.setCellValueFactory(FxCells.of(Package::getCapacity));
+        colIsActive.setCellValueFactory(FxCells.of(Package::isActive));
 
         colPrice.setCellFactory(tc -> new TableCell<Package, Double>() {
             @Override
@@ -143,7 +148,7 @@ public class PackageManagerController implements Initializable, SubControllerInt
             deleteButton.setDisable(true);
         }));
 
-        new Thread(loadTask).start();
+        BackgroundTasks.start("packageManager.load", loadTask);
     }
 
     private void populateForm(Package pkg) {
@@ -194,6 +199,8 @@ public class PackageManagerController implements Initializable, SubControllerInt
             }
         }
 
+        // Pending bookings on the package are repriced if the price changes
+        final double previousPrice = pkgToSave.getPrice();
         try {
             pkgToSave.setName(nameField.getText().trim());
             pkgToSave.setPrice(Double.parseDouble(priceField.getText().trim()));
@@ -211,20 +218,31 @@ public class PackageManagerController implements Initializable, SubControllerInt
         progressIndicator.setVisible(true);
 
         final Package finalPkgToSave = pkgToSave;
-        Task<Boolean> saveTask = new Task<Boolean>() {
+        // Updates only go through if nobody else saved the package since it was loaded
+        final long expectedVersion = isNew ? DataRepository.ANY_VERSION : pkgToSave.getVersion();
+        Task<SaveResult> saveTask = new Task<SaveResult>() {
             @Override
-            protected Boolean call() throws Exception {
-                return dataManager.savePackage(finalPkgToSave);
+            protected SaveResult call() throws Exception {
+                return dataManager.savePackage(finalPkgToSave, expectedVersion);
             }
         };
 
         saveTask.setOnSucceeded(e -> Platform.runLater(() -> {
+            SaveResult result = saveTask.getValue();
+            if (result.isSaved() && !isNew && finalPkgToSave.getPrice() != previousPrice) {
+                repricePendingBookings(result.getId()); // Keeps the controls disabled until it is done
+                return;
+            }
             progressIndicator.setVisible(false);
             setControlsDisabled(false);
 
-            if (saveTask.getValue()) {
+            if (result.isSaved()) {
                 showAlert("Success", "Package " + (isNew ? "added" : "updated") + " successfully!");
                 loadPackages();
+            } else if (result.isConflict()) {
+                showAlert("Save Conflict", "This package was changed by someone else while you were editing it.\n"
+                        + "The list has been reloaded; please apply your changes again.");
+                loadPackages();
             } else {
                 showAlert("Save Error", "Failed to save the package.");
                 setFormEditable(true);
@@ -240,7 +258,43 @@ public class PackageManagerController implements Initializable, SubControllerInt
             showAlert("Application Error", "Could not save package: " + error.getMessage());
         }));
 
-        new Thread(saveTask).start();
+        BackgroundTasks.start("packageManager.save", saveTask);
+    }
+
+    // Brings the package's pending bookings up to the new price in the background, with the
+    // progress indicator showing how far it has got, then reloads the list
+    private void repricePendingBookings(int packageId) {
+        Task<BookingRepricer.Result> repriceTask = new Task<BookingRepricer.Result>() {
+            @Override
+            protected BookingRepricer.Result call() throws Exception {
+                return new BookingRepricer(dataManager).repriceForPackage(packageId, (done, total) -> updateProgress(done, total));
+            }
+        };
+        progressIndicator.progressProperty().bind(repriceTask.progressProperty());
+
+        repriceTask.setOnSucceeded(e -> Platform.runLater(() -> {
+            BookingRepricer.Result result = repriceTask.getValue();
+            progressIndicator.progressProperty().unbind();
+            progressIndicator.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+            String conflicts = result.getConflicts() > 0
+                    ? "\n" + result.getConflicts() + " were being edited and kept their own changes."
+                    : "";
+            showAlert("Success", "Package updated successfully!\n"
+                    + result.getRepriced() + " pending booking(s) repriced to the new price." + conflicts);
+            loadPackages();
+        }));
+
+        repriceTask.setOnFailed(e -> Platform.runLater(() -> {
+            Throwable error = repriceTask.getException();
+            LOGGER.log(Level.SEVERE, "Failed to reprice pending bookings for package " + packageId, error);
+            progressIndicator.progressProperty().unbind();
+            progressIndicator.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+            showAlert("Repricing Error", "The package was saved, but its pending bookings could not all be repriced: "
+                    + error.getMessage());
+            loadPackages();
+        }));
+
+        BackgroundTasks.start("packageManager.reprice", repriceTask);
     }
 
     private boolean validatePackageForm() {
@@ -347,7 +401,7 @@ public class PackageManagerController implements Initializable, SubControllerInt
                 showAlert("Application Error", "Could not delete package '" + packageName + "': " + error.getMessage());
             }));
 
-            new Thread(deleteTask).start();
+            BackgroundTasks.start("packageManager.delete", deleteTask);
         }
     }
 
@@ -1,5 +1,7 @@
 package nagascatering.controller;
 
+import nagascatering.data.DataRepository;
+
 /**
  * Interface for sub-controllers to allow the MainController
  * to pass a reference to itself for navigation and potentially other interactions.
@@ -14,6 +16,17 @@ public interface SubControllerInterface {
      */
     void setMainController(MainController mainController);
 
+    /**
+     * Hands the controller the application's shared repository.
+     * Called by the MainController when the controller is created, before
+     * {@code initialize()} runs, so it may be used there.
+     *
+     * @param dataRepository The shared repository. Must not be null.
+     */
+    default void setDataRepository(DataRepository dataRepository) {
+        // Default implementation does nothing; controllers that need data override this.
+    }
+
     /**
      * Optional method to pass data to the controller when it's navigated to.
      * Controllers implementing this should safely cast the data object and handle
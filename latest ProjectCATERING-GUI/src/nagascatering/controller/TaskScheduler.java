@@ -0,0 +1,229 @@
+package nagascatering.controller;
+
+import nagascatering.data.LatencyHistogram;
+import nagascatering.data.Metrics;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the application's controller background tasks, at most {@code maxConcurrent} at a time
+ * ({@value #MAX_THREADS_PROPERTY}, default 4); the rest wait in order. By default on a pool of
+ * named daemon threads that go away when idle;
+ * with {@value #VIRTUAL_THREADS_PROPERTY}{@code =true} on a virtual thread per task, if the JVM
+ * has them (Java 21+), still no more than {@code maxConcurrent} running at once.
+ * <p>
+ * Publishes the gauges {@code tasks.queued} and {@code tasks.running} and the histogram
+ * {@code tasks.wait} (time from submission to start) in {@link Metrics}.
+ */
+final class TaskScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(TaskScheduler.class.getName());
+
+    static final String MAX_THREADS_PROPERTY = "nagascatering.tasks.maxThreads";
+    static final String VIRTUAL_THREADS_PROPERTY = "nagascatering.tasks.virtualThreads";
+    private static final int DEFAULT_MAX_THREADS = 4; // The database connection pool's default size
+    private static final long IDLE_THREAD_SECONDS = 30;
+    private static final long INTERRUPTED_WAIT_MILLIS = 1_000; // For interrupted tasks to wind up at shutdown
+
+    private final ExecutorService executor;
+    private final Semaphore permits; // Bounds virtual threads; the platform pool is bounded by its size
+    private final Set<Thread> waitingForPermit = ConcurrentHashMap.newKeySet(); // Virtual threads waiting for a permit
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LatencyHistogram waitTime = Metrics.histogram("tasks.wait");
+    private volatile boolean stopping;
+
+    TaskScheduler(int maxConcurrent, boolean virtualThreads) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1: " + maxConcurrent);
+        }
+        ExecutorService virtual = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtual != null) {
+            executor = virtual;
+            permits = new Semaphore(maxConcurrent, true);
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent,
+                    IDLE_THREAD_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreads());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+            permits = null;
+        }
+        Metrics.gauge("tasks.queued", queued::get);
+        Metrics.gauge("tasks.running", running::get);
+        LOGGER.log(Level.INFO, "Background tasks run on {0}, at most {1} at a time",
+                new Object[]{virtual != null ? "virtual threads" : "platform threads", maxConcurrent});
+    }
+
+    static TaskScheduler fromConfiguration() {
+        int maxThreads = Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS);
+        boolean virtualThreads = Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "false").trim());
+        return new TaskScheduler(Math.max(1, maxThreads), virtualThreads);
+    }
+
+    /** Tasks waiting to start. */
+    int getQueued() {
+        return queued.get();
+    }
+
+    /** Tasks running now. */
+    int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * Queues the work; it runs with its thread renamed to {@code task-<name>} so thread dumps
+     * show what is running.
+     * @param onDropped called instead if the work is never run because of shutdown
+     */
+    void execute(String name, Runnable work, Runnable onDropped) {
+        long submitted = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            executor.execute(new Queued(onDropped, () -> {
+                Thread thread = Thread.currentThread();
+                String threadName = thread.getName();
+                try {
+                    if (permits != null) {
+                        acquirePermit(thread);
+                    }
+                } catch (InterruptedException e) { // Shutting down
+                    queued.decrementAndGet();
+                    dropped(name, onDropped);
+                    return;
+                }
+                queued.decrementAndGet();
+                running.incrementAndGet();
+                waitTime.record(System.nanoTime() - submitted);
+                thread.setName("task-" + name);
+                try {
+                    work.run();
+                } finally {
+                    thread.setName(threadName);
+                    running.decrementAndGet();
+                    if (permits != null) {
+                        permits.release();
+                    }
+                }
+            }));
+        } catch (RuntimeException e) { // Rejected after shutdown
+            queued.decrementAndGet();
+            LOGGER.log(Level.WARNING, "Background task {0} not started: {1}", new Object[]{name, e.toString()});
+            dropped(name, onDropped);
+        }
+    }
+
+    // Registered as waiting before checking stopping, so shutdown either interrupts the wait or
+    // the check sees it
+    private void acquirePermit(Thread thread) throws InterruptedException {
+        waitingForPermit.add(thread);
+        try {
+            if (stopping) {
+                throw new InterruptedException();
+            }
+            permits.acquire();
+        } finally {
+            waitingForPermit.remove(thread);
+        }
+        if (stopping) {
+            permits.release();
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Stops taking tasks, cancels those still waiting and gives running ones up to
+     * {@code timeoutMillis} to finish before interrupting them.
+     */
+    void shutdown(long timeoutMillis) {
+        stopping = true;
+        executor.shutdown();
+        if (executor instanceof ThreadPoolExecutor) {
+            List<Runnable> waiting = new ArrayList<>();
+            ((ThreadPoolExecutor) executor).getQueue().drainTo(waiting);
+            cancel(waiting);
+        } else {
+            waitingForPermit.forEach(Thread::interrupt); // They drop their tasks; running ones are left to finish
+        }
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.log(Level.WARNING, "Interrupting {0} background task(s) still running at shutdown", running.get());
+                cancel(executor.shutdownNow());
+                executor.awaitTermination(INTERRUPTED_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            cancel(executor.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void cancel(List<Runnable> waiting) {
+        for (Runnable runnable : waiting) {
+            queued.decrementAndGet();
+            dropped("waiting", ((Queued) runnable).onDropped);
+        }
+    }
+
+    // One failing callback must not stop the others
+    private static void dropped(String name, Runnable onDropped) {
+        try {
+            onDropped.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Dropping background task " + name + " failed", e);
+        }
+    }
+
+    // Keeps the callback with the work so work dropped at shutdown can be cancelled
+    private static final class Queued implements Runnable {
+        final Runnable onDropped;
+        private final Runnable run;
+
+        Queued(Runnable onDropped, Runnable run) {
+            this.onDropped = onDropped;
+            this.run = run;
+        }
+
+        @Override
+        public void run() {
+            run.run();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "task-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("task-virtual-", 1).factory()),
+    // looked up at run time since the application is built for Java 8; null without virtual threads
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "task-virtual-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Virtual threads are not available on Java {0}; using platform threads",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
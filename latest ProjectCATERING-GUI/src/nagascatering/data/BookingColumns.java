@@ -0,0 +1,205 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented mirror of the numbers reports need from each booking: event day, package,
+ * guests, costs and status, one primitive array per field. Aggregates are loops over these
+ * arrays instead of walks over Booking objects.
+ * <p>
+ * Rows are kept dense (removing a row moves the last one into its place), so a scan runs from
+ * 0 to size with no holes to skip. Status and package are stored as dictionary codes (0, 1, 2, ...),
+ * which index straight into the per-group accumulators. Kept in step by BookingIndexes.
+ */
+final class BookingColumns {
+
+    private static final int NO_DATE = Integer.MIN_VALUE; // Sorts below every real day
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock
+    private final Map<Integer, Integer> rowById = new HashMap<>();
+    private int size;
+    private int[] bookingIds = new int[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private int[] guests = new int[INITIAL_CAPACITY];
+    private long[] totalCentavos = new long[INITIAL_CAPACITY];
+    private long[] itemsCentavos = new long[INITIAL_CAPACITY];
+    private short[] statusCodes = new short[INITIAL_CAPACITY];
+    private int[] packageCodes = new int[INITIAL_CAPACITY];
+
+    // Dictionaries: code -> value. Package code 0 means no package.
+    private final List<String> statuses = new ArrayList<>();
+    private final Map<String, Short> statusCodeByName = new HashMap<>();
+    private final List<Integer> packages = new ArrayList<>(Arrays.asList((Integer) null));
+    private final Map<Integer, Integer> packageCodeById = new HashMap<>();
+
+    /** Adds or replaces the booking's row. */
+    void put(Booking booking) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowById.get(booking.getBookingId());
+            int row;
+            if (existing != null) {
+                row = existing;
+            } else {
+                ensureCapacity(size + 1);
+                row = size++;
+                rowById.put(booking.getBookingId(), row);
+            }
+            bookingIds[row] = booking.getBookingId();
+            epochDays[row] = booking.getEventDate() != null ? (int) booking.getEventDate().toEpochDay() : NO_DATE;
+            guests[row] = booking.getNumGuests();
+            totalCentavos[row] = BookingStatusSummary.toCentavos(booking.getTotalCost());
+            itemsCentavos[row] = BookingStatusSummary.toCentavos(booking.getAdditionalItemsCost());
+            statusCodes[row] = statusCode(BookingStatusSummary.normalize(booking.getBookingStatus()));
+            packageCodes[row] = packageCode(booking.getSelectedPackageId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int bookingId) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.remove(bookingId);
+            if (row == null) {
+                return;
+            }
+            int last = --size;
+            if (row != last) {
+                bookingIds[row] = bookingIds[last];
+                epochDays[row] = epochDays[last];
+                guests[row] = guests[last];
+                totalCentavos[row] = totalCentavos[last];
+                itemsCentavos[row] = itemsCentavos[last];
+                statusCodes[row] = statusCodes[last];
+                packageCodes[row] = packageCodes[last];
+                rowById.put(bookingIds[row], row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Totals for bookings with event dates from {@code from} to {@code to} inclusive (either may
+     * be null for no bound); undated bookings are counted only when neither bound is given.
+     */
+    BookingTotals totals(LocalDate from, LocalDate to) {
+        long first = from != null ? from.toEpochDay() : (to != null ? NO_DATE + 1L : NO_DATE);
+        long last = to != null ? to.toEpochDay() : Integer.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            // One flat accumulator per field, indexed by code
+            int statusCount = statuses.size();
+            int packageCount = packages.size();
+            long[] count = new long[statusCount + packageCount];
+            long[] guestTotals = new long[statusCount + packageCount];
+            long[] revenue = new long[statusCount + packageCount];
+            long[] itemsRevenue = new long[statusCount + packageCount];
+            int[] days = epochDays; // Locals, so the loop reads no fields
+            int[] guestColumn = guests;
+            long[] totalColumn = totalCentavos;
+            long[] itemsColumn = itemsCentavos;
+            short[] statusColumn = statusCodes;
+            int[] packageColumn = packageCodes;
+            for (int row = 0, rows = size; row < rows; row++) {
+                long day = days[row];
+                // 1 when first <= day <= last, else 0: no branch to mispredict on unordered dates
+                long in = ~((day - first) | (last - day)) >>> 63;
+                long rowGuests = guestColumn[row] * in;
+                long rowRevenue = totalColumn[row] * in;
+                long rowItems = itemsColumn[row] * in;
+                int status = statusColumn[row];
+                int pkg = statusCount + packageColumn[row];
+                count[status] += in;
+                guestTotals[status] += rowGuests;
+                revenue[status] += rowRevenue;
+                itemsRevenue[status] += rowItems;
+                count[pkg] += in;
+                guestTotals[pkg] += rowGuests;
+                revenue[pkg] += rowRevenue;
+                itemsRevenue[pkg] += rowItems;
+            }
+
+            Map<String, long[]> statusTotals = new LinkedHashMap<>();
+            for (int code = 0; code < statusCount; code++) {
+                statusTotals.put(statuses.get(code), new long[]{count[code], guestTotals[code], revenue[code], itemsRevenue[code]});
+            }
+            Map<Integer, long[]> packageTotals = new LinkedHashMap<>();
+            for (int code = 1; code < packageCount; code++) { // Code 0: no package
+                int slot = statusCount + code;
+                packageTotals.put(packages.get(code), new long[]{count[slot], guestTotals[slot], revenue[slot], itemsRevenue[slot]});
+            }
+            return new BookingTotals(statusTotals, packageTotals);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private short statusCode(String status) {
+        Short code = statusCodeByName.get(status);
+        if (code == null) {
+            code = newCode(statuses.size());
+            statuses.add(status);
+            statusCodeByName.put(status, code);
+        }
+        return code;
+    }
+
+    // Caller holds the write lock
+    private int packageCode(Integer packageId) {
+        if (packageId == null) {
+            return 0;
+        }
+        Integer code = packageCodeById.get(packageId);
+        if (code == null) {
+            code = packages.size();
+            packages.add(packageId);
+            packageCodeById.put(packageId, code);
+        }
+        return code;
+    }
+
+    private static short newCode(int next) {
+        if (next > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct booking statuses for the column store");
+        }
+        return (short) next;
+    }
+
+    // Caller holds the write lock
+    private void ensureCapacity(int rows) {
+        if (rows <= bookingIds.length) {
+            return;
+        }
+        int capacity = Math.max(rows, bookingIds.length * 2);
+        bookingIds = Arrays.copyOf(bookingIds, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        guests = Arrays.copyOf(guests, capacity);
+        totalCentavos = Arrays.copyOf(totalCentavos, capacity);
+        itemsCentavos = Arrays.copyOf(itemsCentavos, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+        packageCodes = Arrays.copyOf(packageCodes, capacity);
+    }
+}
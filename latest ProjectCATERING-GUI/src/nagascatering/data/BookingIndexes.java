@@ -0,0 +1,658 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Secondary indexes over the bookings held by InMemoryDataManager.
+ * Callers must update a booking's entry while holding that booking's slot in the
+ * primary map (i.e. inside bookings.compute), so updates for one booking never interleave.
+ * <p>
+ * The event-date index is multi-versioned: every change gets the next commit sequence number,
+ * and a query pins the latest published number and only sees versions committed at or before
+ * it. A query therefore sees the index as it was at one instant, without blocking writers.
+ * Superseded versions are unlinked once no pinned query can still see them.
+ */
+final class BookingIndexes {
+
+    // Sort key layout: [epochDay : 21 bits signed][time slot : 11 bits][bookingId : 31 bits]
+    private static final int ID_BITS = 31;
+    private static final int MINUTE_BITS = 11;
+    private static final int DAY_SHIFT = ID_BITS + MINUTE_BITS;
+    private static final long MIN_EPOCH_DAY = -(1L << 20);
+    private static final long MAX_EPOCH_DAY = (1L << 20) - 1;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    // Timed events take slot minute of day + 1; events without a time the slot above them, so they
+    // come after the day's timed events when ascending. Newest-first walks (see NewestFirst) keep
+    // them last too, as the lists did before the index
+    private static final int NO_TIME_SLOT = 24 * 60 + 1;
+    private static final long UNDATED_KEYS = Long.MIN_VALUE; // Undated bookings: below every dated key, by ID
+
+    // What each booking currently contributes to the indexes, so stale entries can be removed
+    // even if the caller has since mutated the Booking object in place.
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    // Index key -> newest version in that slot (see indexKey)
+    private final ConcurrentNavigableMap<Long, BookingVersion> byEventDate = new ConcurrentSkipListMap<>();
+
+    // Commit sequencing for the date index; writers change it only while holding commitLock
+    private final Object commitLock = new Object();
+    private long lastCommit; // Guarded by commitLock
+    private volatile long publishedCommit;
+    private final ArrayDeque<Retired> retired = new ArrayDeque<>(); // Guarded by commitLock; in commit order
+    private final TreeMap<Long, Integer> pinnedReads = new TreeMap<>(); // Commit sequence -> readers; guarded by itself
+
+    // Replaced wholesale on every change so readers always see a consistent snapshot
+    private final AtomicReference<BookingStatusSummary> statusSummary =
+            new AtomicReference<>(BookingStatusSummary.EMPTY);
+
+    // packageId -> IDs of bookings that reference it
+    private final Map<Integer, Set<Integer>> bookingIdsByPackage = new ConcurrentHashMap<>();
+
+    // menu item ID -> IDs of pending bookings with a line for it (the bookings a price change reprices)
+    private final Map<Integer, Set<Integer>> pendingBookingIdsByMenuItem = new ConcurrentHashMap<>();
+
+    // Words of the free-text fields -> bookings
+    private final BookingSearchIndex search = new BookingSearchIndex();
+
+    // Numeric fields as primitive columns, for report scans
+    private final BookingColumns columns = new BookingColumns();
+
+    private static final String PENDING = "pending"; // Normalized status of bookings that can still be repriced
+    private static final int[] NO_ITEMS = new int[0];
+
+    private static final class Entry {
+        final Long dateKey; // null when the booking has no event date
+        final String statusKey;
+        final long totalCentavos;
+        final Integer packageId;
+        final int[] pendingMenuItemIds; // Distinct menu items on the booking; empty unless it is pending
+
+        Entry(Long dateKey, String statusKey, long totalCentavos, Integer packageId, int[] pendingMenuItemIds) {
+            this.dateKey = dateKey;
+            this.statusKey = statusKey;
+            this.totalCentavos = totalCentavos;
+            this.packageId = packageId;
+            this.pendingMenuItemIds = pendingMenuItemIds;
+        }
+
+        static Entry of(Booking booking) {
+            String statusKey = BookingStatusSummary.normalize(booking.getBookingStatus());
+            return new Entry(sortKey(booking.getEventDate(), booking.getEventTime(), booking.getBookingId()),
+                    statusKey,
+                    BookingStatusSummary.toCentavos(booking.getTotalCost()),
+                    booking.getSelectedPackageId(),
+                    PENDING.equals(statusKey) ? menuItemIds(booking) : NO_ITEMS);
+        }
+    }
+
+    // A superseded version waiting until no pinned reader can see it
+    private static final class Retired {
+        final long key;
+        final BookingVersion version;
+
+        Retired(long key, BookingVersion version) {
+            this.key = key;
+            this.version = version;
+        }
+    }
+
+    void update(Booking booking) {
+        int bookingId = booking.getBookingId();
+        Entry previous = entries.get(bookingId);
+        Entry current = Entry.of(booking);
+
+        synchronized (commitLock) {
+            long commit = ++lastCommit;
+            long key = indexKey(current.dateKey, bookingId);
+            BookingVersion head = byEventDate.get(key);
+            if (head != null && head.retiredAt == BookingVersion.NOT_RETIRED) {
+                retire(key, head, commit); // Previous version in the same slot
+            }
+            byEventDate.put(key, new BookingVersion(booking, commit, head));
+            if (previous != null) {
+                long previousKey = indexKey(previous.dateKey, bookingId);
+                if (previousKey != key) {
+                    retire(previousKey, byEventDate.get(previousKey), commit); // Moved to another date
+                }
+            }
+            publish(commit);
+        }
+
+        // Link the new package before unlinking the old one, so a package a booking stays on
+        // never briefly looks unused.
+        if (current.packageId != null) {
+            linkPackage(current.packageId, bookingId);
+        }
+        if (previous != null && previous.packageId != null && !previous.packageId.equals(current.packageId)) {
+            unlinkPackage(previous.packageId, bookingId);
+        }
+        for (int itemId : current.pendingMenuItemIds) {
+            link(pendingBookingIdsByMenuItem, itemId, bookingId);
+        }
+        if (previous != null) {
+            for (int itemId : previous.pendingMenuItemIds) {
+                if (!contains(current.pendingMenuItemIds, itemId)) {
+                    unlink(pendingBookingIdsByMenuItem, itemId, bookingId);
+                }
+            }
+        }
+        entries.put(bookingId, current);
+        // Version 0 skips the search index's stale-update check: updates here are already ordered by
+        // the booking's slot, and rolling back a failed save restores an older version
+        search.update(bookingId, 0, booking);
+        columns.put(booking);
+        statusSummary.updateAndGet(summary -> previous == null
+                ? summary.apply(null, 0, current.statusKey, current.totalCentavos)
+                : summary.apply(previous.statusKey, previous.totalCentavos, current.statusKey, current.totalCentavos));
+    }
+
+    /**
+     * Indexes a whole restored store in one pass: date keys are sorted once and inserted in
+     * order, and the status summary is built once instead of once per booking.
+     * Only valid while the indexes are empty and not yet visible to other threads (startup).
+     */
+    void loadAll(Map<Integer, Booking> bookings) {
+        if (!entries.isEmpty()) {
+            throw new IllegalStateException("loadAll() requires empty indexes");
+        }
+        long[] indexKeys = new long[bookings.size()];
+        int keyCount = 0;
+        Map<String, long[]> totalsByStatus = new LinkedHashMap<>();
+        Map<Integer, List<Integer>> idsByPackage = new HashMap<>();
+
+        for (Booking booking : bookings.values()) {
+            int bookingId = booking.getBookingId();
+            Entry entry = Entry.of(booking);
+            entries.put(bookingId, entry);
+            search.update(booking);
+            columns.put(booking);
+            if (keyCount == indexKeys.length) {
+                indexKeys = Arrays.copyOf(indexKeys, keyCount * 2 + 16); // size() is only an estimate
+            }
+            indexKeys[keyCount++] = indexKey(entry.dateKey, bookingId);
+            if (entry.packageId != null) {
+                idsByPackage.computeIfAbsent(entry.packageId, id -> new ArrayList<>()).add(bookingId);
+            }
+            for (int itemId : entry.pendingMenuItemIds) {
+                link(pendingBookingIdsByMenuItem, itemId, bookingId);
+            }
+            long[] totals = totalsByStatus.computeIfAbsent(entry.statusKey, status -> new long[2]);
+            totals[0]++;
+            totals[1] += entry.totalCentavos;
+        }
+
+        Arrays.sort(indexKeys, 0, keyCount);
+        long committed = publishedCommit;
+        for (int i = 0; i < keyCount; i++) {
+            Booking booking = bookings.get((int) (indexKeys[i] & ID_MASK));
+            byEventDate.put(indexKeys[i], new BookingVersion(booking, committed, null));
+        }
+        idsByPackage.forEach((packageId, ids) -> {
+            Set<Integer> bookingIds = ConcurrentHashMap.newKeySet(ids.size());
+            bookingIds.addAll(ids);
+            bookingIdsByPackage.put(packageId, bookingIds);
+        });
+        statusSummary.set(BookingStatusSummary.of(totalsByStatus));
+    }
+
+    /**
+     * Indexes a batch of bookings that were never indexed before (a bulk load) under a single
+     * commit, so queries see either the whole batch or none of it.
+     */
+    void insertAll(List<Booking> batch) {
+        List<Entry> added = new ArrayList<>(batch.size());
+        Map<String, long[]> totalsByStatus = new LinkedHashMap<>();
+        for (Booking booking : batch) {
+            Entry entry = Entry.of(booking);
+            added.add(entry);
+            long[] totals = totalsByStatus.computeIfAbsent(entry.statusKey, status -> new long[2]);
+            totals[0]++;
+            totals[1] += entry.totalCentavos;
+        }
+
+        // Inserted in key order, as loadAll does: neighbouring keys share most of the skip list path
+        Map<Long, Booking> byKey = new TreeMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            byKey.put(indexKey(added.get(i).dateKey, batch.get(i).getBookingId()), batch.get(i));
+        }
+        synchronized (commitLock) {
+            long commit = ++lastCommit;
+            byKey.forEach((key, booking) -> byEventDate.put(key, new BookingVersion(booking, commit, null)));
+            publish(commit);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Booking booking = batch.get(i);
+            Entry entry = added.get(i);
+            if (entry.packageId != null) {
+                linkPackage(entry.packageId, booking.getBookingId());
+            }
+            for (int itemId : entry.pendingMenuItemIds) {
+                link(pendingBookingIdsByMenuItem, itemId, booking.getBookingId());
+            }
+            entries.put(booking.getBookingId(), entry);
+            search.update(booking);
+            columns.put(booking);
+        }
+        statusSummary.updateAndGet(summary -> summary.plus(totalsByStatus));
+    }
+
+    void remove(int bookingId) {
+        Entry previous = entries.remove(bookingId);
+        if (previous != null) {
+            synchronized (commitLock) {
+                long commit = ++lastCommit;
+                long key = indexKey(previous.dateKey, bookingId);
+                retire(key, byEventDate.get(key), commit);
+                publish(commit);
+            }
+            if (previous.packageId != null) {
+                unlinkPackage(previous.packageId, bookingId);
+            }
+            for (int itemId : previous.pendingMenuItemIds) {
+                unlink(pendingBookingIdsByMenuItem, itemId, bookingId);
+            }
+            search.remove(bookingId);
+            columns.remove(bookingId);
+            statusSummary.updateAndGet(summary -> summary.apply(previous.statusKey, previous.totalCentavos, null, 0));
+        }
+    }
+
+    BookingStatusSummary statusSummary() {
+        return statusSummary.get();
+    }
+
+    /** Report totals for an event date range; see {@link BookingColumns#totals}. */
+    BookingTotals totals(LocalDate from, LocalDate to) {
+        return columns.totals(from, to);
+    }
+
+    /** IDs of the best matches for a text query; see {@link BookingSearchIndex#search}. */
+    List<Integer> search(String query, int limit) {
+        return search.search(query, limit);
+    }
+
+    // --- Commits and pinned reads (date index) ---
+
+    // Caller holds commitLock
+    private void retire(long key, BookingVersion version, long commit) {
+        if (version != null) {
+            version.retiredAt = commit;
+            retired.add(new Retired(key, version));
+        }
+    }
+
+    // Caller holds commitLock. Makes the commit visible, then unlinks what no reader can see any more.
+    private void publish(long commit) {
+        publishedCommit = commit;
+        long oldestVisible = oldestPinnedRead();
+        while (!retired.isEmpty() && retired.peek().version.retiredAt <= oldestVisible) {
+            Retired done = retired.poll();
+            BookingVersion head = byEventDate.get(done.key);
+            if (head == done.version) {
+                byEventDate.remove(done.key); // Nothing newer in this slot
+            } else {
+                for (BookingVersion version = head; version != null; version = version.older) {
+                    if (version.older == done.version) {
+                        version.older = null;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    // A reader registered while holding the lock pins a sequence >= whatever publish() last saw,
+    // so versions unlinked by publish() are never ones it can see.
+    private long pinRead() {
+        synchronized (pinnedReads) {
+            long sequence = publishedCommit;
+            pinnedReads.merge(sequence, 1, Integer::sum);
+            return sequence;
+        }
+    }
+
+    private void unpinRead(long sequence) {
+        synchronized (pinnedReads) {
+            pinnedReads.computeIfPresent(sequence, (s, readers) -> readers == 1 ? null : readers - 1);
+        }
+    }
+
+    private long oldestPinnedRead() {
+        synchronized (pinnedReads) {
+            return pinnedReads.isEmpty() ? publishedCommit : pinnedReads.firstKey();
+        }
+    }
+
+    // Adds the versions visible at one pinned commit, in the collection's order
+    private List<Booking> visible(Iterable<BookingVersion> chains, int limit, List<Booking> into) {
+        long sequence = pinRead();
+        try {
+            for (BookingVersion chain : chains) {
+                if (into.size() >= limit) {
+                    break;
+                }
+                Booking booking = chain.visibleAt(sequence);
+                if (booking != null) {
+                    into.add(booking);
+                }
+            }
+        } finally {
+            unpinRead(sequence);
+        }
+        return into;
+    }
+
+    // --- Reverse indexes (package, pending bookings by menu item) ---
+
+    private void linkPackage(int packageId, int bookingId) {
+        link(bookingIdsByPackage, packageId, bookingId);
+    }
+
+    private void unlinkPackage(int packageId, int bookingId) {
+        unlink(bookingIdsByPackage, packageId, bookingId);
+    }
+
+    private static void link(Map<Integer, Set<Integer>> index, int key, int bookingId) {
+        index.compute(key, (k, bookingIds) -> {
+            Set<Integer> ids = bookingIds != null ? bookingIds : ConcurrentHashMap.<Integer>newKeySet();
+            ids.add(bookingId);
+            return ids;
+        });
+    }
+
+    private static void unlink(Map<Integer, Set<Integer>> index, int key, int bookingId) {
+        index.computeIfPresent(key, (k, bookingIds) -> {
+            bookingIds.remove(bookingId);
+            return bookingIds.isEmpty() ? null : bookingIds; // Drop the slot once no booking uses the key
+        });
+    }
+
+    /** IDs of bookings currently referencing the package (a live, weakly consistent view). */
+    Set<Integer> bookingIdsForPackage(int packageId) {
+        Set<Integer> ids = bookingIdsByPackage.get(packageId);
+        return ids != null ? ids : Collections.<Integer>emptySet();
+    }
+
+    /** IDs of pending bookings on the package, in no particular order. */
+    List<Integer> pendingBookingIdsForPackage(int packageId) {
+        List<Integer> pending = new ArrayList<>();
+        for (Integer bookingId : bookingIdsForPackage(packageId)) {
+            Entry entry = entries.get(bookingId);
+            if (entry != null && PENDING.equals(entry.statusKey)) {
+                pending.add(bookingId);
+            }
+        }
+        return pending;
+    }
+
+    /** IDs of pending bookings with a line for the menu item, in no particular order. */
+    List<Integer> pendingBookingIdsForMenuItem(int itemId) {
+        Set<Integer> ids = pendingBookingIdsByMenuItem.get(itemId);
+        return ids != null ? new ArrayList<>(ids) : new ArrayList<>();
+    }
+
+    /**
+     * Links the booking to the package if {@code exists} still finds the package. The check runs
+     * while the package's index slot is held, like the one in {@link #removePackageIfUnused}, so
+     * the package cannot be removed between the check and the link.
+     * @return false if the package is gone (and nothing was linked)
+     */
+    boolean linkPackageIfPresent(int packageId, int bookingId, IntPredicate exists) {
+        boolean[] linked = new boolean[1];
+        bookingIdsByPackage.compute(packageId, (id, bookingIds) -> {
+            if (!exists.test(id)) {
+                return bookingIds;
+            }
+            Set<Integer> ids = bookingIds != null ? bookingIds : ConcurrentHashMap.<Integer>newKeySet();
+            ids.add(bookingId);
+            linked[0] = true;
+            return ids;
+        });
+        return linked[0];
+    }
+
+    /**
+     * Runs {@code removal} only if no booking references the package. The check and the removal
+     * happen while the package's index slot is held, so no booking can link to it in between.
+     * @return true if the package is in use (and {@code removal} was not run)
+     */
+    boolean removePackageIfUnused(int packageId, Runnable removal) {
+        boolean[] inUse = new boolean[1];
+        bookingIdsByPackage.compute(packageId, (id, bookingIds) -> {
+            if (bookingIds == null || bookingIds.isEmpty()) {
+                removal.run();
+                return null;
+            }
+            inUse[0] = true;
+            return bookingIds;
+        });
+        return inUse[0];
+    }
+
+    // --- Date index queries ---
+
+    // Each query returns the bookings as of a single commit, even while writers carry on
+
+    /** All bookings, latest event first; bookings without a date come last. */
+    List<Booking> newestFirst() {
+        return visible(() -> new NewestFirst(null), Integer.MAX_VALUE, new ArrayList<>(entries.size()));
+    }
+
+    /** Bookings whose event date falls within [from, to], earliest first. */
+    List<Booking> between(LocalDate from, LocalDate to) {
+        long fromKey = dayStartKey(from.toEpochDay());
+        long toKey = dayStartKey(to.toEpochDay() + 1);
+        if (fromKey >= toKey) {
+            return new ArrayList<>();
+        }
+        return visible(byEventDate.subMap(fromKey, true, toKey, false).values(), Integer.MAX_VALUE, new ArrayList<>());
+    }
+
+    /**
+     * Bookings whose event date falls within [from, to] (null for no bound), earliest first, read
+     * lazily as of one commit. That commit stays pinned until the stream is closed.
+     */
+    Stream<Booking> streamBetween(LocalDate from, LocalDate to) {
+        long fromKey = dayStartKey(from != null ? from.toEpochDay() : MIN_EPOCH_DAY);
+        long toKey = to != null ? dayStartKey(to.toEpochDay() + 1) : (MAX_EPOCH_DAY + 1) << DAY_SHIFT;
+        if (fromKey >= toKey) {
+            return Stream.empty();
+        }
+        long sequence = pinRead();
+        return StreamSupport.stream(byEventDate.subMap(fromKey, true, toKey, false).values().spliterator(), false)
+                .map(chain -> chain.visibleAt(sequence))
+                .filter(Objects::nonNull)
+                .onClose(() -> unpinRead(sequence));
+    }
+
+    /** The first {@code limit} bookings on or after the given date, earliest first. */
+    List<Booking> firstFrom(LocalDate from, int limit) {
+        List<Booking> result = new ArrayList<>(Math.min(Math.max(limit, 0), 64));
+        if (limit <= 0) {
+            return result;
+        }
+        return visible(byEventDate.tailMap(dayStartKey(from.toEpochDay()), true).values(), limit, result);
+    }
+
+    /**
+     * Up to {@code limit} bookings following the position {@code afterKey} (exclusive; null to
+     * start at the beginning) in ascending or descending index order.
+     */
+    List<Booking> page(Long afterKey, boolean ascending, int limit) {
+        List<Booking> result = new ArrayList<>(Math.min(limit, 1024));
+        if (!ascending) {
+            return visible(() -> new NewestFirst(afterKey), limit, result);
+        }
+        return visible((afterKey != null ? byEventDate.tailMap(afterKey, false) : byEventDate).values(), limit, result);
+    }
+
+    /**
+     * Walks the date index from the latest day down, each day's timed bookings (latest first)
+     * before its untimed ones (highest ID first), then the undated bookings; plain descending key
+     * order would put a day's untimed bookings first.
+     */
+    private final class NewestFirst implements Iterator<BookingVersion> {
+        private Iterator<BookingVersion> part = Collections.emptyIterator();
+        private NavigableMap<Long, BookingVersion> untimed; // The current day's, still to come
+        private Long below; // Keys below this (all keys if null) are still to come
+        private boolean resume; // below is a page position inside its day rather than a day's start
+
+        NewestFirst(Long afterKey) {
+            below = afterKey;
+            resume = afterKey != null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!part.hasNext()) {
+                if (untimed != null) {
+                    part = untimed.descendingMap().values().iterator();
+                    untimed = null;
+                    continue;
+                }
+                boolean resuming = resume;
+                resume = false;
+                long position; // A key in the day to walk next; exclusive if resuming
+                if (resuming) {
+                    position = below;
+                } else {
+                    Map.Entry<Long, BookingVersion> next = below == null ? byEventDate.lastEntry() : byEventDate.lowerEntry(below);
+                    if (next == null) {
+                        return false;
+                    }
+                    position = next.getKey();
+                }
+                long day = position >> DAY_SHIFT;
+                if (day < MIN_EPOCH_DAY) { // Undated, below every dated key
+                    part = byEventDate.headMap(position, !resuming).descendingMap().values().iterator();
+                    below = Long.MIN_VALUE;
+                    continue;
+                }
+                long dayStart = day << DAY_SHIFT;
+                long untimedStart = dayStart | ((long) NO_TIME_SLOT << ID_BITS);
+                if (resuming && position > untimedStart) {
+                    // Among the untimed bookings; the day's timed ones came before them
+                    part = byEventDate.subMap(untimedStart, true, position, false).descendingMap().values().iterator();
+                } else {
+                    part = byEventDate.subMap(dayStart, true, resuming ? position : untimedStart, false)
+                            .descendingMap().values().iterator();
+                    untimed = byEventDate.subMap(untimedStart, true, (day + 1) << DAY_SHIFT, false);
+                }
+                below = dayStart;
+            }
+            return true;
+        }
+
+        @Override
+        public BookingVersion next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return part.next();
+        }
+    }
+
+    // --- Menu item helpers ---
+
+    // Distinct menu item IDs of the booking's lines; snapshot-backed lines are read without decoding them
+    private static int[] menuItemIds(Booking booking) {
+        List<BookingItem> items = booking.getBookingItems();
+        if (items == null || !(items instanceof LazyBookingItemList) && items.isEmpty()) { // isEmpty would decode
+            return NO_ITEMS;
+        }
+        int[] ids;
+        int count;
+        if (items instanceof LazyBookingItemList) {
+            ids = ((LazyBookingItemList) items).menuItemIds();
+            count = ids.length;
+        } else {
+            ids = new int[items.size()];
+            count = 0;
+            for (BookingItem item : items) {
+                ids[count++] = item.getItemId();
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
+    }
+
+    private static boolean contains(int[] sortedIds, int id) {
+        return Arrays.binarySearch(sortedIds, id) >= 0;
+    }
+
+    // --- Sort key helpers ---
+
+    /** Index position of a booking with these values (see {@link #page}). */
+    static long positionKey(LocalDate eventDate, String eventTime, int bookingId) {
+        return indexKey(sortKey(eventDate, eventTime, bookingId), bookingId);
+    }
+
+    static Long sortKey(LocalDate eventDate, String eventTime, int bookingId) {
+        if (eventDate == null) {
+            return null;
+        }
+        long day = clampDay(eventDate.toEpochDay());
+        return (day << DAY_SHIFT) | ((long) timeSlot(eventTime) << ID_BITS) | (bookingId & ID_MASK);
+    }
+
+    // Dated bookings use their sort key; undated ones get a key below every dated key
+    private static long indexKey(Long dateKey, int bookingId) {
+        return dateKey != null ? dateKey : UNDATED_KEYS + (bookingId & ID_MASK);
+    }
+
+    private static long dayStartKey(long epochDay) {
+        return clampDay(epochDay) << DAY_SHIFT;
+    }
+
+    private static long clampDay(long epochDay) {
+        return Math.max(MIN_EPOCH_DAY, Math.min(MAX_EPOCH_DAY, epochDay));
+    }
+
+    // Parses "HH:mm" without allocating; anything else is treated as "no time set"
+    private static int timeSlot(String eventTime) {
+        if (eventTime == null || eventTime.length() != 5 || eventTime.charAt(2) != ':') {
+            return NO_TIME_SLOT;
+        }
+        int h1 = eventTime.charAt(0) - '0', h2 = eventTime.charAt(1) - '0';
+        int m1 = eventTime.charAt(3) - '0', m2 = eventTime.charAt(4) - '0';
+        if (h1 < 0 || h1 > 9 || h2 < 0 || h2 > 9 || m1 < 0 || m1 > 9 || m2 < 0 || m2 > 9) {
+            return NO_TIME_SLOT;
+        }
+        int hours = h1 * 10 + h2;
+        int minutes = m1 * 10 + m2;
+        if (hours > 23 || minutes > 59) {
+            return NO_TIME_SLOT;
+        }
+        return hours * 60 + minutes + 1;
+    }
+}
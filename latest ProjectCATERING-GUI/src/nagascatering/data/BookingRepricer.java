@@ -0,0 +1,244 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import nagascatering.pricing.PricingEngine;
+import nagascatering.pricing.Quote;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Brings pending bookings up to date after a package or menu item price change.
+ * <p>
+ * Only the affected bookings are visited: their IDs come from the repository's pending-booking
+ * indexes, not a scan. The ID list is split fork/join style down to batches of
+ * {@code batchSize}; each batch reprices its bookings against the current catalog with
+ * {@link PricingEngine} and commits the ones whose costs changed with one
+ * {@link DataRepository#saveBookingCosts} call. A booking saved by someone else in between keeps
+ * that save and is counted as a conflict. Confirmed, completed and cancelled bookings keep the
+ * price they were agreed at.
+ */
+public final class BookingRepricer {
+
+    private static final Logger LOGGER = Logger.getLogger(BookingRepricer.class.getName());
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final String PENDING = "pending"; // Normalized status (see BookingStatusSummary)
+
+    /** Progress callback; called from pool threads after each batch. */
+    public interface Progress {
+        void update(int done, int total);
+    }
+
+    /** Counts of one repricing run. */
+    public static final class Result {
+        static final Result NONE = new Result(0, 0, 0, 0, 0);
+
+        private final int examined;
+        private final int repriced;
+        private final int unchanged;
+        private final int conflicts;
+        private final int skipped;
+
+        Result(int examined, int repriced, int unchanged, int conflicts, int skipped) {
+            this.examined = examined;
+            this.repriced = repriced;
+            this.unchanged = unchanged;
+            this.conflicts = conflicts;
+            this.skipped = skipped;
+        }
+
+        Result plus(Result other) {
+            return new Result(examined + other.examined, repriced + other.repriced, unchanged + other.unchanged,
+                    conflicts + other.conflicts, skipped + other.skipped);
+        }
+
+        /** Bookings the index returned. */
+        public int getExamined() { return examined; }
+        /** Bookings whose new costs were saved. */
+        public int getRepriced() { return repriced; }
+        /** Bookings already at the current prices. */
+        public int getUnchanged() { return unchanged; }
+        /** Bookings changed by another save while being repriced; left as that save stored them. */
+        public int getConflicts() { return conflicts; }
+        /** Bookings deleted or no longer pending by the time they were read, or whose package is gone. */
+        public int getSkipped() { return skipped; }
+
+        @Override
+        public String toString() {
+            return String.format("examined=%d repriced=%d unchanged=%d conflicts=%d skipped=%d",
+                    examined, repriced, unchanged, conflicts, skipped);
+        }
+    }
+
+    private final DataRepository repository;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    public BookingRepricer(DataRepository repository) {
+        this(repository, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    public BookingRepricer(DataRepository repository, ForkJoinPool pool, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.repository = Objects.requireNonNull(repository, "Repository cannot be null");
+        this.pool = Objects.requireNonNull(pool, "Pool cannot be null");
+        this.batchSize = batchSize;
+    }
+
+    /** Reprices the pending bookings on the package; blocks until done. */
+    public Result repriceForPackage(int packageId, Progress progress) {
+        LOGGER.log(Level.INFO, "Repricing pending bookings for package ID: {0}", packageId);
+        return reprice(repository.getPendingBookingIdsForPackage(packageId), progress);
+    }
+
+    /** Reprices the pending bookings with a line for the menu item; blocks until done. */
+    public Result repriceForMenuItem(int itemId, Progress progress) {
+        LOGGER.log(Level.INFO, "Repricing pending bookings for menu item ID: {0}", itemId);
+        return reprice(repository.getPendingBookingIdsForMenuItem(itemId), progress);
+    }
+
+    private Result reprice(List<Integer> bookingIds, Progress progress) {
+        long start = System.nanoTime();
+        if (progress != null) {
+            progress.update(0, bookingIds.size());
+        }
+        if (bookingIds.isEmpty()) {
+            return Result.NONE;
+        }
+        Catalog catalog = new Catalog(repository.getAllPackages(true), repository.getAllMenuItems(true));
+        Run run = new Run(bookingIds, catalog, progress);
+        Result result = pool.invoke(new Split(run, 0, bookingIds.size()));
+        LOGGER.log(Level.INFO, "Repriced bookings in {0} ms: {1}",
+                new Object[]{(System.nanoTime() - start) / 1_000_000, result});
+        return result;
+    }
+
+    // The prices every batch of one run reprices against
+    private static final class Catalog {
+        final Map<Integer, Package> packages = new HashMap<>();
+        final Map<Integer, MenuItem> menuItems = new HashMap<>();
+
+        Catalog(List<Package> packageList, List<MenuItem> menuItemList) {
+            packageList.forEach(pkg -> packages.put(pkg.getPackageId(), pkg));
+            menuItemList.forEach(item -> menuItems.put(item.getItemId(), item));
+        }
+    }
+
+    // State shared by the tasks of one run
+    private static final class Run {
+        final List<Integer> bookingIds;
+        final Catalog catalog;
+        final Progress progress;
+        final AtomicInteger done = new AtomicInteger();
+
+        Run(List<Integer> bookingIds, Catalog catalog, Progress progress) {
+            this.bookingIds = bookingIds;
+            this.catalog = catalog;
+            this.progress = progress;
+        }
+    }
+
+    // Halves the ID range until it fits in one batch
+    private final class Split extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final int from;
+        private final int to;
+
+        Split(Run run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= batchSize) {
+                return repriceBatch(run, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            Split left = new Split(run, from, middle);
+            left.fork();
+            Result right = new Split(run, middle, to).compute();
+            return left.join().plus(right);
+        }
+    }
+
+    private Result repriceBatch(Run run, int from, int to) {
+        Quote quote = new Quote();
+        List<Booking> changed = new ArrayList<>(to - from);
+        int unchanged = 0;
+        int skipped = 0;
+        for (int i = from; i < to; i++) {
+            Booking stored = repository.getBookingById(run.bookingIds.get(i));
+            if (stored == null || !PENDING.equals(BookingStatusSummary.normalize(stored.getBookingStatus()))) {
+                skipped++;
+                continue;
+            }
+            Booking booking = repriced(stored, run.catalog, quote);
+            if (booking == null) {
+                skipped++;
+            } else if (booking == stored) {
+                unchanged++;
+            } else {
+                changed.add(booking);
+            }
+        }
+        int saved = changed.isEmpty() ? 0 : repository.saveBookingCosts(changed);
+        if (run.progress != null) {
+            run.progress.update(run.done.addAndGet(to - from), run.bookingIds.size());
+        }
+        return new Result(to - from, saved, unchanged, changed.size() - saved, skipped);
+    }
+
+    /**
+     * The booking priced at the catalog's current prices: a copy (keeping the stored version,
+     * which saveBookingCosts checks) if anything changed, the stored booking itself if not, or
+     * null if its package is no longer in the catalog.
+     */
+    private static Booking repriced(Booking stored, Catalog catalog, Quote quote) {
+        Package pkg = null;
+        if (stored.getSelectedPackageId() != null) {
+            pkg = catalog.packages.get(stored.getSelectedPackageId());
+            if (pkg == null) {
+                return null;
+            }
+        }
+        int guests = stored.getNumGuests();
+        List<BookingItem> items = new ArrayList<>(stored.getBookingItems());
+        boolean linesChanged = false;
+        for (int i = 0; i < items.size(); i++) {
+            BookingItem item = items.get(i);
+            MenuItem current = catalog.menuItems.get(item.getItemId());
+            BookingItem linked = current != null ? item.withMenuItem(current) : item;
+            BookingItem line = PricingEngine.reprice(linked, guests);
+            linesChanged |= line != linked;
+            items.set(i, line);
+        }
+        PricingEngine.quote(pkg, items, guests, quote);
+        if (!linesChanged
+                && quote.getPackageCentavos() == PricingEngine.toCentavos(stored.getBasePackageCost())
+                && quote.getItemsCentavos() == PricingEngine.toCentavos(stored.getAdditionalItemsCost())
+                && quote.getTotalCentavos() == PricingEngine.toCentavos(stored.getTotalCost())) {
+            return stored;
+        }
+        Booking booking = stored.copy();
+        booking.setBookingItems(items);
+        quote.applyTo(booking);
+        return booking;
+    }
+}
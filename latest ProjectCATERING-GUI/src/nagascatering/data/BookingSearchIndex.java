@@ -0,0 +1,364 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Inverted index over the free-text fields of bookings (customer name, venue, theme and custom
+ * requests), used by {@link DataRepository#searchBookings}.
+ * <p>
+ * Text is split into lower-case words with accents removed. Every query word must match a word
+ * of the booking, either exactly or as a prefix ("mar" finds "Maria"). Matches in the customer
+ * name rank above venue and theme, which rank above custom requests, and exact words above
+ * prefixes; newer bookings win ties. Updates are atomic per booking; searches never block and
+ * may miss a save that is still in progress.
+ */
+public final class BookingSearchIndex {
+
+    // Field weights; a booking's weight for a word is the highest field it appears in
+    private static final int CUSTOMER_WEIGHT = 4;
+    private static final int VENUE_WEIGHT = 2;
+    private static final int THEME_WEIGHT = 2;
+    private static final int REQUESTS_WEIGHT = 1;
+    private static final int[] WEIGHTS = {CUSTOMER_WEIGHT, VENUE_WEIGHT, REQUESTS_WEIGHT}; // Distinct, highest first
+
+    // Shorter query words only match whole words; one letter would expand to most of the dictionary
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    // Higher score first, then higher (newer) ID
+    private static final Comparator<int[]> RANKING =
+            Comparator.<int[]>comparingInt(hit -> -hit[0]).thenComparingInt(hit -> -hit[1]);
+
+    // Word -> the bookings containing it
+    private final Map<String, Postings> postings = new ConcurrentHashMap<>();
+    // The words in sorted order, for prefix lookups; kept in step with postings' keys
+    private final NavigableSet<String> dictionary = new ConcurrentSkipListSet<>();
+    // What each booking contributed, so an update can remove words it no longer has
+    private final Map<Integer, Document> documents = new ConcurrentHashMap<>();
+
+    private static final class Document {
+        final long version;
+        final Map<String, Integer> weights;
+
+        Document(long version, Map<String, Integer> weights) {
+            this.version = version;
+            this.weights = weights;
+        }
+    }
+
+    // Entries are (weight << 32 | bookingId), so walking them in descending order yields the
+    // best-weighted bookings first and, within a weight, the newest first
+    private static final class Postings {
+        final ConcurrentSkipListSet<Long> entries = new ConcurrentSkipListSet<>();
+        volatile int size; // Written only inside postings.compute() for the word
+
+        int topWeight() {
+            Long top = entries.floor(Long.MAX_VALUE);
+            return top != null ? (int) (top >>> 32) : 0;
+        }
+
+        Iterator<Long> newestFirst(int weight) {
+            NavigableSet<Long> segment = entries.subSet(entry(weight, 0), true, entry(weight, Integer.MAX_VALUE), true);
+            return segment.descendingIterator();
+        }
+    }
+
+    private static long entry(int weight, int bookingId) {
+        return ((long) weight << 32) | bookingId;
+    }
+
+    /**
+     * Indexes the booking's current text, replacing what was indexed for it before. An update
+     * carrying an older version than the one indexed is ignored, so saves that finish out of
+     * order leave the newest text in place.
+     */
+    public void update(Booking booking) {
+        update(booking.getBookingId(), booking.getVersion(), booking);
+    }
+
+    /** Like {@link #update(Booking)}, for a booking object whose ID or version is not current. */
+    public void update(int bookingId, long version, Booking text) {
+        Document current = new Document(version, wordsOf(text));
+        documents.compute(bookingId, (id, previous) -> {
+            if (previous != null && current.version > 0 && current.version < previous.version) {
+                return previous;
+            }
+            Map<String, Integer> old = previous != null ? previous.weights : Collections.<String, Integer>emptyMap();
+            old.forEach((word, weight) -> {
+                if (!current.weights.containsKey(word)) {
+                    unlink(word, id, weight);
+                }
+            });
+            current.weights.forEach((word, weight) -> {
+                Integer oldWeight = old.get(word);
+                if (!weight.equals(oldWeight)) {
+                    link(word, id, weight, oldWeight);
+                }
+            });
+            return current;
+        });
+    }
+
+    public void remove(int bookingId) {
+        documents.computeIfPresent(bookingId, (id, previous) -> {
+            previous.weights.forEach((word, weight) -> unlink(word, id, weight));
+            return null;
+        });
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    // The dictionary changes only inside compute() for the word, so a word is in the dictionary
+    // exactly while it has postings
+    private void link(String word, int bookingId, int weight, Integer oldWeight) {
+        postings.compute(word, (w, list) -> {
+            if (list == null) {
+                list = new Postings();
+                dictionary.add(w);
+            }
+            if (oldWeight != null && list.entries.remove(entry(oldWeight, bookingId))) {
+                list.size--;
+            }
+            if (list.entries.add(entry(weight, bookingId))) {
+                list.size++;
+            }
+            return list;
+        });
+    }
+
+    private void unlink(String word, int bookingId, int weight) {
+        postings.computeIfPresent(word, (w, list) -> {
+            if (list.entries.remove(entry(weight, bookingId))) {
+                list.size--;
+            }
+            if (list.size == 0) {
+                dictionary.remove(w);
+                return null;
+            }
+            return list;
+        });
+    }
+
+    /**
+     * Returns the IDs of up to {@code limit} bookings matching every word of the query, best
+     * match first (newer bookings first among equal scores). A blank query matches nothing.
+     * <p>
+     * The query word with the fewest bookings drives the search: its postings are walked best
+     * score first, each candidate is checked against its own words for the rest of the query,
+     * and the walk stops once no remaining candidate could displace the results found so far.
+     * Broad queries therefore cost little more than narrow ones.
+     */
+    public List<Integer> search(String query, int limit) {
+        List<String> words = new ArrayList<>(tokenize(query));
+        if (words.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String driver = null;
+        List<String> driverTerms = null;
+        long driverCount = Long.MAX_VALUE;
+        int driverMax = 0;
+        int allWordsMax = 0; // Best possible score for the whole query
+        for (String word : words) {
+            List<String> terms = new ArrayList<>();
+            long count = 0;
+            int wordMax = 0;
+            for (String term : termsMatching(word)) {
+                Postings list = postings.get(term);
+                if (list != null && list.size > 0) {
+                    terms.add(term);
+                    count += list.size;
+                    wordMax = Math.max(wordMax, termScore(term, word, list.topWeight()));
+                }
+            }
+            if (count == 0) {
+                return new ArrayList<>(); // Every word must match
+            }
+            allWordsMax += wordMax;
+            if (count < driverCount) {
+                driver = word;
+                driverTerms = terms;
+                driverCount = count;
+                driverMax = wordMax;
+            }
+        }
+        int otherWordsMax = allWordsMax - driverMax;
+
+        // The driving word's postings, grouped by the score they give it, best first
+        TreeMap<Integer, List<Iterator<Long>>> tiers = new TreeMap<>(Comparator.reverseOrder());
+        for (String term : driverTerms) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                continue;
+            }
+            for (int weight : WEIGHTS) {
+                Iterator<Long> segment = list.newestFirst(weight);
+                if (segment.hasNext()) {
+                    tiers.computeIfAbsent(termScore(term, driver, weight), s -> new ArrayList<>()).add(segment);
+                }
+            }
+        }
+
+        PriorityQueue<int[]> best = new PriorityQueue<>(Math.min(limit, 1024) + 1, RANKING.reversed()); // Worst on top
+        Set<Integer> seen = new HashSet<>();
+        for (Map.Entry<Integer, List<Iterator<Long>>> tier : tiers.entrySet()) {
+            int bound = tier.getKey() + otherWordsMax; // No booking first met in this tier scores higher
+            if (best.size() == limit && best.peek()[0] > bound) {
+                break; // Nor in any later tier
+            }
+            NewestFirst candidates = new NewestFirst(tier.getValue());
+            while (candidates.hasNext()) {
+                int id = candidates.next();
+                if (best.size() == limit && !outranks(bound, id, best.peek())) {
+                    break; // IDs only get smaller within the tier
+                }
+                if (!seen.add(id)) {
+                    continue; // Already scored from a better tier
+                }
+                Document document = documents.get(id);
+                int score = document != null ? score(document, words) : 0;
+                if (score > 0) {
+                    best.add(new int[]{score, id});
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        List<int[]> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        List<Integer> result = new ArrayList<>(ranked.size());
+        for (int[] hit : ranked) {
+            result.add(hit[1]);
+        }
+        return result;
+    }
+
+    private static boolean outranks(int score, int id, int[] hit) {
+        return score > hit[0] || (score == hit[0] && id > hit[1]);
+    }
+
+    // Merges newest-first posting segments into one newest-first sequence of booking IDs
+    private static final class NewestFirst {
+        private final List<Iterator<Long>> segments;
+        private final PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.comparingInt(head -> -head[0]));
+
+        NewestFirst(List<Iterator<Long>> segments) {
+            this.segments = segments;
+            for (int i = 0; i < segments.size(); i++) {
+                advance(i);
+            }
+        }
+
+        private void advance(int segment) {
+            Iterator<Long> it = segments.get(segment);
+            if (it.hasNext()) {
+                heads.add(new int[]{(int) it.next().longValue(), segment}); // Low 32 bits: booking ID
+            }
+        }
+
+        boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        int next() {
+            int[] head = heads.poll();
+            advance(head[1]);
+            return head[0];
+        }
+    }
+
+    private Iterable<String> termsMatching(String word) {
+        if (word.length() < MIN_PREFIX_LENGTH) {
+            return Collections.singletonList(word);
+        }
+        return dictionary.subSet(word, true, word + Character.MAX_VALUE, false);
+    }
+
+    // An exact word counts double; a prefix match counts its field once
+    private static int termScore(String term, String word, int weight) {
+        return term.equals(word) ? weight * 2 : weight;
+    }
+
+    // Sum over the query words of each word's best match in the document; 0 if any word is missing
+    private static int score(Document document, List<String> words) {
+        int total = 0;
+        for (String word : words) {
+            int best = 0;
+            Integer exact = document.weights.get(word);
+            if (exact != null) {
+                best = termScore(word, word, exact);
+            }
+            if (word.length() >= MIN_PREFIX_LENGTH) {
+                for (Map.Entry<String, Integer> entry : document.weights.entrySet()) {
+                    if (entry.getKey().startsWith(word)) {
+                        best = Math.max(best, termScore(entry.getKey(), word, entry.getValue()));
+                    }
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static Map<String, Integer> wordsOf(Booking booking) {
+        Map<String, Integer> weights = new HashMap<>();
+        addWords(weights, booking.getCustomerName(), CUSTOMER_WEIGHT);
+        addWords(weights, booking.getVenueAddress(), VENUE_WEIGHT);
+        addWords(weights, booking.getThemeDescription(), THEME_WEIGHT);
+        addWords(weights, booking.getCustomRequests(), REQUESTS_WEIGHT);
+        return weights;
+    }
+
+    private static void addWords(Map<String, Integer> weights, String text, int weight) {
+        tokenize(text).forEach(word -> weights.merge(word, weight, Math::max));
+    }
+
+    /** Splits text into distinct lower-case words, in order, with accents removed. */
+    static Set<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue; // Accent split off by NFD
+            }
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,13 @@
+package nagascatering.data;
+
+/**
+ * Orders for paged booking queries. Both sort by event date, then event time (bookings without a
+ * time after timed ones on the same day, in either order), then booking ID; bookings without an
+ * event date sort before all dated ones, in the same order getAllBookings gives them for that store.
+ */
+public enum BookingSort {
+    /** Earliest event first; undated bookings come first. */
+    EVENT_DATE_ASC,
+    /** Latest event first; undated bookings come last (the order of getAllBookings). */
+    EVENT_DATE_DESC
+}
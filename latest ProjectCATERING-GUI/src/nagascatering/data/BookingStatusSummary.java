@@ -0,0 +1,152 @@
+package nagascatering.data;
+
+import nagascatering.pricing.PricingEngine;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable point-in-time view of booking counts and revenue per booking status.
+ * Maintained incrementally by InMemoryDataManager, so reading it never scans the bookings;
+ * other backends build one from aggregated totals (see {@link Builder}).
+ * Status names are matched case-insensitively; revenue is kept in centavos to avoid drift.
+ */
+public final class BookingStatusSummary {
+
+    static final BookingStatusSummary EMPTY = new BookingStatusSummary(new LinkedHashMap<>(), 0, 0);
+
+    private static final String NO_STATUS = "";
+
+    // Keyed by normalized status; value is {count, revenueCentavos}
+    private final Map<String, long[]> totalsByStatus;
+    private final long totalCount;
+    private final long totalRevenueCentavos;
+
+    private BookingStatusSummary(Map<String, long[]> totalsByStatus, long totalCount, long totalRevenueCentavos) {
+        this.totalsByStatus = totalsByStatus;
+        this.totalCount = totalCount;
+        this.totalRevenueCentavos = totalRevenueCentavos;
+    }
+
+    // --- Queries ---
+
+    public long getCount(String status) {
+        long[] totals = totalsByStatus.get(normalize(status));
+        return totals == null ? 0 : totals[0];
+    }
+
+    public double getRevenue(String status) {
+        long[] totals = totalsByStatus.get(normalize(status));
+        return totals == null ? 0.0 : totals[1] / 100.0;
+    }
+
+    public long getTotalCount() { return totalCount; }
+    public double getTotalRevenue() { return totalRevenueCentavos / 100.0; }
+
+    /** Booking count per status (lower-case status names; "" for bookings without a status). */
+    public Map<String, Long> getCountsByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        totalsByStatus.forEach((status, totals) -> counts.put(status, totals[0]));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    // --- Incremental updates (used by BookingIndexes) ---
+
+    /** Returns a new summary with one booking moved from the old status/total to the new one. */
+    BookingStatusSummary apply(String oldStatus, long oldTotalCentavos, String newStatus, long newTotalCentavos) {
+        Map<String, long[]> next = new LinkedHashMap<>(totalsByStatus.size() + 2);
+        totalsByStatus.forEach((status, totals) -> next.put(status, totals.clone()));
+        long count = totalCount;
+        long revenue = totalRevenueCentavos;
+        if (oldStatus != null) {
+            long[] totals = next.get(oldStatus);
+            if (totals != null) {
+                totals[0]--;
+                totals[1] -= oldTotalCentavos;
+                if (totals[0] <= 0) {
+                    next.remove(oldStatus);
+                }
+            }
+            count--;
+            revenue -= oldTotalCentavos;
+        }
+        if (newStatus != null) {
+            long[] totals = next.computeIfAbsent(newStatus, s -> new long[2]);
+            totals[0]++;
+            totals[1] += newTotalCentavos;
+            count++;
+            revenue += newTotalCentavos;
+        }
+        return new BookingStatusSummary(next, count, revenue);
+    }
+
+    /** Returns a new summary with the totals of a batch of new bookings ({count, revenueCentavos} by status) added. */
+    BookingStatusSummary plus(Map<String, long[]> addedByStatus) {
+        Map<String, long[]> next = new LinkedHashMap<>(totalsByStatus.size() + addedByStatus.size());
+        totalsByStatus.forEach((status, totals) -> next.put(status, totals.clone()));
+        long count = totalCount;
+        long revenue = totalRevenueCentavos;
+        for (Map.Entry<String, long[]> added : addedByStatus.entrySet()) {
+            long[] totals = next.computeIfAbsent(added.getKey(), s -> new long[2]);
+            totals[0] += added.getValue()[0];
+            totals[1] += added.getValue()[1];
+            count += added.getValue()[0];
+            revenue += added.getValue()[1];
+        }
+        return new BookingStatusSummary(next, count, revenue);
+    }
+
+    // --- Building from precomputed totals ---
+
+    /**
+     * Accumulates per-status totals computed elsewhere (e.g. a SQL GROUP BY) into a summary.
+     * Statuses are normalized, so rows differing only in case or spacing are merged.
+     */
+    public static final class Builder {
+        private final Map<String, long[]> totalsByStatus = new LinkedHashMap<>();
+
+        public Builder add(String status, long count, double revenue) {
+            long[] totals = totalsByStatus.computeIfAbsent(normalize(status), s -> new long[2]);
+            totals[0] += count;
+            totals[1] += toCentavos(revenue);
+            return this;
+        }
+
+        public BookingStatusSummary build() {
+            return of(totalsByStatus);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Builds a summary from totals keyed by normalized status ({count, revenueCentavos}). */
+    static BookingStatusSummary of(Map<String, long[]> totalsByStatus) {
+        Map<String, long[]> totals = new LinkedHashMap<>(totalsByStatus.size() * 2);
+        long count = 0;
+        long revenue = 0;
+        for (Map.Entry<String, long[]> entry : totalsByStatus.entrySet()) {
+            if (entry.getValue()[0] > 0) {
+                totals.put(entry.getKey(), entry.getValue().clone());
+                count += entry.getValue()[0];
+                revenue += entry.getValue()[1];
+            }
+        }
+        return new BookingStatusSummary(totals, count, revenue);
+    }
+
+    static String normalize(String status) {
+        return status == null ? NO_STATUS : status.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static long toCentavos(double amount) {
+        return PricingEngine.toCentavos(amount);
+    }
+
+    @Override
+    public String toString() {
+        return "BookingStatusSummary{total=" + totalCount + ", byStatus=" + getCountsByStatus() + "}";
+    }
+}
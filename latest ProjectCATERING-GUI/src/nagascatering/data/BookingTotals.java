@@ -0,0 +1,126 @@
+package nagascatering.data;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable report of booking counts, guests and revenue for a date range, overall and broken
+ * down by booking status and by package. Status names are normalized as in
+ * {@link BookingStatusSummary}; amounts are summed in centavos.
+ */
+public final class BookingTotals {
+
+    // Per group: {count, guests, revenueCentavos, itemsRevenueCentavos}
+    static final int COUNT = 0;
+    static final int GUESTS = 1;
+    static final int REVENUE = 2;
+    static final int ITEMS_REVENUE = 3;
+    static final int FIELDS = 4;
+
+    /** Totals of one group of bookings. */
+    public static final class Group {
+        static final Group EMPTY = new Group(new long[FIELDS]);
+
+        private final long[] totals;
+
+        Group(long[] totals) {
+            this.totals = totals;
+        }
+
+        public long getCount() { return totals[COUNT]; }
+        public long getGuests() { return totals[GUESTS]; }
+        /** Sum of booking total costs. */
+        public double getRevenue() { return totals[REVENUE] / 100.0; }
+        /** The part of the revenue from additional menu items. */
+        public double getItemsRevenue() { return totals[ITEMS_REVENUE] / 100.0; }
+
+        public double getAverageGuests() {
+            return totals[COUNT] == 0 ? 0 : (double) totals[GUESTS] / totals[COUNT];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d guests=%d revenue=%.2f", getCount(), getGuests(), getRevenue());
+        }
+    }
+
+    private final Group total;
+    private final Map<String, Group> byStatus;
+    private final Map<Integer, Group> byPackage;
+
+    BookingTotals(Map<String, long[]> byStatus, Map<Integer, long[]> byPackage) {
+        long[] all = new long[FIELDS];
+        Map<String, Group> statuses = new LinkedHashMap<>();
+        byStatus.forEach((status, totals) -> {
+            if (totals[COUNT] > 0) {
+                statuses.put(status, new Group(totals.clone()));
+                for (int field = 0; field < FIELDS; field++) {
+                    all[field] += totals[field];
+                }
+            }
+        });
+        Map<Integer, Group> packages = new LinkedHashMap<>();
+        byPackage.forEach((packageId, totals) -> {
+            if (totals[COUNT] > 0) {
+                packages.put(packageId, new Group(totals.clone()));
+            }
+        });
+        this.total = new Group(all);
+        this.byStatus = Collections.unmodifiableMap(statuses);
+        this.byPackage = Collections.unmodifiableMap(packages);
+    }
+
+    public Group getTotal() { return total; }
+
+    public Group forStatus(String status) {
+        return byStatus.getOrDefault(BookingStatusSummary.normalize(status), Group.EMPTY);
+    }
+
+    /** Bookings without a package are left out. */
+    public Group forPackage(int packageId) {
+        return byPackage.getOrDefault(packageId, Group.EMPTY);
+    }
+
+    /** By normalized status ("" for bookings without one). */
+    public Map<String, Group> getByStatus() { return byStatus; }
+
+    /** By package ID. */
+    public Map<Integer, Group> getByPackage() { return byPackage; }
+
+    // --- Building from aggregated rows ---
+
+    /** Accumulates totals computed elsewhere (e.g. a SQL GROUP BY status, package). */
+    public static final class Builder {
+        private final Map<String, long[]> byStatus = new LinkedHashMap<>();
+        private final Map<Integer, long[]> byPackage = new LinkedHashMap<>();
+
+        public Builder add(String status, Integer packageId, long count, long guests, double revenue, double itemsRevenue) {
+            long[] row = {count, guests, BookingStatusSummary.toCentavos(revenue), BookingStatusSummary.toCentavos(itemsRevenue)};
+            accumulate(byStatus.computeIfAbsent(BookingStatusSummary.normalize(status), s -> new long[FIELDS]), row);
+            if (packageId != null) {
+                accumulate(byPackage.computeIfAbsent(packageId, id -> new long[FIELDS]), row);
+            }
+            return this;
+        }
+
+        public BookingTotals build() {
+            return new BookingTotals(byStatus, byPackage);
+        }
+
+        private static void accumulate(long[] into, long[] row) {
+            for (int field = 0; field < FIELDS; field++) {
+                into[field] += row[field];
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public String toString() {
+        return "BookingTotals{" + total + ", byStatus=" + byStatus + "}";
+    }
+}
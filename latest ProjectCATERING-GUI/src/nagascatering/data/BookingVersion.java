@@ -0,0 +1,35 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+
+/**
+ * One committed version of a booking in the event-date index.
+ * A version is visible to readers pinned at commit sequence {@code s} when
+ * {@code committedAt <= s < retiredAt}. Versions that shared an index slot are chained newest
+ * first through {@link #older}, so a reader pinned before a change still finds what it replaced.
+ */
+final class BookingVersion {
+
+    static final long NOT_RETIRED = Long.MAX_VALUE;
+
+    final Booking booking; // Frozen; never changes once published
+    final long committedAt;
+    volatile long retiredAt = NOT_RETIRED;
+    volatile BookingVersion older; // Cut once no pinned reader can still need it
+
+    BookingVersion(Booking booking, long committedAt, BookingVersion older) {
+        this.booking = booking;
+        this.committedAt = committedAt;
+        this.older = older;
+    }
+
+    /** The version of this chain visible at the given commit sequence, or null. */
+    Booking visibleAt(long sequence) {
+        for (BookingVersion version = this; version != null; version = version.older) {
+            if (version.committedAt <= sequence) {
+                return version.retiredAt > sequence ? version.booking : null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,27 @@
+package nagascatering.data;
+
+/**
+ * How much of a {@link DataRepository#bulkLoad bulk load} was stored: fewer than given of a kind
+ * if the load failed part way.
+ */
+public final class BulkLoadResult {
+
+    private final int menuItems;
+    private final int packages;
+    private final int bookings;
+
+    public BulkLoadResult(int menuItems, int packages, int bookings) {
+        this.menuItems = menuItems;
+        this.packages = packages;
+        this.bookings = bookings;
+    }
+
+    public int getMenuItems() { return menuItems; }
+    public int getPackages() { return packages; }
+    public int getBookings() { return bookings; }
+
+    @Override
+    public String toString() {
+        return "BulkLoadResult{menuItems=" + menuItems + ", packages=" + packages + ", bookings=" + bookings + "}";
+    }
+}
@@ -0,0 +1,265 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Caches the small, frequently read reference data (packages, menu items) and the dashboard
+ * queries of another repository.
+ * <p>
+ * Every write through this decorator bumps a version number; a cached value is only served
+ * while the version it was read under is still current. Writes made to the underlying store by
+ * other means are not seen until the next write through this decorator.
+ * Cached lists and the packages, menu items and bookings in them are copied on the way out, so
+ * callers may modify what they get back. Queries keyed by date keep only the last
+ * {@value #MAX_QUERIES} results.
+ */
+public class CachingDataRepository implements DataRepository {
+
+    static final int MAX_QUERIES = 64;
+
+    private final DataRepository delegate;
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    // Date ranges and days make these keys open-ended, so least recently used results are dropped
+    private final Map<String, Cached> queries = Collections.synchronizedMap(
+            new LinkedHashMap<String, Cached>(MAX_QUERIES * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                    return size() > MAX_QUERIES;
+                }
+            });
+
+    private static final class Cached {
+        final long version;
+        final Object value;
+
+        Cached(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    public CachingDataRepository(DataRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /** Drops every cached value (e.g. after the underlying store was changed directly). */
+    public void invalidate() {
+        version.incrementAndGet();
+        cache.clear();
+        queries.clear();
+    }
+
+    // Reads the version before loading, so a write that overlaps the load leaves the entry stale
+    private <T> T cached(String key, Supplier<T> loader) {
+        return cached(cache, key, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(Map<String, Cached> cache, String key, Supplier<T> loader) {
+        long current = version.get();
+        Cached hit = cache.get(key);
+        if (hit != null && hit.version == current) {
+            return (T) hit.value;
+        }
+        T value = loader.get();
+        if (value != null) {
+            cache.put(key, new Cached(current, value));
+        }
+        return value;
+    }
+
+    private <T> List<T> cachedList(Map<String, Cached> cache, String key, Supplier<List<T>> loader,
+                                   Function<T, T> copy) {
+        List<T> list = cached(cache, key, () -> {
+            List<T> loaded = loader.get();
+            return loaded != null ? new ArrayList<>(loaded) : null;
+        });
+        if (list == null) {
+            return null;
+        }
+        List<T> copies = new ArrayList<>(list.size());
+        for (T element : list) {
+            copies.add(copy.apply(element));
+        }
+        return copies;
+    }
+
+    private <T> T write(Supplier<T> call) {
+        try {
+            return call.get();
+        } finally {
+            invalidate();
+        }
+    }
+
+    // --- Packages ---
+
+    @Override
+    public List<Package> getAllPackages(boolean includeInactive) {
+        return cachedList(cache, "packages:" + includeInactive, () -> delegate.getAllPackages(includeInactive),
+                Package::copy);
+    }
+
+    // Pages are not cached: cursors make the keys open-ended, and each page is already cheap
+    @Override
+    public Page<Package> getPackagesPage(boolean includeInactive, int pageSize, String cursor) {
+        return delegate.getPackagesPage(includeInactive, pageSize, cursor);
+    }
+
+    @Override
+    public SaveResult savePackage(Package pkg, long expectedVersion) {
+        return write(() -> delegate.savePackage(pkg, expectedVersion));
+    }
+
+    @Override
+    public boolean deletePackage(int packageId) {
+        return write(() -> delegate.deletePackage(packageId));
+    }
+
+    @Override
+    public boolean setPackageActiveStatus(int packageId, boolean isActive) {
+        return write(() -> delegate.setPackageActiveStatus(packageId, isActive));
+    }
+
+    // --- Bookings ---
+
+    @Override
+    public SaveResult saveBooking(Booking booking, List<BookingItem> itemsToSave, long expectedVersion) {
+        return write(() -> delegate.saveBooking(booking, itemsToSave, expectedVersion));
+    }
+
+    @Override
+    public boolean updateBooking(Booking booking, List<BookingItem> items) {
+        return write(() -> delegate.updateBooking(booking, items));
+    }
+
+    @Override
+    public boolean deleteBooking(int bookingId) {
+        return write(() -> delegate.deleteBooking(bookingId));
+    }
+
+    @Override
+    public Booking getBookingById(int bookingId) {
+        return delegate.getBookingById(bookingId);
+    }
+
+    @Override
+    public List<Booking> getAllBookings() {
+        return delegate.getAllBookings();
+    }
+
+    @Override
+    public List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        return delegate.getBookingsBetween(from, to);
+    }
+
+    @Override
+    public List<Booking> getUpcoming(int limit) {
+        // Keyed by date too, so the list moves on at midnight even without writes
+        return cachedList(queries, "upcoming:" + LocalDate.now() + ":" + limit, () -> delegate.getUpcoming(limit),
+                Booking::copy);
+    }
+
+    @Override
+    public List<Booking> getBookingsForPackage(int packageId) {
+        return delegate.getBookingsForPackage(packageId);
+    }
+
+    @Override
+    public List<Integer> getPendingBookingIdsForPackage(int packageId) {
+        return delegate.getPendingBookingIdsForPackage(packageId);
+    }
+
+    @Override
+    public List<Integer> getPendingBookingIdsForMenuItem(int itemId) {
+        return delegate.getPendingBookingIdsForMenuItem(itemId);
+    }
+
+    @Override
+    public int saveBookingCosts(List<Booking> repriced) {
+        return write(() -> delegate.saveBookingCosts(repriced));
+    }
+
+    @Override
+    public List<Booking> searchBookings(String query, int limit) {
+        return delegate.searchBookings(query, limit); // Already indexed; queries rarely repeat
+    }
+
+    @Override
+    public BookingStatusSummary getStatusSummary() {
+        return cached("statusSummary", delegate::getStatusSummary); // Immutable, safe to share
+    }
+
+    @Override
+    public BookingTotals getBookingTotals(LocalDate from, LocalDate to) {
+        return cached(queries, "totals:" + from + ":" + to, () -> delegate.getBookingTotals(from, to)); // Immutable too
+    }
+
+    @Override
+    public Stream<Booking> streamBookings(Predicate<? super Booking> filter) {
+        return delegate.streamBookings(filter);
+    }
+
+    @Override
+    public Stream<Booking> streamBookingsWithItems(LocalDate from, LocalDate to) {
+        return delegate.streamBookingsWithItems(from, to);
+    }
+
+    @Override
+    public Page<Booking> getBookingsPage(BookingSort sort, int pageSize, String cursor) {
+        return delegate.getBookingsPage(sort, pageSize, cursor);
+    }
+
+    // --- Menu items ---
+
+    @Override
+    public List<MenuItem> getAllMenuItems() {
+        return cachedList(cache, "menuItems:active", delegate::getAllMenuItems, MenuItem::copy);
+    }
+
+    @Override
+    public List<MenuItem> getAllMenuItems(boolean includeInactive) {
+        return cachedList(cache, "menuItems:" + includeInactive, () -> delegate.getAllMenuItems(includeInactive),
+                MenuItem::copy);
+    }
+
+    @Override
+    public Page<MenuItem> getMenuItemsPage(boolean includeInactive, int pageSize, String cursor) {
+        return delegate.getMenuItemsPage(includeInactive, pageSize, cursor);
+    }
+
+    @Override
+    public MenuItem getMenuItemById(int itemId) {
+        MenuItem item = cached("menuItem:" + itemId, () -> delegate.getMenuItemById(itemId));
+        return item != null ? item.copy() : null;
+    }
+
+    @Override
+    public List<BookingItem> getBookingItemsForBooking(int bookingId) {
+        return delegate.getBookingItemsForBooking(bookingId);
+    }
+
+    // --- Bulk loading ---
+
+    @Override
+    public BulkLoadResult bulkLoad(List<MenuItem> menuItems, List<Package> packages, Iterator<Booking> bookings) {
+        return write(() -> delegate.bulkLoad(menuItems, packages, bookings));
+    }
+}
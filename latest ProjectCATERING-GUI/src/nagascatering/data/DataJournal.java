@@ -0,0 +1,422 @@
+package nagascatering.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal for the in-memory store.
+ * <p>
+ * Each mutation is appended as one binary record: {@code [int length][int crc32][byte type][payload]}.
+ * Appends are queued and a single writer thread flushes everything queued so far with one
+ * gathering write and one {@code force()}, so concurrent saves share a single fsync (group commit).
+ * <p>
+ * The journal is split into numbered segment files ({@code store-00000001.journal}, ...).
+ * {@link #roll()} starts a new segment, which is how a snapshot marks its replay point;
+ * segments older than the latest snapshot can then be deleted.
+ * On open, segments are replayed in order and any torn tail left by a crash is truncated.
+ */
+final class DataJournal implements Closeable {
+
+    // Record types
+    static final byte PACKAGE_PUT = 1;
+    static final byte PACKAGE_REMOVE = 2;
+    static final byte PACKAGE_ACTIVE = 3; // No longer written (status changes are versioned puts); still replayed
+    static final byte BOOKING_PUT = 4;
+    static final byte BOOKING_REMOVE = 5;
+    static final byte MENU_ITEM_PUT = 6;
+    static final byte PACKAGE_PUT_VERSIONED = 7; // [long version] + PACKAGE_PUT payload
+    static final byte BOOKING_PUT_VERSIONED = 8; // [long version] + BOOKING_PUT payload
+    static final byte BOOKING_COSTS_BATCH = 9; // [int count] + count x BOOKING_PUT_VERSIONED payload
+
+    /** Receives each journal record during replay; the payload is positioned after the type byte. */
+    interface Replayer {
+        void apply(byte type, ByteBuffer payload);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(DataJournal.class.getName());
+    private static final int HEADER_BYTES = 8; // length + crc
+    private static final int READ_CHUNK_BYTES = 1 << 20;
+    private static final String SEGMENT_PREFIX = "store-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String LEGACY_JOURNAL_NAME = "store.journal"; // Single-file journal from before segments
+
+    // Records are built here, then copied into an exactly-sized buffer for the writer queue
+    private static final ThreadLocal<StoreCodec.Output> RECORD_BUILDER =
+            ThreadLocal.withInitial(() -> new StoreCodec.Output(512));
+
+    private static final class PendingWrite {
+        final ByteBuffer record; // null for a segment roll marker
+        final CompletableFuture<Void> committed = new CompletableFuture<>();
+        final CompletableFuture<Long> rolledTo; // Only for roll markers
+
+        PendingWrite(ByteBuffer record) {
+            this.record = record;
+            this.rolledTo = record == null ? new CompletableFuture<>() : null;
+        }
+    }
+
+    private final Path directory;
+    private FileChannel channel; // Active segment; only touched by the writer thread after open
+    private IOException failure; // Set by the writer thread if a failed write could not be undone
+    private volatile long activeSegment;
+    private final Object queueLock = new Object();
+    private List<PendingWrite> queue = new ArrayList<>();
+    private boolean closed; // guarded by queueLock
+    private final Thread writerThread;
+    private long replayedRecords;
+    private final AtomicLong recordsSinceRoll = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private DataJournal(Path directory) {
+        this.directory = directory;
+        this.writerThread = new Thread(this::writeLoop, "data-journal-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Opens (or creates) the journal in {@code directory}, replays every segment numbered
+     * {@code fromSegment} or later through {@code replayer} and starts the group-commit writer.
+     */
+    static DataJournal open(Path directory, long fromSegment, Replayer replayer) throws IOException {
+        Files.createDirectories(directory);
+        migrateLegacyJournal(directory);
+        DataJournal journal = new DataJournal(directory);
+        TreeMap<Long, Path> segments = listSegments(directory);
+        try {
+            for (Map.Entry<Long, Path> segment : segments.tailMap(fromSegment, true).entrySet()) {
+                journal.replaySegment(segment.getValue(), replayer);
+            }
+            journal.activeSegment = Math.max(fromSegment, segments.isEmpty() ? 1 : segments.lastKey());
+            journal.channel = openSegment(directory, journal.activeSegment);
+        } catch (IOException | RuntimeException e) {
+            if (journal.channel != null) {
+                journal.channel.close();
+            }
+            throw e;
+        }
+        LOGGER.log(Level.INFO, "Replayed {0} journal records from {1}", new Object[]{journal.replayedRecords, directory});
+        journal.writerThread.start();
+        return journal;
+    }
+
+    long getReplayedRecords() { return replayedRecords; }
+
+    /** Records appended since the journal was opened or last rolled. */
+    long getRecordsSinceRoll() { return recordsSinceRoll.get(); }
+
+    /** Batches whose write failed since the journal was opened. */
+    long getFailedBatches() { return failedBatches.get(); }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static FileChannel openSegment(Path directory, long segment) throws IOException {
+        FileChannel opened = FileChannel.open(segmentPath(directory, segment), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        opened.position(opened.size());
+        return opened;
+    }
+
+    private static TreeMap<Long, Path> listSegments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    LOGGER.log(Level.WARNING, "Ignoring unrecognised journal file {0}", file);
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static void migrateLegacyJournal(Path directory) throws IOException {
+        Path legacy = directory.resolve(LEGACY_JOURNAL_NAME);
+        if (Files.exists(legacy) && listSegments(directory).isEmpty()) {
+            Files.move(legacy, segmentPath(directory, 1));
+            LOGGER.log(Level.INFO, "Converted {0} into the first journal segment", legacy);
+        }
+    }
+
+    // --- Replay ---
+
+    private void replaySegment(Path file, Replayer replayer) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            CRC32 crc = new CRC32();
+            ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK_BYTES);
+            chunk.flip(); // Start empty
+
+            while (true) {
+                if (chunk.remaining() < HEADER_BYTES && !refill(in, chunk, position + chunk.remaining(), size, HEADER_BYTES)) {
+                    break;
+                }
+                int length = chunk.getInt(chunk.position());
+                int checksum = chunk.getInt(chunk.position() + 4);
+                if (length <= 0 || length > size - position - HEADER_BYTES) {
+                    break; // Torn or garbage header
+                }
+                if (chunk.remaining() < HEADER_BYTES + length) {
+                    if (chunk.capacity() < HEADER_BYTES + length) {
+                        ByteBuffer larger = ByteBuffer.allocate(HEADER_BYTES + length);
+                        larger.put(chunk).flip();
+                        chunk = larger;
+                    }
+                    if (!refill(in, chunk, position + chunk.remaining(), size, HEADER_BYTES + length)) {
+                        break;
+                    }
+                }
+                crc.reset();
+                crc.update(chunk.array(), chunk.arrayOffset() + chunk.position() + HEADER_BYTES, length);
+                if ((int) crc.getValue() != checksum) {
+                    break; // Partially written record
+                }
+
+                ByteBuffer payload = chunk.duplicate();
+                payload.position(chunk.position() + HEADER_BYTES).limit(chunk.position() + HEADER_BYTES + length);
+                byte type = payload.get();
+                try {
+                    replayer.apply(type, payload.slice());
+                } catch (RuntimeException e) {
+                    throw new IOException("Journal record at " + file + ":" + position + " could not be applied (type " + type + ")", e);
+                }
+                chunk.position(chunk.position() + HEADER_BYTES + length);
+                position += HEADER_BYTES + length;
+                replayedRecords++;
+            }
+
+            if (position < size) {
+                LOGGER.log(Level.WARNING, "Journal {0} has {1} trailing bytes from an interrupted write; truncating.",
+                        new Object[]{file, size - position});
+                in.truncate(position);
+            }
+        }
+    }
+
+    // Compacts the chunk and reads more bytes until at least {@code needed} are available
+    private static boolean refill(FileChannel in, ByteBuffer chunk, long readFrom, long size, int needed) throws IOException {
+        chunk.compact();
+        long filePosition = readFrom;
+        while (chunk.position() < needed && filePosition < size) {
+            int read = in.read(chunk, filePosition);
+            if (read < 0) {
+                break;
+            }
+            filePosition += read;
+        }
+        chunk.flip();
+        return chunk.remaining() >= needed;
+    }
+
+    // --- Appending ---
+
+    /**
+     * Queues a record for the next group commit. Safe to call while holding map locks:
+     * it only encodes and enqueues. Wait on the returned future (outside any lock)
+     * for the record to be durable.
+     */
+    CompletableFuture<Void> append(byte type, Consumer<StoreCodec.Output> body) {
+        StoreCodec.Output out = RECORD_BUILDER.get().reset();
+        out.putInt(0).putInt(0).putByte(type);
+        body.accept(out);
+        ByteBuffer record = out.copy();
+        int length = record.remaining() - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), record.arrayOffset() + HEADER_BYTES, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        recordsSinceRoll.incrementAndGet();
+        return enqueue(new PendingWrite(record));
+    }
+
+    /**
+     * Starts a new segment. Every record appended before this call ends up in an older segment;
+     * every record appended after it goes to the new segment or a later one.
+     * The future completes with the new segment number once the older segments are durable.
+     */
+    CompletableFuture<Long> roll() {
+        PendingWrite marker = new PendingWrite(null);
+        synchronized (queueLock) {
+            recordsSinceRoll.set(0);
+            enqueue(marker);
+        }
+        return marker.rolledTo;
+    }
+
+    /** Completes once every record appended before this call has been written (or has failed). */
+    CompletableFuture<Void> sync() {
+        return enqueue(new PendingWrite(ByteBuffer.allocate(0)));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite write) {
+        synchronized (queueLock) {
+            if (closed) {
+                IllegalStateException error = new IllegalStateException("Journal is closed");
+                write.committed.completeExceptionally(error);
+                if (write.rolledTo != null) {
+                    write.rolledTo.completeExceptionally(error);
+                }
+                return write.committed;
+            }
+            queue.add(write);
+            queueLock.notifyAll();
+        }
+        return write.committed;
+    }
+
+    /** Deletes segments numbered below {@code segment}; they are covered by a snapshot. */
+    void deleteSegmentsBefore(long segment) {
+        try {
+            for (Path file : listSegments(directory).headMap(segment, false).values()) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not delete old journal segment " + file, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not list journal segments in " + directory, e);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<PendingWrite> batch;
+            synchronized (queueLock) {
+                while (queue.isEmpty() && !closed) {
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    return; // Closed and drained
+                }
+                batch = queue;
+                queue = new ArrayList<>();
+            }
+            // Flush records up to each roll marker into the current segment, then switch segments
+            int start = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i).record == null) {
+                    flush(batch.subList(start, i));
+                    rollSegment(batch.get(i));
+                    start = i + 1;
+                }
+            }
+            flush(batch.subList(start, batch.size()));
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] records = new ByteBuffer[batch.size()];
+        long total = 0;
+        for (int i = 0; i < records.length; i++) {
+            records[i] = batch.get(i).record;
+            total += records[i].remaining();
+        }
+        long start = -1;
+        try {
+            if (failure != null) {
+                throw new IOException("Journal is unusable after an earlier write failure", failure);
+            }
+            start = channel.position();
+            long written = 0;
+            while (written < total) {
+                written += channel.write(records);
+            }
+            channel.force(false); // One fsync for the whole batch
+            for (PendingWrite write : batch) {
+                write.committed.complete(null);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to write journal batch of " + batch.size() + " records", e);
+            failedBatches.incrementAndGet();
+            if (start >= 0) {
+                discardFrom(start);
+            }
+            for (PendingWrite write : batch) {
+                write.committed.completeExceptionally(e);
+            }
+        }
+    }
+
+    // Cuts off what a failed batch left in the segment, so later batches are not appended after
+    // torn bytes that replay would stop at. If even that fails, every later write fails too.
+    private void discardFrom(long position) {
+        try {
+            channel.truncate(position);
+            channel.position(position);
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not undo a failed journal write; the journal accepts no more writes", e);
+            failure = e;
+        }
+    }
+
+    // Opens the next segment before closing the current one, so a failed roll keeps appending to
+    // the current segment
+    private void rollSegment(PendingWrite marker) {
+        FileChannel next;
+        try {
+            next = openSegment(directory, activeSegment + 1);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to roll journal segment", e);
+            marker.rolledTo.completeExceptionally(e);
+            return;
+        }
+        try {
+            channel.close(); // Its batches were forced when they were flushed
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error closing journal segment " + activeSegment, e);
+        }
+        channel = next;
+        activeSegment++;
+        failure = null; // Replay stops at torn bytes only within their own segment
+        marker.rolledTo.complete(activeSegment);
+    }
+
+    /** Flushes anything still queued, stops the writer and closes the file. */
+    @Override
+    public void close() throws IOException {
+        synchronized (queueLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queueLock.notifyAll();
+        }
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
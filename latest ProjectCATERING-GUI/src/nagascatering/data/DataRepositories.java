@@ -0,0 +1,112 @@
+package nagascatering.data;
+
+import nagascatering.db.DatabaseManager;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Chooses the storage backend from configuration.
+ * <p>
+ * System properties:
+ * <ul>
+ *   <li>{@value #STORAGE_PROPERTY}: {@code memory} (default) or {@code jdbc}; if the database
+ *       cannot be opened, {@link #fromConfiguration()} throws IllegalStateException</li>
+ *   <li>{@value #JDBC_URL_PROPERTY}: JDBC URL; defaults to an embedded Derby database in the
+ *       data directory ({@value InMemoryDataManager#DATA_DIR_PROPERTY})</li>
+ *   <li>{@value #JDBC_POOL_SIZE_PROPERTY}: maximum pooled connections (default 4)</li>
+ *   <li>{@value #CACHE_PROPERTY}: wrap the backend in a {@link CachingDataRepository}
+ *       (default true for {@code jdbc}, false for {@code memory})</li>
+ *   <li>{@value #TIMING_PROPERTY}: wrap it in a {@link TimingDataRepository}, which feeds the
+ *       {@link Metrics} published over JMX (default true);
+ *       {@value #SLOW_CALL_PROPERTY} sets the slow-call warning threshold in ms (default 100)</li>
+ * </ul>
+ */
+public final class DataRepositories {
+
+    private static final Logger LOGGER = Logger.getLogger(DataRepositories.class.getName());
+
+    public static final String STORAGE_PROPERTY = "nagascatering.storage";
+    public static final String JDBC_URL_PROPERTY = "nagascatering.jdbc.url";
+    public static final String JDBC_POOL_SIZE_PROPERTY = "nagascatering.jdbc.poolSize";
+    private static final int DEFAULT_POOL_SIZE = 4;
+    public static final String CACHE_PROPERTY = "nagascatering.repository.cache";
+    public static final String TIMING_PROPERTY = "nagascatering.repository.timing";
+    public static final String SLOW_CALL_PROPERTY = "nagascatering.repository.slowCallMillis";
+    private static final long DEFAULT_SLOW_CALL_MILLIS = 100;
+
+    private static volatile DataRepository shared;
+
+    private DataRepositories() {}
+
+    /** Returns the configured repository; created on first use and shared by all callers. */
+    public static DataRepository fromConfiguration() {
+        DataRepository repository = shared;
+        if (repository == null) {
+            synchronized (DataRepositories.class) {
+                repository = shared;
+                if (repository == null) {
+                    String storage = System.getProperty(STORAGE_PROPERTY, "memory").trim();
+                    repository = decorate(create(storage));
+                    shared = repository;
+                }
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Directory for local data files (journal, snapshots, embedded database); resolved here rather
+     * than in InMemoryDataManager so choosing another backend does not load the in-memory store.
+     */
+    public static Path dataDirectory() {
+        String configured = System.getProperty(InMemoryDataManager.DATA_DIR_PROPERTY);
+        return configured != null && !configured.trim().isEmpty()
+                ? Paths.get(configured.trim())
+                : Paths.get(System.getProperty("user.home"), ".nagascatering");
+    }
+
+    // Timing sits outermost so it measures what callers actually wait for, cache hits included
+    private static DataRepository decorate(DataRepository backend) {
+        DataRepository repository = backend;
+        String cache = System.getProperty(CACHE_PROPERTY);
+        boolean cacheByDefault = !(backend instanceof InMemoryDataManager); // Its reads are already map lookups
+        if (cache != null ? Boolean.parseBoolean(cache.trim()) : cacheByDefault) {
+            repository = new CachingDataRepository(repository);
+        }
+        if (Boolean.parseBoolean(System.getProperty(TIMING_PROPERTY, "true").trim())) {
+            TimingDataRepository timing = new TimingDataRepository(repository,
+                    Long.getLong(SLOW_CALL_PROPERTY, DEFAULT_SLOW_CALL_MILLIS));
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> timing.getTimings().forEach((operation, stats) ->
+                            LOGGER.log(Level.INFO, "{0}: {1}", new Object[]{operation, stats})),
+                    "repository-timings"));
+            repository = timing;
+        }
+        return repository;
+    }
+
+    private static DataRepository create(String storage) {
+        if (storage.equalsIgnoreCase("jdbc")) {
+            String url = System.getProperty(JDBC_URL_PROPERTY,
+                    "jdbc:derby:" + dataDirectory().resolve("catering-db") + ";create=true");
+            int poolSize = Integer.getInteger(JDBC_POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE);
+            LOGGER.log(Level.INFO, "Using JDBC storage at {0}", url);
+            DatabaseManager databaseManager;
+            try {
+                databaseManager = new DatabaseManager(url, poolSize);
+            } catch (IllegalStateException e) {
+                // Not silently in memory: bookings made there would be lost on exit
+                throw new IllegalStateException("Could not open JDBC storage at " + url
+                        + " (is lib/derby-10.14.2.0.jar or the database's driver on the classpath?)", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(databaseManager::close, "database-shutdown"));
+            return databaseManager;
+        }
+        if (!storage.equalsIgnoreCase("memory")) {
+            LOGGER.log(Level.WARNING, "Unknown storage ''{0}''; using in-memory storage", storage);
+        }
+        return new InMemoryDataManager();
+    }
+}
@@ -0,0 +1,152 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Storage operations used by the controllers, independent of where the data lives.
+ * Implemented by {@link InMemoryDataManager} (in-memory with journal) and
+ * {@link nagascatering.db.DatabaseManager} (embedded SQL database); see
+ * {@link DataRepositories} for how one is chosen.
+ * <p>
+ * Bookings returned by queries may be shared, read-only versions ({@link Booking#isFrozen()});
+ * edit a {@link Booking#copy()} and save that.
+ */
+public interface DataRepository {
+
+    /** {@code expectedVersion} that skips the version check: the save overwrites whatever is stored. */
+    long ANY_VERSION = -1;
+
+    // --- Packages ---
+    List<Package> getAllPackages(boolean includeInactive);
+
+    default boolean savePackage(Package pkg) {
+        return savePackage(pkg, ANY_VERSION).isSaved();
+    }
+
+    /**
+     * Inserts (ID &lt;= 0) or updates the package, the update only if the stored version still equals
+     * {@code expectedVersion}. On success the caller's package receives its ID and new version.
+     */
+    SaveResult savePackage(Package pkg, long expectedVersion);
+
+    /** Deletes the package, or only deactivates it if bookings still reference it. */
+    boolean deletePackage(int packageId);
+    boolean setPackageActiveStatus(int packageId, boolean isActive);
+
+    // --- Bookings ---
+    /** Inserts (ID &lt;= 0) or replaces the booking together with its items. */
+    default boolean saveBooking(Booking booking, List<BookingItem> itemsToSave) {
+        return saveBooking(booking, itemsToSave, ANY_VERSION).isSaved();
+    }
+
+    /**
+     * Compare-and-set save: inserts a new booking (ID &lt;= 0), or replaces it only if the stored
+     * version still equals {@code expectedVersion}, the version the caller read. A stale write
+     * returns {@link SaveResult.Status#CONFLICT} instead of overwriting another agent's change.
+     * On success the caller's booking receives its ID and new version (unless it is frozen).
+     */
+    SaveResult saveBooking(Booking booking, List<BookingItem> itemsToSave, long expectedVersion);
+
+    boolean updateBooking(Booking booking, List<BookingItem> items);
+    boolean deleteBooking(int bookingId);
+    /** Returns the booking with its package and items loaded, or null. */
+    Booking getBookingById(int bookingId);
+
+    // List queries link each booking's package; whether items are loaded depends on the backend,
+    // use getBookingById or getBookingItemsForBooking when they are needed.
+    /** All bookings, latest event first; bookings without a date come last. */
+    List<Booking> getAllBookings();
+    /** Bookings with an event date in [from, to], earliest first. */
+    List<Booking> getBookingsBetween(LocalDate from, LocalDate to);
+    /** Up to {@code limit} bookings from today on, soonest first. */
+    List<Booking> getUpcoming(int limit);
+    /** Bookings referencing the package, earliest event first. */
+    List<Booking> getBookingsForPackage(int packageId);
+
+    // Repricing: the pending bookings a price change affects, found through an index
+    /** IDs of pending bookings on the package, in no particular order. */
+    List<Integer> getPendingBookingIdsForPackage(int packageId);
+    /** IDs of pending bookings with a line for the menu item, in no particular order. */
+    List<Integer> getPendingBookingIdsForMenuItem(int itemId);
+    /**
+     * Stores new base, items and total costs and line costs for a batch of bookings, committed
+     * together. Each booking is applied only if its stored version still equals its
+     * {@code getVersion()}; the others are left as they are.
+     * @return how many bookings were updated
+     */
+    int saveBookingCosts(List<Booking> repriced);
+    /**
+     * Up to {@code limit} bookings whose customer name, venue, theme or custom requests contain
+     * every word of the query (as a whole word or word prefix, ignoring case and accents), best
+     * match first. Served from an inverted index; see {@link BookingSearchIndex}.
+     */
+    List<Booking> searchBookings(String query, int limit);
+    BookingStatusSummary getStatusSummary();
+
+    /**
+     * Counts, guests and revenue of the bookings with event dates from {@code from} to {@code to}
+     * inclusive, by status and by package. Either bound may be null for none; undated bookings
+     * are counted only when both are.
+     */
+    BookingTotals getBookingTotals(LocalDate from, LocalDate to);
+
+    // Paged queries: pass a null cursor for the first page, then each page's next cursor. Pages
+    // continue from the last row's sort position, so rows present throughout are neither repeated
+    // nor skipped while others are inserted, and each call only reads about one page of rows.
+    /** One page of bookings in the given order (see {@link BookingSort}). */
+    Page<Booking> getBookingsPage(BookingSort sort, int pageSize, String cursor);
+    /** One page of packages, in the order of getAllPackages. */
+    Page<Package> getPackagesPage(boolean includeInactive, int pageSize, String cursor);
+    /** One page of menu items, in the order of getAllMenuItems. */
+    Page<MenuItem> getMenuItemsPage(boolean includeInactive, int pageSize, String cursor);
+
+    /**
+     * Streams the bookings matching {@code filter} (null for all) in no particular order, without
+     * building a list first; bookings are loaded like list query results. The stream is weakly
+     * consistent: each booking appears at most once and concurrent saves may or may not show.
+     * It can be run in parallel. Close it when done (try-with-resources), since a backend may
+     * hold resources such as a database connection until then.
+     */
+    Stream<Booking> streamBookings(Predicate<? super Booking> filter);
+
+    /**
+     * Streams the bookings with an event date from {@code from} to {@code to} (inclusive; null for
+     * no bound) together with their items, for exports. Otherwise like {@link #streamBookings}.
+     */
+    Stream<Booking> streamBookingsWithItems(LocalDate from, LocalDate to);
+
+    /** Passes every booking to {@code action}, one at a time; see {@link #streamBookings}. */
+    default void forEachBooking(Consumer<? super Booking> action) {
+        try (Stream<Booking> bookings = streamBookings(null)) {
+            bookings.forEach(action);
+        }
+    }
+
+    // --- Menu items ---
+    /** Active menu items, by name. */
+    List<MenuItem> getAllMenuItems();
+    List<MenuItem> getAllMenuItems(boolean includeInactive);
+    MenuItem getMenuItemById(int itemId);
+    List<BookingItem> getBookingItemsForBooking(int bookingId);
+
+    // --- Bulk loading ---
+    /**
+     * Adds a whole dataset far faster than one save per record: the menu items and packages, then
+     * the bookings with their {@link Booking#getBookingItems() items}, indexed, journaled or
+     * committed a batch at a time. Everything is inserted as new. Bookings and items refer to the
+     * given menu items and packages by the IDs those carry here, which are translated to the IDs
+     * they are stored under; other references are kept as they are. Meant for seeding stores and
+     * imports, not for running alongside edits of the records being loaded.
+     * @return how many menu items, packages and bookings were added
+     */
+    BulkLoadResult bulkLoad(List<MenuItem> menuItems, List<Package> packages, Iterator<Booking> bookings);
+}
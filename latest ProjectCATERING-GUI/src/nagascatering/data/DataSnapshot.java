@@ -0,0 +1,252 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary snapshot of the whole store, so startup does not have to replay the full journal history.
+ * <p>
+ * Layout: a fixed header (replay segment, ID counters, record counts), then length-prefixed
+ * menu item, package and booking records (see {@link StoreCodec}), then an end marker.
+ * Since format 2, package and booking records start with the entity's version.
+ * Snapshots are loaded through a {@link MappedByteBuffer}; booking items stay encoded in the
+ * mapping until a booking's item list is first used (see {@link LazyBookingItemList}).
+ * Files are named {@code store-<segment>.snapshot}, where {@code segment} is the first journal
+ * segment to replay on top of the snapshot.
+ */
+final class DataSnapshot {
+
+    private static final Logger LOGGER = Logger.getLogger(DataSnapshot.class.getName());
+
+    private static final long MAGIC = 0x4E4353_4E41_5031L; // "NCSNAP1"
+    private static final long END_MAGIC = ~MAGIC;
+    private static final int FORMAT_VERSION = 2; // 1: no entity versions
+    private static final int HEADER_BYTES = 64;
+    private static final int WRITE_CHUNK_BYTES = 1 << 20;
+    private static final String PREFIX = "store-";
+    private static final String SUFFIX = ".snapshot";
+
+    /** Values read from a snapshot header. */
+    static final class Info {
+        final long replayFromSegment;
+        final int packageIdCounter;
+        final int bookingIdCounter;
+        final int menuItemIdCounter;
+        final int bookingItemIdCounter;
+        final int bookingCount;
+
+        Info(long replayFromSegment, int packageIdCounter, int bookingIdCounter,
+             int menuItemIdCounter, int bookingItemIdCounter, int bookingCount) {
+            this.replayFromSegment = replayFromSegment;
+            this.packageIdCounter = packageIdCounter;
+            this.bookingIdCounter = bookingIdCounter;
+            this.menuItemIdCounter = menuItemIdCounter;
+            this.bookingItemIdCounter = bookingItemIdCounter;
+            this.bookingCount = bookingCount;
+        }
+    }
+
+    /** Decides, once a snapshot is on disk, whether it may be renamed into place. */
+    interface Check {
+        /** Throws to discard the snapshot. */
+        void verify() throws IOException;
+    }
+
+    private DataSnapshot() {}
+
+    static Path snapshotPath(Path directory, long replayFromSegment) {
+        return directory.resolve(String.format("%s%08d%s", PREFIX, replayFromSegment, SUFFIX));
+    }
+
+    /** Snapshot files in the directory, newest (highest segment) first. */
+    static List<Path> listSnapshots(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (segmentOf(file) >= 0) {
+                    snapshots.add(file);
+                }
+            }
+        }
+        snapshots.sort(Collections.reverseOrder((a, b) -> Long.compare(segmentOf(a), segmentOf(b))));
+        return snapshots;
+    }
+
+    static long segmentOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    // --- Writing ---
+
+    /**
+     * Writes a snapshot to a temporary file, forces it to disk and, if {@code check} passes,
+     * atomically renames it into place. The collections may be modified concurrently; see
+     * InMemoryDataManager for why that is safe.
+     */
+    static Path write(Path directory, long replayFromSegment, int[] idCounters, Collection<MenuItem> menuItems,
+                      Collection<Package> packages, Collection<Booking> bookings, Check check) throws IOException {
+        Path target = snapshotPath(directory, replayFromSegment);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        StoreCodec.Output out = new StoreCodec.Output(WRITE_CHUNK_BYTES + 4096);
+        int[] counts = new int[3];
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_BYTES); // Header is written last, once counts are known
+
+            for (MenuItem item : menuItems) {
+                writeRecord(channel, out, o -> StoreCodec.writeMenuItem(o, item));
+                counts[0]++;
+            }
+            for (Package pkg : packages) {
+                writeRecord(channel, out, o -> StoreCodec.writePackage(o.putLong(pkg.getVersion()), pkg));
+                counts[1]++;
+            }
+            for (Booking booking : bookings) {
+                writeRecord(channel, out, o -> StoreCodec.writeBooking(o.putLong(booking.getVersion()), booking));
+                counts[2]++;
+            }
+            out.putLong(END_MAGIC);
+            drain(channel, out);
+
+            long totalLength = channel.position();
+            if (totalLength > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot of " + totalLength + " bytes is too large to memory-map");
+            }
+            out.reset().putLong(MAGIC).putInt(FORMAT_VERSION).putLong(replayFromSegment)
+               .putInt(idCounters[0]).putInt(idCounters[1]).putInt(idCounters[2]).putInt(idCounters[3])
+               .putInt(counts[0]).putInt(counts[1]).putInt(counts[2]).putLong(totalLength);
+            ByteBuffer header = out.view();
+            long offset = 0;
+            while (header.hasRemaining()) {
+                offset += channel.write(header, offset);
+            }
+            channel.force(true);
+            check.verify();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.log(Level.INFO, "Wrote snapshot {0} ({1} bookings)", new Object[]{target, counts[2]});
+        return target;
+    }
+
+    // Appends one length-prefixed record, writing to the channel whenever the buffer fills up
+    private static void writeRecord(FileChannel channel, StoreCodec.Output out, Consumer<StoreCodec.Output> body) throws IOException {
+        int lengthAt = out.position();
+        out.putInt(0);
+        body.accept(out);
+        out.putIntAt(lengthAt, out.position() - lengthAt - 4);
+        if (out.position() >= WRITE_CHUNK_BYTES) {
+            drain(channel, out);
+        }
+    }
+
+    private static void drain(FileChannel channel, StoreCodec.Output out) throws IOException {
+        ByteBuffer pending = out.view();
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        out.reset();
+    }
+
+    // --- Loading ---
+
+    /**
+     * Maps a snapshot and decodes it into the given maps. Booking headers are decoded eagerly
+     * (the indexes need them); booking items are left in the mapping until first used.
+     */
+    static Info load(Path file, Map<Integer, MenuItem> menuItems, Map<Integer, Package> packages,
+                     Consumer<Booking> bookingSink) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES + 8 || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " has an invalid size: " + channel.size());
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid after close
+        }
+
+        ByteBuffer in = mapped.duplicate();
+        int format = in.getLong() == MAGIC ? in.getInt() : -1;
+        if (format < 1 || format > FORMAT_VERSION) {
+            throw new IOException("Not a snapshot file (or unsupported version): " + file);
+        }
+        boolean versioned = format >= 2;
+        long replayFromSegment = in.getLong();
+        int packageIdCounter = in.getInt();
+        int bookingIdCounter = in.getInt();
+        int menuItemIdCounter = in.getInt();
+        int bookingItemIdCounter = in.getInt();
+        int menuItemCount = in.getInt();
+        int packageCount = in.getInt();
+        int bookingCount = in.getInt();
+        long totalLength = in.getLong();
+        if (totalLength != mapped.capacity() || mapped.getLong((int) totalLength - 8) != END_MAGIC) {
+            throw new IOException("Snapshot " + file + " is incomplete");
+        }
+
+        in.position(HEADER_BYTES);
+        for (int i = 0; i < menuItemCount; i++) {
+            MenuItem item = StoreCodec.readMenuItem(nextRecord(in));
+            menuItems.put(item.getItemId(), item);
+        }
+        for (int i = 0; i < packageCount; i++) {
+            ByteBuffer record = nextRecord(in);
+            long version = versioned ? record.getLong() : 0;
+            Package pkg = StoreCodec.readPackage(record);
+            pkg.setVersion(version);
+            packages.put(pkg.getPackageId(), pkg);
+        }
+        for (int i = 0; i < bookingCount; i++) {
+            ByteBuffer record = nextRecord(in);
+            long version = versioned ? record.getLong() : 0;
+            Booking booking = StoreCodec.readBookingHeader(record, packages);
+            booking.setVersion(version);
+            if (record.getInt(record.position()) == 0) {
+                booking.setBookingItems(new ArrayList<>()); // Nothing worth keeping the mapping for
+            } else {
+                booking.setBookingItems(new LazyBookingItemList(record.slice(), booking.getBookingId(), menuItems));
+            }
+            bookingSink.accept(booking);
+        }
+        LOGGER.log(Level.INFO, "Loaded snapshot {0} ({1} bookings)", new Object[]{file, bookingCount});
+        return new Info(replayFromSegment, packageIdCounter, bookingIdCounter, menuItemIdCounter,
+                bookingItemIdCounter, bookingCount);
+    }
+
+    // Returns a view of the next length-prefixed record and advances past it
+    private static ByteBuffer nextRecord(ByteBuffer in) {
+        int length = in.getInt();
+        ByteBuffer record = in.slice();
+        record.limit(length);
+        in.position(in.position() + length);
+        return record;
+    }
+}
@@ -2,27 +2,67 @@ package nagascatering.data; // Or place in nagascatering.db if you prefer
 
 import nagascatering.model.*;
 import nagascatering.model.Package;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Manages application data using in-memory storage.
  * Replaces the database interactions previously handled by DatabaseManager.
- * Note: Data is lost when the application closes.
+ * Every mutation is recorded in a write-ahead journal (see {@link DataJournal}); startup loads
+ * the latest snapshot (see {@link DataSnapshot}) and replays the journal written since, so data
+ * survives restarts. A change whose journal record cannot be written is rolled back and reported
+ * as failed. Set the system property
+ * {@value #JOURNAL_ENABLED_PROPERTY}=false to run purely in memory.
+ * <p>
+ * Stored bookings are immutable versions ({@link Booking#freeze()}): a save publishes a new
+ * read-only copy with its package already linked, and queries hand out those shared versions
+ * without writing to them. Use {@link Booking#copy()} to edit one. Packages and menu items,
+ * which have no read-only form, are handed out as copies.
  */
-public class InMemoryDataManager {
+public class InMemoryDataManager implements DataRepository {
 
     private static final Logger LOGGER = Logger.getLogger(InMemoryDataManager.class.getName());
 
+    // System properties controlling persistence
+    public static final String DATA_DIR_PROPERTY = "nagascatering.data.dir";
+    public static final String JOURNAL_ENABLED_PROPERTY = "nagascatering.journal.enabled";
+    public static final String SNAPSHOT_THRESHOLD_PROPERTY = "nagascatering.snapshot.threshold"; // 0 disables automatic snapshots
+    private static final long DEFAULT_SNAPSHOT_THRESHOLD = 50_000;
+    private static final int SNAPSHOTS_TO_KEEP = 2; // The previous snapshot is kept as a fallback
+
+    private static final CompletableFuture<Void> COMMITTED = CompletableFuture.completedFuture(null);
+    private static final int BULK_BATCH_SIZE = 10_000;
+
     // Use thread-safe collections as data might be accessed/modified by background tasks
     private static final Map<Integer, Package> packages = new ConcurrentHashMap<>();
     private static final Map<Integer, Booking> bookings = new ConcurrentHashMap<>();
@@ -34,8 +74,387 @@ public class InMemoryDataManager {
     private static final AtomicInteger menuItemIdCounter = new AtomicInteger(1);
     private static final AtomicInteger bookingItemIdCounter = new AtomicInteger(1); // For items within bookings
 
-    // Static initializer block to add some sample data
+    // Secondary indexes over bookings (event date order, status totals, package usage), kept in step with the bookings map
+    private static final BookingIndexes bookingIndexes = new BookingIndexes();
+
+    // Write-ahead journal; null when persistence is disabled or the journal could not be opened
+    private static final DataJournal journal;
+
+    // Snapshots are written in the background once this many records have been journaled since the last one
+    private static final long snapshotThreshold = Long.getLong(SNAPSHOT_THRESHOLD_PROPERTY, DEFAULT_SNAPSHOT_THRESHOLD);
+    private static final Object snapshotLock = new Object();
+
+    // Held shared by every change that appends its journal record before publishing the new value
+    // (both happen inside the entity's compute), and exclusively by a snapshot while it rolls the
+    // journal: so each record in the segments a snapshot replaces is already in the maps it reads
+    private static final ReentrantReadWriteLock journalOrder = new ReentrantReadWriteLock();
+
+    // Changes published to the maps whose journal records are not yet durable, so they can be
+    // rolled back if the record fails (see awaitBooking and awaitPackage)
+    private static final PendingChanges<Booking> unconfirmedBookings = new PendingChanges<>();
+    private static final PendingChanges<Package> unconfirmedPackages = new PendingChanges<>();
+    private static final AtomicBoolean snapshotScheduled = new AtomicBoolean(false);
+
+    // Startup: load the latest snapshot, replay the journal written since, and only seed
+    // sample data into a brand new store
     static {
+        boolean restored = false;
+        if (Boolean.parseBoolean(System.getProperty(JOURNAL_ENABLED_PROPERTY, "true"))) {
+            long replayFromSegment = loadLatestSnapshot();
+            journal = openJournal(Math.max(replayFromSegment, 1));
+            restored = journal != null && (replayFromSegment > 0 || journal.getReplayedRecords() > 0);
+            bookingIndexes.loadAll(bookings); // Snapshot and replay fill only the primary maps
+        } else {
+            LOGGER.warning("Journal disabled; data will be lost when the application closes.");
+            journal = null;
+        }
+        if (!restored) {
+            loadSampleData(); // First start (or no persistence)
+        } else if (snapshotThreshold > 0 && journal.getReplayedRecords() >= snapshotThreshold) {
+            scheduleSnapshot(); // Keep the next startup short
+        }
+    }
+
+    // Resolves the directory holding the journal and snapshot files
+    static Path dataDirectory() {
+        return DataRepositories.dataDirectory();
+    }
+
+    // Loads the newest readable snapshot; returns the journal segment to replay from, or 0 if none
+    private static long loadLatestSnapshot() {
+        List<Path> snapshots;
+        try {
+            snapshots = DataSnapshot.listSnapshots(dataDirectory());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not list snapshots in " + dataDirectory(), e);
+            return 0;
+        }
+        for (Path snapshot : snapshots) {
+            try {
+                DataSnapshot.Info info = DataSnapshot.load(snapshot, menuItems, packages,
+                        booking -> {
+                            booking.freeze();
+                            bookings.put(booking.getBookingId(), booking);
+                        });
+                packageIdCounter.accumulateAndGet(info.packageIdCounter, Math::max);
+                bookingIdCounter.accumulateAndGet(info.bookingIdCounter, Math::max);
+                menuItemIdCounter.accumulateAndGet(info.menuItemIdCounter, Math::max);
+                bookingItemIdCounter.accumulateAndGet(info.bookingItemIdCounter, Math::max);
+                return info.replayFromSegment;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Could not load snapshot " + snapshot + "; trying an older one", e);
+                clearStore();
+            }
+        }
+        return 0;
+    }
+
+    private static DataJournal openJournal(long fromSegment) {
+        Path directory = dataDirectory();
+        try {
+            DataJournal opened = DataJournal.open(directory, fromSegment, InMemoryDataManager::applyJournalRecord);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    opened.close(); // Flushes any records still waiting for a group commit
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Error closing journal", e);
+                }
+            }, "data-journal-shutdown"));
+            return opened;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not open journal in " + directory + "; running without persistence", e);
+            clearStore(); // Discard anything partially restored
+            return null;
+        }
+    }
+
+    private static void clearStore() {
+        bookings.keySet().forEach(bookingIndexes::remove);
+        bookings.clear();
+        packages.clear();
+        menuItems.clear();
+    }
+
+    // Applies one replayed journal record to the maps, indexes and ID counters
+    private static void applyJournalRecord(byte type, ByteBuffer payload) {
+        switch (type) {
+            case DataJournal.PACKAGE_PUT:
+            case DataJournal.PACKAGE_PUT_VERSIONED: {
+                long version = type == DataJournal.PACKAGE_PUT_VERSIONED ? payload.getLong() : 0;
+                Package pkg = StoreCodec.readPackage(payload);
+                pkg.setVersion(version);
+                Package stored = packages.get(pkg.getPackageId());
+                if (version == 0 || stored == null || stored.getVersion() < version) { // Not already in the snapshot
+                    packages.put(pkg.getPackageId(), pkg);
+                }
+                advanceCounter(packageIdCounter, pkg.getPackageId());
+                break;
+            }
+            case DataJournal.PACKAGE_REMOVE:
+                packages.remove(payload.getInt());
+                break;
+            case DataJournal.PACKAGE_ACTIVE: { // Older journals only
+                Package pkg = packages.get(payload.getInt());
+                boolean active = StoreCodec.getBoolean(payload);
+                if (pkg != null) {
+                    pkg.setActive(active); // In place: nothing else holds it during replay
+                    pkg.setVersion(pkg.getVersion() + 1);
+                }
+                break;
+            }
+            case DataJournal.MENU_ITEM_PUT: {
+                MenuItem item = StoreCodec.readMenuItem(payload);
+                menuItems.put(item.getItemId(), item);
+                advanceCounter(menuItemIdCounter, item.getItemId());
+                break;
+            }
+            case DataJournal.BOOKING_PUT:
+            case DataJournal.BOOKING_PUT_VERSIONED: {
+                long version = type == DataJournal.BOOKING_PUT_VERSIONED ? payload.getLong() : 0;
+                Booking booking = StoreCodec.readBooking(payload, packages, menuItems);
+                booking.setVersion(version);
+                booking.freeze();
+                Booking stored = bookings.get(booking.getBookingId());
+                if (version == 0 || stored == null || stored.getVersion() < version) { // Not already in the snapshot
+                    bookings.put(booking.getBookingId(), booking); // Indexed in bulk once replay is done
+                }
+                advanceCounter(bookingIdCounter, booking.getBookingId());
+                booking.getBookingItems().forEach(item -> advanceCounter(bookingItemIdCounter, item.getBookingItemId()));
+                break;
+            }
+            case DataJournal.BOOKING_REMOVE: {
+                int bookingId = payload.getInt();
+                bookings.remove(bookingId);
+                break;
+            }
+            case DataJournal.BOOKING_COSTS_BATCH: {
+                // Written after the batch's slots were released, so a later save or delete of the
+                // same booking may come before it in the journal; only newer versions are applied
+                for (int count = payload.getInt(); count > 0; count--) {
+                    long version = payload.getLong();
+                    Booking booking = StoreCodec.readBooking(payload, packages, menuItems);
+                    Booking stored = bookings.get(booking.getBookingId());
+                    if (stored != null && stored.getVersion() < version) {
+                        booking.setVersion(version);
+                        booking.freeze();
+                        bookings.put(booking.getBookingId(), booking);
+                    }
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    private static void advanceCounter(AtomicInteger counter, int usedId) {
+        counter.accumulateAndGet(usedId + 1, Math::max);
+    }
+
+    // Queues a journal record; must be called while holding the entity's map slot so that
+    // journal order matches the order changes were applied in memory (and inside inJournalOrder
+    // if the change is published after its record)
+    private static CompletableFuture<Void> journalAppend(byte type, Consumer<StoreCodec.Output> body) {
+        return journal != null ? journal.append(type, body) : COMMITTED;
+    }
+
+    private static CompletableFuture<Void> journalPut(Package pkg) {
+        return journalAppend(DataJournal.PACKAGE_PUT_VERSIONED, out -> StoreCodec.writePackage(out.putLong(pkg.getVersion()), pkg));
+    }
+
+    private static CompletableFuture<Void> journalPut(Booking booking) {
+        return journalAppend(DataJournal.BOOKING_PUT_VERSIONED, out -> StoreCodec.writeBooking(out.putLong(booking.getVersion()), booking));
+    }
+
+    // Runs a change that journals and publishes inside a compute; see journalOrder
+    private static void inJournalOrder(Runnable change) {
+        journalOrder.readLock().lock();
+        try {
+            change.run();
+        } finally {
+            journalOrder.readLock().unlock();
+        }
+    }
+
+    // Waits (outside any map lock) for the group commit carrying this change
+    private static boolean awaitDurable(CompletableFuture<Void> commit, String change) {
+        try {
+            commit.join();
+            if (journal != null && snapshotThreshold > 0 && journal.getRecordsSinceRoll() >= snapshotThreshold) {
+                scheduleSnapshot();
+            }
+            return true;
+        } catch (CompletionException e) {
+            LOGGER.log(Level.SEVERE, "Failed to persist " + change, e.getCause());
+            return false;
+        }
+    }
+
+    // Waits for a booking change's record; if it failed, takes the change back out of the map and
+    // indexes, so callers never see a change that would be gone after a restart
+    private static boolean awaitBooking(PendingChanges.Change<Booking> change, String description) {
+        if (awaitDurable(change.commit, description)) {
+            unconfirmedBookings.confirmed(change);
+            return true;
+        }
+        if (rollBackBooking(change)) {
+            LOGGER.log(Level.WARNING, "Rolled back {0}", description);
+        }
+        return false;
+    }
+
+    // True if the slot changed (a later change may already have replaced this one)
+    private static boolean rollBackBooking(PendingChanges.Change<Booking> change) {
+        boolean[] changed = new boolean[1];
+        bookings.compute(change.id, (id, current) -> {
+            Booking restored = unconfirmedBookings.rollBack(change, current);
+            if (restored != current) {
+                if (restored != null) {
+                    bookingIndexes.update(restored);
+                } else {
+                    bookingIndexes.remove(id);
+                }
+                changed[0] = true;
+            }
+            return restored;
+        });
+        return changed[0];
+    }
+
+    // As awaitBooking, for a package change
+    private static boolean awaitPackage(PendingChanges.Change<Package> change, String description) {
+        if (awaitDurable(change.commit, description)) {
+            unconfirmedPackages.confirmed(change);
+            return true;
+        }
+        if (rollBackPackage(change)) {
+            LOGGER.log(Level.WARNING, "Rolled back {0}", description);
+        }
+        return false;
+    }
+
+    private static boolean rollBackPackage(PendingChanges.Change<Package> change) {
+        boolean[] changed = new boolean[1];
+        packages.compute(change.id, (id, current) -> {
+            Package restored = unconfirmedPackages.rollBack(change, current);
+            changed[0] = restored != current;
+            return restored;
+        });
+        return changed[0];
+    }
+
+    // Confirms the changes whose records are durable and rolls back the rest; call once the last
+    // record has settled (batches complete in order, so the earlier ones have too).
+    // Returns how many were confirmed
+    private static <T> int settle(List<PendingChanges.Change<T>> changes, PendingChanges<T> pending,
+                                  Predicate<PendingChanges.Change<T>> rollBack, String description) {
+        int confirmed = 0;
+        int rolledBack = 0;
+        for (PendingChanges.Change<T> change : changes) {
+            if (!change.commit.isCompletedExceptionally()) {
+                pending.confirmed(change);
+                confirmed++;
+            } else if (rollBack.test(change)) {
+                rolledBack++;
+            }
+        }
+        if (rolledBack > 0) {
+            LOGGER.log(Level.WARNING, "Rolled back {0} {1}", new Object[]{rolledBack, description});
+        }
+        return confirmed;
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * Writes a snapshot of the whole store so the next startup only replays journal records
+     * written after it. Saves may continue meanwhile. The journal is rolled to a new segment
+     * first, at a moment when no change has journaled its record without publishing it, so the
+     * snapshot holds everything in the older segments. Replaying the new segment over a snapshot
+     * that already contains some of its changes gives the same result: its records are versioned
+     * puts and batches, applied only over older versions, and removals. A snapshot taken while a
+     * journal write fails is discarded, since it may hold the change that was rolled back.
+     * @return true if a snapshot was written
+     */
+    public boolean createSnapshot() {
+        return writeSnapshot();
+    }
+
+    private static boolean writeSnapshot() {
+        if (journal == null) {
+            LOGGER.warning("Snapshots need the journal; skipping.");
+            return false;
+        }
+        synchronized (snapshotLock) {
+            try {
+                long failedBefore = journal.getFailedBatches();
+                CompletableFuture<Long> rolled;
+                journalOrder.writeLock().lock();
+                try {
+                    rolled = journal.roll();
+                } finally {
+                    journalOrder.writeLock().unlock();
+                }
+                long replayFromSegment = rolled.get();
+                int[] idCounters = {packageIdCounter.get(), bookingIdCounter.get(),
+                                    menuItemIdCounter.get(), bookingItemIdCounter.get()};
+                DataSnapshot.write(dataDirectory(), replayFromSegment, idCounters,
+                        menuItems.values(), packages.values(), bookings.values(), () -> {
+                            // Everything read from the maps has been journaled by now; check it all got written
+                            try {
+                                journal.sync().get();
+                            } catch (InterruptedException | ExecutionException e) {
+                                throw new IOException("Could not confirm the journal behind the snapshot", e);
+                            }
+                            if (journal.getFailedBatches() != failedBefore) {
+                                throw new IOException("A journal write failed while the snapshot was taken");
+                            }
+                        });
+                pruneSnapshotsAndSegments();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (IOException | ExecutionException | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Failed to write snapshot", e);
+                return false;
+            }
+        }
+    }
+
+    private static void scheduleSnapshot() {
+        if (snapshotScheduled.compareAndSet(false, true)) {
+            Thread writer = new Thread(() -> {
+                try {
+                    writeSnapshot();
+                } finally {
+                    snapshotScheduled.set(false);
+                }
+            }, "data-snapshot-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    // Keeps the newest snapshots and the journal segments they need; deletes the rest
+    private static void pruneSnapshotsAndSegments() throws IOException {
+        List<Path> snapshots = DataSnapshot.listSnapshots(dataDirectory());
+        for (int i = SNAPSHOTS_TO_KEEP; i < snapshots.size(); i++) {
+            try {
+                Files.deleteIfExists(snapshots.get(i));
+            } catch (IOException e) {
+                // Windows refuses to delete files that are still memory-mapped; retried next time
+                LOGGER.log(Level.FINE, "Could not delete old snapshot " + snapshots.get(i), e);
+            }
+        }
+        if (!snapshots.isEmpty()) {
+            Path oldestKept = snapshots.get(Math.min(SNAPSHOTS_TO_KEEP, snapshots.size()) - 1);
+            journal.deleteSegmentsBefore(DataSnapshot.segmentOf(oldestKept));
+        }
+    }
+
+    // Seeds a fresh store with some sample data
+    private static void loadSampleData() {
         LOGGER.info("Initializing In-Memory Data Store with sample data...");
         try {
             // Add some default menu items
@@ -93,7 +512,16 @@ public class InMemoryDataManager {
             booking1.setCustomRequests("Need extra chairs.");
             booking1.setSelectedPackage(pkg1); // Link the object
             booking1.setBookingItems(new ArrayList<>()); // Initialize empty list
+            booking1.setVersion(1);
+            booking1.freeze();
             bookings.put(booking1.getBookingId(), booking1);
+            bookingIndexes.update(booking1);
+
+            // Record the sample data so it is replayed like anything else on the next start
+            menuItems.values().forEach(item -> journalAppend(DataJournal.MENU_ITEM_PUT, out -> StoreCodec.writeMenuItem(out, item)));
+            packages.values().forEach(pkg -> pkg.setVersion(1));
+            packages.values().forEach(InMemoryDataManager::journalPut);
+            bookings.values().forEach(InMemoryDataManager::journalPut);
 
             LOGGER.info("Sample data loaded.");
 
@@ -103,15 +531,26 @@ public class InMemoryDataManager {
     }
 
     // --- Package Methods ---
+    // Stored packages are never edited in place: callers get copies, and changes store new copies
     public List<Package> getAllPackages(boolean includeInactive) {
         LOGGER.log(Level.INFO, "Fetching all packages (Include Inactive: {0})", includeInactive);
         return packages.values().stream()
             .filter(p -> includeInactive || p.isActive())
             .sorted(Comparator.comparing(Package::getName, String.CASE_INSENSITIVE_ORDER))
+            .map(Package::copy)
             .collect(Collectors.toList());
     }
 
-    public boolean savePackage(Package pkg) {
+    public Page<Package> getPackagesPage(boolean includeInactive, int pageSize, String cursor) {
+        Page.checkSize(pageSize);
+        PageCursor after = cursor != null ? PageCursor.parseName(cursor) : null;
+        List<Package> rows = firstByName(packages.values(), p -> includeInactive || p.isActive(),
+                Package::getName, Package::getPackageId, after, pageSize + 1);
+        rows.replaceAll(Package::copy);
+        return Page.of(rows, pageSize, p -> PageCursor.afterName(p.getName(), p.getPackageId()));
+    }
+
+    public SaveResult savePackage(Package pkg, long expectedVersion) {
         Objects.requireNonNull(pkg, "Package cannot be null");
         boolean isNew = pkg.getPackageId() <= 0;
         if (isNew) {
@@ -120,8 +559,55 @@ public class InMemoryDataManager {
         } else {
             LOGGER.log(Level.INFO, "Updating package with ID: {0}", pkg.getPackageId());
         }
-        packages.put(pkg.getPackageId(), pkg); // Add or replace
-        return true; // Assume success for in-memory
+        Package stored = pkg.copy();
+        AtomicReference<SaveResult> outcome = new AtomicReference<>();
+        AtomicReference<PendingChanges.Change<Package>> change = new AtomicReference<>();
+        inJournalOrder(() -> packages.compute(stored.getPackageId(), (id, previous) -> {
+            SaveResult rejected = checkVersion(isNew, id, previous != null ? previous.getVersion() : null, expectedVersion);
+            if (rejected != null) {
+                outcome.set(rejected);
+                return previous;
+            }
+            stored.setVersion(previous != null ? previous.getVersion() + 1 : 1);
+            change.set(unconfirmedPackages.published(id, previous, stored, journalPut(stored)));
+            outcome.set(SaveResult.saved(id, stored.getVersion()));
+            return stored; // Add or replace
+        }));
+        return finishSave(outcome.get(), "package", () -> awaitPackage(change.get(), "package " + stored.getPackageId()),
+                () -> pkg.setVersion(stored.getVersion()));
+    }
+
+    // The compare-and-set rule shared by versioned saves; null when the save may go ahead.
+    // Runs while the entity's map slot is held, so no other save can slip in between.
+    private static SaveResult checkVersion(boolean isNew, int id, Long storedVersion, long expectedVersion) {
+        if (isNew || expectedVersion == ANY_VERSION) {
+            return null; // Plain insert, or last writer wins
+        }
+        if (storedVersion == null) {
+            return SaveResult.notFound(id);
+        }
+        return storedVersion == expectedVersion ? null : SaveResult.conflict(id, storedVersion);
+    }
+
+    // Logs a rejected save, or waits for the journal and reports the new version to the caller
+    private static SaveResult finishSave(SaveResult outcome, String entity, BooleanSupplier durable, Runnable onSaved) {
+        switch (outcome.getStatus()) {
+            case CONFLICT:
+                LOGGER.log(Level.WARNING, "Rejected stale save of {0} {1}: stored version is now {2}",
+                        new Object[]{entity, outcome.getId(), outcome.getVersion()});
+                return outcome;
+            case NOT_FOUND:
+                LOGGER.log(Level.WARNING, "Cannot update {0} {1}: not found", new Object[]{entity, outcome.getId()});
+                return outcome;
+            case FAILED:
+                return outcome; // Logged where it was rejected
+            default:
+                if (!durable.getAsBoolean()) {
+                    return SaveResult.failed(outcome.getId());
+                }
+                onSaved.run();
+                return outcome;
+        }
     }
 
     public boolean deletePackage(int packageId) {
@@ -132,29 +618,31 @@ public class InMemoryDataManager {
             return false;
         }
 
-        // Check if package is currently used in any booking
-        boolean inUse = bookings.values().stream()
-            .anyMatch(b -> b.getSelectedPackageId() != null && b.getSelectedPackageId() == packageId);
+        // Check usage through the package->bookings index; the removal happens atomically with the check
+        AtomicReference<PendingChanges.Change<Package>> change = new AtomicReference<>();
+        boolean[] inUse = new boolean[1];
+        inJournalOrder(() -> inUse[0] = bookingIndexes.removePackageIfUnused(packageId, () ->
+            packages.computeIfPresent(packageId, (id, existing) -> {
+                change.set(unconfirmedPackages.published(id, existing, null,
+                        journalAppend(DataJournal.PACKAGE_REMOVE, out -> out.putInt(packageId))));
+                return null; // Remove the mapping
+            })));
 
-        if (inUse) {
+        if (inUse[0]) {
             // If in use, don't delete, just mark as inactive
-            pkg.setActive(false);
-            packages.put(packageId, pkg); // Update the map with the inactive package
+            if (!updatePackageActiveStatus(packageId, false)) {
+                return false;
+            }
             LOGGER.log(Level.WARNING, "Package ID {0} is in use. Marked as inactive instead of deleting.", packageId);
             return true; // Indicate success (deactivated)
         } else {
-            // If not in use, remove it
-            packages.remove(packageId);
             LOGGER.log(Level.INFO, "Package ID {0} deleted successfully.", packageId);
-            return true;
+            return change.get() == null || awaitPackage(change.get(), "removal of package " + packageId);
         }
     }
 
     public boolean setPackageActiveStatus(int packageId, boolean isActive) {
-        Package pkg = packages.get(packageId);
-        if (pkg != null) {
-            pkg.setActive(isActive);
-            packages.put(packageId, pkg); // Update the map
+        if (updatePackageActiveStatus(packageId, isActive)) {
             LOGGER.log(Level.INFO, "Set active status for package ID {0} to {1}", new Object[]{packageId, isActive});
             return true;
         }
@@ -162,54 +650,82 @@ public class InMemoryDataManager {
         return false;
     }
 
+    // Sets the flag and journals it while holding the package's slot; false if the package is gone
+    private boolean updatePackageActiveStatus(int packageId, boolean isActive) {
+        AtomicReference<PendingChanges.Change<Package>> change = new AtomicReference<>();
+        inJournalOrder(() -> packages.computeIfPresent(packageId, (id, pkg) -> {
+            Package updated = pkg.copy();
+            updated.setActive(isActive);
+            updated.setVersion(pkg.getVersion() + 1);
+            change.set(unconfirmedPackages.published(id, pkg, updated, journalPut(updated)));
+            return updated;
+        }));
+        return change.get() != null && awaitPackage(change.get(), "status of package " + packageId);
+    }
+
     // --- Booking Methods ---
-    public boolean saveBooking(Booking booking, List<BookingItem> itemsToSave) {
+    public SaveResult saveBooking(Booking booking, List<BookingItem> itemsToSave, long expectedVersion) {
         Objects.requireNonNull(booking, "Booking cannot be null");
         boolean isNew = booking.getBookingId() <= 0;
 
-        // Deep copy the items list to avoid modifying the original list passed in
+        // Copy the items list to avoid modifying the original list passed in
         List<BookingItem> itemsCopy = (itemsToSave == null) ? new ArrayList<>() :
-            itemsToSave.stream().map(item -> {
-                BookingItem copiedItem = new BookingItem();
-                copiedItem.setBookingItemId(item.getBookingItemId()); // Keep original ID if exists
-                copiedItem.setBookingId(booking.getBookingId()); // Will be set/updated below
-                copiedItem.setItemId(item.getItemId());
-                copiedItem.setQuantity(item.getQuantity());
-                copiedItem.setCalculatedItemCost(item.getCalculatedItemCost());
-                copiedItem.setMenuItem(item.getMenuItem() != null ? item.getMenuItem() : menuItems.get(item.getItemId()));
-                return copiedItem;
-            }).collect(Collectors.toList());
+            new ArrayList<>(itemsToSave);
 
         if (isNew) {
             booking.setBookingId(bookingIdCounter.getAndIncrement());
             LOGGER.log(Level.INFO, "Inserting new booking with ID: {0}", booking.getBookingId());
-            final int newBookingId = booking.getBookingId(); // Final for lambda
-            itemsCopy.forEach(item -> {
-                if (item.getBookingItemId() <= 0) {
-                    item.setBookingItemId(bookingItemIdCounter.getAndIncrement());
-                }
-                item.setBookingId(newBookingId); // Link item to the new booking
-            });
         } else {
             LOGGER.log(Level.INFO, "Updating booking with ID: {0}", booking.getBookingId());
-            final int existingBookingId = booking.getBookingId();
-            itemsCopy.forEach(item -> {
-                if (item.getBookingItemId() <= 0) {
-                    item.setBookingItemId(bookingItemIdCounter.getAndIncrement());
-                }
-                item.setBookingId(existingBookingId); // Ensure items are linked to this booking
-            });
         }
+        // Items are immutable: link each to this booking (keeping its ID if it has one) as a new line
+        final int savedBookingId = booking.getBookingId(); // Final for lambda
+        itemsCopy.replaceAll(item -> {
+            int lineId = item.getBookingItemId() > 0 ? item.getBookingItemId() : bookingItemIdCounter.getAndIncrement();
+            MenuItem menuItem = item.getMenuItem() != null ? item.getMenuItem() : menuItems.get(item.getItemId());
+            return new BookingItem(lineId, savedBookingId, item.getItemId(), item.getQuantity(), item.getCalculatedItemCost(), menuItem);
+        });
 
-        booking.setBookingItems(itemsCopy);
-        if (booking.getSelectedPackageId() != null) {
-            booking.setSelectedPackage(packages.get(booking.getSelectedPackageId()));
-        } else {
-            booking.setSelectedPackage(null);
-        }
+        // Publish a read-only copy with the package linked; the caller keeps its own object
+        // (which only receives the new ID and version)
+        Booking version = booking.copy();
+        version.setBookingItems(itemsCopy);
+        Integer packageId = version.getSelectedPackageId();
 
-        bookings.put(booking.getBookingId(), booking); // Add or replace
-        return true; // Assume success
+        // Version check, indexes and journal all happen while the booking's slot is held;
+        // saves of different bookings never wait for each other here
+        AtomicReference<SaveResult> outcome = new AtomicReference<>();
+        AtomicReference<PendingChanges.Change<Booking>> change = new AtomicReference<>();
+        inJournalOrder(() -> bookings.compute(version.getBookingId(), (id, previous) -> {
+            SaveResult rejected = checkVersion(isNew, id, previous != null ? previous.getVersion() : null, expectedVersion);
+            if (rejected != null) {
+                outcome.set(rejected);
+                return previous;
+            }
+            // Linked atomically with the check that the package still exists, so a concurrent
+            // deletePackage either sees this booking or has already removed the package
+            if (packageId != null && !bookingIndexes.linkPackageIfPresent(packageId, id, packages::containsKey)) {
+                outcome.set(SaveResult.failed(id));
+                return previous;
+            }
+            version.setSelectedPackage(packageId != null ? packages.get(packageId) : null);
+            version.setVersion(previous != null ? previous.getVersion() + 1 : 1);
+            version.freeze();
+            bookingIndexes.update(version);
+            change.set(unconfirmedBookings.published(id, previous, version, journalPut(version)));
+            outcome.set(SaveResult.saved(id, version.getVersion()));
+            return version;
+        }));
+        if (outcome.get().getStatus() == SaveResult.Status.FAILED) {
+            LOGGER.log(Level.WARNING, "Rejected save of booking {0}: package {1} no longer exists",
+                    new Object[]{version.getBookingId(), packageId});
+        }
+        // Concurrent saves share one fsync through the journal's group commit
+        return finishSave(outcome.get(), "booking", () -> awaitBooking(change.get(), "booking " + version.getBookingId()), () -> {
+            if (!booking.isFrozen()) {
+                booking.setVersion(version.getVersion());
+            }
+        });
     }
 
     public boolean updateBooking(Booking booking, List<BookingItem> items) {
@@ -224,11 +740,7 @@ public class InMemoryDataManager {
     public Booking getBookingById(int bookingId) {
         LOGGER.log(Level.INFO, "Fetching booking with ID: {0}", bookingId);
         Booking booking = bookings.get(bookingId);
-        if (booking != null) {
-            if (booking.getSelectedPackageId() != null && booking.getSelectedPackage() == null) {
-                booking .setSelectedPackage(packages.get(booking.getSelectedPackageId()));
-            }
-        } else {
+        if (booking == null) {
             LOGGER.log(Level.WARNING, "Booking not found for ID: {0}", bookingId);
         }
         return booking;
@@ -236,25 +748,199 @@ public class InMemoryDataManager {
 
     public List<Booking> getAllBookings() {
         LOGGER.info("Fetching all bookings");
-        List<Booking> allBookingsList = new ArrayList<>();
-        bookings.values().forEach(booking -> {
-            if (booking.getSelectedPackageId() != null && booking.getSelectedPackage() == null) {
-                booking.setSelectedPackage(packages.get(booking.getSelectedPackageId()));
+        // Walk the event-date index (latest first) instead of sorting a copy of the map;
+        // the list is a point-in-time view even while other threads save
+        return bookingIndexes.newestFirst();
+    }
+
+    /**
+     * Returns one page of bookings, read from the event-date index starting at the cursor's
+     * position, so a page costs O(log n + pageSize) however deep into the list it is.
+     */
+    public Page<Booking> getBookingsPage(BookingSort sort, int pageSize, String cursor) {
+        Objects.requireNonNull(sort, "Sort cannot be null");
+        Page.checkSize(pageSize);
+        Long afterKey = null;
+        if (cursor != null) {
+            PageCursor after = PageCursor.parse(cursor, sort);
+            afterKey = BookingIndexes.positionKey(after.getEventDate(), after.getEventTime(), after.getId());
+        }
+        List<Booking> rows = bookingIndexes.page(afterKey, sort == BookingSort.EVENT_DATE_ASC, pageSize + 1);
+        return Page.of(rows, pageSize, last -> PageCursor.after(sort, last));
+    }
+
+    /**
+     * Streams straight off the booking map's own spliterator, which is weakly consistent and splits
+     * across threads for parallel streams; nothing is copied up front.
+     */
+    public Stream<Booking> streamBookings(Predicate<? super Booking> filter) {
+        Stream<Booking> stream = StreamSupport.stream(bookings.values().spliterator(), false);
+        return filter != null ? stream.filter(filter) : stream;
+    }
+
+    /**
+     * Stored bookings carry their items. A date range is read from the event-date index (earliest
+     * first), so a one-day export or print only touches that day; without bounds this is
+     * {@link #streamBookings}.
+     */
+    public Stream<Booking> streamBookingsWithItems(LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return streamBookings(null);
+        }
+        return bookingIndexes.streamBetween(from, to);
+    }
+
+    /**
+     * Returns bookings whose event date falls between {@code from} and {@code to} (both inclusive),
+     * earliest first. Served from the event-date index in O(log n + k).
+     */
+    public List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        Objects.requireNonNull(from, "From date cannot be null");
+        Objects.requireNonNull(to, "To date cannot be null");
+        LOGGER.log(Level.INFO, "Fetching bookings between {0} and {1}", new Object[]{from, to});
+        return bookingIndexes.between(from, to);
+    }
+
+    /**
+     * Returns up to {@code limit} bookings with an event date of today or later, soonest first.
+     * Served from the event-date index in O(log n + limit).
+     */
+    public List<Booking> getUpcoming(int limit) {
+        LOGGER.log(Level.INFO, "Fetching next {0} upcoming bookings", limit);
+        return bookingIndexes.firstFrom(LocalDate.now(), limit);
+    }
+
+    public List<Booking> searchBookings(String query, int limit) {
+        LOGGER.log(Level.FINE, "Searching bookings for \"{0}\"", query);
+        List<Booking> result = new ArrayList<>();
+        for (Integer bookingId : bookingIndexes.search(query, limit)) {
+            Booking booking = bookings.get(bookingId);
+            if (booking != null) {
+                result.add(booking);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns per-status booking counts and revenue. The summary is maintained by
+     * saveBooking/deleteBooking, so this is a constant-time read regardless of booking volume.
+     */
+    public BookingStatusSummary getStatusSummary() {
+        return bookingIndexes.statusSummary();
+    }
+
+    /** Aggregated from the column mirror of the bookings (see BookingColumns), not the Booking objects. */
+    public BookingTotals getBookingTotals(LocalDate from, LocalDate to) {
+        LOGGER.log(Level.INFO, "Computing booking totals from {0} to {1}", new Object[]{from, to});
+        return bookingIndexes.totals(from, to);
+    }
+
+    /**
+     * Returns the bookings that reference the given package, ordered by event date (earliest first).
+     * Looked up through the package->bookings index rather than a scan of all bookings.
+     */
+    public List<Booking> getBookingsForPackage(int packageId) {
+        LOGGER.log(Level.INFO, "Fetching bookings for package ID: {0}", packageId);
+        List<Booking> result = new ArrayList<>();
+        for (Integer bookingId : bookingIndexes.bookingIdsForPackage(packageId)) {
+            Booking booking = bookings.get(bookingId);
+            if (booking != null) {
+                result.add(booking);
+            }
+        }
+        result.sort(Comparator.comparing(Booking::getEventDate, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    public List<Integer> getPendingBookingIdsForPackage(int packageId) {
+        return bookingIndexes.pendingBookingIdsForPackage(packageId);
+    }
+
+    public List<Integer> getPendingBookingIdsForMenuItem(int itemId) {
+        return bookingIndexes.pendingBookingIdsForMenuItem(itemId);
+    }
+
+    /**
+     * Each booking is updated under its own slot, so readers see every booking either before or
+     * after its change; the whole batch is journaled as one record, so after a crash either all
+     * of it or none of it is restored. If that record fails, every booking in it is rolled back.
+     */
+    public int saveBookingCosts(List<Booking> repriced) {
+        List<Booking> applied = new ArrayList<>(repriced.size());
+        List<PendingChanges.Change<Booking>> changes = new ArrayList<>(repriced.size());
+        CompletableFuture<Void> commit = new CompletableFuture<>(); // Settles with the batch's record
+        inJournalOrder(() -> {
+            for (Booking booking : repriced) {
+                repriceStored(booking, commit, applied, changes);
+            }
+            if (!applied.isEmpty()) {
+                journalAppend(DataJournal.BOOKING_COSTS_BATCH, out -> {
+                    out.putInt(applied.size());
+                    for (Booking version : applied) {
+                        StoreCodec.writeBooking(out.putLong(version.getVersion()), version);
+                    }
+                }).whenComplete((done, failure) -> {
+                    if (failure != null) {
+                        commit.completeExceptionally(failure);
+                    } else {
+                        commit.complete(null);
+                    }
+                });
             }
-            allBookingsList.add(booking);
         });
+        if (applied.isEmpty()) {
+            return 0;
+        }
+        if (!awaitDurable(commit, "costs of " + applied.size() + " bookings")) {
+            settle(changes, unconfirmedBookings, InMemoryDataManager::rollBackBooking, "repriced bookings");
+            return 0;
+        }
+        changes.forEach(unconfirmedBookings::confirmed);
+        LOGGER.log(Level.INFO, "Repriced {0} of {1} bookings", new Object[]{applied.size(), repriced.size()});
+        return applied.size();
+    }
 
-        allBookingsList.sort(Comparator.comparing(Booking::getEventDate, Comparator.nullsLast(Comparator.reverseOrder()))
-                .thenComparing(Booking::getEventTime, Comparator.nullsLast(Comparator.reverseOrder())));
-        return allBookingsList;
+    // Publishes the booking's new costs if it is still at the version they were priced from
+    private static void repriceStored(Booking booking, CompletableFuture<Void> commit, List<Booking> applied,
+                                      List<PendingChanges.Change<Booking>> changes) {
+        bookings.computeIfPresent(booking.getBookingId(), (id, stored) -> {
+            if (stored.getVersion() != booking.getVersion()) {
+                return stored; // Changed since it was priced; the caller counts it as a conflict
+            }
+            Map<Integer, Double> lineCosts = new HashMap<>();
+            for (BookingItem item : booking.getBookingItems()) {
+                lineCosts.put(item.getBookingItemId(), item.getCalculatedItemCost());
+            }
+            Booking version = stored.copy(); // With its own list of the same items
+            version.getBookingItems().replaceAll(item -> {
+                Double cost = lineCosts.get(item.getBookingItemId());
+                return cost != null ? item.withCalculatedItemCost(cost) : item;
+            });
+            version.setBasePackageCost(booking.getBasePackageCost());
+            version.setAdditionalItemsCost(booking.getAdditionalItemsCost());
+            version.setTotalCost(booking.getTotalCost());
+            version.setVersion(stored.getVersion() + 1);
+            version.freeze();
+            bookingIndexes.update(version);
+            applied.add(version);
+            changes.add(unconfirmedBookings.published(id, stored, version, commit));
+            return version;
+        });
     }
 
     public boolean deleteBooking(int bookingId) {
         LOGGER.log(Level.INFO, "Attempting to delete booking with ID: {0}", bookingId);
-        Booking removed = bookings.remove(bookingId);
-        if (removed != null) {
+        AtomicReference<PendingChanges.Change<Booking>> change = new AtomicReference<>();
+        inJournalOrder(() -> bookings.computeIfPresent(bookingId, (id, existing) -> {
+            bookingIndexes.remove(id);
+            change.set(unconfirmedBookings.published(id, existing, null,
+                    journalAppend(DataJournal.BOOKING_REMOVE, out -> out.putInt(bookingId))));
+            return null; // Remove the mapping
+        }));
+        if (change.get() != null) {
             LOGGER.log(Level.INFO, "Booking ID {0} deleted successfully.", bookingId);
-            return true;
+            return awaitBooking(change.get(), "deletion of booking " + bookingId);
         } else {
             LOGGER.log(Level.WARNING, "Booking not found for deletion: {0}", bookingId);
             return false;
@@ -266,6 +952,7 @@ public class InMemoryDataManager {
         return menuItems.values().stream()
                 .filter(MenuItem::isActive)
                 .sorted(Comparator.comparing(MenuItem::getName, String.CASE_INSENSITIVE_ORDER))
+                .map(MenuItem::copy) // Stored items have setters; callers must not change the store
                 .collect(Collectors.toList());
     }
 
@@ -274,16 +961,53 @@ public class InMemoryDataManager {
         return menuItems.values().stream()
                 .filter(m -> includeInactive || m.isActive())
                 .sorted(Comparator.comparing(MenuItem::getName, String.CASE_INSENSITIVE_ORDER))
+                .map(MenuItem::copy)
                 .collect(Collectors.toList());
     }
 
+    public Page<MenuItem> getMenuItemsPage(boolean includeInactive, int pageSize, String cursor) {
+        Page.checkSize(pageSize);
+        PageCursor after = cursor != null ? PageCursor.parseName(cursor) : null;
+        List<MenuItem> rows = firstByName(menuItems.values(), m -> includeInactive || m.isActive(),
+                MenuItem::getName, MenuItem::getItemId, after, pageSize + 1);
+        rows.replaceAll(MenuItem::copy);
+        return Page.of(rows, pageSize, m -> PageCursor.afterName(m.getName(), m.getItemId()));
+    }
+
+    // The first `limit` values after the cursor in (name, ID) order. Keeps a bounded heap instead
+    // of sorting the whole catalog, so memory stays O(limit)
+    private static <T> List<T> firstByName(Collection<T> values, Predicate<T> filter, Function<T, String> name,
+                                           ToIntFunction<T> id, PageCursor after, int limit) {
+        Comparator<T> order = Comparator.comparing(name, String.CASE_INSENSITIVE_ORDER).thenComparingInt(id);
+        PriorityQueue<T> kept = new PriorityQueue<>(Math.min(limit, 1024) + 1, order.reversed());
+        for (T value : values) {
+            if (!filter.test(value)) {
+                continue;
+            }
+            if (after != null) {
+                int c = String.CASE_INSENSITIVE_ORDER.compare(name.apply(value), after.getName());
+                if (c < 0 || (c == 0 && id.applyAsInt(value) <= after.getId())) {
+                    continue;
+                }
+            }
+            kept.add(value);
+            if (kept.size() > limit) {
+                kept.poll(); // Drop the largest
+            }
+        }
+        List<T> result = new ArrayList<>(kept);
+        result.sort(order);
+        return result;
+    }
+
     public MenuItem getMenuItemById(int itemId) {
         LOGGER.log(Level.INFO, "Fetching menu item with ID: {0}", itemId);
         MenuItem item = menuItems.get(itemId);
         if (item == null) {
             LOGGER.log(Level.WARNING, "Menu item not found for ID: {0}", itemId);
+            return null;
         }
-        return item;
+        return item.copy();
     }
 
     public List<BookingItem> getBookingItemsForBooking(int bookingId) {
@@ -294,4 +1018,111 @@ public class InMemoryDataManager {
         }
         return new ArrayList<>();
     }
+
+    // --- Bulk loading ---
+    /**
+     * Stores the bookings {@value #BULK_BATCH_SIZE} at a time: each batch enters the indexes as
+     * one commit and is journaled as one group, and the next batch starts once it is durable.
+     * Records that fail are rolled back like a failed save, and the load stops there.
+     */
+    public BulkLoadResult bulkLoad(List<MenuItem> newMenuItems, List<Package> newPackages, Iterator<Booking> newBookings) {
+        LOGGER.log(Level.INFO, "Bulk loading {0} menu items, {1} packages and bookings",
+                new Object[]{newMenuItems.size(), newPackages.size()});
+        long start = System.nanoTime();
+        Map<Integer, Integer> menuItemIds = new HashMap<>();
+        Map<Integer, Integer> packageIds = new HashMap<>();
+        Map<MenuItem, CompletableFuture<Void>> itemCommits = new HashMap<>();
+        List<PendingChanges.Change<Package>> packageChanges = new ArrayList<>(newPackages.size());
+        AtomicReference<CompletableFuture<Void>> last = new AtomicReference<>(COMMITTED);
+        inJournalOrder(() -> {
+            for (MenuItem item : newMenuItems) {
+                MenuItem stored = new MenuItem(menuItemIdCounter.getAndIncrement(), item.getName(),
+                        item.getCostPerUnit(), item.getUnitType(), item.isActive());
+                stored.setDescription(item.getDescription());
+                menuItemIds.put(item.getItemId(), stored.getItemId());
+                menuItems.put(stored.getItemId(), stored);
+                last.set(journalAppend(DataJournal.MENU_ITEM_PUT, out -> StoreCodec.writeMenuItem(out, stored)));
+                itemCommits.put(stored, last.get());
+            }
+            for (Package pkg : newPackages) {
+                Package stored = pkg.copy();
+                stored.setPackageId(packageIdCounter.getAndIncrement());
+                stored.setVersion(1);
+                packageIds.put(pkg.getPackageId(), stored.getPackageId());
+                packages.compute(stored.getPackageId(), (id, previous) -> {
+                    last.set(journalPut(stored));
+                    packageChanges.add(unconfirmedPackages.published(id, previous, stored, last.get()));
+                    return stored;
+                });
+            }
+        });
+        awaitDurable(last.get(), "bulk loaded catalog");
+        int failedItems = 0;
+        for (Map.Entry<MenuItem, CompletableFuture<Void>> item : itemCommits.entrySet()) {
+            if (item.getValue().isCompletedExceptionally()) {
+                menuItems.remove(item.getKey().getItemId(), item.getKey()); // New, so nothing to restore
+                failedItems++;
+            }
+        }
+        if (failedItems > 0) {
+            LOGGER.log(Level.WARNING, "Rolled back {0} bulk loaded menu items", failedItems);
+        }
+        int storedPackages = settle(packageChanges, unconfirmedPackages, InMemoryDataManager::rollBackPackage,
+                "bulk loaded packages");
+        BulkLoadResult catalog = new BulkLoadResult(itemCommits.size() - failedItems, storedPackages, 0);
+        if (failedItems > 0 || storedPackages < packageChanges.size()) {
+            return catalog; // Bookings could refer to what was rolled back
+        }
+
+        int loaded = 0;
+        List<Booking> batch = new ArrayList<>(BULK_BATCH_SIZE);
+        while (newBookings.hasNext()) {
+            Booking version = newBookings.next().copy();
+            version.setBookingId(bookingIdCounter.getAndIncrement());
+            if (version.getSelectedPackageId() != null) {
+                version.setSelectedPackageId(packageIds.getOrDefault(version.getSelectedPackageId(), version.getSelectedPackageId()));
+                version.setSelectedPackage(packages.get(version.getSelectedPackageId()));
+            }
+            List<BookingItem> items = new ArrayList<>(version.getBookingItems().size());
+            for (BookingItem item : version.getBookingItems()) {
+                int itemId = menuItemIds.getOrDefault(item.getItemId(), item.getItemId());
+                items.add(new BookingItem(bookingItemIdCounter.getAndIncrement(), version.getBookingId(), itemId,
+                        item.getQuantity(), item.getCalculatedItemCost(), menuItems.get(itemId)));
+            }
+            version.setBookingItems(items);
+            version.setVersion(1);
+            version.freeze();
+            batch.add(version);
+            if (batch.size() == BULK_BATCH_SIZE || !newBookings.hasNext()) {
+                int stored = storeBatch(batch);
+                loaded += stored;
+                if (stored < batch.size()) {
+                    break; // Stop at the first batch that did not fully reach the journal
+                }
+                batch = new ArrayList<>(BULK_BATCH_SIZE);
+            }
+        }
+        LOGGER.log(Level.INFO, "Bulk loaded {0} bookings in {1} ms",
+                new Object[]{loaded, (System.nanoTime() - start) / 1_000_000});
+        return new BulkLoadResult(catalog.getMenuItems(), catalog.getPackages(), loaded);
+    }
+
+    // Publishes, indexes and journals one batch of new bookings, then waits for it; returns how
+    // many reached the journal (the rest are rolled back)
+    private static int storeBatch(List<Booking> batch) {
+        List<PendingChanges.Change<Booking>> changes = new ArrayList<>(batch.size());
+        AtomicReference<CompletableFuture<Void>> last = new AtomicReference<>(COMMITTED);
+        inJournalOrder(() -> {
+            for (Booking booking : batch) {
+                bookings.compute(booking.getBookingId(), (id, previous) -> {
+                    last.set(journalPut(booking));
+                    changes.add(unconfirmedBookings.published(id, previous, booking, last.get()));
+                    return booking;
+                });
+            }
+            bookingIndexes.insertAll(batch); // New IDs, so one index commit for the batch
+        });
+        awaitDurable(last.get(), "bulk loaded bookings");
+        return settle(changes, unconfirmedBookings, InMemoryDataManager::rollBackBooking, "bulk loaded bookings");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package nagascatering.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, errors and a fixed-bucket latency histogram for one operation.
+ * Recording is lock-free (striped adders, one per bucket), so it can sit on hot paths;
+ * reading sums the stripes and is meant for occasional scrapes.
+ */
+public final class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int BUCKETS = 40; // Up to 2^39 us, about six days
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        record(nanos, false);
+    }
+
+    public void record(long nanos, boolean failed) {
+        long micros = Math.max(0, nanos) / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)); // 0 us -> 0, 1 -> 1, 2-3 -> 2, ...
+        buckets[bucket].increment();
+        totalNanos.add(nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max); // Rarely taken once warmed up
+        }
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.sum() / 1000.0 / count;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentileMicros(0.50);
+    }
+
+    @Override
+    public double getP90Micros() {
+        return percentileMicros(0.90);
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentileMicros(0.99);
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+
+    @Override
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /** Upper bound of the bucket holding the given quantile (0..1), capped at the maximum seen. */
+    public double percentileMicros(double quantile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(1L << i, getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        errors.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("calls=%d errors=%d mean=%.1fus p50=%.0fus p99=%.0fus max=%.1fus",
+                getCount(), getErrors(), getMeanMicros(), getP50Micros(), getP99Micros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,28 @@
+package nagascatering.data;
+
+/**
+ * JMX view of a {@link LatencyHistogram}. Percentiles are upper bounds of the power-of-two
+ * bucket they fall in, so they read high by up to a factor of two.
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    /** Calls that ended with an exception (or a failed task). */
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    /** Calls per bucket: [0] under 1 us, [i] from 2^(i-1) up to 2^i us. */
+    long[] getBucketCounts();
+
+    void reset();
+}
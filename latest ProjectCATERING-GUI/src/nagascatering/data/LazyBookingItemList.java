@@ -0,0 +1,70 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only booking item list backed by a region of a memory-mapped snapshot.
+ * The items are only decoded the first time the list is touched, so bookings that are
+ * never opened after startup never pay for their items. Stored bookings keep it when frozen,
+ * so the index and snapshot writer can still read the encoding directly.
+ */
+final class LazyBookingItemList extends AbstractList<BookingItem> implements Booking.ReadOnlyItems {
+
+    private final int bookingId;
+    private final Map<Integer, MenuItem> menuItems;
+    private ByteBuffer encoded; // Cleared once decoded so the mapping can be released
+    private volatile List<BookingItem> decoded;
+
+    LazyBookingItemList(ByteBuffer encoded, int bookingId, Map<Integer, MenuItem> menuItems) {
+        this.encoded = encoded;
+        this.bookingId = bookingId;
+        this.menuItems = menuItems;
+    }
+
+    private List<BookingItem> items() {
+        List<BookingItem> items = decoded;
+        if (items == null) {
+            synchronized (this) {
+                items = decoded;
+                if (items == null) {
+                    items = StoreCodec.readBookingItems(encoded.duplicate(), bookingId, menuItems);
+                    decoded = items;
+                    encoded = null;
+                }
+            }
+        }
+        return items;
+    }
+
+    /** The lines as encoded in the snapshot (a new view), or null once the list has been decoded. */
+    synchronized ByteBuffer encodedIfUndecoded() {
+        return decoded == null ? encoded.duplicate() : null;
+    }
+
+    /** Menu item IDs of the lines, in order, in a new array; read straight from the snapshot while undecoded. */
+    int[] menuItemIds() {
+        List<BookingItem> items = decoded;
+        if (items == null) {
+            synchronized (this) {
+                if (decoded == null) {
+                    return StoreCodec.readMenuItemIds(encoded.duplicate());
+                }
+                items = decoded;
+            }
+        }
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items.get(i).getItemId();
+        }
+        return ids;
+    }
+
+    @Override public BookingItem get(int index) { return items().get(index); }
+    @Override public int size() { return items().size(); }
+}
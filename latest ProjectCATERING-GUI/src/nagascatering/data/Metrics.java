@@ -0,0 +1,105 @@
+package nagascatering.data;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide latency histograms and counters, published as platform MBeans so jconsole (or
+ * any JMX client) can read them while the application runs:
+ * <ul>
+ *   <li>{@code nagascatering:type=Latency,name=<operation>}: one {@link LatencyHistogramMXBean}
+ *       per operation ({@code repository.*} data calls, {@code task.*} controller background tasks,
+ *       {@code db.*} connection pool waits)</li>
+ *   <li>{@code nagascatering:type=Counters}: event counts such as save conflicts</li>
+ *   <li>{@code nagascatering:type=Gauges}: values read when asked, such as queue depths</li>
+ * </ul>
+ */
+public final class Metrics {
+
+    private static final Logger LOGGER = Logger.getLogger(Metrics.class.getName());
+
+    private static final String DOMAIN = "nagascatering";
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /** JMX view of all counters, by name. */
+    public interface CountersMXBean {
+        Map<String, Long> getCounters();
+    }
+
+    /** JMX view of all gauges, by name. */
+    public interface GaugesMXBean {
+        Map<String, Long> getGauges();
+    }
+
+    static {
+        register(DOMAIN + ":type=Counters", (CountersMXBean) Metrics::counterValues);
+        register(DOMAIN + ":type=Gauges", (GaugesMXBean) Metrics::gaugeValues);
+    }
+
+    private Metrics() {}
+
+    /** The histogram for an operation, created and registered with JMX on first use. */
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, n -> {
+                LatencyHistogram created = new LatencyHistogram();
+                register(DOMAIN + ":type=Latency,name=" + ObjectName.quote(n), created);
+                return created;
+            });
+        }
+        return histogram;
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /** All histograms so far, by name (sorted; values keep updating). */
+    public static Map<String, LatencyHistogram> histograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    /** Publishes a value that is read each time it is asked for; replaces any gauge of that name. */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    private static Map<String, Long> gaugeValues() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    private static Map<String, Long> counterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    private static void register(String objectName, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException | RuntimeException e) {
+            // Metrics still work in-process; they just are not visible over JMX
+            LOGGER.log(Level.WARNING, "Could not register MBean " + objectName, e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package nagascatering.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a paged query. Pass {@link #getNextCursor()} back to the same query to get the
+ * following page; it is null on the last page.
+ */
+public final class Page<T> {
+
+    /** Largest page a paged query accepts. */
+    public static final int MAX_SIZE = 10_000;
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from a query that fetched up to {@code pageSize + 1} rows: the extra row only
+     * shows that another page exists, and the cursor points after the last row kept.
+     */
+    public static <T> Page<T> of(List<T> rows, int pageSize, Function<T, String> cursorAfter) {
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, pageSize));
+        return new Page<>(items, cursorAfter.apply(items.get(pageSize - 1)));
+    }
+
+    /** @throws IllegalArgumentException unless 1 &lt;= pageSize &lt;= {@link #MAX_SIZE} */
+    public static void checkSize(int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SIZE + ": " + pageSize);
+        }
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != null; }
+
+    @Override
+    public String toString() {
+        return "Page{" + items.size() + " items" + (hasNext() ? ", more" : ", last") + "}";
+    }
+}
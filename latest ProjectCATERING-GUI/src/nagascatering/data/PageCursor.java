@@ -0,0 +1,78 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import java.time.LocalDate;
+
+/**
+ * Continuation tokens for paged queries (keyset pagination). A token records the sort position
+ * of the last row returned, so the next page starts right after it however many rows were
+ * inserted or deleted in between. Callers should treat tokens as opaque.
+ */
+public final class PageCursor {
+
+    private static final String NONE = "~";
+    private static final String BY_NAME = "N";
+
+    private final LocalDate eventDate; // Booking cursors; null for an undated booking
+    private final String eventTime;
+    private final int id;
+    private final String name; // Name cursors
+
+    private PageCursor(LocalDate eventDate, String eventTime, int id, String name) {
+        this.eventDate = eventDate;
+        this.eventTime = eventTime;
+        this.id = id;
+        this.name = name;
+    }
+
+    public LocalDate getEventDate() { return eventDate; }
+    public String getEventTime() { return eventTime; }
+    public int getId() { return id; }
+    public String getName() { return name; }
+
+    // --- Bookings: "<sort>|<id>|<epoch day>|<time>" ---
+
+    /** Token for the page that follows {@code last} in the given order. */
+    public static String after(BookingSort sort, Booking last) {
+        return sortCode(sort) + "|" + last.getBookingId()
+                + "|" + (last.getEventDate() != null ? String.valueOf(last.getEventDate().toEpochDay()) : NONE)
+                + "|" + (last.getEventTime() != null ? last.getEventTime() : NONE);
+    }
+
+    /** @throws IllegalArgumentException if the token is malformed or was issued for another order */
+    public static PageCursor parse(String token, BookingSort sort) {
+        String[] parts = token.split("\\|", 4);
+        if (parts.length != 4 || !parts[0].equals(sortCode(sort))) {
+            throw new IllegalArgumentException("Not a " + sort + " booking cursor: " + token);
+        }
+        try {
+            LocalDate date = parts[2].equals(NONE) ? null : LocalDate.ofEpochDay(Long.parseLong(parts[2]));
+            return new PageCursor(date, parts[3].equals(NONE) ? null : parts[3], Integer.parseInt(parts[1]), null);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed booking cursor: " + token, e);
+        }
+    }
+
+    private static String sortCode(BookingSort sort) {
+        return sort == BookingSort.EVENT_DATE_ASC ? "A" : "D";
+    }
+
+    // --- Name-ordered lists (packages, menu items): "N|<id>|<name>" ---
+
+    public static String afterName(String name, int id) {
+        return BY_NAME + "|" + id + "|" + (name != null ? name : "");
+    }
+
+    /** @throws IllegalArgumentException if the token is malformed */
+    public static PageCursor parseName(String token) {
+        String[] parts = token.split("\\|", 3);
+        if (parts.length != 3 || !parts[0].equals(BY_NAME)) {
+            throw new IllegalArgumentException("Not a name cursor: " + token);
+        }
+        try {
+            return new PageCursor(null, null, Integer.parseInt(parts[1]), parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed name cursor: " + token, e);
+        }
+    }
+}
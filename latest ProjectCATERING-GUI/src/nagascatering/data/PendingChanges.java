@@ -0,0 +1,70 @@
+package nagascatering.data;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Changes the in-memory store has published to one of its maps before their journal record is
+ * durable, kept so that a change whose record fails can be taken back out of the map.
+ * <p>
+ * Each change remembers the value it replaced and, while that value is itself unconfirmed, the
+ * change that published it. Rolling back skips every replaced change whose record failed too, so
+ * the slot ends up holding the newest value that is in the journal. Journal batches complete in
+ * order, so when a record fails, the records of the changes it replaced have already settled.
+ * Callers register and roll back changes while holding the entity's map slot.
+ */
+final class PendingChanges<T> {
+
+    /** One published change waiting for its journal record. */
+    static final class Change<T> {
+        final int id;
+        final T value; // Null for a removal
+        final T replaced; // Null if nothing was stored
+        final CompletableFuture<Void> commit;
+        volatile Change<T> before; // The unconfirmed change that published {@code replaced}; cut once settled
+
+        Change(int id, T value, T replaced, Change<T> before, CompletableFuture<Void> commit) {
+            this.id = id;
+            this.value = value;
+            this.replaced = replaced;
+            this.before = before;
+            this.commit = commit;
+        }
+    }
+
+    // Newest unconfirmed change per ID
+    private final Map<Integer, Change<T>> latest = new ConcurrentHashMap<>();
+
+    /** Records a change just published and journaled; call while holding the entity's slot. */
+    Change<T> published(int id, T replaced, T value, CompletableFuture<Void> commit) {
+        Change<T> before = latest.get(id);
+        Change<T> change = new Change<>(id, value, replaced, before != null && before.value == replaced ? before : null, commit);
+        latest.put(id, change);
+        return change;
+    }
+
+    /** Forgets a change whose record is durable. */
+    void confirmed(Change<T> change) {
+        change.before = null;
+        latest.remove(change.id, change);
+    }
+
+    /**
+     * The value the slot should hold once the change is rolled back, given what it holds now; call
+     * while holding the slot. A slot that has moved on to a later change is left alone: that
+     * change's own record decides, and if it fails too its rollback skips this change as well.
+     */
+    T rollBack(Change<T> change, T current) {
+        latest.remove(change.id, change);
+        if (current != change.value) {
+            return current;
+        }
+        Change<T> oldest = change;
+        while (oldest.before != null && oldest.before.commit.isCompletedExceptionally()) {
+            oldest = oldest.before;
+        }
+        change.before = null;
+        return oldest.replaced;
+    }
+}
@@ -0,0 +1,55 @@
+package nagascatering.data;
+
+/**
+ * Outcome of a versioned save (see {@link DataRepository#saveBooking(nagascatering.model.Booking, java.util.List, long)}).
+ */
+public final class SaveResult {
+
+    public enum Status {
+        /** Written; {@link #getVersion()} is the new version. */
+        SAVED,
+        /** Rejected because someone else saved first; {@link #getVersion()} is the version now stored. */
+        CONFLICT,
+        /** An update for an entity that no longer exists. */
+        NOT_FOUND,
+        /** The store could not write the change (see the log). */
+        FAILED
+    }
+
+    private final Status status;
+    private final int id;
+    private final long version;
+
+    private SaveResult(Status status, int id, long version) {
+        this.status = status;
+        this.id = id;
+        this.version = version;
+    }
+
+    public static SaveResult saved(int id, long newVersion) {
+        return new SaveResult(Status.SAVED, id, newVersion);
+    }
+
+    public static SaveResult conflict(int id, long storedVersion) {
+        return new SaveResult(Status.CONFLICT, id, storedVersion);
+    }
+
+    public static SaveResult notFound(int id) {
+        return new SaveResult(Status.NOT_FOUND, id, 0);
+    }
+
+    public static SaveResult failed(int id) {
+        return new SaveResult(Status.FAILED, id, 0);
+    }
+
+    public Status getStatus() { return status; }
+    public boolean isSaved() { return status == Status.SAVED; }
+    public boolean isConflict() { return status == Status.CONFLICT; }
+    public int getId() { return id; }
+    public long getVersion() { return version; }
+
+    @Override
+    public String toString() {
+        return "SaveResult{" + status + ", id=" + id + ", version=" + version + "}";
+    }
+}
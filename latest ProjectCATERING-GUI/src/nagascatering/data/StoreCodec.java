@@ -0,0 +1,272 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of the model objects, shared by the journal and snapshot files.
+ * Strings are length-prefixed UTF-8 (-1 marks null); dates are stored as epoch days.
+ */
+final class StoreCodec {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    // Reused when decoding strings out of direct (memory-mapped) buffers
+    private static final ThreadLocal<byte[]> STRING_SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private StoreCodec() {}
+
+    /** Growable heap buffer used to build records before they are handed to a FileChannel. */
+    static final class Output {
+        private ByteBuffer buffer;
+
+        Output(int initialCapacity) {
+            buffer = ByteBuffer.allocate(initialCapacity);
+        }
+
+        Output reset() {
+            buffer.clear();
+            return this;
+        }
+
+        int position() { return buffer.position(); }
+
+        /** Returns a read-only view of the bytes written so far. */
+        ByteBuffer view() {
+            ByteBuffer view = buffer.duplicate();
+            view.flip();
+            return view;
+        }
+
+        /** Returns a standalone copy of the bytes written so far. */
+        ByteBuffer copy() {
+            ByteBuffer view = view();
+            ByteBuffer copy = ByteBuffer.allocate(view.remaining());
+            copy.put(view).flip();
+            return copy;
+        }
+
+        private void ensure(int extra) {
+            if (buffer.remaining() < extra) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + extra);
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        Output putByte(int value) { ensure(1); buffer.put((byte) value); return this; }
+        Output putBoolean(boolean value) { return putByte(value ? 1 : 0); }
+        Output putInt(int value) { ensure(4); buffer.putInt(value); return this; }
+        Output putLong(long value) { ensure(8); buffer.putLong(value); return this; }
+        Output putDouble(double value) { ensure(8); buffer.putDouble(value); return this; }
+
+        Output putIntAt(int index, int value) { buffer.putInt(index, value); return this; }
+
+        Output putBytes(ByteBuffer bytes) {
+            ensure(bytes.remaining());
+            buffer.put(bytes);
+            return this;
+        }
+
+        Output putString(String value) {
+            if (value == null) {
+                return putInt(-1);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+            return this;
+        }
+
+        Output putDate(LocalDate date) {
+            return putLong(date == null ? NO_DATE : date.toEpochDay());
+        }
+    }
+
+    // --- Primitive readers ---
+
+    static boolean getBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = STRING_SCRATCH.get();
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+                STRING_SCRATCH.set(bytes);
+            }
+            in.get(bytes, 0, length);
+            value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    static LocalDate getDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    // --- Packages ---
+
+    static void writePackage(Output out, Package pkg) {
+        out.putInt(pkg.getPackageId())
+           .putString(pkg.getName())
+           .putString(pkg.getDescription())
+           .putDouble(pkg.getPrice())
+           .putInt(pkg.getCapacity())
+           .putString(pkg.getIncludedItemsDesc())
+           .putBoolean(pkg.isActive());
+    }
+
+    static Package readPackage(ByteBuffer in) {
+        Package pkg = new Package();
+        pkg.setPackageId(in.getInt());
+        pkg.setName(getString(in));
+        pkg.setDescription(getString(in));
+        pkg.setPrice(in.getDouble());
+        pkg.setCapacity(in.getInt());
+        pkg.setIncludedItemsDesc(getString(in));
+        pkg.setActive(getBoolean(in));
+        return pkg;
+    }
+
+    // --- Menu items ---
+
+    static void writeMenuItem(Output out, MenuItem item) {
+        out.putInt(item.getItemId())
+           .putString(item.getName())
+           .putString(item.getDescription())
+           .putDouble(item.getCostPerUnit())
+           .putString(item.getUnitType())
+           .putBoolean(item.isActive());
+    }
+
+    static MenuItem readMenuItem(ByteBuffer in) {
+        MenuItem item = new MenuItem();
+        item.setItemId(in.getInt());
+        item.setName(getString(in));
+        item.setDescription(getString(in));
+        item.setCostPerUnit(in.getDouble());
+        item.setUnitType(getString(in));
+        item.setActive(getBoolean(in));
+        return item;
+    }
+
+    // --- Bookings (with their items) ---
+
+    static void writeBooking(Output out, Booking booking) {
+        out.putInt(booking.getBookingId())
+           .putString(booking.getCustomerName())
+           .putString(booking.getCustomerContact())
+           .putDate(booking.getEventDate())
+           .putString(booking.getEventTime())
+           .putString(booking.getVenueAddress())
+           .putString(booking.getThemeDescription())
+           .putInt(booking.getNumGuests())
+           .putBoolean(booking.getSelectedPackageId() != null)
+           .putInt(booking.getSelectedPackageId() != null ? booking.getSelectedPackageId() : 0)
+           .putDouble(booking.getBasePackageCost())
+           .putDouble(booking.getAdditionalItemsCost())
+           .putDouble(booking.getTotalCost())
+           .putString(booking.getCustomRequests())
+           .putString(booking.getBookingStatus());
+        writeBookingItems(out, booking.getBookingItems());
+    }
+
+    static void writeBookingItems(Output out, List<BookingItem> items) {
+        if (items instanceof LazyBookingItemList) {
+            // Still as loaded from a snapshot: copy the encoding across rather than decode the lines
+            ByteBuffer encoded = ((LazyBookingItemList) items).encodedIfUndecoded();
+            if (encoded != null) {
+                out.putBytes(encoded);
+                return;
+            }
+        }
+        int count = items == null ? 0 : items.size();
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            BookingItem item = items.get(i);
+            out.putInt(item.getBookingItemId())
+               .putInt(item.getItemId())
+               .putInt(item.getQuantity())
+               .putDouble(item.getCalculatedItemCost());
+        }
+    }
+
+    /** Decodes a booking; package and menu item links are resolved from the given maps. */
+    static Booking readBooking(ByteBuffer in, Map<Integer, Package> packages, Map<Integer, MenuItem> menuItems) {
+        Booking booking = readBookingHeader(in, packages);
+        booking.setBookingItems(readBookingItems(in, booking.getBookingId(), menuItems));
+        return booking;
+    }
+
+    static Booking readBookingHeader(ByteBuffer in, Map<Integer, Package> packages) {
+        Booking booking = new Booking();
+        booking.setBookingId(in.getInt());
+        booking.setCustomerName(getString(in));
+        booking.setCustomerContact(getString(in));
+        booking.setEventDate(getDate(in));
+        booking.setEventTime(getString(in));
+        booking.setVenueAddress(getString(in));
+        booking.setThemeDescription(getString(in));
+        booking.setNumGuests(in.getInt());
+        boolean hasPackage = getBoolean(in);
+        int packageId = in.getInt();
+        booking.setSelectedPackageId(hasPackage ? packageId : null);
+        booking.setBasePackageCost(in.getDouble());
+        booking.setAdditionalItemsCost(in.getDouble());
+        booking.setTotalCost(in.getDouble());
+        booking.setCustomRequests(getString(in));
+        booking.setBookingStatus(getString(in));
+        if (hasPackage) {
+            booking.setSelectedPackage(packages.get(packageId));
+        }
+        return booking;
+    }
+
+    static List<BookingItem> readBookingItems(ByteBuffer in, int bookingId, Map<Integer, MenuItem> menuItems) {
+        int count = in.getInt();
+        List<BookingItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int bookingItemId = in.getInt();
+            int itemId = in.getInt();
+            int quantity = in.getInt();
+            double cost = in.getDouble();
+            items.add(new BookingItem(bookingItemId, bookingId, itemId, quantity, cost, menuItems.get(itemId)));
+        }
+        return items;
+    }
+
+    /** Just the menu item IDs of an encoded item list (as written for readBookingItems). */
+    static int[] readMenuItemIds(ByteBuffer in) {
+        int count = in.getInt();
+        int[] itemIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            in.getInt(); // bookingItemId
+            itemIds[i] = in.getInt();
+            in.getInt(); // quantity
+            in.getDouble(); // cost
+        }
+        return itemIds;
+    }
+}
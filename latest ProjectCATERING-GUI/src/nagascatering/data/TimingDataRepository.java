@@ -0,0 +1,224 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long each operation of another repository takes.
+ * Every call is logged at FINE; calls slower than the configured threshold are logged at WARNING.
+ * Each operation records into the shared {@link Metrics} histogram {@code repository.<operation>},
+ * so the numbers are also visible over JMX; {@link #getTimings()} returns them directly.
+ */
+public class TimingDataRepository implements DataRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(TimingDataRepository.class.getName());
+
+    private final DataRepository delegate;
+    private final long slowCallNanos;
+    // Operation name -> its shared histogram, so the hot path skips building the metric name
+    private final Map<String, LatencyHistogram> timings = new ConcurrentHashMap<>();
+
+    public TimingDataRepository(DataRepository delegate, long slowCallMillis) {
+        this.delegate = delegate;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+    }
+
+    /** Timings so far, by operation name (sorted; values keep updating). */
+    public Map<String, LatencyHistogram> getTimings() {
+        return Collections.unmodifiableMap(new TreeMap<>(timings));
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            LatencyHistogram histogram = timings.get(operation);
+            if (histogram == null) {
+                histogram = timings.computeIfAbsent(operation, name -> Metrics.histogram("repository." + name));
+            }
+            histogram.record(elapsed, failed);
+            if (elapsed >= slowCallNanos) {
+                LOGGER.log(Level.WARNING, "Slow repository call {0}: {1} ms",
+                        new Object[]{operation, TimeUnit.NANOSECONDS.toMillis(elapsed)});
+            } else if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "{0}: {1} us", new Object[]{operation, TimeUnit.NANOSECONDS.toMicros(elapsed)});
+            }
+        }
+    }
+
+    // Lost optimistic-concurrency races show how often users edit the same record at once
+    private static SaveResult countConflict(SaveResult result) {
+        if (result.isConflict()) {
+            Metrics.counter("repository.saveConflicts").increment();
+        }
+        return result;
+    }
+
+    // --- Packages ---
+
+    @Override
+    public List<Package> getAllPackages(boolean includeInactive) {
+        return timed("getAllPackages", () -> delegate.getAllPackages(includeInactive));
+    }
+
+    @Override
+    public Page<Package> getPackagesPage(boolean includeInactive, int pageSize, String cursor) {
+        return timed("getPackagesPage", () -> delegate.getPackagesPage(includeInactive, pageSize, cursor));
+    }
+
+    @Override
+    public SaveResult savePackage(Package pkg, long expectedVersion) {
+        return countConflict(timed("savePackage", () -> delegate.savePackage(pkg, expectedVersion)));
+    }
+
+    @Override
+    public boolean deletePackage(int packageId) {
+        return timed("deletePackage", () -> delegate.deletePackage(packageId));
+    }
+
+    @Override
+    public boolean setPackageActiveStatus(int packageId, boolean isActive) {
+        return timed("setPackageActiveStatus", () -> delegate.setPackageActiveStatus(packageId, isActive));
+    }
+
+    // --- Bookings ---
+
+    @Override
+    public SaveResult saveBooking(Booking booking, List<BookingItem> itemsToSave, long expectedVersion) {
+        return countConflict(timed("saveBooking", () -> delegate.saveBooking(booking, itemsToSave, expectedVersion)));
+    }
+
+    @Override
+    public boolean updateBooking(Booking booking, List<BookingItem> items) {
+        return timed("updateBooking", () -> delegate.updateBooking(booking, items));
+    }
+
+    @Override
+    public boolean deleteBooking(int bookingId) {
+        return timed("deleteBooking", () -> delegate.deleteBooking(bookingId));
+    }
+
+    @Override
+    public Booking getBookingById(int bookingId) {
+        return timed("getBookingById", () -> delegate.getBookingById(bookingId));
+    }
+
+    @Override
+    public List<Booking> getAllBookings() {
+        return timed("getAllBookings", delegate::getAllBookings);
+    }
+
+    @Override
+    public List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        return timed("getBookingsBetween", () -> delegate.getBookingsBetween(from, to));
+    }
+
+    @Override
+    public List<Booking> getUpcoming(int limit) {
+        return timed("getUpcoming", () -> delegate.getUpcoming(limit));
+    }
+
+    @Override
+    public List<Booking> getBookingsForPackage(int packageId) {
+        return timed("getBookingsForPackage", () -> delegate.getBookingsForPackage(packageId));
+    }
+
+    @Override
+    public List<Integer> getPendingBookingIdsForPackage(int packageId) {
+        return timed("getPendingBookingIdsForPackage", () -> delegate.getPendingBookingIdsForPackage(packageId));
+    }
+
+    @Override
+    public List<Integer> getPendingBookingIdsForMenuItem(int itemId) {
+        return timed("getPendingBookingIdsForMenuItem", () -> delegate.getPendingBookingIdsForMenuItem(itemId));
+    }
+
+    @Override
+    public int saveBookingCosts(List<Booking> repriced) {
+        return timed("saveBookingCosts", () -> delegate.saveBookingCosts(repriced));
+    }
+
+    @Override
+    public List<Booking> searchBookings(String query, int limit) {
+        return timed("searchBookings", () -> delegate.searchBookings(query, limit));
+    }
+
+    @Override
+    public BookingStatusSummary getStatusSummary() {
+        return timed("getStatusSummary", delegate::getStatusSummary);
+    }
+
+    @Override
+    public BookingTotals getBookingTotals(LocalDate from, LocalDate to) {
+        return timed("getBookingTotals", () -> delegate.getBookingTotals(from, to));
+    }
+
+    @Override
+    public Stream<Booking> streamBookings(Predicate<? super Booking> filter) {
+        return timed("streamBookings", () -> delegate.streamBookings(filter)); // Times opening only; rows come lazily
+    }
+
+    @Override
+    public Stream<Booking> streamBookingsWithItems(LocalDate from, LocalDate to) {
+        return timed("streamBookingsWithItems", () -> delegate.streamBookingsWithItems(from, to));
+    }
+
+    @Override
+    public Page<Booking> getBookingsPage(BookingSort sort, int pageSize, String cursor) {
+        return timed("getBookingsPage", () -> delegate.getBookingsPage(sort, pageSize, cursor));
+    }
+
+    // --- Menu items ---
+
+    @Override
+    public List<MenuItem> getAllMenuItems() {
+        return timed("getAllMenuItems", delegate::getAllMenuItems);
+    }
+
+    @Override
+    public List<MenuItem> getAllMenuItems(boolean includeInactive) {
+        return timed("getAllMenuItems", () -> delegate.getAllMenuItems(includeInactive));
+    }
+
+    @Override
+    public Page<MenuItem> getMenuItemsPage(boolean includeInactive, int pageSize, String cursor) {
+        return timed("getMenuItemsPage", () -> delegate.getMenuItemsPage(includeInactive, pageSize, cursor));
+    }
+
+    @Override
+    public MenuItem getMenuItemById(int itemId) {
+        return timed("getMenuItemById", () -> delegate.getMenuItemById(itemId));
+    }
+
+    @Override
+    public List<BookingItem> getBookingItemsForBooking(int bookingId) {
+        return timed("getBookingItemsForBooking", () -> delegate.getBookingItemsForBooking(bookingId));
+    }
+
+    // --- Bulk loading ---
+
+    @Override
+    public BulkLoadResult bulkLoad(List<MenuItem> menuItems, List<Package> packages, Iterator<Booking> bookings) {
+        return timed("bulkLoad", () -> delegate.bulkLoad(menuItems, packages, bookings));
+    }
+}
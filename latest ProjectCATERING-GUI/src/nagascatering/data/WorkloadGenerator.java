@@ -0,0 +1,373 @@
+package nagascatering.data;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import nagascatering.pricing.PricingEngine;
+import nagascatering.pricing.Quote;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Seeded generator of realistic catalogs and bookings for benchmarks and load tests.
+ * The same seed and settings always produce the same records.
+ * <ul>
+ *   <li>Menu items: about 45% per_person, 35% per_tray and 20% fixed, mostly active</li>
+ *   <li>Packages: how often each is booked follows a Zipf distribution (package 1 the most)</li>
+ *   <li>Event dates: Saturdays and Sundays busiest, Fridays next; December (above all its
+ *       second half) and the May-June fiesta and wedding season peak, the rainy months dip</li>
+ *   <li>Booking items: a configurable number per booking, costed the way the booking form does;
+ *       past events are mostly completed, future ones confirmed or pending</li>
+ * </ul>
+ * Records carry their own IDs from 1, which {@link DataRepository#bulkLoad} maps to stored IDs,
+ * so a dataset can be added to a store that already holds data. The default date range is
+ * relative to today (two years back, one ahead); set it with {@link #withEventDates} for
+ * identical datasets on different days.
+ * <p>
+ * Usage: {@code WorkloadGenerator [bookings] [seed]} loads into the configured repository
+ * ({@code ant generate-workload -Dworkload.bookings=...}).
+ */
+public final class WorkloadGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkloadGenerator.class.getName());
+
+    private static final long CATALOG_STREAM = 0x5DEECE66DL; // Catalog and bookings use separate random streams
+
+    private static final String[] DISHES = {
+        "Steamed Rice", "Garlic Rice", "Pancit Canton", "Pancit Bihon", "Chicken Adobo", "Pork Adobo",
+        "Beef Caldereta", "Pork Menudo", "Chicken Afritada", "Kare-Kare", "Lechon Belly", "Lechon Kawali",
+        "Sweet and Sour Fish", "Fish Fillet", "Shrimp Gambas", "Chopsuey", "Lumpiang Shanghai", "Embutido",
+        "Bicol Express", "Laing", "Pinakbet", "Beef Morcon", "Chicken Cordon Bleu", "Roast Beef",
+        "Baked Macaroni", "Spaghetti", "Carbonara", "Buko Pandan", "Leche Flan", "Fruit Salad",
+        "Maja Blanca", "Cassava Cake", "Iced Tea", "Sago't Gulaman", "Mango Shake", "Bottled Water",
+        "Dinner Rolls", "Cream of Mushroom Soup", "Sinigang na Hipon", "Chicken Inasal"
+    };
+    private static final String[] PACKAGE_TIERS = {"Basic", "Classic", "Fiesta", "Premium", "Grand", "Deluxe"};
+    private static final String[] OCCASIONS = {"Birthday", "Wedding", "Christening", "Debut", "Corporate", "Reunion"};
+    private static final String[] FIRST_NAMES = {
+        "Juan", "Maria", "Jose", "Ana", "Mark", "Kristine", "John Paul", "Angelica", "Miguel", "Patricia",
+        "Carlo", "Camille", "Rafael", "Bea", "Paolo", "Nicole", "Gabriel", "Joy", "Antonio", "Liza"
+    };
+    private static final String[] LAST_NAMES = {
+        "Dela Cruz", "Santos", "Reyes", "Garcia", "Mendoza", "Bautista", "Villanueva", "Ramos", "Castillo",
+        "Fernandez", "Aquino", "Navarro", "Torres", "Flores", "Gonzales", "Rivera", "Lopez", "Morales"
+    };
+    private static final String[] VENUES = {
+        "Function Hall", "Clubhouse", "Parish Hall", "Covered Court", "Garden Pavilion", "Resort",
+        "Hotel Ballroom", "Residence", "Barangay Hall", "Conference Room"
+    };
+    private static final String[] PLACES = {
+        "Naga City", "Pili", "Canaman", "Camaligan", "Magarao", "Milaor", "Bombon", "Iriga City", "Calabanga"
+    };
+    private static final String[] THEMES = {
+        "Blue and Silver", "Rustic", "Floral", "Gold and White", "Superhero", "Princess", "Tropical",
+        "Vintage", "Black and Gold", "Pastel"
+    };
+    private static final String[] REQUESTS = {
+        "Need extra chairs.", "Vegetarian options for 5 guests.", "No pork, please.", "Serve dessert at 8 PM.",
+        "Bring extra serving spoons.", "Kids' meals for 10.", "Setup by 3 PM.", "Less spicy dishes."
+    };
+    private static final String[] EVENT_TIMES = {"10:00", "11:00", "11:30", "12:00", "15:00", "17:00", "17:30", "18:00", "18:30", "19:00"};
+    private static final double[] EVENT_TIME_WEIGHTS = {1, 3, 2, 3, 1, 3, 2, 4, 2, 2};
+    private static final int GUESTS_PER_TRAY = 20;
+
+    private final long seed;
+    private final LocalDate today = LocalDate.now();
+    private int menuItemCount = 60;
+    private int packageCount = 12;
+    private double packageSkew = 1.1;
+    private int minItemsPerBooking = 0;
+    private int maxItemsPerBooking = 6;
+    private LocalDate firstEventDate = today.minusYears(2);
+    private LocalDate lastEventDate = today.plusYears(1);
+
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public WorkloadGenerator withMenuItemCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one menu item is needed");
+        }
+        this.menuItemCount = count;
+        return this;
+    }
+
+    public WorkloadGenerator withPackageCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one package is needed");
+        }
+        this.packageCount = count;
+        return this;
+    }
+
+    /** Zipf exponent for package popularity: 0 books all packages equally, higher values favor the first ones. */
+    public WorkloadGenerator withPackageSkew(double exponent) {
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Skew cannot be negative: " + exponent);
+        }
+        this.packageSkew = exponent;
+        return this;
+    }
+
+    /** Extra menu items per booking, uniformly between min and max (inclusive). */
+    public WorkloadGenerator withItemsPerBooking(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid item fan-out: " + min + ".." + max);
+        }
+        this.minItemsPerBooking = min;
+        this.maxItemsPerBooking = max;
+        return this;
+    }
+
+    public WorkloadGenerator withEventDates(LocalDate first, LocalDate last) {
+        if (last.isBefore(first)) {
+            throw new IllegalArgumentException("Date range ends before it starts: " + first + ".." + last);
+        }
+        this.firstEventDate = first;
+        this.lastEventDate = last;
+        return this;
+    }
+
+    // --- Catalog ---
+
+    public List<MenuItem> generateMenuItems() {
+        SplittableRandom random = new SplittableRandom(seed ^ CATALOG_STREAM);
+        List<MenuItem> items = new ArrayList<>(menuItemCount);
+        for (int id = 1; id <= menuItemCount; id++) {
+            int round = (id - 1) / DISHES.length;
+            String name = DISHES[(id - 1) % DISHES.length] + (round > 0 ? " (Variant " + (round + 1) + ")" : "");
+            double type = random.nextDouble();
+            String unitType;
+            double cost;
+            if (type < 0.45) {
+                unitType = "per_person";
+                cost = roundTo(40 + random.nextDouble() * 310, 5);
+            } else if (type < 0.80) {
+                unitType = "per_tray";
+                cost = roundTo(800 + random.nextDouble() * 3200, 50);
+            } else {
+                unitType = "fixed";
+                cost = roundTo(150 + random.nextDouble() * 5850, 50);
+            }
+            MenuItem item = new MenuItem(id, name, cost, unitType, random.nextDouble() < 0.9);
+            item.setDescription(name + ", " + unitType.replace('_', ' ') + ".");
+            items.add(item);
+        }
+        return items;
+    }
+
+    public List<Package> generatePackages() {
+        SplittableRandom random = new SplittableRandom(seed ^ CATALOG_STREAM).split(); // Independent of the menu item count
+        List<Package> packages = new ArrayList<>(packageCount);
+        for (int id = 1; id <= packageCount; id++) {
+            String name = PACKAGE_TIERS[random.nextInt(PACKAGE_TIERS.length)] + " "
+                    + OCCASIONS[random.nextInt(OCCASIONS.length)] + " Package " + id;
+            int capacity = 30 + 10 * random.nextInt(28);
+            double price = roundTo(capacity * (150 + random.nextDouble() * 250), 500);
+            Package pkg = new Package(id, name, price, capacity, random.nextDouble() < 0.85);
+            pkg.setDescription("Good for up to " + capacity + " guests.");
+            StringBuilder included = new StringBuilder();
+            for (int i = 3 + random.nextInt(3); i > 0; i--) {
+                included.append(included.length() > 0 ? ", " : "").append(DISHES[random.nextInt(DISHES.length)]);
+            }
+            pkg.setIncludedItemsDesc(included.toString());
+            packages.add(pkg);
+        }
+        return packages;
+    }
+
+    // --- Bookings ---
+
+    /** Lazily generates {@code count} bookings with their items (IDs from 1); nothing is held in memory. */
+    public Iterator<Booking> generateBookings(int count) {
+        List<MenuItem> menuItems = generateMenuItems();
+        List<MenuItem> activeItems = new ArrayList<>();
+        for (MenuItem item : menuItems) {
+            if (item.isActive()) {
+                activeItems.add(item);
+            }
+        }
+        List<Package> packages = generatePackages();
+        double[] packageWeights = new double[packages.size()];
+        for (int rank = 1; rank <= packageWeights.length; rank++) {
+            packageWeights[rank - 1] = 1 / Math.pow(rank, packageSkew);
+        }
+        double[] packageCumulative = cumulative(packageWeights);
+        double[] dayCumulative = cumulative(dayWeights());
+        double[] timeCumulative = cumulative(EVENT_TIME_WEIGHTS);
+        int fanOut = Math.min(maxItemsPerBooking, activeItems.size());
+        SplittableRandom random = new SplittableRandom(seed);
+
+        return new Iterator<Booking>() {
+            private int next = 1;
+            private int nextItemId = 1;
+            private final Quote quote = new Quote();
+
+            @Override
+            public boolean hasNext() {
+                return next <= count;
+            }
+
+            @Override
+            public Booking next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Booking booking = new Booking();
+                booking.setBookingId(next++);
+                booking.setCustomerName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                        + LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+                booking.setCustomerContact(String.format("09%09d", random.nextInt(1_000_000_000)));
+                LocalDate eventDate = firstEventDate.plusDays(pick(dayCumulative, random));
+                booking.setEventDate(eventDate);
+                booking.setEventTime(EVENT_TIMES[pick(timeCumulative, random)]);
+                booking.setVenueAddress(VENUES[random.nextInt(VENUES.length)] + ", " + PLACES[random.nextInt(PLACES.length)]);
+                if (random.nextDouble() < 0.6) {
+                    booking.setThemeDescription(THEMES[random.nextInt(THEMES.length)]);
+                }
+                if (random.nextDouble() < 0.25) {
+                    booking.setCustomRequests(REQUESTS[random.nextInt(REQUESTS.length)]);
+                }
+
+                Package pkg = packages.get(pick(packageCumulative, random));
+                int guests = Math.max(10, (int) Math.round(pkg.getCapacity() * (0.6 + random.nextDouble() * 0.6)));
+                booking.setNumGuests(guests);
+                booking.setSelectedPackageId(pkg.getPackageId());
+
+                List<BookingItem> items = new ArrayList<>();
+                int itemCount = Math.min(fanOut, minItemsPerBooking + random.nextInt(maxItemsPerBooking - minItemsPerBooking + 1));
+                int[] chosen = new int[itemCount];
+                for (int i = 0; i < itemCount; i++) {
+                    int index = distinctIndex(chosen, i, activeItems.size(), random);
+                    MenuItem menuItem = activeItems.get(index);
+                    int quantity;
+                    switch (menuItem.getUnit()) {
+                        case PER_PERSON:
+                            quantity = 1;
+                            break;
+                        case PER_TRAY:
+                            quantity = (guests + GUESTS_PER_TRAY - 1) / GUESTS_PER_TRAY;
+                            break;
+                        default:
+                            quantity = 1 + random.nextInt(3);
+                    }
+                    // As the booking form prices it
+                    double cost = PricingEngine.toAmount(PricingEngine.linePrice(menuItem, quantity, guests));
+                    items.add(new BookingItem(nextItemId++, booking.getBookingId(), menuItem.getItemId(), quantity, cost, menuItem));
+                }
+                booking.setBookingItems(items);
+                PricingEngine.quote(pkg, items, guests, quote).applyTo(booking);
+                booking.setBookingStatus(status(eventDate, random.nextDouble()));
+                return booking;
+            }
+        };
+    }
+
+    /**
+     * Generates the catalog and {@code bookings} bookings and adds them through the repository's
+     * bulk path. Returns the number of bookings stored.
+     */
+    public int loadInto(DataRepository repository, int bookings) {
+        long start = System.nanoTime();
+        int loaded = repository.bulkLoad(generateMenuItems(), generatePackages(), generateBookings(bookings)).getBookings();
+        LOGGER.log(Level.INFO, "Generated and loaded {0} bookings (seed {1}) in {2} ms",
+                new Object[]{loaded, seed, (System.nanoTime() - start) / 1_000_000});
+        return loaded;
+    }
+
+    // Relative booking likelihood of every day in the range: day of week times season
+    private double[] dayWeights() {
+        int days = (int) ChronoUnit.DAYS.between(firstEventDate, lastEventDate) + 1;
+        double[] weights = new double[days];
+        LocalDate date = firstEventDate;
+        for (int i = 0; i < days; i++, date = date.plusDays(1)) {
+            weights[i] = dayOfWeekFactor(date.getDayOfWeek()) * seasonFactor(date);
+        }
+        return weights;
+    }
+
+    private static double dayOfWeekFactor(DayOfWeek day) {
+        switch (day) {
+            case SATURDAY: return 2.6;
+            case SUNDAY: return 2.0;
+            case FRIDAY: return 1.3;
+            case THURSDAY: return 0.7;
+            case WEDNESDAY: return 0.6;
+            default: return 0.5;
+        }
+    }
+
+    private static double seasonFactor(LocalDate date) {
+        switch (date.getMonth()) {
+            case DECEMBER: return date.getDayOfMonth() >= 15 ? 2.6 : 1.8; // Christmas parties
+            case MAY: return 1.6; // Fiestas and weddings
+            case JUNE: return 1.4;
+            case FEBRUARY: return 1.2;
+            case JULY:
+            case AUGUST: return 0.8; // Rainy season
+            case JANUARY: return 0.7;
+            default: return 1.0;
+        }
+    }
+
+    private String status(LocalDate eventDate, double roll) {
+        if (eventDate.isBefore(today)) {
+            return roll < 0.88 ? "Completed" : "Cancelled";
+        }
+        return roll < 0.55 ? "Confirmed" : roll < 0.90 ? "Pending" : "Cancelled";
+    }
+
+    // Draws an index not yet among chosen[0..taken) and records it there
+    private static int distinctIndex(int[] chosen, int taken, int bound, SplittableRandom random) {
+        while (true) {
+            int candidate = random.nextInt(bound);
+            boolean seen = false;
+            for (int i = 0; i < taken && !seen; i++) {
+                seen = chosen[i] == candidate;
+            }
+            if (!seen) {
+                chosen[taken] = candidate;
+                return candidate;
+            }
+        }
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    // Index of a weighted random choice, by binary search over the cumulative weights
+    private static int pick(double[] cumulative, SplittableRandom random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, target);
+        return Math.min(index >= 0 ? index + 1 : -index - 1, cumulative.length - 1);
+    }
+
+    private static double roundTo(double value, int step) {
+        return Math.max(step, Math.round(value / step) * step);
+    }
+
+    public static void main(String[] args) {
+        int bookings = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        new WorkloadGenerator(seed).loadInto(DataRepositories.fromConfiguration(), bookings);
+        System.exit(0); // Shutdown hooks close the store; the journal writer thread is not a daemon
+    }
+}
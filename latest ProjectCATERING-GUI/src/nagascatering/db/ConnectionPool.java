@@ -0,0 +1,191 @@
+package nagascatering.db;
+
+import nagascatering.data.LatencyHistogram;
+import nagascatering.data.Metrics;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Small fixed-size JDBC connection pool.
+ * Each pooled connection keeps its own cache of prepared statements, so hot queries are
+ * parsed and planned once per connection instead of once per call.
+ */
+final class ConnectionPool implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final LatencyHistogram BORROW_WAITS = Metrics.histogram("db.pool.borrow");
+
+    private final String url;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // Guarded by itself
+    private volatile boolean closed;
+
+    ConnectionPool(String url, int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("Pool needs at least one connection: " + maxConnections);
+        }
+        this.url = url;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /** Borrows a connection; closing it returns it to the pool. Blocks while all are in use. */
+    PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            boolean acquired = permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            // Time spent waiting for a free connection: how contended the pool is
+            BORROW_WAITS.record(System.nanoTime() - start, !acquired);
+            if (!acquired) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst(); // Most recently used first: warmest statement cache
+            }
+            if (pooled != null && !pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                pooled.closePhysically();
+                pooled = null;
+            }
+            return pooled != null ? pooled : new PooledConnection(DriverManager.getConnection(url));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        boolean reusable = !closed && !pooled.broken;
+        if (reusable) {
+            try {
+                if (!pooled.connection.getAutoCommit()) {
+                    pooled.connection.rollback(); // Never hand out a half-finished transaction
+                    pooled.connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+        if (reusable) {
+            synchronized (idle) {
+                idle.addFirst(pooled);
+            }
+        } else {
+            pooled.closePhysically();
+        }
+        permits.release();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (idle) {
+            idle.forEach(PooledConnection::closePhysically);
+            idle.clear();
+        }
+    }
+
+    /** A borrowed connection plus its statement cache. */
+    final class PooledConnection implements AutoCloseable {
+        final Connection connection;
+        private boolean broken;
+        private final Map<String, PreparedStatement> statements =
+                new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                        if (size() > STATEMENT_CACHE_SIZE) {
+                            closeQuietly(eldest.getValue());
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /** Returns a cached prepared statement for the SQL, preparing it on first use. */
+        PreparedStatement prepare(String sql) throws SQLException {
+            return prepare(sql, false);
+        }
+
+        /** Like {@link #prepare(String)}, for inserts whose generated keys are read back. */
+        PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+            return prepare(sql, true);
+        }
+
+        // Keyed by SQL and key mode: a statement prepared without RETURN_GENERATED_KEYS has no keys to read
+        private PreparedStatement prepare(String sql, boolean returnKeys) throws SQLException {
+            String key = returnKeys ? "keys:" + sql : sql;
+            PreparedStatement statement = statements.get(key);
+            if (statement == null || statement.isClosed()) {
+                statement = returnKeys
+                        ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                        : connection.prepareStatement(sql);
+                statements.put(key, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        void beginTransaction() throws SQLException {
+            connection.setAutoCommit(false);
+        }
+
+        void commit() throws SQLException {
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+
+        /** Marks the connection as unusable (e.g. after an I/O error) so it is not pooled again. */
+        void discard() {
+            broken = true;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private void closePhysically() {
+            statements.values().forEach(ConnectionPool::closeQuietly);
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Error closing pooled connection", e);
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Error closing cached statement", e);
+        }
+    }
+}
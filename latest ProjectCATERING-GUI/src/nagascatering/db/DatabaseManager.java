@@ -0,0 +1,1371 @@
+package nagascatering.db;
+
+import nagascatering.data.BookingSearchIndex;
+import nagascatering.data.BookingSort;
+import nagascatering.data.BookingStatusSummary;
+import nagascatering.data.BookingTotals;
+import nagascatering.data.BulkLoadResult;
+import nagascatering.data.DataRepository;
+import nagascatering.data.Page;
+import nagascatering.data.PageCursor;
+import nagascatering.data.SaveResult;
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Stores application data in an SQL database through JDBC; by default an embedded Apache Derby
+ * database in the data directory, so no database server is needed (see DataRepositories).
+ * Connections come from a small {@link ConnectionPool} that also caches prepared statements.
+ * A booking and its items are written in one transaction, with the items sent as a single batch.
+ * The schema is created, and the menu/package catalog seeded, on first use.
+ * Packages and bookings carry a version column; versioned saves update only the row whose
+ * version still matches ({@code WHERE ... AND version = ?}), so stale writes are detected.
+ */
+public class DatabaseManager implements DataRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(DatabaseManager.class.getName());
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE packages ("
+            + " package_id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,"
+            + " name VARCHAR(255) NOT NULL,"
+            + " description VARCHAR(2000),"
+            + " price DOUBLE NOT NULL,"
+            + " capacity INT NOT NULL,"
+            + " included_items_desc VARCHAR(2000),"
+            + " is_active BOOLEAN NOT NULL,"
+            + " version BIGINT NOT NULL DEFAULT 0)",
+        "CREATE TABLE menu_items ("
+            + " item_id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,"
+            + " name VARCHAR(255) NOT NULL,"
+            + " description VARCHAR(2000),"
+            + " cost_per_unit DOUBLE NOT NULL,"
+            + " unit_type VARCHAR(50),"
+            + " is_active BOOLEAN NOT NULL)",
+        "CREATE TABLE bookings ("
+            + " booking_id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,"
+            + " customer_name VARCHAR(255),"
+            + " customer_contact VARCHAR(255),"
+            + " event_date DATE,"
+            + " event_time VARCHAR(20),"  // HH:mm, sorts correctly as text
+            + " venue_address VARCHAR(1000),"
+            + " theme_description VARCHAR(1000),"
+            + " num_guests INT NOT NULL,"
+            + " selected_package_id INT REFERENCES packages (package_id),"
+            + " base_package_cost DOUBLE NOT NULL,"
+            + " additional_items_cost DOUBLE NOT NULL,"
+            + " total_cost DOUBLE NOT NULL,"
+            + " custom_requests VARCHAR(4000),"
+            + " booking_status VARCHAR(50),"
+            + " version BIGINT NOT NULL DEFAULT 0)",
+        "CREATE TABLE booking_items ("
+            + " booking_item_id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,"
+            + " booking_id INT NOT NULL REFERENCES bookings (booking_id) ON DELETE CASCADE,"
+            + " item_id INT NOT NULL REFERENCES menu_items (item_id),"
+            + " quantity INT NOT NULL,"
+            + " calculated_item_cost DOUBLE NOT NULL)",
+        "CREATE INDEX bookings_event_date ON bookings (event_date, event_time)",
+        "CREATE INDEX bookings_package ON bookings (selected_package_id)",
+        "CREATE INDEX booking_items_booking ON booking_items (booking_id)",
+    };
+
+    private static final String PACKAGE_COLUMNS =
+        "package_id, name, description, price, capacity, included_items_desc, is_active, version";
+    private static final String MENU_ITEM_COLUMNS =
+        "item_id, name, description, cost_per_unit, unit_type, is_active";
+    private static final String BOOKING_COLUMNS =
+        "booking_id, customer_name, customer_contact, event_date, event_time, venue_address, theme_description,"
+        + " num_guests, selected_package_id, base_package_cost, additional_items_cost, total_cost,"
+        + " custom_requests, booking_status, version";
+
+    private static final String INSERT_PACKAGE =
+        "INSERT INTO packages (name, description, price, capacity, included_items_desc, is_active, version) VALUES (?, ?, ?, ?, ?, ?, 1)";
+    private static final String UPDATE_PACKAGE =
+        "UPDATE packages SET name = ?, description = ?, price = ?, capacity = ?, included_items_desc = ?, is_active = ?,"
+        + " version = version + 1 WHERE package_id = ?";
+    private static final String UPDATE_PACKAGE_IF_VERSION = UPDATE_PACKAGE + " AND version = ?";
+    private static final String SELECT_PACKAGE_VERSION = "SELECT version FROM packages WHERE package_id = ?";
+    private static final String INSERT_MENU_ITEM =
+        "INSERT INTO menu_items (name, description, cost_per_unit, unit_type, is_active) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_BOOKING =
+        "INSERT INTO bookings (customer_name, customer_contact, event_date, event_time, venue_address, theme_description,"
+        + " num_guests, selected_package_id, base_package_cost, additional_items_cost, total_cost, custom_requests,"
+        + " booking_status, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)";
+    private static final String UPDATE_BOOKING =
+        "UPDATE bookings SET customer_name = ?, customer_contact = ?, event_date = ?, event_time = ?, venue_address = ?,"
+        + " theme_description = ?, num_guests = ?, selected_package_id = ?, base_package_cost = ?,"
+        + " additional_items_cost = ?, total_cost = ?, custom_requests = ?, booking_status = ?,"
+        + " version = version + 1 WHERE booking_id = ?";
+    private static final String UPDATE_BOOKING_IF_VERSION = UPDATE_BOOKING + " AND version = ?";
+    private static final String SELECT_BOOKING_VERSION = "SELECT version FROM bookings WHERE booking_id = ?";
+    private static final String UPDATE_BOOKING_COSTS =
+        "UPDATE bookings SET base_package_cost = ?, additional_items_cost = ?, total_cost = ?, version = version + 1"
+        + " WHERE booking_id = ? AND version = ?";
+    private static final String UPDATE_BOOKING_ITEM_COST =
+        "UPDATE booking_items SET calculated_item_cost = ? WHERE booking_item_id = ? AND booking_id = ?";
+    private static final String INSERT_BOOKING_ITEM =
+        "INSERT INTO booking_items (booking_id, item_id, quantity, calculated_item_cost) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_BOOKING_ITEM =
+        "UPDATE booking_items SET item_id = ?, quantity = ?, calculated_item_cost = ?"
+        + " WHERE booking_item_id = ? AND booking_id = ?";
+    private static final String DELETE_BOOKING_ITEM =
+        "DELETE FROM booking_items WHERE booking_item_id = ? AND booking_id = ?";
+    private static final String SELECT_BOOKING_ITEM_IDS = "SELECT booking_item_id FROM booking_items WHERE booking_id = ?";
+    private static final String SELECT_BOOKING_ITEMS =
+        "SELECT booking_item_id, booking_id, item_id, quantity, calculated_item_cost FROM booking_items"
+        + " WHERE booking_id = ? ORDER BY booking_item_id";
+
+    private static final int MAX_TRANSACTION_ATTEMPTS = 5;
+    private static final int STREAM_FETCH_SIZE = 256;
+    private static final int BULK_BATCH_SIZE = 1_000;
+
+    private final String url;
+    private final ConnectionPool pool;
+    // Built from the table at startup, then kept in step by saveBooking/deleteBooking; the database
+    // has no text index of its own, and LIKE '%word%' would scan every row
+    private final BookingSearchIndex searchIndex = new BookingSearchIndex();
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(ConnectionPool.PooledConnection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Connects to the database and creates the schema if it does not exist yet.
+     * @throws IllegalStateException if the database cannot be opened or initialized
+     */
+    public DatabaseManager(String url, int maxConnections) {
+        this.url = Objects.requireNonNull(url, "JDBC URL cannot be null");
+        this.pool = new ConnectionPool(url, maxConnections);
+        try {
+            inTransaction(this::createSchemaIfMissing);
+            withConnection(this::loadSearchIndex);
+        } catch (SQLException e) {
+            pool.close();
+            throw new IllegalStateException("Could not initialize database at " + url, e);
+        }
+    }
+
+    private Void loadSearchIndex(ConnectionPool.PooledConnection connection) throws SQLException {
+        PreparedStatement statement = connection.prepare("SELECT booking_id, version, customer_name, venue_address,"
+                + " theme_description, custom_requests FROM bookings");
+        statement.setFetchSize(STREAM_FETCH_SIZE);
+        try (ResultSet rs = statement.executeQuery()) {
+            Booking text = new Booking();
+            while (rs.next()) {
+                text.setCustomerName(rs.getString("customer_name"));
+                text.setVenueAddress(rs.getString("venue_address"));
+                text.setThemeDescription(rs.getString("theme_description"));
+                text.setCustomRequests(rs.getString("custom_requests"));
+                searchIndex.update(rs.getInt("booking_id"), rs.getLong("version"), text);
+            }
+        }
+        LOGGER.log(Level.INFO, "Search index built for {0} bookings", searchIndex.size());
+        return null;
+    }
+
+    // --- Connection handling ---
+
+    private <T> T withConnection(SqlWork<T> work) throws SQLException {
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            try {
+                return work.run(connection);
+            } catch (SQLException e) {
+                if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+                    connection.discard(); // Connection-level failure: don't pool it again
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Runs the work in one transaction; returning the connection to the pool rolls back on failure.
+    // Transactions the database rolled back itself (deadlock, lock timeout) are retried.
+    private <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return withConnection(connection -> {
+                    connection.beginTransaction();
+                    T result = work.run(connection);
+                    connection.commit();
+                    return result;
+                });
+            } catch (SQLException e) {
+                if (attempt >= MAX_TRANSACTION_ATTEMPTS || !isTransactionRollback(e)) {
+                    throw e;
+                }
+                LOGGER.log(Level.FINE, "Transaction rolled back by the database; retrying (attempt {0})", attempt);
+            }
+        }
+    }
+
+    // SQLState class 40 = transaction rollback; batch failures may carry it on a cause
+    private static boolean isTransactionRollback(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String state = cause instanceof SQLException ? ((SQLException) cause).getSQLState() : null;
+            if (state != null && state.startsWith("40")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Closes pooled connections and, for embedded Derby, shuts the database down cleanly. */
+    public void close() {
+        pool.close();
+        if (url.startsWith("jdbc:derby:")) {
+            int attributes = url.indexOf(';');
+            String database = attributes >= 0 ? url.substring(0, attributes) : url;
+            try {
+                DriverManager.getConnection(database + ";shutdown=true").close();
+            } catch (SQLException e) {
+                // Derby reports a successful shutdown as SQLState 08006
+                if (!"08006".equals(e.getSQLState())) {
+                    LOGGER.log(Level.WARNING, "Error shutting down database " + database, e);
+                }
+            }
+        }
+    }
+
+    private Boolean createSchemaIfMissing(ConnectionPool.PooledConnection connection) throws SQLException {
+        Connection jdbc = connection.connection;
+        try (ResultSet tables = jdbc.getMetaData().getTables(null, null, "BOOKINGS", new String[]{"TABLE"})) {
+            if (tables.next()) {
+                addVersionColumns(jdbc);
+                return false;
+            }
+        }
+        LOGGER.log(Level.INFO, "Creating schema in {0}", url);
+        try (Statement statement = jdbc.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.executeUpdate(ddl);
+            }
+        }
+        seedCatalog(connection);
+        return true;
+    }
+
+    // Databases created before packages and bookings had versions get the column added in place
+    private void addVersionColumns(Connection jdbc) throws SQLException {
+        for (String table : new String[]{"PACKAGES", "BOOKINGS"}) {
+            try (ResultSet columns = jdbc.getMetaData().getColumns(null, null, table, "VERSION")) {
+                if (columns.next()) {
+                    continue;
+                }
+            }
+            LOGGER.log(Level.INFO, "Adding version column to {0}", table);
+            try (Statement statement = jdbc.createStatement()) {
+                statement.executeUpdate("ALTER TABLE " + table + " ADD COLUMN version BIGINT NOT NULL DEFAULT 0");
+            }
+        }
+    }
+
+    // The application has no screen for editing menu items yet, so a new database starts with a catalog
+    private void seedCatalog(ConnectionPool.PooledConnection connection) throws SQLException {
+        PreparedStatement items = connection.prepare(INSERT_MENU_ITEM);
+        addMenuItem(items, "Steamed Rice", "Fluffy white steamed rice.", 50.0, "per_person", true);
+        addMenuItem(items, "Lechon Belly (Small)", "Crispy roasted pork belly, good for 15-20 pax.", 4500.0, "fixed", true);
+        addMenuItem(items, "Beef Caldereta", "Classic beef stew in tomato sauce, good for 20-25 pax.", 3000.0, "per_tray", true);
+        addMenuItem(items, "Iced Tea (Pitcher)", "Standard house blend iced tea.", 150.0, "fixed", true);
+        addMenuItem(items, "Fruit Salad", "Creamy mixed fruit salad.", 1000.0, "per_tray", false);
+        items.executeBatch();
+
+        PreparedStatement packages = connection.prepare(INSERT_PACKAGE);
+        addPackage(packages, "Basic Birthday Bash", "A simple package perfect for small birthday celebrations.",
+                7500.0, 50, "Rice, Beef Caldereta, 1 Pitcher Iced Tea", true);
+        addPackage(packages, "Fiesta Feast", "A more complete package for larger gatherings.",
+                15000.0, 100, "Rice, Lechon Belly (Small), Beef Caldereta, 2 Pitchers Iced Tea", true);
+        addPackage(packages, "Grand Celebration (Old)", "Previous premium package.",
+                25000.0, 150, "Extensive menu, contact for details.", false);
+        packages.executeBatch();
+    }
+
+    private static void addMenuItem(PreparedStatement statement, String name, String description,
+                                    double costPerUnit, String unitType, boolean active) throws SQLException {
+        bindMenuItem(statement, name, description, costPerUnit, unitType, active);
+        statement.addBatch();
+    }
+
+    private static void bindMenuItem(PreparedStatement statement, String name, String description,
+                                     double costPerUnit, String unitType, boolean active) throws SQLException {
+        statement.setString(1, name);
+        statement.setString(2, description);
+        statement.setDouble(3, costPerUnit);
+        statement.setString(4, unitType);
+        statement.setBoolean(5, active);
+    }
+
+    private static void addPackage(PreparedStatement statement, String name, String description, double price,
+                                   int capacity, String includedItems, boolean active) throws SQLException {
+        bindPackage(statement, name, description, price, capacity, includedItems, active);
+        statement.addBatch();
+    }
+
+    private static void bindPackage(PreparedStatement statement, String name, String description, double price,
+                                    int capacity, String includedItems, boolean active) throws SQLException {
+        statement.setString(1, name);
+        statement.setString(2, description);
+        statement.setDouble(3, price);
+        statement.setInt(4, capacity);
+        statement.setString(5, includedItems);
+        statement.setBoolean(6, active);
+    }
+
+    // --- Package Methods ---
+    @Override
+    public List<Package> getAllPackages(boolean includeInactive) {
+        LOGGER.log(Level.INFO, "Fetching all packages (Include Inactive: {0})", includeInactive);
+        String sql = "SELECT " + PACKAGE_COLUMNS + " FROM packages"
+                + (includeInactive ? "" : " WHERE is_active = TRUE") + " ORDER BY LOWER(name)";
+        try {
+            return withConnection(connection -> {
+                List<Package> result = new ArrayList<>();
+                try (ResultSet rs = connection.prepare(sql).executeQuery()) {
+                    while (rs.next()) {
+                        result.add(mapPackage(rs));
+                    }
+                }
+                return result;
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching packages", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public Page<Package> getPackagesPage(boolean includeInactive, int pageSize, String cursor) {
+        Page.checkSize(pageSize);
+        PageCursor after = cursor != null ? PageCursor.parseName(cursor) : null;
+        List<Package> rows = fetchByName("packages", PACKAGE_COLUMNS, "package_id", includeInactive, after, pageSize + 1,
+                DatabaseManager::mapPackage);
+        return Page.of(rows, pageSize, p -> PageCursor.afterName(p.getName(), p.getPackageId()));
+    }
+
+    @Override
+    public SaveResult savePackage(Package pkg, long expectedVersion) {
+        Objects.requireNonNull(pkg, "Package cannot be null");
+        boolean isNew = pkg.getPackageId() <= 0;
+        boolean checked = !isNew && expectedVersion != ANY_VERSION;
+        try {
+            SaveResult result = inTransaction(connection -> {
+                PreparedStatement statement = isNew
+                        ? connection.prepareReturningKeys(INSERT_PACKAGE)
+                        : connection.prepare(checked ? UPDATE_PACKAGE_IF_VERSION : UPDATE_PACKAGE);
+                statement.setString(1, pkg.getName());
+                statement.setString(2, pkg.getDescription());
+                statement.setDouble(3, pkg.getPrice());
+                statement.setInt(4, pkg.getCapacity());
+                statement.setString(5, pkg.getIncludedItemsDesc());
+                statement.setBoolean(6, pkg.isActive());
+                if (!isNew) {
+                    statement.setInt(7, pkg.getPackageId());
+                }
+                if (checked) {
+                    statement.setLong(8, expectedVersion);
+                }
+                if (statement.executeUpdate() == 0) {
+                    return rejectedSave(connection, SELECT_PACKAGE_VERSION, pkg.getPackageId());
+                }
+                int id = isNew ? generatedKey(statement) : pkg.getPackageId();
+                return SaveResult.saved(id, isNew ? 1 : currentVersion(connection, SELECT_PACKAGE_VERSION, id));
+            });
+            if (result.isSaved()) {
+                pkg.setPackageId(result.getId());
+                pkg.setVersion(result.getVersion());
+                LOGGER.log(Level.INFO, "Saved package with ID: {0}", pkg.getPackageId());
+            } else {
+                LOGGER.log(Level.WARNING, "Package {0} not saved: {1}", new Object[]{pkg.getPackageId(), result});
+            }
+            return result;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, isNew ? "Error inserting package" : "Error updating package", e);
+            return SaveResult.failed(pkg.getPackageId());
+        }
+    }
+
+    // A versioned update matched no row: the entity is gone, or someone saved a newer version
+    private static SaveResult rejectedSave(ConnectionPool.PooledConnection connection, String versionSql, int id) throws SQLException {
+        Long stored = currentVersion(connection, versionSql, id);
+        return stored == null ? SaveResult.notFound(id) : SaveResult.conflict(id, stored);
+    }
+
+    private static Long currentVersion(ConnectionPool.PooledConnection connection, String versionSql, int id) throws SQLException {
+        PreparedStatement statement = connection.prepare(versionSql);
+        statement.setInt(1, id);
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : null;
+        }
+    }
+
+    @Override
+    public boolean deletePackage(int packageId) {
+        LOGGER.log(Level.INFO, "Attempting to delete package with ID: {0}", packageId);
+        try {
+            // The foreign key from bookings makes "delete unless in use" a single atomic statement
+            boolean deleted = withConnection(connection -> {
+                PreparedStatement statement = connection.prepare("DELETE FROM packages WHERE package_id = ?");
+                statement.setInt(1, packageId);
+                return statement.executeUpdate() > 0;
+            });
+            if (!deleted) {
+                LOGGER.log(Level.WARNING, "Package not found for deletion: {0}", packageId);
+            }
+            return deleted;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            LOGGER.log(Level.WARNING, "Package ID {0} is in use. Marked as inactive instead of deleting.", packageId);
+            return setPackageActiveStatus(packageId, false);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error deleting package with ID: " + packageId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean setPackageActiveStatus(int packageId, boolean isActive) {
+        try {
+            boolean updated = withConnection(connection -> {
+                PreparedStatement statement = connection.prepare(
+                        "UPDATE packages SET is_active = ?, version = version + 1 WHERE package_id = ?");
+                statement.setBoolean(1, isActive);
+                statement.setInt(2, packageId);
+                return statement.executeUpdate() > 0;
+            });
+            if (!updated) {
+                LOGGER.log(Level.WARNING, "Package not found for status update: {0}", packageId);
+            }
+            return updated;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error updating package active status for ID: " + packageId, e);
+            return false;
+        }
+    }
+
+    // --- Booking Methods ---
+    @Override
+    public SaveResult saveBooking(Booking booking, List<BookingItem> itemsToSave, long expectedVersion) {
+        Objects.requireNonNull(booking, "Booking cannot be null");
+        boolean isNew = booking.getBookingId() <= 0;
+        long checkedVersion = isNew ? ANY_VERSION : expectedVersion;
+        List<BookingItem> items = new ArrayList<>();
+        if (itemsToSave != null) {
+            items.addAll(itemsToSave); // Items are immutable, so a snapshot of the list is enough
+        }
+
+        try {
+            SaveResult result = inTransaction(connection -> {
+                int id = writeBookingRow(connection, booking, isNew, checkedVersion);
+                if (id == 0) {
+                    return rejectedSave(connection, SELECT_BOOKING_VERSION, booking.getBookingId());
+                }
+                writeBookingItems(connection, id, isNew, items);
+                return SaveResult.saved(id, isNew ? 1 : currentVersion(connection, SELECT_BOOKING_VERSION, id));
+            });
+            if (!result.isSaved()) {
+                LOGGER.log(Level.WARNING, "Booking {0} not saved: {1}", new Object[]{booking.getBookingId(), result});
+                return result;
+            }
+            searchIndex.update(result.getId(), result.getVersion(), booking);
+            if (!booking.isFrozen()) {
+                booking.setBookingId(result.getId());
+                booking.setVersion(result.getVersion());
+            }
+            LOGGER.log(Level.INFO, "Booking saved successfully with ID: {0}", result.getId());
+            return result;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Booking save failed, transaction rolled back.", e);
+            return SaveResult.failed(booking.getBookingId());
+        }
+    }
+
+    /**
+     * Updates the booking's existing item rows in place, so their IDs stay stable for
+     * {@link #saveBookingCosts}; inserts the new ones and deletes those no longer listed, each
+     * kind in one batch.
+     */
+    private static void writeBookingItems(ConnectionPool.PooledConnection connection, int bookingId, boolean isNew,
+                                          List<BookingItem> items) throws SQLException {
+        Set<Integer> stored = new HashSet<>();
+        if (!isNew) {
+            PreparedStatement select = connection.prepare(SELECT_BOOKING_ITEM_IDS);
+            select.setInt(1, bookingId);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    stored.add(rs.getInt(1));
+                }
+            }
+        }
+        PreparedStatement update = null;
+        PreparedStatement insert = null;
+        for (BookingItem item : items) {
+            if (stored.remove(item.getBookingItemId())) {
+                if (update == null) {
+                    update = connection.prepare(UPDATE_BOOKING_ITEM);
+                }
+                update.setInt(1, item.getItemId());
+                update.setInt(2, item.getQuantity());
+                update.setDouble(3, item.getCalculatedItemCost());
+                update.setInt(4, item.getBookingItemId());
+                update.setInt(5, bookingId);
+                update.addBatch();
+            } else { // New, or copied from another booking
+                if (insert == null) {
+                    insert = connection.prepare(INSERT_BOOKING_ITEM);
+                }
+                insert.setInt(1, bookingId);
+                insert.setInt(2, item.getItemId());
+                insert.setInt(3, item.getQuantity());
+                insert.setDouble(4, item.getCalculatedItemCost());
+                insert.addBatch();
+            }
+        }
+        if (!stored.isEmpty()) {
+            PreparedStatement delete = connection.prepare(DELETE_BOOKING_ITEM);
+            for (int removed : stored) {
+                delete.setInt(1, removed);
+                delete.setInt(2, bookingId);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        }
+        if (update != null) {
+            update.executeBatch();
+        }
+        if (insert != null) {
+            insert.executeBatch();
+        }
+    }
+
+    // Returns the booking ID, or 0 if an update matched no row (booking gone or version stale)
+    private int writeBookingRow(ConnectionPool.PooledConnection connection, Booking booking, boolean isNew,
+                                long expectedVersion) throws SQLException {
+        boolean checked = expectedVersion != ANY_VERSION;
+        PreparedStatement statement = isNew
+                ? connection.prepareReturningKeys(INSERT_BOOKING)
+                : connection.prepare(checked ? UPDATE_BOOKING_IF_VERSION : UPDATE_BOOKING);
+        statement.setString(1, booking.getCustomerName());
+        statement.setString(2, booking.getCustomerContact());
+        if (booking.getEventDate() != null) {
+            statement.setDate(3, java.sql.Date.valueOf(booking.getEventDate()));
+        } else {
+            statement.setNull(3, Types.DATE);
+        }
+        statement.setString(4, booking.getEventTime());
+        statement.setString(5, booking.getVenueAddress());
+        statement.setString(6, booking.getThemeDescription());
+        statement.setInt(7, booking.getNumGuests());
+        if (booking.getSelectedPackageId() != null) {
+            statement.setInt(8, booking.getSelectedPackageId());
+        } else {
+            statement.setNull(8, Types.INTEGER);
+        }
+        statement.setDouble(9, booking.getBasePackageCost());
+        statement.setDouble(10, booking.getAdditionalItemsCost());
+        statement.setDouble(11, booking.getTotalCost());
+        statement.setString(12, booking.getCustomRequests());
+        statement.setString(13, booking.getBookingStatus());
+        if (!isNew) {
+            statement.setInt(14, booking.getBookingId());
+        }
+        if (checked) {
+            statement.setLong(15, expectedVersion);
+        }
+        if (statement.executeUpdate() == 0) {
+            return 0;
+        }
+        return isNew ? generatedKey(statement) : booking.getBookingId();
+    }
+
+    @Override
+    public boolean updateBooking(Booking booking, List<BookingItem> items) {
+        if (booking == null || booking.getBookingId() <= 0) {
+            LOGGER.warning("updateBooking called with invalid booking data.");
+            return false;
+        }
+        return saveBooking(booking, items);
+    }
+
+    @Override
+    public boolean deleteBooking(int bookingId) {
+        LOGGER.log(Level.INFO, "Attempting to delete booking with ID: {0}", bookingId);
+        try {
+            // Items go with it (ON DELETE CASCADE)
+            boolean deleted = withConnection(connection -> {
+                PreparedStatement statement = connection.prepare("DELETE FROM bookings WHERE booking_id = ?");
+                statement.setInt(1, bookingId);
+                return statement.executeUpdate() > 0;
+            });
+            if (deleted) {
+                searchIndex.remove(bookingId);
+            } else {
+                LOGGER.log(Level.WARNING, "Booking not found for deletion: {0}", bookingId);
+            }
+            return deleted;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error deleting booking with ID: " + bookingId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public Booking getBookingById(int bookingId) {
+        LOGGER.log(Level.INFO, "Fetching booking with ID: {0}", bookingId);
+        try {
+            return withConnection(connection -> {
+                List<Booking> found = queryBookings(connection,
+                        "SELECT " + BOOKING_COLUMNS + " FROM bookings WHERE booking_id = ?", bookingId);
+                if (found.isEmpty()) {
+                    LOGGER.log(Level.WARNING, "Booking not found for ID: {0}", bookingId);
+                    return null;
+                }
+                Booking booking = found.get(0);
+                booking.setBookingItems(queryBookingItems(connection, bookingId));
+                return booking;
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching booking with ID: " + bookingId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public List<Booking> getAllBookings() {
+        LOGGER.info("Fetching all bookings");
+        return fetchBookings("all bookings", "SELECT " + BOOKING_COLUMNS + " FROM bookings"
+                + " ORDER BY event_date DESC NULLS LAST, event_time DESC NULLS LAST, booking_id DESC");
+    }
+
+    @Override
+    public List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        Objects.requireNonNull(from, "From date cannot be null");
+        Objects.requireNonNull(to, "To date cannot be null");
+        LOGGER.log(Level.INFO, "Fetching bookings between {0} and {1}", new Object[]{from, to});
+        return fetchBookings("bookings by date", "SELECT " + BOOKING_COLUMNS + " FROM bookings"
+                + " WHERE event_date BETWEEN ? AND ? ORDER BY event_date, event_time NULLS LAST, booking_id",
+                java.sql.Date.valueOf(from), java.sql.Date.valueOf(to));
+    }
+
+    @Override
+    public List<Booking> getUpcoming(int limit) {
+        LOGGER.log(Level.INFO, "Fetching next {0} upcoming bookings", limit);
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        return fetchBookings("upcoming bookings", "SELECT " + BOOKING_COLUMNS + " FROM bookings"
+                + " WHERE event_date >= ? ORDER BY event_date, event_time NULLS LAST, booking_id FETCH FIRST ? ROWS ONLY",
+                java.sql.Date.valueOf(LocalDate.now()), limit);
+    }
+
+    @Override
+    public List<Booking> getBookingsForPackage(int packageId) {
+        LOGGER.log(Level.INFO, "Fetching bookings for package ID: {0}", packageId);
+        return fetchBookings("bookings for package", "SELECT " + BOOKING_COLUMNS + " FROM bookings"
+                + " WHERE selected_package_id = ? ORDER BY event_date, event_time NULLS LAST, booking_id", packageId);
+    }
+
+    // Statuses are matched the way BookingStatusSummary normalizes them
+    @Override
+    public List<Integer> getPendingBookingIdsForPackage(int packageId) {
+        return fetchIds("pending bookings for package", "SELECT booking_id FROM bookings"
+                + " WHERE selected_package_id = ? AND LOWER(TRIM(booking_status)) = 'pending'", packageId);
+    }
+
+    // booking_items.item_id is a foreign key, so Derby keeps an index on it for this lookup
+    @Override
+    public List<Integer> getPendingBookingIdsForMenuItem(int itemId) {
+        return fetchIds("pending bookings for menu item", "SELECT DISTINCT i.booking_id FROM booking_items i"
+                + " JOIN bookings b ON b.booking_id = i.booking_id WHERE i.item_id = ? AND LOWER(TRIM(b.booking_status)) = 'pending'", itemId);
+    }
+
+    /** One transaction per batch: all of the batch's changes commit together or not at all. */
+    @Override
+    public int saveBookingCosts(List<Booking> repriced) {
+        if (repriced.isEmpty()) {
+            return 0;
+        }
+        try {
+            int applied = inTransaction(connection -> {
+                PreparedStatement update = connection.prepare(UPDATE_BOOKING_COSTS);
+                for (Booking booking : repriced) {
+                    update.setDouble(1, booking.getBasePackageCost());
+                    update.setDouble(2, booking.getAdditionalItemsCost());
+                    update.setDouble(3, booking.getTotalCost());
+                    update.setInt(4, booking.getBookingId());
+                    update.setLong(5, booking.getVersion());
+                    update.addBatch();
+                }
+                int[] counts = update.executeBatch();
+
+                // Line costs only for the bookings whose version still matched
+                PreparedStatement lines = connection.prepare(UPDATE_BOOKING_ITEM_COST);
+                int updated = 0;
+                boolean anyLines = false;
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] <= 0) {
+                        continue;
+                    }
+                    updated++;
+                    Booking booking = repriced.get(i);
+                    for (BookingItem item : booking.getBookingItems()) {
+                        lines.setDouble(1, item.getCalculatedItemCost());
+                        lines.setInt(2, item.getBookingItemId());
+                        lines.setInt(3, booking.getBookingId());
+                        lines.addBatch();
+                        anyLines = true;
+                    }
+                }
+                if (anyLines) {
+                    lines.executeBatch();
+                }
+                return updated;
+            });
+            LOGGER.log(Level.INFO, "Repriced {0} of {1} bookings", new Object[]{applied, repriced.size()});
+            return applied;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Saving repriced booking costs failed, transaction rolled back.", e);
+            return 0;
+        }
+    }
+
+    private List<Integer> fetchIds(String description, String sql, Object... parameters) {
+        try {
+            return withConnection(connection -> {
+                PreparedStatement statement = connection.prepare(sql);
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                List<Integer> ids = new ArrayList<>();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+                return ids;
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching " + description, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /** Keyset paging: each page seeks past the cursor on the event-date index rather than using OFFSET. */
+    @Override
+    public Page<Booking> getBookingsPage(BookingSort sort, int pageSize, String cursor) {
+        Objects.requireNonNull(sort, "Sort cannot be null");
+        Page.checkSize(pageSize);
+        boolean ascending = sort == BookingSort.EVENT_DATE_ASC;
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + BOOKING_COLUMNS + " FROM bookings");
+        if (cursor != null) {
+            sql.append(" WHERE ").append(afterPosition(PageCursor.parse(cursor, sort), ascending, parameters));
+        }
+        sql.append(ascending
+                ? " ORDER BY event_date ASC NULLS FIRST, event_time ASC NULLS LAST, booking_id ASC"
+                : " ORDER BY event_date DESC NULLS LAST, event_time DESC NULLS LAST, booking_id DESC");
+        sql.append(" FETCH FIRST ? ROWS ONLY");
+        parameters.add(pageSize + 1);
+        List<Booking> rows = fetchBookings("booking page", sql.toString(), parameters.toArray());
+        return Page.of(rows, pageSize, last -> PageCursor.after(sort, last));
+    }
+
+    // Condition for rows strictly after the cursor in the page order (see BookingSort); undated
+    // bookings are ordered among themselves like the bookings of one day. The cursor's shape picks
+    // one of a few fixed statements, so they stay in the statement cache
+    private static String afterPosition(PageCursor after, boolean ascending, List<Object> parameters) {
+        boolean dated = after.getEventDate() != null;
+        if (dated) {
+            java.sql.Date date = java.sql.Date.valueOf(after.getEventDate());
+            parameters.add(date);
+            parameters.add(date);
+            parameters.add(date);
+        }
+        String sameDay;
+        if (after.getEventTime() != null) {
+            parameters.add(after.getEventTime());
+            parameters.add(after.getEventTime());
+            sameDay = ascending
+                    ? "(event_time > ? OR event_time IS NULL OR (event_time = ? AND booking_id > ?))"
+                    : "(event_time < ? OR event_time IS NULL OR (event_time = ? AND booking_id < ?))";
+        } else {
+            sameDay = ascending
+                    ? "(event_time IS NULL AND booking_id > ?)"
+                    : "(event_time IS NULL AND booking_id < ?)";
+        }
+        parameters.add(after.getId());
+        if (!dated) {
+            return ascending
+                    ? "(event_date IS NOT NULL OR (event_date IS NULL AND " + sameDay + "))"
+                    : "(event_date IS NULL AND " + sameDay + ")";
+        }
+        return ascending
+                ? "(event_date >= ? AND (event_date > ? OR (event_date = ? AND " + sameDay + ")))"
+                : "(event_date IS NULL OR (event_date <= ? AND (event_date < ? OR (event_date = ? AND " + sameDay + "))))";
+    }
+
+    @Override
+    public BookingStatusSummary getStatusSummary() {
+        try {
+            return withConnection(connection -> {
+                BookingStatusSummary.Builder summary = BookingStatusSummary.builder();
+                PreparedStatement statement = connection.prepare(
+                        "SELECT booking_status, COUNT(*), SUM(total_cost) FROM bookings GROUP BY booking_status");
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        summary.add(rs.getString(1), rs.getLong(2), rs.getDouble(3));
+                    }
+                }
+                return summary.build();
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching booking status summary", e);
+            return BookingStatusSummary.builder().build();
+        }
+    }
+
+    @Override
+    public BookingTotals getBookingTotals(LocalDate from, LocalDate to) {
+        LOGGER.log(Level.INFO, "Computing booking totals from {0} to {1}", new Object[]{from, to});
+        // Comparisons with a NULL date are never true, so a bound also leaves undated bookings out
+        String sql = "SELECT booking_status, selected_package_id, COUNT(*), SUM(CAST(num_guests AS BIGINT)),"
+                + " SUM(total_cost), SUM(additional_items_cost) FROM bookings"
+                + (from != null && to != null ? " WHERE event_date BETWEEN ? AND ?"
+                        : from != null ? " WHERE event_date >= ?" : to != null ? " WHERE event_date <= ?" : "")
+                + " GROUP BY booking_status, selected_package_id";
+        try {
+            return withConnection(connection -> {
+                PreparedStatement statement = connection.prepare(sql);
+                int parameter = 1;
+                if (from != null) {
+                    statement.setDate(parameter++, java.sql.Date.valueOf(from));
+                }
+                if (to != null) {
+                    statement.setDate(parameter, java.sql.Date.valueOf(to));
+                }
+                BookingTotals.Builder totals = BookingTotals.builder();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        int packageId = rs.getInt(2);
+                        Integer pkg = rs.wasNull() ? null : packageId;
+                        totals.add(rs.getString(1), pkg, rs.getLong(3), rs.getLong(4), rs.getDouble(5), rs.getDouble(6));
+                    }
+                }
+                return totals.build();
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error computing booking totals", e);
+            return BookingTotals.builder().build();
+        }
+    }
+
+    /**
+     * Streams rows straight from an open result set, fetched {@value #STREAM_FETCH_SIZE} at a
+     * time, so memory stays flat however many bookings there are. The stream keeps its pooled
+     * connection until closed. Parallel streams split it into batches for other threads.
+     */
+    @Override
+    public Stream<Booking> streamBookings(Predicate<? super Booking> filter) {
+        Stream<Booking> stream = openBookingStream("SELECT " + BOOKING_COLUMNS + " FROM bookings ORDER BY booking_id", null);
+        return filter != null ? stream.filter(filter) : stream;
+    }
+
+    /**
+     * Bookings and their items come from two result sets on the one connection, both in booking ID
+     * order, merged as they are read; so no more than one booking's items are held at a time.
+     */
+    @Override
+    public Stream<Booking> streamBookingsWithItems(LocalDate from, LocalDate to) {
+        StringBuilder where = new StringBuilder();
+        List<Object> parameters = new ArrayList<>(2);
+        if (from != null) {
+            where.append(" WHERE b.event_date >= ?");
+            parameters.add(java.sql.Date.valueOf(from));
+        }
+        if (to != null) {
+            where.append(from != null ? " AND" : " WHERE").append(" b.event_date <= ?");
+            parameters.add(java.sql.Date.valueOf(to));
+        }
+        return openBookingStream("SELECT " + BOOKING_COLUMNS + " FROM bookings b" + where + " ORDER BY b.booking_id",
+                "SELECT i.booking_item_id, i.booking_id, i.item_id, i.quantity, i.calculated_item_cost"
+                        + " FROM booking_items i JOIN bookings b ON b.booking_id = i.booking_id" + where
+                        + " ORDER BY i.booking_id, i.booking_item_id",
+                parameters.toArray());
+    }
+
+    // itemSql is null for bookings without items; both queries take the same parameters
+    private Stream<Booking> openBookingStream(String bookingSql, String itemSql, Object... parameters) {
+        ConnectionPool.PooledConnection connection;
+        try {
+            connection = pool.borrow();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error opening booking stream", e);
+            return Stream.empty();
+        }
+        List<ResultSet> open = new ArrayList<>(2);
+        Runnable close = () -> {
+            for (ResultSet rs : open) {
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.FINE, "Error closing booking stream", e);
+                }
+            }
+            connection.close();
+        };
+        try {
+            open.add(executeStreaming(connection, bookingSql, parameters));
+            if (itemSql != null) {
+                open.add(executeStreaming(connection, itemSql, parameters));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error opening booking stream", e);
+            close.run();
+            return Stream.empty();
+        }
+        ResultSet items = itemSql != null ? open.get(1) : null;
+        return StreamSupport.stream(new ResultSetSpliterator(connection, open.get(0), items), false).onClose(close);
+    }
+
+    private static ResultSet executeStreaming(ConnectionPool.PooledConnection connection, String sql, Object... parameters) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        statement.setFetchSize(STREAM_FETCH_SIZE);
+        return statement.executeQuery();
+    }
+
+    // Reads one booking per advance and links its package (looked up once per distinct package),
+    // and its items if there is an item result set
+    private final class ResultSetSpliterator extends Spliterators.AbstractSpliterator<Booking> {
+        private final ConnectionPool.PooledConnection connection;
+        private final ResultSet rs;
+        private final ResultSet items;
+        private boolean itemRowRead; // The item cursor is on a row not yet taken
+        private boolean itemsDone;
+        private final Map<Integer, Package> packagesById = new HashMap<>();
+        private final Map<Integer, MenuItem> menuItemsById = new HashMap<>();
+
+        ResultSetSpliterator(ConnectionPool.PooledConnection connection, ResultSet rs, ResultSet items) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.rs = rs;
+            this.items = items;
+            this.itemsDone = items == null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Booking> action) {
+            Booking booking;
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                booking = mapBooking(rs);
+                if (items != null) {
+                    booking.setBookingItems(nextItems(booking.getBookingId()));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error reading booking stream", e);
+            }
+            if (booking.getSelectedPackageId() != null) {
+                booking.setSelectedPackage(packagesById.computeIfAbsent(booking.getSelectedPackageId(),
+                        id -> findPackage(connection, id)));
+            }
+            action.accept(booking);
+            return true;
+        }
+
+        // Takes the item rows up to the booking's ID; rows of bookings added since the booking
+        // query started are skipped
+        private List<BookingItem> nextItems(int bookingId) throws SQLException {
+            List<BookingItem> result = new ArrayList<>();
+            while (!itemsDone) {
+                if (!itemRowRead) {
+                    itemRowRead = items.next();
+                    itemsDone = !itemRowRead;
+                    continue;
+                }
+                int owner = items.getInt("booking_id");
+                if (owner > bookingId) {
+                    break;
+                }
+                if (owner == bookingId) {
+                    int itemId = items.getInt("item_id");
+                    result.add(new BookingItem(items.getInt("booking_item_id"), owner, itemId, items.getInt("quantity"),
+                            items.getDouble("calculated_item_cost"),
+                            menuItemsById.computeIfAbsent(itemId, id -> findMenuItem(connection, id))));
+                }
+                itemRowRead = false;
+            }
+            return result;
+        }
+    }
+
+    // The index picks and ranks the IDs; one IN query loads them, reordered to the ranking
+    @Override
+    public List<Booking> searchBookings(String query, int limit) {
+        List<Integer> ranked = searchIndex.search(query, limit);
+        if (ranked.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + BOOKING_COLUMNS + " FROM bookings WHERE booking_id IN (");
+        for (int i = 0; i < ranked.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        Map<Integer, Booking> byId = new HashMap<>();
+        for (Booking booking : fetchBookings("booking search results", sql.toString(), ranked.toArray())) {
+            byId.put(booking.getBookingId(), booking);
+        }
+        List<Booking> result = new ArrayList<>(ranked.size());
+        for (Integer bookingId : ranked) {
+            Booking booking = byId.get(bookingId);
+            if (booking != null) {
+                result.add(booking); // Missing if deleted since the lookup
+            }
+        }
+        return result;
+    }
+
+    // Runs a booking list query; the result rows are linked to their packages but carry no items
+    private List<Booking> fetchBookings(String description, String sql, Object... parameters) {
+        try {
+            return withConnection(connection -> queryBookings(connection, sql, parameters));
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching " + description, e);
+            return new ArrayList<>();
+        }
+    }
+
+    private List<Booking> queryBookings(ConnectionPool.PooledConnection connection, String sql, Object... parameters) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        List<Booking> result = new ArrayList<>();
+        Map<Integer, Package> packagesById = new HashMap<>();
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                result.add(mapBooking(rs));
+            }
+        }
+        for (Booking booking : result) {
+            if (booking.getSelectedPackageId() != null) {
+                // One lookup per distinct package rather than a join repeated on every row
+                booking.setSelectedPackage(packagesById.computeIfAbsent(booking.getSelectedPackageId(),
+                        id -> findPackage(connection, id)));
+            }
+        }
+        return result;
+    }
+
+    private Package findPackage(ConnectionPool.PooledConnection connection, int packageId) {
+        try {
+            PreparedStatement statement = connection.prepare("SELECT " + PACKAGE_COLUMNS + " FROM packages WHERE package_id = ?");
+            statement.setInt(1, packageId);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? mapPackage(rs) : null;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error fetching package with ID: " + packageId, e);
+            return null;
+        }
+    }
+
+    private List<BookingItem> queryBookingItems(ConnectionPool.PooledConnection connection, int bookingId) throws SQLException {
+        PreparedStatement statement = connection.prepare(SELECT_BOOKING_ITEMS);
+        statement.setInt(1, bookingId);
+        List<BookingItem> items = new ArrayList<>();
+        Map<Integer, MenuItem> menuItemsById = new HashMap<>();
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                items.add(new BookingItem(rs.getInt("booking_item_id"), rs.getInt("booking_id"), rs.getInt("item_id"),
+                        rs.getInt("quantity"), rs.getDouble("calculated_item_cost"), null));
+            }
+        }
+        items.replaceAll(item -> item.withMenuItem(menuItemsById.computeIfAbsent(item.getItemId(), id -> findMenuItem(connection, id))));
+        return items;
+    }
+
+    // --- Menu item Methods ---
+    @Override
+    public List<MenuItem> getAllMenuItems() {
+        return getAllMenuItems(false);
+    }
+
+    @Override
+    public List<MenuItem> getAllMenuItems(boolean includeInactive) {
+        LOGGER.log(Level.INFO, "Fetching all menu items (Include Inactive: {0})", includeInactive);
+        String sql = "SELECT " + MENU_ITEM_COLUMNS + " FROM menu_items"
+                + (includeInactive ? "" : " WHERE is_active = TRUE") + " ORDER BY LOWER(name)";
+        try {
+            return withConnection(connection -> {
+                List<MenuItem> result = new ArrayList<>();
+                try (ResultSet rs = connection.prepare(sql).executeQuery()) {
+                    while (rs.next()) {
+                        result.add(mapMenuItem(rs));
+                    }
+                }
+                return result;
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching menu items", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public Page<MenuItem> getMenuItemsPage(boolean includeInactive, int pageSize, String cursor) {
+        Page.checkSize(pageSize);
+        PageCursor after = cursor != null ? PageCursor.parseName(cursor) : null;
+        List<MenuItem> rows = fetchByName("menu_items", MENU_ITEM_COLUMNS, "item_id", includeInactive, after, pageSize + 1,
+                DatabaseManager::mapMenuItem);
+        return Page.of(rows, pageSize, m -> PageCursor.afterName(m.getName(), m.getItemId()));
+    }
+
+    // Up to `limit` rows of a catalog table after the cursor, in (name, ID) order
+    private <T> List<T> fetchByName(String table, String columns, String idColumn, boolean includeInactive,
+                                    PageCursor after, int limit, RowMapper<T> mapper) {
+        List<String> conditions = new ArrayList<>();
+        if (!includeInactive) {
+            conditions.add("is_active = TRUE");
+        }
+        if (after != null) {
+            conditions.add("(LOWER(name) > LOWER(?) OR (LOWER(name) = LOWER(?) AND " + idColumn + " > ?))");
+        }
+        String sql = "SELECT " + columns + " FROM " + table
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY LOWER(name), " + idColumn + " FETCH FIRST ? ROWS ONLY";
+        try {
+            return withConnection(connection -> {
+                PreparedStatement statement = connection.prepare(sql);
+                int index = 1;
+                if (after != null) {
+                    statement.setString(index++, after.getName());
+                    statement.setString(index++, after.getName());
+                    statement.setInt(index++, after.getId());
+                }
+                statement.setInt(index, limit);
+                List<T> result = new ArrayList<>();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(mapper.map(rs));
+                    }
+                }
+                return result;
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching a page of " + table, e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public MenuItem getMenuItemById(int itemId) {
+        LOGGER.log(Level.INFO, "Fetching menu item with ID: {0}", itemId);
+        try {
+            MenuItem item = withConnection(connection -> findMenuItem(connection, itemId));
+            if (item == null) {
+                LOGGER.log(Level.WARNING, "Menu item not found for ID: {0}", itemId);
+            }
+            return item;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching menu item with ID: " + itemId, e);
+            return null;
+        }
+    }
+
+    private MenuItem findMenuItem(ConnectionPool.PooledConnection connection, int itemId) {
+        try {
+            PreparedStatement statement = connection.prepare("SELECT " + MENU_ITEM_COLUMNS + " FROM menu_items WHERE item_id = ?");
+            statement.setInt(1, itemId);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? mapMenuItem(rs) : null;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error fetching menu item with ID: " + itemId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public List<BookingItem> getBookingItemsForBooking(int bookingId) {
+        LOGGER.log(Level.INFO, "Fetching booking items for booking ID: {0}", bookingId);
+        try {
+            return withConnection(connection -> queryBookingItems(connection, bookingId));
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error fetching booking items for booking ID: " + bookingId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    // --- Bulk loading ---
+
+    /**
+     * Inserts the catalog in one transaction, then the bookings {@value #BULK_BATCH_SIZE} per
+     * transaction with all of a batch's items sent as one JDBC batch. Booking rows still go in one
+     * at a time, since their generated IDs are needed for the item rows.
+     */
+    @Override
+    public BulkLoadResult bulkLoad(List<MenuItem> menuItems, List<Package> packages, Iterator<Booking> bookings) {
+        long start = System.nanoTime();
+        Map<Integer, Integer> menuItemIds = new HashMap<>();
+        Map<Integer, Integer> packageIds = new HashMap<>();
+        int loaded = 0;
+        boolean catalogStored = false;
+        try {
+            inTransaction(connection -> {
+                menuItemIds.clear(); // A retried transaction starts over
+                packageIds.clear();
+                PreparedStatement insertItem = connection.prepareReturningKeys(INSERT_MENU_ITEM);
+                for (MenuItem item : menuItems) {
+                    bindMenuItem(insertItem, item.getName(), item.getDescription(), item.getCostPerUnit(),
+                            item.getUnitType(), item.isActive());
+                    insertItem.executeUpdate();
+                    menuItemIds.put(item.getItemId(), generatedKey(insertItem));
+                }
+                PreparedStatement insertPackage = connection.prepareReturningKeys(INSERT_PACKAGE);
+                for (Package pkg : packages) {
+                    bindPackage(insertPackage, pkg.getName(), pkg.getDescription(), pkg.getPrice(), pkg.getCapacity(),
+                            pkg.getIncludedItemsDesc(), pkg.isActive());
+                    insertPackage.executeUpdate();
+                    packageIds.put(pkg.getPackageId(), generatedKey(insertPackage));
+                }
+                return null;
+            });
+            catalogStored = true;
+
+            List<Booking> batch = new ArrayList<>(BULK_BATCH_SIZE);
+            while (bookings.hasNext()) {
+                Booking row = bookings.next().copy();
+                if (row.getSelectedPackageId() != null) {
+                    row.setSelectedPackageId(packageIds.getOrDefault(row.getSelectedPackageId(), row.getSelectedPackageId()));
+                }
+                batch.add(row);
+                if (batch.size() == BULK_BATCH_SIZE || !bookings.hasNext()) {
+                    int[] ids = inTransaction(connection -> insertBookings(connection, batch, menuItemIds));
+                    for (int i = 0; i < ids.length; i++) {
+                        searchIndex.update(ids[i], 1, batch.get(i));
+                    }
+                    loaded += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Bulk load failed after " + loaded + " bookings", e);
+            return catalogStored ? new BulkLoadResult(menuItems.size(), packages.size(), loaded) : new BulkLoadResult(0, 0, 0);
+        }
+        LOGGER.log(Level.INFO, "Bulk loaded {0} bookings in {1} ms",
+                new Object[]{loaded, (System.nanoTime() - start) / 1_000_000});
+        return new BulkLoadResult(menuItems.size(), packages.size(), loaded);
+    }
+
+    // Returns the generated booking IDs, in batch order
+    private int[] insertBookings(ConnectionPool.PooledConnection connection, List<Booking> batch,
+                                 Map<Integer, Integer> menuItemIds) throws SQLException {
+        int[] ids = new int[batch.size()];
+        PreparedStatement insertItem = connection.prepare(INSERT_BOOKING_ITEM);
+        for (int i = 0; i < batch.size(); i++) {
+            Booking booking = batch.get(i);
+            ids[i] = writeBookingRow(connection, booking, true, ANY_VERSION);
+            for (BookingItem item : booking.getBookingItems()) {
+                insertItem.setInt(1, ids[i]);
+                insertItem.setInt(2, menuItemIds.getOrDefault(item.getItemId(), item.getItemId()));
+                insertItem.setInt(3, item.getQuantity());
+                insertItem.setDouble(4, item.getCalculatedItemCost());
+                insertItem.addBatch();
+            }
+        }
+        insertItem.executeBatch();
+        return ids;
+    }
+
+    // --- Row mapping ---
+
+    private static int generatedKey(PreparedStatement statement) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("Insert failed, no ID obtained.");
+            }
+            return keys.getInt(1);
+        }
+    }
+
+    private static Package mapPackage(ResultSet rs) throws SQLException {
+        Package pkg = new Package();
+        pkg.setPackageId(rs.getInt("package_id"));
+        pkg.setName(rs.getString("name"));
+        pkg.setDescription(rs.getString("description"));
+        pkg.setPrice(rs.getDouble("price"));
+        pkg.setCapacity(rs.getInt("capacity"));
+        pkg.setIncludedItemsDesc(rs.getString("included_items_desc"));
+        pkg.setActive(rs.getBoolean("is_active"));
+        pkg.setVersion(rs.getLong("version"));
+        return pkg;
+    }
+
+    private static MenuItem mapMenuItem(ResultSet rs) throws SQLException {
+        MenuItem item = new MenuItem();
+        item.setItemId(rs.getInt("item_id"));
+        item.setName(rs.getString("name"));
+        item.setDescription(rs.getString("description"));
+        item.setCostPerUnit(rs.getDouble("cost_per_unit"));
+        item.setUnitType(rs.getString("unit_type"));
+        item.setActive(rs.getBoolean("is_active"));
+        return item;
+    }
+
+    private static Booking mapBooking(ResultSet rs) throws SQLException {
+        Booking booking = new Booking();
+        booking.setBookingId(rs.getInt("booking_id"));
+        booking.setCustomerName(rs.getString("customer_name"));
+        booking.setCustomerContact(rs.getString("customer_contact"));
+        java.sql.Date eventDate = rs.getDate("event_date");
+        booking.setEventDate(eventDate != null ? eventDate.toLocalDate() : null);
+        booking.setEventTime(rs.getString("event_time"));
+        booking.setVenueAddress(rs.getString("venue_address"));
+        booking.setThemeDescription(rs.getString("theme_description"));
+        booking.setNumGuests(rs.getInt("num_guests"));
+        int packageId = rs.getInt("selected_package_id");
+        booking.setSelectedPackageId(rs.wasNull() ? null : packageId);
+        booking.setBasePackageCost(rs.getDouble("base_package_cost"));
+        booking.setAdditionalItemsCost(rs.getDouble("additional_items_cost"));
+        booking.setTotalCost(rs.getDouble("total_cost"));
+        booking.setCustomRequests(rs.getString("custom_requests"));
+        booking.setBookingStatus(rs.getString("booking_status"));
+        booking.setVersion(rs.getLong("version"));
+        return booking;
+    }
+}
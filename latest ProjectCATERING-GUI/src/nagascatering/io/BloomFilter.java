@@ -0,0 +1,72 @@
+package nagascatering.io;
+
+/**
+ * Set membership in about ten bits per key at a 1% false positive rate: "no" answers are
+ * certain, "maybe" answers need confirming elsewhere. Keys are strings; each gets two 64-bit
+ * hashes and every probe position is derived from those (Kirsch-Mitzenmacher double hashing).
+ * Not thread-safe.
+ */
+final class BloomFilter {
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /** Sized to hold {@code expectedKeys} at the given false positive rate. */
+    BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long keys = Math.max(expectedKeys, 1);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) >>> 6));
+        this.words = new long[wordCount];
+        this.bitCount = (long) wordCount << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / keys * ln2));
+    }
+
+    boolean mightContain(CharSequence key) {
+        long h1 = hash(key, 0);
+        long h2 = hash(key, 0x9E3779B97F4A7C15L) | 1; // Odd, so the probes never repeat early
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void add(CharSequence key) {
+        long h1 = hash(key, 0);
+        long h2 = hash(key, 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    int getHashCount() {
+        return hashCount;
+    }
+
+    long getBitCount() {
+        return bitCount;
+    }
+
+    // FNV-1a over the UTF-16 units, finished with the MurmurHash3 mixer so every bit is used
+    private static long hash(CharSequence key, long seed) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0, n = key.length(); i < n; i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,344 @@
+package nagascatering.io;
+
+import nagascatering.data.DataRepositories;
+import nagascatering.data.DataRepository;
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.pricing.PricingEngine;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Exports bookings with their items to CSV or JSON Lines, for accounting.
+ * <p>
+ * Bookings are streamed from {@link DataRepository#streamBookingsWithItems} and written through
+ * a {@link ChannelWriter}, which encodes each field straight into one reusable direct buffer; no
+ * row is built as a String, and memory stays flat however many bookings there are. Amounts are
+ * written with exactly two decimals.
+ * <ul>
+ *   <li>CSV: a header row, then one row per booking item carrying its booking's columns (a
+ *       booking without items gets one row with the item columns empty). Booking amounts repeat
+ *       on each of its rows, so total them per booking_id.</li>
+ *   <li>JSON Lines: one object per booking, its items in an "items" array.</li>
+ * </ul>
+ * The export is written to a {@code .part} file next to the target and moved into place when
+ * complete, so a failed or cancelled export leaves no half-written file behind.
+ * <p>
+ * Usage: {@code BookingExporter FILE [FROM] [TO]} exports the configured repository, as JSON Lines
+ * if FILE ends in .jsonl and as CSV otherwise ({@code ant export-bookings -Dexport.file=...}).
+ */
+public final class BookingExporter {
+
+    private static final Logger LOGGER = Logger.getLogger(BookingExporter.class.getName());
+
+    // Bookings between progress updates
+    private static final int PROGRESS_EVERY = 1_000;
+    // Stand-ins for an open end of the date range when counting the bookings in it
+    private static final LocalDate EARLIEST = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+
+    private static final String[] CSV_COLUMNS = {
+        "booking_id", "event_date", "event_time", "customer_name", "customer_contact", "venue_address",
+        "theme_description", "num_guests", "package_id", "package_name", "booking_status", "custom_requests",
+        "base_package_cost", "additional_items_cost", "total_cost",
+        "booking_item_id", "item_id", "item_name", "quantity", "item_cost"
+    };
+
+    public enum Format {
+        CSV, JSON_LINES;
+
+        /** JSON Lines for .jsonl and .ndjson files, CSV otherwise. */
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : CSV;
+        }
+    }
+
+    /** Progress callback; called on the exporting thread. {@code total} is an estimate. */
+    public interface Progress {
+        void update(long done, long total);
+    }
+
+    private final DataRepository repository;
+
+    public BookingExporter(DataRepository repository) {
+        this.repository = Objects.requireNonNull(repository, "Repository cannot be null");
+    }
+
+    /**
+     * Exports the bookings with an event date from {@code from} to {@code to} (inclusive; null for
+     * no bound) and returns how many were written. The export stops with a
+     * {@link CancellationException} once {@code cancelled} returns true, checked before each booking,
+     * or if the thread is interrupted; prefer the former, since an interrupt can also close the
+     * database connection being read.
+     * @param progress may be null
+     * @param cancelled may be null
+     */
+    public long export(Path file, Format format, LocalDate from, LocalDate to, Progress progress,
+                       BooleanSupplier cancelled) throws IOException {
+        LOGGER.log(Level.INFO, "Exporting bookings from {0} to {1} as {2} to {3}",
+                new Object[]{from != null ? from : "the start", to != null ? to : "the end", format, file});
+        long start = System.nanoTime();
+        long total = from == null && to == null ? repository.getStatusSummary().getTotalCount()
+                : repository.getBookingTotals(from != null ? from : EARLIEST, to != null ? to : LATEST).getTotal().getCount();
+        Map<Integer, String> packageNames = new HashMap<>();
+        repository.getAllPackages(true).forEach(pkg -> packageNames.put(pkg.getPackageId(), pkg.getName()));
+        Map<Integer, String> menuItemNames = new HashMap<>();
+        repository.getAllMenuItems(true).forEach(item -> menuItemNames.put(item.getItemId(), item.getName()));
+
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        long written = 0;
+        boolean complete = false;
+        try {
+            try (ChannelWriter out = new ChannelWriter(FileChannel.open(part, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+                 Stream<Booking> bookings = repository.streamBookingsWithItems(from, to)) {
+                RowWriter rows = format == Format.JSON_LINES
+                        ? new JsonLinesWriter(out, packageNames, menuItemNames)
+                        : new CsvRowWriter(out, packageNames, menuItemNames);
+                rows.header();
+                for (Iterator<Booking> it = bookings.iterator(); it.hasNext(); ) {
+                    if ((cancelled != null && cancelled.getAsBoolean()) || Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("Export cancelled");
+                    }
+                    rows.booking(it.next());
+                    if (++written % PROGRESS_EVERY == 0 && progress != null) {
+                        progress.update(written, Math.max(written, total));
+                    }
+                }
+            }
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            complete = true;
+        } catch (ClosedByInterruptException e) { // Interrupted while writing
+            throw new CancellationException("Export cancelled");
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(part);
+            }
+        }
+        if (progress != null) {
+            progress.update(written, written);
+        }
+        LOGGER.log(Level.INFO, "Exported {0} bookings to {1} in {2} ms",
+                new Object[]{written, file, (System.nanoTime() - start) / 1_000_000});
+        return written;
+    }
+
+    // Writes one format; the names are the catalog's, by ID
+    private abstract static class RowWriter {
+        final ChannelWriter out;
+        final Map<Integer, String> packageNames;
+        final Map<Integer, String> menuItemNames;
+
+        RowWriter(ChannelWriter out, Map<Integer, String> packageNames, Map<Integer, String> menuItemNames) {
+            this.out = out;
+            this.packageNames = packageNames;
+            this.menuItemNames = menuItemNames;
+        }
+
+        abstract void header() throws IOException;
+
+        abstract void booking(Booking booking) throws IOException;
+    }
+
+    private static final class CsvRowWriter extends RowWriter {
+
+        CsvRowWriter(ChannelWriter out, Map<Integer, String> packageNames, Map<Integer, String> menuItemNames) {
+            super(out, packageNames, menuItemNames);
+        }
+
+        @Override
+        void header() throws IOException {
+            for (int i = 0; i < CSV_COLUMNS.length; i++) {
+                if (i > 0) {
+                    out.put(',');
+                }
+                out.put(CSV_COLUMNS[i]);
+            }
+            out.put('\r').put('\n');
+        }
+
+        @Override
+        void booking(Booking booking) throws IOException {
+            List<BookingItem> items = booking.getBookingItems();
+            if (items.isEmpty()) {
+                bookingColumns(booking);
+                out.put(",,,,,").put('\r').put('\n');
+            }
+            for (BookingItem item : items) {
+                bookingColumns(booking);
+                out.put(',').putLong(item.getBookingItemId()).put(',').putLong(item.getItemId()).put(',');
+                text(menuItemNames.get(item.getItemId()));
+                out.put(',').putLong(item.getQuantity()).put(',').putCentavos(PricingEngine.toCentavos(item.getCalculatedItemCost()));
+                out.put('\r').put('\n');
+            }
+        }
+
+        private void bookingColumns(Booking booking) throws IOException {
+            out.putLong(booking.getBookingId()).put(',');
+            if (booking.getEventDate() != null) {
+                out.putDate(booking.getEventDate());
+            }
+            out.put(',');
+            text(booking.getEventTime());
+            out.put(',');
+            text(booking.getCustomerName());
+            out.put(',');
+            text(booking.getCustomerContact());
+            out.put(',');
+            text(booking.getVenueAddress());
+            out.put(',');
+            text(booking.getThemeDescription());
+            out.put(',').putLong(booking.getNumGuests()).put(',');
+            Integer packageId = booking.getSelectedPackageId();
+            if (packageId != null) {
+                out.putLong(packageId).put(',');
+                text(packageNames.get(packageId));
+            } else {
+                out.put(',');
+            }
+            out.put(',');
+            text(booking.getBookingStatus());
+            out.put(',');
+            text(booking.getCustomRequests());
+            out.put(',').putCentavos(PricingEngine.toCentavos(booking.getBasePackageCost()))
+                    .put(',').putCentavos(PricingEngine.toCentavos(booking.getAdditionalItemsCost()))
+                    .put(',').putCentavos(PricingEngine.toCentavos(booking.getTotalCost()));
+        }
+
+        // Quoted only when it holds a comma, quote or line break, as CsvWriter does
+        private void text(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char ch = value.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!quote) {
+                out.put(value);
+                return;
+            }
+            out.put('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"') {
+                    out.put('"'); // Doubled
+                }
+                out.put(ch);
+            }
+            out.put('"');
+        }
+    }
+
+    private static final class JsonLinesWriter extends RowWriter {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        JsonLinesWriter(ChannelWriter out, Map<Integer, String> packageNames, Map<Integer, String> menuItemNames) {
+            super(out, packageNames, menuItemNames);
+        }
+
+        @Override
+        void header() {
+            // Every line stands alone
+        }
+
+        @Override
+        void booking(Booking booking) throws IOException {
+            out.put("{\"booking_id\":").putLong(booking.getBookingId());
+            out.put(",\"event_date\":");
+            if (booking.getEventDate() != null) {
+                out.put('"').putDate(booking.getEventDate()).put('"');
+            } else {
+                out.put("null");
+            }
+            string(",\"event_time\":", booking.getEventTime());
+            string(",\"customer_name\":", booking.getCustomerName());
+            string(",\"customer_contact\":", booking.getCustomerContact());
+            string(",\"venue_address\":", booking.getVenueAddress());
+            string(",\"theme_description\":", booking.getThemeDescription());
+            out.put(",\"num_guests\":").putLong(booking.getNumGuests());
+            Integer packageId = booking.getSelectedPackageId();
+            out.put(",\"package_id\":");
+            if (packageId != null) {
+                out.putLong(packageId);
+                string(",\"package_name\":", packageNames.get(packageId));
+            } else {
+                out.put("null,\"package_name\":null");
+            }
+            string(",\"booking_status\":", booking.getBookingStatus());
+            string(",\"custom_requests\":", booking.getCustomRequests());
+            out.put(",\"base_package_cost\":").putCentavos(PricingEngine.toCentavos(booking.getBasePackageCost()));
+            out.put(",\"additional_items_cost\":").putCentavos(PricingEngine.toCentavos(booking.getAdditionalItemsCost()));
+            out.put(",\"total_cost\":").putCentavos(PricingEngine.toCentavos(booking.getTotalCost()));
+            out.put(",\"items\":[");
+            boolean first = true;
+            for (BookingItem item : booking.getBookingItems()) {
+                out.put(first ? "{\"booking_item_id\":" : ",{\"booking_item_id\":").putLong(item.getBookingItemId());
+                out.put(",\"item_id\":").putLong(item.getItemId());
+                string(",\"item_name\":", menuItemNames.get(item.getItemId()));
+                out.put(",\"quantity\":").putLong(item.getQuantity());
+                out.put(",\"item_cost\":").putCentavos(PricingEngine.toCentavos(item.getCalculatedItemCost())).put('}');
+                first = false;
+            }
+            out.put("]}").put('\n');
+        }
+
+        private void string(String key, String value) throws IOException {
+            out.put(key);
+            if (value == null) {
+                out.put("null");
+                return;
+            }
+            out.put('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"' || ch == '\\') {
+                    out.put('\\').put(ch);
+                } else if (ch == '\n') {
+                    out.put('\\').put('n');
+                } else if (ch == '\r') {
+                    out.put('\\').put('r');
+                } else if (ch == '\t') {
+                    out.put('\\').put('t');
+                } else if (ch < 0x20) {
+                    out.put("\\u00").put(HEX[ch >> 4]).put(HEX[ch & 0xF]);
+                } else {
+                    out.put(ch);
+                }
+            }
+            out.put('"');
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BookingExporter FILE [FROM] [TO]   (dates as yyyy-MM-dd; FILE.jsonl for JSON Lines)");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        LocalDate from = args.length > 1 && !args[1].isEmpty() ? LocalDate.parse(args[1]) : null;
+        LocalDate to = args.length > 2 && !args[2].isEmpty() ? LocalDate.parse(args[2]) : null;
+        new BookingExporter(DataRepositories.fromConfiguration()).export(file, Format.forFile(file), from, to, null, null);
+        System.exit(0); // Shutdown hooks close the store
+    }
+}
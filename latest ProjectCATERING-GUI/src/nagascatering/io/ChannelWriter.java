@@ -0,0 +1,154 @@
+package nagascatering.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.LocalDate;
+
+/**
+ * Encodes text, numbers and dates as UTF-8 straight into one reusable direct buffer and writes it
+ * to a file channel whenever it fills, so writing a row allocates nothing. Not thread-safe.
+ */
+final class ChannelWriter implements Closeable {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_PUT_BYTES = 20; // A long's digits and sign, or one encoded character
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final byte[] digits = new byte[MAX_PUT_BYTES];
+    private char highSurrogate;
+
+    ChannelWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    ChannelWriter put(char ch) throws IOException {
+        if (buffer.remaining() < MAX_PUT_BYTES) {
+            drain();
+        }
+        if (ch < 0x80 && highSurrogate == 0) {
+            buffer.put((byte) ch);
+        } else {
+            encode(ch);
+        }
+        return this;
+    }
+
+    ChannelWriter put(CharSequence text) throws IOException {
+        return put(text, 0, text.length());
+    }
+
+    ChannelWriter put(CharSequence text, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            put(text.charAt(i));
+        }
+        return this;
+    }
+
+    ChannelWriter putLong(long value) throws IOException {
+        if (buffer.remaining() < MAX_PUT_BYTES) {
+            drain();
+        }
+        if (value == Long.MIN_VALUE) { // Has no positive counterpart
+            return put("-9223372036854775808");
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, start, digits.length - start);
+        return this;
+    }
+
+    /** Writes an amount held in centavos with two decimals, e.g. 123456 as 1234.56. */
+    ChannelWriter putCentavos(long centavos) throws IOException {
+        if (centavos < 0) {
+            put('-');
+            centavos = -centavos;
+        }
+        putLong(centavos / 100).put('.');
+        long fraction = centavos % 100;
+        return put((char) ('0' + fraction / 10)).put((char) ('0' + fraction % 10));
+    }
+
+    /** Writes the date as yyyy-MM-dd. */
+    ChannelWriter putDate(LocalDate date) throws IOException {
+        putPadded(date.getYear(), 4).put('-');
+        putPadded(date.getMonthValue(), 2).put('-');
+        return putPadded(date.getDayOfMonth(), 2);
+    }
+
+    private ChannelWriter putPadded(int value, int width) throws IOException {
+        for (int limit = 10, i = 1; i < width; i++, limit *= 10) {
+            if (value < limit) {
+                put('0');
+            }
+        }
+        return putLong(value);
+    }
+
+    // Two-, three- and four-byte forms; a surrogate without its partner becomes '?'
+    private void encode(char ch) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(ch)) {
+                int codePoint = Character.toCodePoint(high, ch);
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+                return;
+            }
+            buffer.put((byte) '?');
+        }
+        if (ch < 0x80) {
+            buffer.put((byte) ch);
+        } else if (ch < 0x800) {
+            buffer.put((byte) (0xC0 | ch >> 6));
+            buffer.put((byte) (0x80 | ch & 0x3F));
+        } else if (Character.isHighSurrogate(ch)) {
+            highSurrogate = ch;
+        } else if (Character.isLowSurrogate(ch)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | ch >> 12));
+            buffer.put((byte) (0x80 | ch >> 6 & 0x3F));
+            buffer.put((byte) (0x80 | ch & 0x3F));
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Writes out what is buffered. */
+    void flush() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            buffer.put((byte) '?');
+        }
+        drain();
+    }
+
+    /** Flushes and closes the channel. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,715 @@
+package nagascatering.io;
+
+import nagascatering.data.DataRepositories;
+import nagascatering.data.DataRepository;
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.BookingRules;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import nagascatering.model.UnitType;
+import nagascatering.pricing.PricingEngine;
+import nagascatering.pricing.Quote;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Imports bookings, menu items and packages from CSV files, for migrating records that would
+ * otherwise be typed into the booking form one at a time.
+ * <p>
+ * The file is streamed through {@link CsvReader} in blocks of {@value #BLOCK_ROWS} rows. Blocks
+ * are parsed and validated in parallel on the executor while the importing thread reads on, with
+ * only a few blocks in flight so memory stays flat whatever the file size. Bookings are checked
+ * with the booking form's rules ({@link BookingRules}), except that past event dates are allowed,
+ * and priced at the current catalog prices with {@link PricingEngine}. Menu items and packages
+ * are referred to by ID or by name, resolved through hash maps of the catalog. Valid rows are
+ * then taken in file order, checked for duplicates and stored with
+ * {@link DataRepository#bulkLoad} {@code batchSize} at a time.
+ * <p>
+ * A booking is a duplicate if an earlier row or a stored booking has the same customer name,
+ * contact number, event date and time. Every key seen goes into a Bloom filter, so most rows are
+ * cleared without a lookup; only its "maybe" answers are confirmed, against the batch being
+ * built or the stored bookings on that date. Catalog files are small, so menu items and packages
+ * are simply checked by name in a map.
+ * <p>
+ * Every rejected row is written to the error report as a {@code line,error} CSV row.
+ * <p>
+ * Files start with a header row naming the columns, in any order (names ignore case; * marks
+ * required columns):
+ * <ul>
+ *   <li>Bookings: customer_name*, customer_contact*, event_date* (yyyy-MM-dd), event_time (HH:mm),
+ *       venue_address*, theme_description, num_guests*, package (ID or name), booking_status
+ *       (default Pending), custom_requests, items ({@code name or ID:quantity} entries separated
+ *       by semicolons; the quantity defaults to 1)</li>
+ *   <li>Menu items: name*, description, cost_per_unit*, unit_type* (per_person, per_tray or fixed),
+ *       is_active (default true)</li>
+ *   <li>Packages: name*, description, price*, capacity*, included_items, is_active (default true)</li>
+ * </ul>
+ * Usage: {@code CsvImporter bookings|menu-items|packages FILE [ERROR_REPORT]} imports into the
+ * configured repository ({@code ant import-csv -Dimport.kind=bookings -Dimport.file=...}).
+ */
+public final class CsvImporter {
+
+    private static final Logger LOGGER = Logger.getLogger(CsvImporter.class.getName());
+
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+    private static final int BLOCK_ROWS = 2_048;
+    private static final double DUPLICATE_FALSE_POSITIVES = 0.01;
+    private static final int MIN_ROW_BYTES = 48; // Bounds the rows a file can hold, for sizing the duplicate filter
+
+    private final DataRepository repository;
+    private final Executor executor;
+    private final int batchSize;
+    private final int blocksInFlight;
+
+    public CsvImporter(DataRepository repository) {
+        this(repository, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    public CsvImporter(DataRepository repository, Executor executor, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.repository = Objects.requireNonNull(repository, "Repository cannot be null");
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+        this.batchSize = batchSize;
+        this.blocksInFlight = Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    // --- Imports ---
+
+    /**
+     * Imports bookings, referring to menu items and packages already stored.
+     * @param errorReport receives the rejected rows; may be null
+     * @throws IllegalArgumentException if the header lacks a required column
+     */
+    public ImportResult importBookings(Path file, Writer errorReport) throws IOException {
+        LOGGER.log(Level.INFO, "Importing bookings from {0}", file);
+        Lookup<Package> packages = new Lookup<>(repository.getAllPackages(true), Package::getPackageId, Package::getName);
+        Lookup<MenuItem> menuItems = new Lookup<>(repository.getAllMenuItems(true), MenuItem::getItemId, MenuItem::getName);
+        BookingSink sink = new BookingSink(repository.getStatusSummary().getTotalCount() + Files.size(file) / MIN_ROW_BYTES);
+        repository.forEachBooking(booking -> sink.seen.add(duplicateKey(booking)));
+        return run("bookings", file, errorReport, header -> bookingConverter(header, packages, menuItems), sink);
+    }
+
+    /** Imports menu items; see {@link #importBookings} for the parameters. */
+    public ImportResult importMenuItems(Path file, Writer errorReport) throws IOException {
+        LOGGER.log(Level.INFO, "Importing menu items from {0}", file);
+        CatalogSink<MenuItem> sink = new CatalogSink<MenuItem>(repository.getAllMenuItems(true), MenuItem::getName) {
+            @Override
+            int store(List<MenuItem> items) {
+                return repository.bulkLoad(items, Collections.<Package>emptyList(), Collections.<Booking>emptyIterator())
+                        .getMenuItems();
+            }
+        };
+        return run("menu items", file, errorReport, CsvImporter::menuItemConverter, sink);
+    }
+
+    /** Imports packages; see {@link #importBookings} for the parameters. */
+    public ImportResult importPackages(Path file, Writer errorReport) throws IOException {
+        LOGGER.log(Level.INFO, "Importing packages from {0}", file);
+        CatalogSink<Package> sink = new CatalogSink<Package>(repository.getAllPackages(true), Package::getName) {
+            @Override
+            int store(List<Package> packages) {
+                return repository.bulkLoad(Collections.<MenuItem>emptyList(), packages, Collections.<Booking>emptyIterator())
+                        .getPackages();
+            }
+        };
+        return run("packages", file, errorReport, CsvImporter::packageConverter, sink);
+    }
+
+    // --- Pipeline ---
+
+    // Turns one row into a record, throwing IllegalArgumentException with what is wrong. Runs on
+    // the executor, so it may only read shared state.
+    private interface RowConverter<T> {
+        T convert(String[] row);
+    }
+
+    // Takes the valid records in file order, on the importing thread
+    private interface RowSink<T> {
+        /** Queues the record for storing; returns why it is a duplicate instead, if it is one. */
+        String accept(T record, int line);
+        int pending();
+        /** Stores the queued records; returns how many were stored. */
+        int flush();
+    }
+
+    private <T> ImportResult run(String kind, Path file, Writer errorReport,
+                                 Function<Header, RowConverter<T>> converterFor, RowSink<T> sink) throws IOException {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult(kind);
+        CsvWriter report = errorReport != null ? new CsvWriter(errorReport) : null;
+        if (report != null) {
+            report.row("line", "error");
+        }
+        try (CsvReader reader = CsvReader.open(file)) {
+            String[] header = reader.next();
+            if (header == null) {
+                throw new IllegalArgumentException("No header row in " + file);
+            }
+            RowConverter<T> converter = converterFor.apply(new Header(header));
+            ArrayDeque<CompletableFuture<Block<T>>> inFlight = new ArrayDeque<>();
+            boolean stored = true;
+            Block<T> block;
+            do {
+                block = readBlock(reader);
+                if (block.size > 0) {
+                    Block<T> rows = block;
+                    inFlight.add(CompletableFuture.supplyAsync(() -> rows.convert(converter), executor));
+                }
+                boolean last = block.size < BLOCK_ROWS;
+                while (stored && !inFlight.isEmpty() && (last || inFlight.size() >= blocksInFlight)) {
+                    stored = commit(inFlight.poll().join(), sink, result, report);
+                }
+            } while (stored && block.size == BLOCK_ROWS);
+            if (stored) {
+                flush(sink, result);
+            }
+        } finally {
+            if (report != null) {
+                report.flush();
+            }
+            result.finished(System.nanoTime() - start);
+        }
+        LOGGER.log(Level.INFO, "{0}", result);
+        return result;
+    }
+
+    private static <T> Block<T> readBlock(CsvReader reader) throws IOException {
+        Block<T> block = new Block<>();
+        String[] row;
+        while (block.size < BLOCK_ROWS && (row = reader.next()) != null) {
+            block.rows[block.size] = row;
+            block.lines[block.size++] = reader.rowLine();
+        }
+        return block;
+    }
+
+    // Passes a converted block to the sink in order; false once the store has failed
+    private <T> boolean commit(Block<T> block, RowSink<T> sink, ImportResult result, CsvWriter report) throws IOException {
+        for (int i = 0; i < block.size; i++) {
+            result.rowRead();
+            int line = block.lines[i];
+            String problem = block.problems[i];
+            boolean duplicate = false;
+            if (problem == null) {
+                problem = sink.accept(block.record(i), line);
+                duplicate = problem != null;
+            }
+            if (problem != null) {
+                result.rejected(line, problem, duplicate);
+                if (report != null) {
+                    report.field(line).field(problem).endRow();
+                }
+            } else if (sink.pending() >= batchSize && !flush(sink, result)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean flush(RowSink<?> sink, ImportResult result) {
+        int pending = sink.pending();
+        if (pending == 0) {
+            return true;
+        }
+        int stored = sink.flush();
+        result.imported(stored);
+        if (stored < pending) {
+            result.notStored(pending - stored);
+            LOGGER.log(Level.SEVERE, "Only {0} of a batch of {1} {2} were stored; stopping the import",
+                    new Object[]{stored, pending, result.getKind()});
+            return false;
+        }
+        return true;
+    }
+
+    // Rows read together and converted as one task
+    private static final class Block<T> {
+        final String[][] rows = new String[BLOCK_ROWS][];
+        final int[] lines = new int[BLOCK_ROWS];
+        int size;
+        final Object[] records = new Object[BLOCK_ROWS];
+        final String[] problems = new String[BLOCK_ROWS];
+
+        Block<T> convert(RowConverter<T> converter) {
+            for (int i = 0; i < size; i++) {
+                try {
+                    records[i] = converter.convert(rows[i]);
+                } catch (RuntimeException e) { // IllegalArgumentException, or e.g. an overflowing price
+                    problems[i] = e.getMessage() != null ? e.getMessage() : e.toString();
+                }
+                rows[i] = null; // Done with the text
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        T record(int i) {
+            return (T) records[i];
+        }
+    }
+
+    // --- Sinks ---
+
+    private final class BookingSink implements RowSink<Booking> {
+        final BloomFilter seen;
+        private final Map<String, Integer> pendingKeys = new HashMap<>(); // Key -> line, for the batch being built
+        private final List<Booking> pending = new ArrayList<>();
+
+        BookingSink(long expectedKeys) {
+            seen = new BloomFilter(expectedKeys, DUPLICATE_FALSE_POSITIVES);
+        }
+
+        @Override
+        public String accept(Booking booking, int line) {
+            String key = duplicateKey(booking);
+            if (seen.mightContain(key)) {
+                Integer earlier = pendingKeys.get(key);
+                if (earlier != null) {
+                    return "Duplicate of line " + earlier + ".";
+                }
+                if (isStored(key, booking.getEventDate())) {
+                    return "Duplicate of a booking already stored.";
+                }
+                // Otherwise a false positive of the filter
+            }
+            seen.add(key);
+            pendingKeys.put(key, line);
+            pending.add(booking);
+            return null;
+        }
+
+        // Earlier batches are stored by now, so this also finds duplicates of their rows
+        private boolean isStored(String key, LocalDate eventDate) {
+            for (Booking stored : repository.getBookingsBetween(eventDate, eventDate)) {
+                if (key.equals(duplicateKey(stored))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int pending() {
+            return pending.size();
+        }
+
+        @Override
+        public int flush() {
+            int stored = repository.bulkLoad(Collections.<MenuItem>emptyList(), Collections.<Package>emptyList(), pending.iterator())
+                    .getBookings();
+            pending.clear();
+            pendingKeys.clear();
+            return stored;
+        }
+    }
+
+    // Menu items or packages, which must have unique names to be found by name
+    private abstract static class CatalogSink<T> implements RowSink<T> {
+        private final Function<T, String> name;
+        private final Map<String, Integer> lineByName = new HashMap<>(); // 0 for stored entries
+        private final List<T> pending = new ArrayList<>();
+
+        CatalogSink(Collection<T> stored, Function<T, String> name) {
+            this.name = name;
+            stored.forEach(entry -> lineByName.put(nameKey(name.apply(entry)), 0));
+        }
+
+        abstract int store(List<T> entries);
+
+        @Override
+        public String accept(T entry, int line) {
+            Integer earlier = lineByName.putIfAbsent(nameKey(name.apply(entry)), line);
+            if (earlier != null) {
+                return earlier == 0 ? "The name is already used." : "Duplicate of line " + earlier + ".";
+            }
+            pending.add(entry);
+            return null;
+        }
+
+        @Override
+        public int pending() {
+            return pending.size();
+        }
+
+        @Override
+        public int flush() {
+            int stored = store(pending);
+            pending.clear();
+            return stored;
+        }
+    }
+
+    // --- Converters ---
+
+    private static RowConverter<Booking> bookingConverter(Header header, Lookup<Package> packages, Lookup<MenuItem> menuItems) {
+        int customerName = header.required("customer_name");
+        int customerContact = header.required("customer_contact");
+        int eventDate = header.required("event_date");
+        int eventTime = header.optional("event_time");
+        int venueAddress = header.required("venue_address");
+        int theme = header.optional("theme_description");
+        int guests = header.required("num_guests");
+        int packageRef = header.optional("package");
+        int status = header.optional("booking_status");
+        int customRequests = header.optional("custom_requests");
+        int items = header.optional("items");
+        return row -> {
+            List<String> problems = new ArrayList<>(2);
+            Booking booking = new Booking();
+            booking.setCustomerName(text(row, customerName));
+            booking.setCustomerContact(text(row, customerContact));
+            booking.setEventDate(parseDate(text(row, eventDate), "event_date", problems));
+            String time = text(row, eventTime);
+            booking.setEventTime(time.isEmpty() ? null : time);
+            booking.setVenueAddress(text(row, venueAddress));
+            booking.setThemeDescription(text(row, theme));
+            booking.setNumGuests(parseCount(text(row, guests), "num_guests", problems));
+            String statusText = text(row, status);
+            String canonical = BookingRules.canonicalStatus(statusText);
+            booking.setBookingStatus(statusText.isEmpty() ? BookingRules.STATUSES.get(0) : canonical != null ? canonical : statusText);
+            booking.setCustomRequests(text(row, customRequests));
+
+            String packageText = text(row, packageRef);
+            Package pkg = packageText.isEmpty() ? null : packages.find(packageText, "package", problems);
+            booking.setSelectedPackageId(pkg != null ? pkg.getPackageId() : null);
+            booking.setBookingItems(parseItems(text(row, items), menuItems, booking.getNumGuests(), problems));
+
+            problems.addAll(BookingRules.problems(booking, null)); // Historical bookings may be in the past
+            if (!problems.isEmpty()) {
+                throw new IllegalArgumentException(String.join(" ", problems));
+            }
+            PricingEngine.quote(pkg, booking.getBookingItems(), booking.getNumGuests(), new Quote()).applyTo(booking);
+            return booking;
+        };
+    }
+
+    private static RowConverter<MenuItem> menuItemConverter(Header header) {
+        int name = header.required("name");
+        int description = header.optional("description");
+        int cost = header.required("cost_per_unit");
+        int unit = header.required("unit_type");
+        int active = header.optional("is_active");
+        return row -> {
+            List<String> problems = new ArrayList<>(2);
+            String itemName = requiredText(row, name, "name", problems);
+            double costPerUnit = parseAmount(text(row, cost), "cost_per_unit", problems);
+            String unitType = unitCode(text(row, unit), problems);
+            boolean isActive = parseFlag(text(row, active), "is_active", problems);
+            if (!problems.isEmpty()) {
+                throw new IllegalArgumentException(String.join(" ", problems));
+            }
+            MenuItem item = new MenuItem(0, itemName, costPerUnit, unitType, isActive);
+            item.setDescription(text(row, description));
+            return item;
+        };
+    }
+
+    // The same rules as the package manager form
+    private static RowConverter<Package> packageConverter(Header header) {
+        int name = header.required("name");
+        int description = header.optional("description");
+        int price = header.required("price");
+        int capacity = header.required("capacity");
+        int included = header.optional("included_items");
+        int active = header.optional("is_active");
+        return row -> {
+            List<String> problems = new ArrayList<>(2);
+            String packageName = requiredText(row, name, "name", problems);
+            double packagePrice = parseAmount(text(row, price), "price", problems);
+            int packageCapacity = parseCount(text(row, capacity), "capacity", problems);
+            if (packageCapacity <= 0) {
+                problems.add("capacity must be greater than 0.");
+            }
+            boolean isActive = parseFlag(text(row, active), "is_active", problems);
+            if (!problems.isEmpty()) {
+                throw new IllegalArgumentException(String.join(" ", problems));
+            }
+            Package pkg = new Package(0, packageName, packagePrice, packageCapacity, isActive);
+            pkg.setDescription(text(row, description));
+            pkg.setIncludedItemsDesc(text(row, included));
+            return pkg;
+        };
+    }
+
+    // "name or ID:quantity; ..." priced for the guest count
+    private static List<BookingItem> parseItems(String text, Lookup<MenuItem> menuItems, int guests, List<String> problems) {
+        List<BookingItem> items = new ArrayList<>();
+        int from = 0;
+        while (from < text.length()) {
+            int end = text.indexOf(';', from);
+            if (end < 0) {
+                end = text.length();
+            }
+            String entry = text.substring(from, end).trim();
+            from = end + 1;
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String reference = entry;
+            int quantity = 1;
+            int colon = entry.lastIndexOf(':');
+            if (colon >= 0 && isNumber(entry.substring(colon + 1).trim())) { // Otherwise the colon is part of the name
+                reference = entry.substring(0, colon).trim();
+                quantity = Integer.parseInt(entry.substring(colon + 1).trim());
+            }
+            MenuItem item = menuItems.find(reference, "menu item", problems);
+            if (quantity <= 0) {
+                problems.add("Quantity of " + reference + " must be greater than 0.");
+            } else if (item != null) {
+                long price = PricingEngine.linePrice(item, quantity, guests);
+                items.add(new BookingItem(item, quantity, PricingEngine.toAmount(price)));
+            }
+        }
+        return items;
+    }
+
+    // --- Field parsing ---
+
+    private static String text(String[] row, int column) {
+        return column >= 0 && column < row.length ? row[column].trim() : "";
+    }
+
+    private static String requiredText(String[] row, int column, String name, List<String> problems) {
+        String value = text(row, column);
+        if (value.isEmpty()) {
+            problems.add(name + " is required.");
+        }
+        return value;
+    }
+
+    // Unparsable dates become LocalDate.MIN so the booking rules do not report them a second time
+    private static LocalDate parseDate(String text, String name, List<String> problems) {
+        if (text.isEmpty()) {
+            return null; // Reported by the booking rules
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            problems.add(name + " '" + text + "' is not a yyyy-MM-dd date.");
+            return LocalDate.MIN;
+        }
+    }
+
+    // 0 if missing, for the caller to report; 1 if not a whole number, which is reported here
+    private static int parseCount(String text, String name, List<String> problems) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+        if (!isNumber(text)) {
+            problems.add(name + " '" + text + "' is not a whole number.");
+            return 1;
+        }
+        return Integer.parseInt(text);
+    }
+
+    private static double parseAmount(String text, String name, List<String> problems) {
+        if (text.isEmpty()) {
+            problems.add(name + " is required.");
+            return 0;
+        }
+        try {
+            double value = Double.parseDouble(text);
+            if (value < 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+                problems.add(name + " must be a number of 0 or more.");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            problems.add(name + " '" + text + "' is not a number.");
+            return 0;
+        }
+    }
+
+    // Defaults to true when empty
+    private static boolean parseFlag(String text, String name, List<String> problems) {
+        switch (text.toLowerCase(Locale.ROOT)) {
+            case "": case "true": case "yes": case "y": case "1":
+                return true;
+            case "false": case "no": case "n": case "0":
+                return false;
+            default:
+                problems.add(name + " '" + text + "' is not true or false.");
+                return true;
+        }
+    }
+
+    private static String unitCode(String text, List<String> problems) {
+        for (UnitType unit : UnitType.values()) {
+            if (unit.getCode().equalsIgnoreCase(text)) {
+                return unit.getCode();
+            }
+        }
+        problems.add("unit_type '" + text + "' is not per_person, per_tray or fixed.");
+        return text;
+    }
+
+    // Up to 9 digits, so it always fits an int
+    private static boolean isNumber(String text) {
+        if (text.isEmpty() || text.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Names compared ignoring case, surrounding spaces and repeated inner spaces. */
+    static String nameKey(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(name.length());
+        boolean space = false;
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                space = key.length() > 0;
+            } else {
+                if (space) {
+                    key.append(' ');
+                    space = false;
+                }
+                key.append(Character.toLowerCase(ch));
+            }
+        }
+        return key.toString();
+    }
+
+    // Customer, contact digits, event date and time
+    private static String duplicateKey(Booking booking) {
+        StringBuilder key = new StringBuilder(64).append(nameKey(booking.getCustomerName())).append('|');
+        String contact = booking.getCustomerContact();
+        if (contact != null) {
+            for (int i = 0; i < contact.length(); i++) {
+                char ch = contact.charAt(i);
+                if (ch >= '0' && ch <= '9') {
+                    key.append(ch);
+                }
+            }
+        }
+        key.append('|').append(booking.getEventDate()).append('|');
+        if (booking.getEventTime() != null) {
+            key.append(booking.getEventTime().trim());
+        }
+        return key.toString();
+    }
+
+    /** Column positions by header name, ignoring case and surrounding spaces. */
+    private static final class Header {
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        Header(String[] names) {
+            for (int i = 0; i < names.length; i++) {
+                columns.putIfAbsent(names[i].trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        int required(String name) {
+            Integer column = columns.get(name);
+            if (column == null) {
+                throw new IllegalArgumentException("Missing required column: " + name);
+            }
+            return column;
+        }
+
+        int optional(String name) {
+            return columns.getOrDefault(name, -1);
+        }
+    }
+
+    /** Catalog entries by ID or by name (see {@link #nameKey}); read-only once built. */
+    private static final class Lookup<T> {
+        private final Map<Integer, T> byId = new HashMap<>();
+        private final Map<String, T> byName = new HashMap<>();
+        private final Set<String> ambiguous = new HashSet<>();
+
+        Lookup(Collection<T> entries, ToIntFunction<T> id, Function<T, String> name) {
+            for (T entry : entries) {
+                byId.put(id.applyAsInt(entry), entry);
+                String key = nameKey(name.apply(entry));
+                if (byName.putIfAbsent(key, entry) != null) {
+                    ambiguous.add(key);
+                }
+            }
+        }
+
+        T find(String reference, String what, List<String> problems) {
+            T found;
+            if (isNumber(reference)) {
+                found = byId.get(Integer.parseInt(reference));
+            } else {
+                String key = nameKey(reference);
+                if (ambiguous.contains(key)) {
+                    problems.add("More than one " + what + " is named '" + reference + "'; use its ID.");
+                    return null;
+                }
+                found = byName.get(key);
+            }
+            if (found == null) {
+                problems.add("Unknown " + what + ": " + reference + ".");
+            }
+            return found;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CsvImporter bookings|menu-items|packages FILE [ERROR_REPORT]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[1]);
+        Path reportFile = args.length > 2 ? Paths.get(args[2]) : file.resolveSibling(file.getFileName() + ".errors.csv");
+        CsvImporter importer = new CsvImporter(DataRepositories.fromConfiguration());
+        ImportResult result;
+        try (Writer report = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            switch (args[0]) {
+                case "bookings":
+                    result = importer.importBookings(file, report);
+                    break;
+                case "menu-items":
+                    result = importer.importMenuItems(file, report);
+                    break;
+                case "packages":
+                    result = importer.importPackages(file, report);
+                    break;
+                default:
+                    System.err.println("Unknown import kind: " + args[0]);
+                    System.exit(2);
+                    return;
+            }
+        }
+        if (result.getInvalid() + result.getDuplicates() > 0) {
+            LOGGER.log(Level.WARNING, "Rejected rows are listed in {0}", reportFile);
+        }
+        System.exit(result.getNotStored() > 0 ? 1 : 0); // Shutdown hooks close the store
+    }
+}
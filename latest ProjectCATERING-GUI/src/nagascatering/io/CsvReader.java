@@ -0,0 +1,172 @@
+package nagascatering.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader of RFC 4180 CSV: comma separated, fields optionally in double quotes (which
+ * may then contain commas, line breaks and doubled quotes), rows ending in LF or CRLF. Only one
+ * buffer of the file is in memory at a time. Blank lines are skipped; a UTF-8 byte order mark
+ * is ignored and malformed bytes are replaced rather than failing the whole file.
+ * Not thread-safe.
+ */
+final class CsvReader implements Closeable {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int BUFFER_CHARS = 1 << 16;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private int position;
+    private int limit;
+    private int line = 1; // Line of the next character
+    private int rowLine;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+
+    private CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /** Opens a UTF-8 file, read through its channel in {@value #BUFFER_BYTES}-byte chunks. */
+    static CsvReader open(Path file) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CsvReader reader = new CsvReader(Channels.newReader(FileChannel.open(file, StandardOpenOption.READ), decoder, BUFFER_BYTES));
+        if (reader.peek() == '\uFEFF') {
+            reader.position++;
+        }
+        return reader;
+    }
+
+    /** The fields of the next row, or null at the end of the file. */
+    String[] next() throws IOException {
+        int c = peek();
+        while (c == '\n' || c == '\r') {
+            endLine();
+            c = peek();
+        }
+        if (c == -1) {
+            return null;
+        }
+        rowLine = line;
+        fields.clear();
+        while (true) {
+            fields.add(readField());
+            c = peek();
+            if (c == ',') {
+                position++;
+            } else {
+                if (c != -1) {
+                    endLine();
+                }
+                return fields.toArray(new String[0]);
+            }
+        }
+    }
+
+    /** The line the row last returned by {@link #next} started on (1 for the first line). */
+    int rowLine() {
+        return rowLine;
+    }
+
+    // Reads up to (not including) the next comma, line break or end of file
+    private String readField() throws IOException {
+        field.setLength(0);
+        if (peek() == '"') {
+            position++;
+            readQuoted();
+        } else if (position < limit) {
+            // Common case: the whole field is in the buffer, so no copy through the builder
+            int start = position;
+            int end = scanPlain(start);
+            if (end < limit) {
+                position = end;
+                return new String(buffer, start, end - start);
+            }
+        }
+        // Text after a closing quote, or a field running past the end of the buffer
+        while (position < limit || fill()) {
+            int start = position;
+            int end = scanPlain(start);
+            field.append(buffer, start, end - start);
+            position = end;
+            if (end < limit) {
+                break;
+            }
+        }
+        return field.toString();
+    }
+
+    private int scanPlain(int from) {
+        int end = from;
+        while (end < limit) {
+            char ch = buffer[end];
+            if (ch == ',' || ch == '\n' || ch == '\r') {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    // After the opening quote; stops after the closing quote (or at the end of the file)
+    private void readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return; // Unterminated: keep what there is
+            }
+            if (c == '"') {
+                if (peek() != '"') {
+                    return;
+                }
+                position++; // "" is a quote
+            } else if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                line++;
+            }
+            field.append((char) c);
+        }
+    }
+
+    private void endLine() throws IOException {
+        if (read() == '\r' && peek() == '\n') {
+            position++;
+        }
+        line++;
+    }
+
+    private int peek() throws IOException {
+        return position < limit || fill() ? buffer[position] : -1;
+    }
+
+    private int read() throws IOException {
+        return position < limit || fill() ? buffer[position++] : -1;
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,87 @@
+package nagascatering.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes CSV in the format {@link CsvReader} reads: fields are quoted only when they contain a
+ * comma, quote or line break. Rows end in CRLF as RFC 4180 asks. Not thread-safe.
+ */
+final class CsvWriter implements Closeable, Flushable {
+
+    private final Writer out;
+    private boolean rowStarted;
+
+    CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    CsvWriter field(String value) throws IOException {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return this;
+        }
+        out.write('"');
+        int from = 0;
+        for (int quote = value.indexOf('"'); quote >= 0; quote = value.indexOf('"', from)) {
+            out.write(value, from, quote + 1 - from);
+            out.write('"'); // Doubled
+            from = quote + 1;
+        }
+        out.write(value, from, value.length() - from);
+        out.write('"');
+        return this;
+    }
+
+    CsvWriter field(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    CsvWriter row(String... values) throws IOException {
+        for (String value : values) {
+            field(value);
+        }
+        return endRow();
+    }
+
+    CsvWriter endRow() throws IOException {
+        out.write("\r\n");
+        rowStarted = false;
+        return this;
+    }
+
+    private void separate() throws IOException {
+        if (rowStarted) {
+            out.write(',');
+        }
+        rowStarted = true;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
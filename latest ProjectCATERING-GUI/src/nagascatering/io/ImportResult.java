@@ -0,0 +1,90 @@
+package nagascatering.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one CSV import: how many rows were read, stored and rejected, and why. Every
+ * rejected row is written to the error report given to {@link CsvImporter}; only the first
+ * {@value #ERRORS_KEPT} are also kept here.
+ */
+public final class ImportResult {
+
+    static final int ERRORS_KEPT = 1000;
+
+    /** A rejected row. */
+    public static final class RowError {
+        private final int line;
+        private final String message;
+
+        RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        /** The line of the file the row starts on (1 for the header). */
+        public int getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    private final String kind;
+    private int rowsRead;
+    private int imported;
+    private int invalid;
+    private int duplicates;
+    private int notStored;
+    private long elapsedNanos;
+    private final List<RowError> errors = new ArrayList<>();
+
+    ImportResult(String kind) {
+        this.kind = kind;
+    }
+
+    // --- Filled in by the importer ---
+
+    void rowRead() { rowsRead++; }
+    void imported(int count) { imported += count; }
+    void notStored(int count) { notStored += count; }
+    void finished(long elapsedNanos) { this.elapsedNanos = elapsedNanos; }
+
+    void rejected(int line, String message, boolean duplicate) {
+        if (duplicate) {
+            duplicates++;
+        } else {
+            invalid++;
+        }
+        if (errors.size() < ERRORS_KEPT) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    // --- Results ---
+
+    /** What was imported: "bookings", "menu items" or "packages". */
+    public String getKind() { return kind; }
+    /** Data rows read (not counting the header). */
+    public int getRowsRead() { return rowsRead; }
+    public int getImported() { return imported; }
+    /** Rows that failed validation or referred to unknown menu items or packages. */
+    public int getInvalid() { return invalid; }
+    /** Rows matching an earlier row or a record already stored. */
+    public int getDuplicates() { return duplicates; }
+    /** Valid rows the store failed to save; the import stops at the first such batch. */
+    public int getNotStored() { return notStored; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+    /** The first rejected rows, in file order. */
+    public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+
+    @Override
+    public String toString() {
+        return String.format("Imported %d of %d %s rows in %d ms (%d invalid, %d duplicates, %d not stored)",
+                imported, rowsRead, kind, getElapsedMillis(), invalid, duplicates, notStored);
+    }
+}
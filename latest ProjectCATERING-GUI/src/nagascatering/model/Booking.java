@@ -2,6 +2,7 @@ package nagascatering.model;
 
 import java.time.LocalDate;
 import java.util.ArrayList; // Added import
+import java.util.Collections;
 import java.util.List; // Added import
 
 public class Booking {
@@ -20,61 +21,68 @@ public class Booking {
     private double totalCost;
     private String customRequests;
     private String bookingStatus; // e.g., Pending, Confirmed
+    private long version; // Incremented by the data layer on every save (optimistic concurrency)
 
     // Optional: Link to the actual Package object
     private Package selectedPackage;
     // Optional: List of custom/additional items - Initialized
     private List<BookingItem> bookingItems = new ArrayList<>();
 
+    // Set when the data layer publishes this object as a stored version, which all readers share
+    private boolean frozen;
+
     // --- Constructors ---
      public Booking() {}
 
     // --- Getters and Setters (Standard - not JavaFX properties for this example) ---
 
     public int getBookingId() { return bookingId; }
-    public void setBookingId(int bookingId) { this.bookingId = bookingId; }
+    public void setBookingId(int bookingId) { checkMutable(); this.bookingId = bookingId; }
 
     public String getCustomerName() { return customerName; }
-    public void setCustomerName(String customerName) { this.customerName = customerName; }
+    public void setCustomerName(String customerName) { checkMutable(); this.customerName = customerName; }
 
     public String getCustomerContact() { return customerContact; }
-    public void setCustomerContact(String customerContact) { this.customerContact = customerContact; }
+    public void setCustomerContact(String customerContact) { checkMutable(); this.customerContact = customerContact; }
 
     public LocalDate getEventDate() { return eventDate; }
-    public void setEventDate(LocalDate eventDate) { this.eventDate = eventDate; }
+    public void setEventDate(LocalDate eventDate) { checkMutable(); this.eventDate = eventDate; }
 
     public String getEventTime() { return eventTime; }
-    public void setEventTime(String eventTime) { this.eventTime = eventTime; }
+    public void setEventTime(String eventTime) { checkMutable(); this.eventTime = eventTime; }
 
     public String getVenueAddress() { return venueAddress; }
-    public void setVenueAddress(String venueAddress) { this.venueAddress = venueAddress; }
+    public void setVenueAddress(String venueAddress) { checkMutable(); this.venueAddress = venueAddress; }
 
     public String getThemeDescription() { return themeDescription; }
-    public void setThemeDescription(String themeDescription) { this.themeDescription = themeDescription; }
+    public void setThemeDescription(String themeDescription) { checkMutable(); this.themeDescription = themeDescription; }
 
     public int getNumGuests() { return numGuests; }
-    public void setNumGuests(int numGuests) { this.numGuests = numGuests; }
+    public void setNumGuests(int numGuests) { checkMutable(); this.numGuests = numGuests; }
 
     public Integer getSelectedPackageId() { return selectedPackageId; }
-    public void setSelectedPackageId(Integer selectedPackageId) { this.selectedPackageId = selectedPackageId; }
+    public void setSelectedPackageId(Integer selectedPackageId) { checkMutable(); this.selectedPackageId = selectedPackageId; }
 
     public double getBasePackageCost() { return basePackageCost; }
-    public void setBasePackageCost(double basePackageCost) { this.basePackageCost = basePackageCost; }
+    public void setBasePackageCost(double basePackageCost) { checkMutable(); this.basePackageCost = basePackageCost; }
 
     public double getAdditionalItemsCost() { return additionalItemsCost; }
-    public void setAdditionalItemsCost(double additionalItemsCost) { this.additionalItemsCost = additionalItemsCost; }
+    public void setAdditionalItemsCost(double additionalItemsCost) { checkMutable(); this.additionalItemsCost = additionalItemsCost; }
 
     public double getTotalCost() { return totalCost; }
-    public void setTotalCost(double totalCost) { this.totalCost = totalCost; }
+    public void setTotalCost(double totalCost) { checkMutable(); this.totalCost = totalCost; }
 
     public String getCustomRequests() { return customRequests; }
-    public void setCustomRequests(String customRequests) { this.customRequests = customRequests; }
+    public void setCustomRequests(String customRequests) { checkMutable(); this.customRequests = customRequests; }
 
     public String getBookingStatus() { return bookingStatus; }
-    public void setBookingStatus(String bookingStatus) { this.bookingStatus = bookingStatus; }
+    public void setBookingStatus(String bookingStatus) { checkMutable(); this.bookingStatus = bookingStatus; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { checkMutable(); this.version = version; }
 
     public Package getSelectedPackage() { return selectedPackage; }
-    public void setSelectedPackage(Package selectedPackage) { this.selectedPackage = selectedPackage; }
+    public void setSelectedPackage(Package selectedPackage) { checkMutable(); this.selectedPackage = selectedPackage; }
 
     // --- Getters/setters/methods for bookingItems list ---
     public List<BookingItem> getBookingItems() {
@@ -82,12 +90,14 @@ public class Booking {
     }
 
     public void setBookingItems(List<BookingItem> bookingItems) {
+        checkMutable();
         // Assign a new list if null is passed to avoid NullPointerException
         this.bookingItems = bookingItems == null ? new ArrayList<>() : bookingItems;
     }
 
     // Optional helper method to add an item
     public void addBookingItem(BookingItem item) {
+        checkMutable();
         if (item != null) {
             this.bookingItems.add(item);
             // Optionally link the item back to this booking's ID if not already set
@@ -95,6 +105,56 @@ public class Booking {
         }
     }
 
+    // --- Stored versions ---
+
+    /** Marks an item list that already rejects changes; {@link #freeze()} keeps it as it is. */
+    public interface ReadOnlyItems {}
+
+    /**
+     * Makes this booking read-only. Called by the data layer before a booking is published as a
+     * stored version; from then on setters throw and the item list is unmodifiable.
+     * The BookingItem objects themselves are shared as well and must not be changed.
+     */
+    public void freeze() {
+        if (!frozen) {
+            if (!(bookingItems instanceof ReadOnlyItems)) {
+                bookingItems = Collections.unmodifiableList(bookingItems);
+            }
+            frozen = true;
+        }
+    }
+
+    public boolean isFrozen() { return frozen; }
+
+    /** Returns a mutable copy, e.g. to edit a stored booking. The item list is copied, the items are shared. */
+    public Booking copy() {
+        Booking copy = new Booking();
+        copy.bookingId = bookingId;
+        copy.customerName = customerName;
+        copy.customerContact = customerContact;
+        copy.eventDate = eventDate;
+        copy.eventTime = eventTime;
+        copy.venueAddress = venueAddress;
+        copy.themeDescription = themeDescription;
+        copy.numGuests = numGuests;
+        copy.selectedPackageId = selectedPackageId;
+        copy.basePackageCost = basePackageCost;
+        copy.additionalItemsCost = additionalItemsCost;
+        copy.totalCost = totalCost;
+        copy.customRequests = customRequests;
+        copy.bookingStatus = bookingStatus;
+        copy.version = version;
+        copy.selectedPackage = selectedPackage;
+        copy.bookingItems = new ArrayList<>(bookingItems);
+        return copy;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Booking " + bookingId + " is a stored version; edit a copy()");
+        }
+    }
+
     @Override
     public String toString() {
         // Basic representation, customize as needed
@@ -1,72 +1,73 @@
 package nagascatering.model;
 
-import javafx.beans.property.*;
 import java.util.Objects; // For equals/hashCode
 
-// Represents a link between a booking and a menu item from booking_items table
-public class BookingItem {
+/**
+ * A link between a booking and a menu item (a booking_items row). Immutable: stored bookings
+ * share their items, so a changed line is a new object made with one of the with... methods.
+ * Holds plain fields only; screens wrap what they display (see FxCells in the controller package).
+ */
+public final class BookingItem {
 
-    private final IntegerProperty bookingItemId = new SimpleIntegerProperty(0); // 0 for new
-    private final IntegerProperty bookingId = new SimpleIntegerProperty(); // FK to bookings
-    private final IntegerProperty itemId = new SimpleIntegerProperty();    // FK to menu_items
-    private final IntegerProperty quantity = new SimpleIntegerProperty();
-    private final DoubleProperty calculatedItemCost = new SimpleDoubleProperty(); // Total cost for this line item (qty * unit_cost)
+    private final int bookingItemId; // 0 for new
+    private final int bookingId; // FK to bookings
+    private final int itemId;    // FK to menu_items
+    private final int quantity;
+    private final double calculatedItemCost; // Total cost for this line item (qty * unit_cost)
 
-    // Hold the associated MenuItem object for easy access to details like name, unit cost etc.
-    private MenuItem menuItem;
+    // The associated MenuItem object for easy access to details like name, unit cost etc.
+    private final MenuItem menuItem;
 
     // --- Constructors ---
-    public BookingItem() {}
-
-    // --- Property Getters (useful for TableView columns if needed) ---
-    public IntegerProperty bookingItemIdProperty() { return bookingItemId; }
-    public IntegerProperty bookingIdProperty() { return bookingId; }
-    public IntegerProperty itemIdProperty() { return itemId; }
-    public IntegerProperty quantityProperty() { return quantity; }
-    public DoubleProperty calculatedItemCostProperty() { return calculatedItemCost; }
-    // Property for MenuItem name (derived) - Useful for TableView display
-     public StringProperty itemNameProperty() {
-        // Creates a read-only property bound to the MenuItem's name
-        // Requires MenuItem nameProperty to be available
-        if (menuItem != null) {
-            return menuItem.nameProperty(); // Directly return if MenuItem uses JavaFX properties
-        } else {
-            // Fallback if menuItem is null or doesn't use properties
-             return new SimpleStringProperty("Item ID: " + getItemId());
-        }
-        // Alternative if MenuItem doesn't use properties:
-        // String name = (menuItem != null) ? menuItem.getName() : "Item ID: " + getItemId();
-        // return new SimpleStringProperty(name);
+
+    /** A new, unsaved line for the given menu item. */
+    public BookingItem(MenuItem menuItem, int quantity, double calculatedItemCost) {
+        this(0, 0, menuItem.getItemId(), quantity, calculatedItemCost, menuItem);
     }
 
+    public BookingItem(int bookingItemId, int bookingId, int itemId, int quantity, double calculatedItemCost, MenuItem menuItem) {
+        this.bookingItemId = bookingItemId;
+        this.bookingId = bookingId;
+        this.itemId = itemId;
+        this.quantity = quantity;
+        this.calculatedItemCost = calculatedItemCost;
+        this.menuItem = menuItem;
+    }
 
-    // --- Standard Getters ---
-    public int getBookingItemId() { return bookingItemId.get(); }
-    public int getBookingId() { return bookingId.get(); }
-    public int getItemId() { return itemId.get(); }
-    public int getQuantity() { return quantity.get(); }
-    public double getCalculatedItemCost() { return calculatedItemCost.get(); }
+    // --- Getters ---
+    public int getBookingItemId() { return bookingItemId; }
+    public int getBookingId() { return bookingId; }
+    public int getItemId() { return itemId; }
+    public int getQuantity() { return quantity; }
+    public double getCalculatedItemCost() { return calculatedItemCost; }
     public MenuItem getMenuItem() { return menuItem; }
 
-    // --- Standard Setters ---
-    public void setBookingItemId(int value) { bookingItemId.set(value); }
-    public void setBookingId(int value) { bookingId.set(value); }
-    public void setItemId(int value) { itemId.set(value); }
-    public void setQuantity(int value) { quantity.set(value); }
-    public void setCalculatedItemCost(double value) { calculatedItemCost.set(value); }
-    public void setMenuItem(MenuItem menuItem) {
-        this.menuItem = menuItem;
-        // If MenuItem changes, ensure itemId property is also updated if needed
-        if (menuItem != null) {
-            this.itemId.set(menuItem.getItemId());
-        }
+    /** The menu item's name, or a placeholder when the menu item is not linked. */
+    public String getItemName() {
+        return (menuItem != null && menuItem.getName() != null) ? menuItem.getName() : "Item ID: " + itemId;
+    }
+
+    // --- Copies with one change ---
+
+    /** Assigns the line to a booking, keeping its own ID. */
+    public BookingItem withIds(int bookingItemId, int bookingId) {
+        return new BookingItem(bookingItemId, bookingId, itemId, quantity, calculatedItemCost, menuItem);
+    }
+
+    public BookingItem withCalculatedItemCost(double calculatedItemCost) {
+        return new BookingItem(bookingItemId, bookingId, itemId, quantity, calculatedItemCost, menuItem);
+    }
+
+    /** Links the menu item; a null keeps the item ID as it is. */
+    public BookingItem withMenuItem(MenuItem menuItem) {
+        int linkedItemId = menuItem != null ? menuItem.getItemId() : itemId;
+        return new BookingItem(bookingItemId, bookingId, linkedItemId, quantity, calculatedItemCost, menuItem);
     }
 
      @Override
     public String toString() {
          // Provides a readable representation for ListView or debugging
-         String itemName = (menuItem != null && menuItem.getName() != null) ? menuItem.getName() : "Item ID: " + getItemId();
-         return String.format("%s x %d = ₱%.2f", itemName, getQuantity(), getCalculatedItemCost());
+         return String.format("%s x %d = ₱%.2f", getItemName(), getQuantity(), getCalculatedItemCost());
     }
 
     // Optional: equals/hashCode if needed to compare BookingItems
@@ -0,0 +1,96 @@
+package nagascatering.model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The rules a booking's fields must meet, shared by the booking form and the bulk importer so a
+ * booking is accepted or refused the same way however it comes in. Stateless and thread-safe.
+ */
+public final class BookingRules {
+
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    /** Booking statuses, in the order the form offers them; the first is the default. */
+    public static final List<String> STATUSES =
+            Collections.unmodifiableList(Arrays.asList("Pending", "Confirmed", "Completed", "Cancelled"));
+
+    // Digits, spaces, plus and hyphen, at least 5 characters
+    private static final Pattern CONTACT = Pattern.compile("^[\\d\\s+-]{5,}$");
+
+    private BookingRules() {}
+
+    public static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+
+    public static boolean isValidContact(String contact) {
+        return !isBlank(contact) && CONTACT.matcher(contact.trim()).matches();
+    }
+
+    /** An event time is optional; if given it must be HH:mm. */
+    public static boolean isValidTime(String time) {
+        if (isBlank(time)) {
+            return true;
+        }
+        try {
+            LocalTime.parse(time.trim(), TIME_FORMAT);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /** The status as listed in {@link #STATUSES}, matched ignoring case and spaces; null if unknown. */
+    public static String canonicalStatus(String status) {
+        if (status != null) {
+            for (String known : STATUSES) {
+                if (known.equalsIgnoreCase(status.trim())) {
+                    return known;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * What is wrong with the booking, one message per problem in form order; empty if it is valid.
+     * @param earliestEventDate first allowed event date, or null to allow any (e.g. historical imports)
+     */
+    public static List<String> problems(Booking booking, LocalDate earliestEventDate) {
+        List<String> problems = new ArrayList<>(2);
+        if (isBlank(booking.getCustomerName())) {
+            problems.add("Customer name is required.");
+        }
+        if (isBlank(booking.getCustomerContact())) {
+            problems.add("Contact number is required.");
+        } else if (!isValidContact(booking.getCustomerContact())) {
+            problems.add("Contact number format is invalid; use digits, spaces, +, -.");
+        }
+        if (booking.getEventDate() == null) {
+            problems.add("Event date is required.");
+        } else if (earliestEventDate != null && booking.getEventDate().isBefore(earliestEventDate)) {
+            problems.add("Event date cannot be in the past.");
+        }
+        if (!isValidTime(booking.getEventTime())) {
+            problems.add("Event time, if entered, must be in HH:mm format (e.g., 14:30).");
+        }
+        if (booking.getNumGuests() <= 0) {
+            problems.add("Number of guests must be greater than 0.");
+        }
+        if (isBlank(booking.getVenueAddress())) {
+            problems.add("Venue address is required.");
+        }
+        if (booking.getBookingStatus() != null && canonicalStatus(booking.getBookingStatus()) == null) {
+            problems.add("Unknown booking status: " + booking.getBookingStatus());
+        }
+        return problems;
+    }
+}
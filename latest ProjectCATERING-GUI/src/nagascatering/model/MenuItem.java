@@ -1,17 +1,17 @@
 package nagascatering.model;
 
-import javafx.beans.property.*;
 import java.util.Objects; // Import Objects for equals/hashCode
 
 // Represents an item from the menu_items table
 public class MenuItem {
 
-    private final IntegerProperty itemId = new SimpleIntegerProperty(0); // Default 0 for new
-    private final StringProperty name = new SimpleStringProperty();
-    private final StringProperty description = new SimpleStringProperty();
-    private final DoubleProperty costPerUnit = new SimpleDoubleProperty();
-    private final StringProperty unitType = new SimpleStringProperty(); // e.g., per_person, per_tray, fixed
-    private final BooleanProperty active = new SimpleBooleanProperty(true);
+    private int itemId = 0; // Default 0 for new
+    private String name;
+    private String description;
+    private double costPerUnit;
+    private String unitType; // e.g., per_person, per_tray, fixed
+    private UnitType unit = UnitType.FIXED; // Parsed from unitType, so pricing never compares strings
+    private boolean active = true;
 
     // --- Constructors ---
     public MenuItem() {}
@@ -27,36 +27,39 @@ public class MenuItem {
     }
 
 
-    // --- Property Getters ---
-    public IntegerProperty itemIdProperty() { return itemId; }
-    public StringProperty nameProperty() { return name; }
-    public StringProperty descriptionProperty() { return description; }
-    public DoubleProperty costPerUnitProperty() { return costPerUnit; }
-    public StringProperty unitTypeProperty() { return unitType; }
-    public BooleanProperty activeProperty() { return active; }
-
     // --- Standard Getters ---
-    public int getItemId() { return itemId.get(); }
-    public String getName() { return name.get(); }
-    public String getDescription() { return description.get(); }
-    public double getCostPerUnit() { return costPerUnit.get(); }
-    public String getUnitType() { return unitType.get(); }
-    public boolean isActive() { return active.get(); }
+    public int getItemId() { return itemId; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public double getCostPerUnit() { return costPerUnit; }
+    public String getUnitType() { return unitType; }
+    public UnitType getUnit() { return unit; }
+    public boolean isActive() { return active; }
 
     // --- Standard Setters ---
-    public void setItemId(int value) { itemId.set(value); }
-    public void setName(String value) { name.set(value); }
-    public void setDescription(String value) { description.set(value); }
-    public void setCostPerUnit(double value) { costPerUnit.set(value); }
-    public void setUnitType(String value) { unitType.set(value); }
-    public void setActive(boolean value) { active.set(value); }
+    public void setItemId(int value) { this.itemId = value; }
+    public void setName(String value) { this.name = value; }
+    public void setDescription(String value) { this.description = value; }
+    public void setCostPerUnit(double value) { this.costPerUnit = value; }
+    public void setUnitType(String value) {
+        this.unitType = value;
+        this.unit = UnitType.fromCode(value);
+    }
+    public void setActive(boolean value) { this.active = value; }
+
+    /** Returns an independent copy, e.g. so a cached menu item is not edited in place. */
+    public MenuItem copy() {
+        MenuItem copy = new MenuItem(getItemId(), getName(), getCostPerUnit(), getUnitType(), isActive());
+        copy.setDescription(getDescription());
+        return copy;
+    }
 
     @Override
     public String toString() {
         // Used by ComboBoxes or lists for display
-        String nameStr = name.get() != null ? name.get() : "Unnamed Item";
-        String costStr = String.format("%.2f", costPerUnit.get());
-        String unitStr = unitType.get() != null ? unitType.get() : "unit";
+        String nameStr = name != null ? name : "Unnamed Item";
+        String costStr = String.format("%.2f", costPerUnit);
+        String unitStr = unitType != null ? unitType : "unit";
         // Example: "Lechon Belly (5000.00/tray)" or "Rice (50.00/per_person)"
         return String.format("%s (₱%s/%s)", nameStr, costStr, unitStr);
     }
@@ -1,16 +1,15 @@
 package nagascatering.model;
 
-import javafx.beans.property.*;
-
 public class Package {
 
-    private final IntegerProperty packageId = new SimpleIntegerProperty(0); // Default to 0 for new packages
-    private final StringProperty name = new SimpleStringProperty();
-    private final StringProperty description = new SimpleStringProperty();
-    private final DoubleProperty price = new SimpleDoubleProperty();
-    private final IntegerProperty capacity = new SimpleIntegerProperty();
-    private final StringProperty includedItemsDesc = new SimpleStringProperty();
-    private final BooleanProperty active = new SimpleBooleanProperty(true); // Default to true
+    private int packageId = 0; // Default to 0 for new packages
+    private String name;
+    private String description;
+    private double price;
+    private int capacity;
+    private String includedItemsDesc;
+    private boolean active = true; // Default to true
+    private long version; // Incremented by the data layer on every save (optimistic concurrency)
 
     // --- Constructors ---
     public Package() {}
@@ -26,32 +25,35 @@ public class Package {
     }
 
 
-    // --- Property Getters (for JavaFX TableView/Bindings) ---
-    public IntegerProperty packageIdProperty() { return packageId; }
-    public StringProperty nameProperty() { return name; }
-    public StringProperty descriptionProperty() { return description; }
-    public DoubleProperty priceProperty() { return price; }
-    public IntegerProperty capacityProperty() { return capacity; }
-    public StringProperty includedItemsDescProperty() { return includedItemsDesc; }
-    public BooleanProperty activeProperty() { return active; }
-
     // --- Standard Getters ---
-    public int getPackageId() { return packageId.get(); }
-    public String getName() { return name.get(); }
-    public String getDescription() { return description.get(); }
-    public double getPrice() { return price.get(); }
-    public int getCapacity() { return capacity.get(); }
-    public String getIncludedItemsDesc() { return includedItemsDesc.get(); }
-    public boolean isActive() { return active.get(); }
+    public int getPackageId() { return packageId; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public double getPrice() { return price; }
+    public int getCapacity() { return capacity; }
+    public String getIncludedItemsDesc() { return includedItemsDesc; }
+    public boolean isActive() { return active; }
 
     // --- Standard Setters ---
-    public void setPackageId(int value) { packageId.set(value); }
-    public void setName(String value) { name.set(value); }
-    public void setDescription(String value) { description.set(value); }
-    public void setPrice(double value) { price.set(value); }
-    public void setCapacity(int value) { capacity.set(value); }
-    public void setIncludedItemsDesc(String value) { includedItemsDesc.set(value); }
-    public void setActive(boolean value) { active.set(value); }
+    public void setPackageId(int value) { this.packageId = value; }
+    public void setName(String value) { this.name = value; }
+    public void setDescription(String value) { this.description = value; }
+    public void setPrice(double value) { this.price = value; }
+    public void setCapacity(int value) { this.capacity = value; }
+    public void setIncludedItemsDesc(String value) { this.includedItemsDesc = value; }
+    public void setActive(boolean value) { this.active = value; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    /** Returns an independent copy, e.g. so a stored package is not edited in place. */
+    public Package copy() {
+        Package copy = new Package(getPackageId(), getName(), getPrice(), getCapacity(), isActive());
+        copy.setDescription(getDescription());
+        copy.setIncludedItemsDesc(getIncludedItemsDesc());
+        copy.setVersion(version);
+        return copy;
+    }
 
      @Override
     public String toString() {
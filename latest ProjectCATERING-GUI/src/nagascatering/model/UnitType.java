@@ -0,0 +1,42 @@
+package nagascatering.model;
+
+import java.util.Locale;
+
+/**
+ * How a menu item is priced. Stored as its code ("per_person", "per_tray", "fixed") in the
+ * menu_items table and the journal.
+ */
+public enum UnitType {
+    /** Unit price times the booking's guest count; the line quantity is not used. */
+    PER_PERSON("per_person"),
+    /** Unit price times the quantity of trays. */
+    PER_TRAY("per_tray"),
+    /** Unit price times the quantity. */
+    FIXED("fixed");
+
+    private static final UnitType[] ALL = values(); // values() copies the array on every call
+
+    private final String code;
+
+    UnitType(String code) {
+        this.code = code;
+    }
+
+    public String getCode() { return code; }
+
+    /**
+     * The unit type for a stored code, ignoring case. Unknown or missing codes are priced by
+     * quantity, as FIXED, which is how the booking form has always treated them.
+     */
+    public static UnitType fromCode(String code) {
+        if (code != null) {
+            String normalized = code.trim().toLowerCase(Locale.ROOT);
+            for (UnitType type : ALL) {
+                if (type.code.equals(normalized)) {
+                    return type;
+                }
+            }
+        }
+        return FIXED;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package nagascatering.pricing;
+
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import nagascatering.model.UnitType;
+import java.util.List;
+
+/**
+ * Prices bookings: a package plus item lines, in long centavos. Shared by the booking form,
+ * bulk repricing and imports so they all agree to the centavo.
+ * <p>
+ * Catalog prices are stored as doubles and converted once per line with {@link #toCentavos};
+ * after that all arithmetic is on longs, so sums are exact and independent of order, and an
+ * overflow throws instead of wrapping. Nothing here allocates except {@link #reprice} when a
+ * line's cost actually changes; item lists are walked by index rather than with an iterator.
+ */
+public final class PricingEngine {
+
+    private PricingEngine() {}
+
+    public static long toCentavos(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    public static double toAmount(long centavos) {
+        return centavos / 100.0;
+    }
+
+    /**
+     * Price of one line. Per-person items cost the unit price times the guest count, everything
+     * else the unit price times the quantity; a line with no quantity costs nothing.
+     */
+    public static long linePrice(UnitType unit, long unitPriceCentavos, int quantity, int guests) {
+        if (quantity <= 0) {
+            return 0;
+        }
+        int units = unit == UnitType.PER_PERSON ? guests : quantity;
+        return units <= 0 ? 0 : Math.multiplyExact(unitPriceCentavos, units);
+    }
+
+    public static long linePrice(MenuItem menuItem, int quantity, int guests) {
+        if (menuItem == null) {
+            return 0;
+        }
+        return linePrice(menuItem.getUnit(), toCentavos(menuItem.getCostPerUnit()), quantity, guests);
+    }
+
+    /** Current price of a booking line; a line whose menu item is not linked keeps its stored cost. */
+    public static long linePrice(BookingItem item, int guests) {
+        if (item.getMenuItem() == null) {
+            return toCentavos(item.getCalculatedItemCost());
+        }
+        return linePrice(item.getMenuItem(), item.getQuantity(), guests);
+    }
+
+    /** The line with its cost brought up to date for the guest count; the same object if unchanged. */
+    public static BookingItem reprice(BookingItem item, int guests) {
+        long price = linePrice(item, guests);
+        return price == toCentavos(item.getCalculatedItemCost()) ? item : item.withCalculatedItemCost(toAmount(price));
+    }
+
+    /**
+     * Prices a package (null for none) plus item lines for the guest count into {@code into},
+     * which is returned.
+     */
+    public static Quote quote(Package pkg, List<BookingItem> items, int guests, Quote into) {
+        long packagePrice = pkg != null ? toCentavos(pkg.getPrice()) : 0;
+        long itemsPrice = 0;
+        int lines = items != null ? items.size() : 0;
+        for (int i = 0; i < lines; i++) {
+            itemsPrice = Math.addExact(itemsPrice, linePrice(items.get(i), guests));
+        }
+        into.set(packagePrice, itemsPrice, lines);
+        return into;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package nagascatering.pricing;
+
+import nagascatering.model.Booking;
+
+/**
+ * The price of one booking: package, additional items and total, in centavos. Mutable and
+ * reusable, so a loop pricing many bookings can fill the same instance each time.
+ */
+public final class Quote {
+
+    private long packageCentavos;
+    private long itemsCentavos;
+    private int lineCount;
+
+    void set(long packageCentavos, long itemsCentavos, int lineCount) {
+        this.packageCentavos = packageCentavos;
+        this.itemsCentavos = itemsCentavos;
+        this.lineCount = lineCount;
+    }
+
+    public long getPackageCentavos() { return packageCentavos; }
+    public long getItemsCentavos() { return itemsCentavos; }
+    public long getTotalCentavos() { return Math.addExact(packageCentavos, itemsCentavos); }
+    public int getLineCount() { return lineCount; }
+
+    public double getPackageCost() { return PricingEngine.toAmount(packageCentavos); }
+    public double getItemsCost() { return PricingEngine.toAmount(itemsCentavos); }
+    public double getTotalCost() { return PricingEngine.toAmount(getTotalCentavos()); }
+
+    /** Sets the booking's base package, additional items and total cost from this quote. */
+    public void applyTo(Booking booking) {
+        booking.setBasePackageCost(getPackageCost());
+        booking.setAdditionalItemsCost(getItemsCost());
+        booking.setTotalCost(getTotalCost());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Quote{package=%.2f, items=%.2f (%d lines), total=%.2f}",
+                getPackageCost(), getItemsCost(), lineCount, getTotalCost());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package nagascatering.pricing;
+
+import nagascatering.model.BookingItem;
+import nagascatering.model.MenuItem;
+import nagascatering.model.Package;
+import nagascatering.model.UnitType;
+
+/**
+ * The total of a quote being edited, kept up to date as lines are added and removed and as the
+ * guest count or package changes, each in O(1) instead of repricing every line.
+ * <p>
+ * Per-person lines are kept as one sum of unit prices that is multiplied by the guest count when
+ * read; every other line is priced once when added, into a second sum. Totals always equal
+ * {@link PricingEngine#quote} over the same lines. Not thread-safe: one instance per form.
+ */
+public final class RunningQuote {
+
+    private long packageCentavos;
+    private long perPersonRateCentavos; // Sum of unit prices of per-person lines
+    private long otherLinesCentavos;    // Sum of the prices of all other lines
+    private int perPersonLines;
+    private int lineCount;
+    private int guests;
+
+    public void setPackage(Package pkg) {
+        packageCentavos = pkg != null ? PricingEngine.toCentavos(pkg.getPrice()) : 0;
+    }
+
+    public void setGuests(int guests) {
+        this.guests = Math.max(0, guests);
+    }
+
+    public void add(BookingItem item) {
+        adjust(item, 1);
+    }
+
+    public void remove(BookingItem item) {
+        adjust(item, -1);
+    }
+
+    /** True if a guest count change moves the total (some line is priced per person). */
+    public boolean hasPerPersonLines() { return perPersonLines > 0; }
+
+    public long getItemsCentavos() {
+        return Math.addExact(Math.multiplyExact(perPersonRateCentavos, guests), otherLinesCentavos);
+    }
+
+    public long getTotalCentavos() {
+        return Math.addExact(packageCentavos, getItemsCentavos());
+    }
+
+    /** Copies the current totals into {@code into}, which is returned. */
+    public Quote toQuote(Quote into) {
+        into.set(packageCentavos, getItemsCentavos(), lineCount);
+        return into;
+    }
+
+    private void adjust(BookingItem item, int sign) {
+        MenuItem menuItem = item.getMenuItem();
+        if (menuItem != null && menuItem.getUnit() == UnitType.PER_PERSON) {
+            // Price for one guest, i.e. the unit price (0 for a line without quantity)
+            perPersonRateCentavos = Math.addExact(perPersonRateCentavos, sign * PricingEngine.linePrice(menuItem, item.getQuantity(), 1));
+            perPersonLines += sign;
+        } else {
+            otherLinesCentavos = Math.addExact(otherLinesCentavos, sign * PricingEngine.linePrice(item, guests));
+        }
+        lineCount += sign;
+    }
+}
\ No newline at end of file
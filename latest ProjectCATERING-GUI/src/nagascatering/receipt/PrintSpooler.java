@@ -0,0 +1,346 @@
+package nagascatering.receipt;
+
+import nagascatering.data.DataRepositories;
+import nagascatering.data.LatencyHistogram;
+import nagascatering.data.Metrics;
+import nagascatering.model.Booking;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prints receipts in the background, one job at a time, on its own daemon thread.
+ * <p>
+ * Jobs are taken highest {@link Priority} first, and in submission order within a priority, so a
+ * receipt printed at the front desk goes ahead of an end-of-day batch. Each job is rendered on
+ * the spooler thread, never on the caller's. A failed job is retried after a growing delay; after
+ * {@value #MAX_ATTEMPTS} failed attempts on the printer it is spooled instead. When no printer is
+ * attached, jobs are written straight to the spool directory as text files (pages separated by
+ * form feeds) to be printed later. {@link #close()} spools whatever is still queued.
+ * <p>
+ * Configuration: {@value #SPOOL_DIR_PROPERTY} sets the spool directory (default {@code spool}
+ * in the data directory); {@value #SPOOL_ONLY_PROPERTY}{@code =true} spools every job, e.g.
+ * on a machine without a printer.
+ */
+public final class PrintSpooler implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(PrintSpooler.class.getName());
+
+    public static final String SPOOL_DIR_PROPERTY = "nagascatering.print.spoolDir";
+    public static final String SPOOL_ONLY_PROPERTY = "nagascatering.print.spoolOnly";
+
+    static final int MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_DELAY_MILLIS = 2_000; // Doubles with each retry
+    private static final long IDLE_POLL_MILLIS = 500; // How soon the worker notices close()
+    private static final long CLOSE_WAIT_MILLIS = 10_000; // For the job being printed
+    private static final int SPOOL_LINES_PER_PAGE = 66; // A letter page at 6 lines per inch
+    private static final DateTimeFormatter SPOOL_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    /** Job priority, most urgent first. */
+    public enum Priority { URGENT, NORMAL, BULK }
+
+    /** Where a printer sends a job's text. */
+    public interface Printer {
+        /** Whether a printer is attached; if not, jobs are spooled instead. */
+        boolean isAvailable();
+
+        /** Prints the text; called on the spooler thread. */
+        void print(String jobName, String text) throws Exception;
+    }
+
+    /** How a job ended. */
+    public static final class Outcome {
+        private final String jobName;
+        private final Path spoolFile;
+        private final int attempts;
+        private final Throwable printerError;
+
+        Outcome(String jobName, Path spoolFile, int attempts, Throwable printerError) {
+            this.jobName = jobName;
+            this.spoolFile = spoolFile;
+            this.attempts = attempts;
+            this.printerError = printerError;
+        }
+
+        public String getJobName() { return jobName; }
+        /** Whether the job went to the printer, rather than to the spool directory. */
+        public boolean isPrinted() { return spoolFile == null; }
+        /** The spooled file, or null if printed. */
+        public Path getSpoolFile() { return spoolFile; }
+        public int getAttempts() { return attempts; }
+        /** The printer's last error, if the job was spooled after failing on the printer. */
+        public Throwable getPrinterError() { return printerError; }
+
+        @Override
+        public String toString() {
+            return jobName + (isPrinted() ? " printed" : " spooled to " + spoolFile) + " after " + attempts
+                    + (attempts == 1 ? " attempt" : " attempts");
+        }
+    }
+
+    private static final class Job implements Comparable<Job> {
+        final long sequence;
+        final Priority priority;
+        final Booking booking;
+        final ReceiptRenderer.Kind kind;
+        final String name;
+        final CompletableFuture<Outcome> result = new CompletableFuture<>();
+        // Only touched by the thread running the job
+        String text;
+        int attempts;
+        Throwable printerError;
+        boolean spoolInstead;
+
+        Job(long sequence, Priority priority, Booking booking) {
+            this.sequence = sequence;
+            this.priority = priority;
+            this.booking = booking;
+            this.kind = ReceiptRenderer.Kind.forBooking(booking);
+            this.name = (kind == ReceiptRenderer.Kind.RECEIPT ? "Receipt #" : "Quotation #") + booking.getBookingId();
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class Retry implements Delayed {
+        final Job job;
+        final long dueNanos;
+
+        Retry(Job job, long delayMillis) {
+            this.job = job;
+            this.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Retry) other).dueNanos);
+        }
+    }
+
+    private final ReceiptRenderer renderer;
+    private final Printer printer; // Null to spool every job
+    private final Path spoolDirectory;
+    private final long retryDelayMillis;
+
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    private final DelayQueue<Retry> retrying = new DelayQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final LongAdder printed = Metrics.counter("print.printed");
+    private final LongAdder spooled = Metrics.counter("print.spooled");
+    private final LongAdder retried = Metrics.counter("print.retried");
+    private final LongAdder failed = Metrics.counter("print.failed");
+    private final LatencyHistogram attemptTime = Metrics.histogram("print.attempt");
+
+    public PrintSpooler(ReceiptRenderer renderer, Printer printer, Path spoolDirectory) {
+        this(renderer, printer, spoolDirectory, DEFAULT_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * @param printer the printer, or null to spool every job
+     * @param retryDelayMillis delay before the first retry of a failed job
+     */
+    public PrintSpooler(ReceiptRenderer renderer, Printer printer, Path spoolDirectory, long retryDelayMillis) {
+        this.renderer = Objects.requireNonNull(renderer, "renderer");
+        this.printer = printer;
+        this.spoolDirectory = Objects.requireNonNull(spoolDirectory, "spoolDirectory");
+        this.retryDelayMillis = retryDelayMillis;
+        worker = new Thread(this::runJobs, "print-spooler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** The configured spool directory. */
+    public static Path configuredSpoolDirectory() {
+        String configured = System.getProperty(SPOOL_DIR_PROPERTY);
+        return configured != null && !configured.trim().isEmpty()
+                ? Paths.get(configured.trim())
+                : DataRepositories.dataDirectory().resolve("spool");
+    }
+
+    /** Whether configuration asks to spool every job rather than use a printer. */
+    public static boolean isSpoolOnly() {
+        return Boolean.parseBoolean(System.getProperty(SPOOL_ONLY_PROPERTY, "false").trim());
+    }
+
+    public Path getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    /** Jobs waiting to print, including those waiting to be retried. */
+    public int getQueueDepth() {
+        return queue.size() + retrying.size();
+    }
+
+    /**
+     * Queues the booking's receipt (or quotation, while pending) and returns at once. The booking
+     * must not be changed afterwards; pass a stored booking or a copy.
+     * @return completes when the job is printed or spooled, or exceptionally if both fail
+     */
+    public CompletableFuture<Outcome> print(Booking booking, Priority priority) {
+        Job job = new Job(sequence.incrementAndGet(), Objects.requireNonNull(priority, "priority"), booking);
+        queue.add(job);
+        if (!running && queue.remove(job)) { // Closed meanwhile
+            job.result.completeExceptionally(new IllegalStateException("Print spooler is closed"));
+        }
+        return job.result;
+    }
+
+    private void runJobs() {
+        while (running) {
+            for (Retry due = retrying.poll(); due != null; due = retrying.poll()) { // Only returns retries that are due
+                queue.add(due.job);
+            }
+            Retry next = retrying.peek();
+            long waitMillis = next == null ? IDLE_POLL_MILLIS
+                    : Math.max(1, Math.min(IDLE_POLL_MILLIS, next.getDelay(TimeUnit.MILLISECONDS)));
+            try {
+                Job job = queue.poll(waitMillis, TimeUnit.MILLISECONDS);
+                if (job != null) {
+                    attempt(job);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) { // Keep the spooler alive whatever a job does
+                LOGGER.log(Level.SEVERE, "Print spooler job failed unexpectedly", e);
+            }
+        }
+    }
+
+    private void attempt(Job job) {
+        long start = System.nanoTime();
+        boolean toPrinter = false;
+        try {
+            if (job.text == null) {
+                job.text = renderer.render(job.booking, job.kind);
+            }
+            job.attempts++;
+            toPrinter = printer != null && !job.spoolInstead && printer.isAvailable();
+            if (toPrinter) {
+                printer.print(job.name, job.text);
+                printed.increment();
+                job.result.complete(new Outcome(job.name, null, job.attempts, null));
+            } else {
+                Path file = spool(job);
+                spooled.increment();
+                job.result.complete(new Outcome(job.name, file, job.attempts, job.printerError));
+            }
+            attemptTime.record(System.nanoTime() - start);
+        } catch (Exception e) {
+            attemptTime.record(System.nanoTime() - start, true);
+            failedAttempt(job, e, toPrinter);
+        }
+    }
+
+    private void failedAttempt(Job job, Exception error, boolean onPrinter) {
+        if (onPrinter) {
+            job.printerError = error;
+        }
+        if (job.attempts < MAX_ATTEMPTS && running) {
+            long delay = retryDelayMillis << (job.attempts - 1);
+            LOGGER.log(Level.WARNING, "{0} failed (attempt {1}), retrying in {2} ms: {3}",
+                    new Object[]{job.name, job.attempts, delay, error.toString()});
+            retried.increment();
+            retrying.add(new Retry(job, delay));
+        } else if (onPrinter) {
+            LOGGER.log(Level.WARNING, "{0} failed on the printer {1} times; spooling it instead: {2}",
+                    new Object[]{job.name, job.attempts, error.toString()});
+            job.spoolInstead = true;
+            if (running) {
+                queue.add(job);
+            } else {
+                attempt(job); // The worker has stopped
+            }
+        } else {
+            LOGGER.log(Level.SEVERE, job.name + " could not be printed or spooled", error);
+            failed.increment();
+            job.result.completeExceptionally(error);
+        }
+    }
+
+    // Writes the job to a .part file and renames it when complete, so the spool directory only
+    // ever holds whole receipts
+    private Path spool(Job job) throws IOException {
+        Files.createDirectories(spoolDirectory);
+        String base = job.kind.name().toLowerCase(Locale.ROOT) + "-" + job.booking.getBookingId() + "-"
+                + SPOOL_TIME.format(LocalDateTime.now());
+        Path file = spoolDirectory.resolve(base + ".txt");
+        for (int copy = 2; Files.exists(file); copy++) { // Only this thread spools, so the name stays free
+            file = spoolDirectory.resolve(base + "-" + copy + ".txt");
+        }
+        Path part = spoolDirectory.resolve(file.getFileName() + ".part");
+        StringBuilder pages = new StringBuilder(job.text.length() + 256);
+        for (String page : ReceiptRenderer.paginate(job.text, ReceiptRenderer.COLUMNS, SPOOL_LINES_PER_PAGE)) {
+            if (pages.length() > 0) {
+                pages.append('\f');
+            }
+            pages.append(page).append('\n');
+        }
+        try {
+            ReceiptRenderer.write(pages.toString(), part);
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+        return file;
+    }
+
+    /**
+     * Stops the spooler once the job being printed (if any) is done, and spools every job still
+     * waiting, so none is lost. Jobs submitted afterwards fail.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            worker.join(CLOSE_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Job> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (Retry retry : retrying) {
+            left.add(retry.job);
+        }
+        retrying.clear();
+        for (Job job : left) {
+            job.spoolInstead = true;
+            attempt(job); // Not retried once closed
+        }
+        if (!left.isEmpty()) {
+            LOGGER.log(Level.INFO, "Spooled {0} waiting print jobs to {1}", new Object[]{left.size(), spoolDirectory});
+        }
+    }
+}
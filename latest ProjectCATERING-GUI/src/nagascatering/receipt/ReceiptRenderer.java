@@ -0,0 +1,280 @@
+package nagascatering.receipt;
+
+import nagascatering.data.DataRepositories;
+import nagascatering.data.DataRepository;
+import nagascatering.data.Metrics;
+import nagascatering.model.Booking;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Renders bookings as plain-text receipts or quotations {@value #COLUMNS} columns wide, from the
+ * {@code receipt.template} and {@code quotation.template} resources (see {@link ReceiptTemplate}).
+ * <p>
+ * The templates are compiled once. Each thread renders into its own reused buffer, and the last
+ * {@value #CACHE_SIZE} results are cached by booking ID and {@link Booking#getVersion() version},
+ * so re-opening an unchanged booking's receipt costs a map lookup. The version only changes when
+ * the booking is saved, so use {@link #renderUncached} for a booking being edited; and a renamed
+ * menu item or package shows on an already cached receipt only after the booking is next saved.
+ * <p>
+ * Usage: {@code ReceiptRenderer DATE [DIR]} writes every receipt and quotation for the event day
+ * to DIR ({@code ant render-receipts -Dreceipt.date=yyyy-MM-dd}).
+ */
+public class ReceiptRenderer {
+
+    private static final Logger LOGGER = Logger.getLogger(ReceiptRenderer.class.getName());
+
+    public static final int COLUMNS = 60;
+    static final int CACHE_SIZE = 256;
+    // A thread's buffer is dropped after rendering something unusually long rather than kept at that size
+    private static final int MAX_KEPT_BUFFER = 64 * 1024;
+
+    /** A confirmed (or later) booking gets a receipt; a pending one a quotation. */
+    public enum Kind {
+        RECEIPT, QUOTATION;
+
+        public static Kind forBooking(Booking booking) {
+            return booking.getBookingStatus() == null || "Pending".equalsIgnoreCase(booking.getBookingStatus().trim())
+                    ? QUOTATION : RECEIPT;
+        }
+    }
+
+    private static final Map<Kind, ReceiptTemplate> TEMPLATES = new EnumMap<>(Kind.class);
+
+    static {
+        TEMPLATES.put(Kind.RECEIPT, ReceiptTemplate.load("receipt.template", COLUMNS));
+        TEMPLATES.put(Kind.QUOTATION, ReceiptTemplate.load("quotation.template", COLUMNS));
+    }
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(4096));
+
+    // Per thread, for writing rendered text to files
+    private static final class FileScratch {
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        final ByteBuffer bytes = ByteBuffer.allocate(16 * 1024);
+    }
+
+    private static final ThreadLocal<FileScratch> FILE_SCRATCH = ThreadLocal.withInitial(FileScratch::new);
+
+    private static final class Rendered {
+        final long version;
+        final String text;
+
+        Rendered(long version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+
+    private final Map<Long, Rendered> cache = new LinkedHashMap<Long, Rendered>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Rendered> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final LongAdder hits = Metrics.counter("receipt.cache.hits");
+    private final LongAdder misses = Metrics.counter("receipt.cache.misses");
+
+    private final DataRepository repository;
+    private final Executor executor;
+
+    /** Renders a day's receipts on the common fork-join pool. */
+    public ReceiptRenderer(DataRepository repository) {
+        this(repository, ForkJoinPool.commonPool());
+    }
+
+    public ReceiptRenderer(DataRepository repository, Executor executor) {
+        this.repository = repository;
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    /** The receipt or quotation for the booking, as its status calls for. */
+    public String render(Booking booking) {
+        return render(booking, Kind.forBooking(booking));
+    }
+
+    /** The booking rendered as the given kind; cached if the booking is stored. */
+    public String render(Booking booking, Kind kind) {
+        if (booking.getBookingId() <= 0 || booking.getVersion() <= 0) {
+            return renderUncached(booking, kind);
+        }
+        Long key = (long) booking.getBookingId() << 1 | kind.ordinal();
+        Rendered rendered;
+        synchronized (cache) {
+            rendered = cache.get(key);
+        }
+        if (rendered != null && rendered.version == booking.getVersion()) {
+            hits.increment();
+            return rendered.text;
+        }
+        misses.increment();
+        String text = renderUncached(booking, kind);
+        synchronized (cache) {
+            Rendered latest = cache.get(key);
+            if (latest == null || latest.version <= booking.getVersion()) { // Don't replace a newer version
+                cache.put(key, new Rendered(booking.getVersion(), text));
+            }
+        }
+        return text;
+    }
+
+    /** Renders without consulting or filling the cache, e.g. for a booking with unsaved edits. */
+    public String renderUncached(Booking booking, Kind kind) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        TEMPLATES.get(kind).render(booking, buffer);
+        String text = buffer.toString();
+        if (buffer.capacity() > MAX_KEPT_BUFFER) {
+            BUFFER.remove();
+        }
+        return text;
+    }
+
+    /**
+     * Splits rendered text into pages of {@code linesPerPage} lines, the last two being a blank line
+     * and a "Page i of n" footer. Lines longer than {@code columns} are wrapped.
+     */
+    public static List<String> paginate(String text, int columns, int linesPerPage) {
+        if (columns < 1 || linesPerPage < 3) {
+            throw new IllegalArgumentException("Page too small: " + columns + " columns, " + linesPerPage + " lines");
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n", -1)) {
+            while (line.length() > columns) {
+                lines.add(line.substring(0, columns));
+                line = line.substring(columns);
+            }
+            lines.add(line);
+        }
+        if (lines.size() > 1 && lines.get(lines.size() - 1).isEmpty()) {
+            lines.remove(lines.size() - 1); // The text's final line break
+        }
+        int bodyLines = linesPerPage - 2;
+        int pageCount = Math.max(1, (lines.size() + bodyLines - 1) / bodyLines);
+        List<String> pages = new ArrayList<>(pageCount);
+        StringBuilder page = new StringBuilder(columns * linesPerPage);
+        for (int p = 0; p < pageCount; p++) {
+            page.setLength(0);
+            int end = Math.min(lines.size(), (p + 1) * bodyLines);
+            for (int i = p * bodyLines; i < end; i++) {
+                page.append(lines.get(i)).append('\n');
+            }
+            String footer = "Page " + (p + 1) + " of " + pageCount;
+            page.append('\n');
+            for (int pad = columns - footer.length(); pad > 0; pad--) {
+                page.append(' ');
+            }
+            pages.add(page.append(footer).toString());
+        }
+        return pages;
+    }
+
+    /**
+     * Writes the receipt or quotation of every booking on the event day to {@code dir}, one
+     * {@code <kind>-<date>-<booking id>.txt} file each (UTF-8), rendering them in parallel.
+     * @return how many files were written
+     */
+    public int renderDay(LocalDate day, Path dir) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(dir);
+        List<Booking> bookings;
+        try (Stream<Booking> stream = repository.streamBookingsWithItems(day, day)) {
+            bookings = stream.collect(Collectors.toList());
+        }
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[bookings.size()];
+        for (int i = 0; i < writes.length; i++) {
+            Booking booking = bookings.get(i);
+            writes[i] = CompletableFuture.runAsync(() -> {
+                Kind kind = Kind.forBooking(booking);
+                String name = kind.name().toLowerCase(Locale.ROOT) + "-" + day + "-" + booking.getBookingId() + ".txt";
+                try {
+                    write(render(booking, kind), dir.resolve(name));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(writes).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+        LOGGER.log(Level.INFO, "Rendered {0} receipts for {1} in {2} ms",
+                new Object[]{writes.length, day, (System.nanoTime() - start) / 1_000_000});
+        return writes.length;
+    }
+
+    // Encodes through the thread's reused encoder and buffer rather than a new Writer per file
+    static void write(String text, Path file) throws IOException {
+        FileScratch scratch = FILE_SCRATCH.get();
+        CharsetEncoder encoder = scratch.encoder.reset();
+        ByteBuffer bytes = scratch.bytes;
+        CharBuffer chars = CharBuffer.wrap(text);
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            bytes.clear();
+            for (CoderResult result = encoder.encode(chars, bytes, true); !result.isUnderflow();
+                    result = encoder.encode(chars, bytes, true)) {
+                if (result.isError()) {
+                    result.throwException();
+                }
+                drain(bytes, channel);
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                drain(bytes, channel);
+            }
+            drain(bytes, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer bytes, FileChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReceiptRenderer DATE [DIR]   (date as yyyy-MM-dd; DIR defaults to receipts)");
+            System.exit(2);
+        }
+        LocalDate day = LocalDate.parse(args[0]);
+        Path dir = Paths.get(args.length > 1 ? args[1] : "receipts");
+        int written = new ReceiptRenderer(DataRepositories.fromConfiguration()).renderDay(day, dir);
+        System.out.println(written + " receipts written to " + dir.toAbsolutePath());
+        System.exit(0); // Shutdown hooks close the store
+    }
+}
@@ -0,0 +1,420 @@
+package nagascatering.receipt;
+
+import nagascatering.model.Booking;
+import nagascatering.model.BookingItem;
+import nagascatering.model.BookingRules;
+import nagascatering.model.Package;
+import nagascatering.pricing.PricingEngine;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A plain-text receipt layout, parsed once into a tree of nodes and then rendered any number of
+ * times, from any thread, straight into a caller's StringBuilder.
+ * <p>
+ * Template syntax:
+ * <ul>
+ *   <li>{@code {field}} writes a booking field; a value with line breaks, or wrapped at the
+ *       template's width, continues on lines indented to the column the field started at</li>
+ *   <li>{@code {field:12}} right-aligns it in 12 columns, {@code {field:-12}} left-aligns it;
+ *       longer values are cut to fit and line breaks become spaces</li>
+ *   <li>{@code {?field}...{/field}} keeps the text only if the field is present (not blank, or
+ *       for amounts not zero); {@code {^field}...{/field}} only if it is not</li>
+ *   <li>{@code {#items}...{/items}} repeats the text for each booking item; the item fields are
+ *       only available inside it</li>
+ * </ul>
+ * A section tag alone on its line takes the whole line with it, so sections can be laid out one
+ * tag per line. Fields: booking_id, customer_name, customer_contact, event_date, event_time,
+ * venue_address, num_guests, theme, status, custom_requests, package_name, package_includes,
+ * base_cost, items_cost, total_cost; and per item item_name, quantity, item_cost.
+ */
+public final class ReceiptTemplate {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMMM dd, yyyy", Locale.ENGLISH);
+    private static final int MIN_WRAP_WIDTH = 10;
+    private static final String SPACES = "                                                                                ";
+
+    private enum Field {
+        BOOKING_ID, CUSTOMER_NAME, CUSTOMER_CONTACT, EVENT_DATE, EVENT_TIME, VENUE_ADDRESS, NUM_GUESTS, THEME,
+        STATUS, CUSTOM_REQUESTS, PACKAGE_NAME, PACKAGE_INCLUDES, BASE_COST, ITEMS_COST, TOTAL_COST,
+        ITEM_NAME(true), QUANTITY(true), ITEM_COST(true);
+
+        final boolean perItem;
+        final String tag = name().toLowerCase(Locale.ROOT);
+
+        Field() {
+            this(false);
+        }
+
+        Field(boolean perItem) {
+            this.perItem = perItem;
+        }
+
+        static Field forTag(String tag) {
+            for (Field field : values()) {
+                if (field.tag.equals(tag)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+
+        void append(StringBuilder out, Booking booking, BookingItem item) {
+            Package pkg = booking.getSelectedPackage();
+            switch (this) {
+                case BOOKING_ID: out.append(booking.getBookingId()); break;
+                case CUSTOMER_NAME: appendText(out, booking.getCustomerName()); break;
+                case CUSTOMER_CONTACT: appendText(out, booking.getCustomerContact()); break;
+                case EVENT_DATE:
+                    if (booking.getEventDate() != null) {
+                        DATE_FORMAT.formatTo(booking.getEventDate(), out);
+                    }
+                    break;
+                case EVENT_TIME: appendText(out, booking.getEventTime()); break;
+                case VENUE_ADDRESS: appendText(out, booking.getVenueAddress()); break;
+                case NUM_GUESTS: out.append(booking.getNumGuests()); break;
+                case THEME: appendText(out, booking.getThemeDescription()); break;
+                case STATUS: appendText(out, booking.getBookingStatus()); break;
+                case CUSTOM_REQUESTS: appendText(out, booking.getCustomRequests()); break;
+                case PACKAGE_NAME: appendText(out, pkg != null ? pkg.getName() : null); break;
+                case PACKAGE_INCLUDES: appendText(out, pkg != null ? pkg.getIncludedItemsDesc() : null); break;
+                case BASE_COST: appendAmount(out, booking.getBasePackageCost()); break;
+                case ITEMS_COST: appendAmount(out, booking.getAdditionalItemsCost()); break;
+                case TOTAL_COST: appendAmount(out, booking.getTotalCost()); break;
+                case ITEM_NAME: out.append(item.getItemName()); break;
+                case QUANTITY: out.append(item.getQuantity()); break;
+                case ITEM_COST: appendAmount(out, item.getCalculatedItemCost()); break;
+                default: throw new AssertionError(this);
+            }
+        }
+
+        boolean isPresent(Booking booking, BookingItem item) {
+            switch (this) {
+                case BASE_COST: return PricingEngine.toCentavos(booking.getBasePackageCost()) != 0;
+                case ITEMS_COST: return PricingEngine.toCentavos(booking.getAdditionalItemsCost()) != 0;
+                case TOTAL_COST: return PricingEngine.toCentavos(booking.getTotalCost()) != 0;
+                case ITEM_COST: return PricingEngine.toCentavos(item.getCalculatedItemCost()) != 0;
+                case PACKAGE_NAME: return booking.getSelectedPackage() != null; // Even if unnamed
+                case PACKAGE_INCLUDES:
+                    return booking.getSelectedPackage() != null
+                            && !BookingRules.isBlank(booking.getSelectedPackage().getIncludedItemsDesc());
+                case BOOKING_ID: return booking.getBookingId() > 0;
+                case EVENT_DATE: return booking.getEventDate() != null;
+                case NUM_GUESTS: return booking.getNumGuests() > 0;
+                case CUSTOMER_NAME: return !BookingRules.isBlank(booking.getCustomerName());
+                case CUSTOMER_CONTACT: return !BookingRules.isBlank(booking.getCustomerContact());
+                case EVENT_TIME: return !BookingRules.isBlank(booking.getEventTime());
+                case VENUE_ADDRESS: return !BookingRules.isBlank(booking.getVenueAddress());
+                case THEME: return !BookingRules.isBlank(booking.getThemeDescription());
+                case STATUS: return !BookingRules.isBlank(booking.getBookingStatus());
+                case CUSTOM_REQUESTS: return !BookingRules.isBlank(booking.getCustomRequests());
+                case QUANTITY: return item.getQuantity() > 0;
+                default: return true;
+            }
+        }
+
+        private static void appendText(StringBuilder out, String text) {
+            if (text != null) {
+                out.append(text.trim());
+            }
+        }
+    }
+
+    /** Writes an amount with thousands separators and two decimals, e.g. 12,345.50. */
+    static void appendAmount(StringBuilder out, double amount) {
+        long centavos = PricingEngine.toCentavos(amount);
+        if (centavos < 0) {
+            out.append('-');
+            centavos = -centavos;
+        }
+        int start = out.length();
+        out.append(centavos / 100);
+        for (int comma = out.length() - 3; comma > start; comma -= 3) {
+            out.insert(comma, ',');
+        }
+        long fraction = centavos % 100;
+        out.append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    // --- Nodes ---
+
+    private abstract static class Node {
+        abstract void render(StringBuilder out, Booking booking, BookingItem item);
+    }
+
+    private static final class Literal extends Node {
+        private final String text;
+
+        Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        void render(StringBuilder out, Booking booking, BookingItem item) {
+            out.append(text);
+        }
+    }
+
+    private static final class FieldNode extends Node {
+        private final Field field;
+        private final int width; // 0 for as long as it is
+        private final boolean leftAligned;
+        private final int wrapAt; // For a field without a width; 0 not to wrap
+
+        FieldNode(Field field, int width, boolean leftAligned, int wrapAt) {
+            this.field = field;
+            this.width = width;
+            this.leftAligned = leftAligned;
+            this.wrapAt = wrapAt;
+        }
+
+        @Override
+        void render(StringBuilder out, Booking booking, BookingItem item) {
+            int start = out.length();
+            field.append(out, booking, item);
+            if (width == 0) {
+                wrap(out, start);
+                return;
+            }
+            for (int i = start; i < out.length(); i++) {
+                char ch = out.charAt(i);
+                if (ch == '\n' || ch == '\r') {
+                    out.setCharAt(i, ' ');
+                }
+            }
+            int length = out.length() - start;
+            if (length > width) {
+                out.setLength(start + width);
+            } else if (leftAligned) {
+                out.append(SPACES, 0, width - length);
+            } else {
+                out.insert(start, SPACES, 0, width - length);
+            }
+        }
+
+        // Breaks the value at its own line breaks and, past wrapAt, at its last space (or anywhere if
+        // it has none), indenting each continuation line to the column the value started at
+        private void wrap(StringBuilder out, int start) {
+            int lineStart = out.lastIndexOf("\n", start - 1) + 1;
+            int indent = Math.min(start - lineStart, SPACES.length());
+            int limit = wrapAt - indent >= MIN_WRAP_WIDTH ? wrapAt : 0; // Too narrow a column isn't worth wrapping into
+            int lastSpace = -1;
+            int i = start;
+            while (i < out.length()) {
+                char ch = out.charAt(i);
+                if (ch == '\r') {
+                    out.deleteCharAt(i);
+                } else if (ch == '\n') {
+                    out.insert(i + 1, SPACES, 0, indent);
+                    lineStart = i + 1;
+                    i = lineStart + indent;
+                    lastSpace = -1;
+                } else if (limit > 0 && i - lineStart >= limit && i > lineStart + indent) {
+                    if (lastSpace >= 0) {
+                        out.setCharAt(lastSpace, '\n');
+                        i = lastSpace;
+                    } else {
+                        out.insert(i, '\n');
+                    }
+                } else {
+                    if (ch == ' ') {
+                        lastSpace = i;
+                    }
+                    i++;
+                }
+            }
+        }
+    }
+
+    private static final class Section extends Node {
+        private final Field condition; // Null for the item loop
+        private final boolean inverted;
+        final List<Node> children = new ArrayList<>();
+
+        Section(Field condition, boolean inverted) {
+            this.condition = condition;
+            this.inverted = inverted;
+        }
+
+        @Override
+        void render(StringBuilder out, Booking booking, BookingItem item) {
+            if (condition == null) {
+                for (BookingItem each : booking.getBookingItems()) {
+                    renderAll(children, out, booking, each);
+                }
+            } else if (condition.isPresent(booking, item) != inverted) {
+                renderAll(children, out, booking, item);
+            }
+        }
+    }
+
+    private static void renderAll(List<Node> nodes, StringBuilder out, Booking booking, BookingItem item) {
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).render(out, booking, item);
+        }
+    }
+
+    // --- Compiling ---
+
+    private final List<Node> nodes;
+
+    private ReceiptTemplate(List<Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /** Appends the booking rendered with this template. */
+    public void render(Booking booking, StringBuilder out) {
+        renderAll(nodes, out, booking, null);
+    }
+
+    /**
+     * Parses a template whose values are never wrapped.
+     * @throws IllegalArgumentException naming the position of the first error
+     */
+    public static ReceiptTemplate compile(String source) {
+        return compile(source, 0);
+    }
+
+    /**
+     * Parses a template, word-wrapping fields written without a width at {@code columns}.
+     * @throws IllegalArgumentException naming the position of the first error
+     */
+    public static ReceiptTemplate compile(String source, int columns) {
+        List<Node> root = new ArrayList<>();
+        List<List<Node>> open = new ArrayList<>(); // Innermost last
+        List<String> openTags = new ArrayList<>();
+        open.add(root);
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < source.length()) {
+            int brace = source.indexOf('{', position);
+            if (brace < 0) {
+                literal.append(source, position, source.length());
+                break;
+            }
+            int close = source.indexOf('}', brace);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed tag at offset " + brace);
+            }
+            literal.append(source, position, brace);
+            int literalStart = position;
+            String tag = source.substring(brace + 1, close).trim();
+            position = close + 1;
+            List<Node> current = open.get(open.size() - 1);
+            boolean inItems = openTags.contains("#items");
+
+            char kind = tag.isEmpty() ? ' ' : tag.charAt(0);
+            if (kind != '?' && kind != '^' && kind != '#' && kind != '/') {
+                addLiteral(current, literal);
+                current.add(fieldNode(tag, inItems, brace, columns));
+                continue;
+            }
+            // A section tag alone on its line takes the line with it
+            int lineStart = source.lastIndexOf('\n', brace - 1) + 1;
+            int lineEnd = source.indexOf('\n', position);
+            if (isBlank(source, lineStart, brace) && isBlank(source, position, lineEnd < 0 ? source.length() : lineEnd)) {
+                literal.setLength(literal.length() - (brace - Math.max(lineStart, literalStart)));
+                position = lineEnd < 0 ? source.length() : lineEnd + 1;
+            }
+            addLiteral(current, literal);
+
+            String name = tag.substring(1).trim();
+            if (kind == '/') {
+                String expected = openTags.isEmpty() ? null : openTags.get(openTags.size() - 1);
+                if (expected == null || !expected.substring(1).equals(name)) {
+                    throw new IllegalArgumentException("Unexpected {/" + name + "} at offset " + brace
+                            + (expected != null ? "; expected {/" + expected.substring(1) + "}" : ""));
+                }
+                open.remove(open.size() - 1);
+                openTags.remove(openTags.size() - 1);
+                continue;
+            }
+            Section section;
+            if (kind == '#') {
+                if (!name.equals("items") || inItems) {
+                    throw new IllegalArgumentException("Only a single {#items} loop is supported; found {#" + name + "} at offset " + brace);
+                }
+                section = new Section(null, false);
+            } else {
+                section = new Section(field(name, inItems, brace), kind == '^');
+            }
+            current.add(section);
+            open.add(section.children);
+            openTags.add(kind + name);
+        }
+        addLiteral(open.get(open.size() - 1), literal);
+        if (!openTags.isEmpty()) {
+            throw new IllegalArgumentException("Unclosed {" + openTags.get(openTags.size() - 1) + "}");
+        }
+        return new ReceiptTemplate(root);
+    }
+
+    /** Compiles a template from a classpath resource (UTF-8), wrapping values at {@code columns}. */
+    public static ReceiptTemplate load(String resource, int columns) {
+        try (InputStream in = ReceiptTemplate.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Template not found: " + resource);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            for (int read = in.read(chunk); read >= 0; read = in.read(chunk)) {
+                bytes.write(chunk, 0, read);
+            }
+            return compile(new String(bytes.toByteArray(), StandardCharsets.UTF_8).replace("\r\n", "\n"), columns);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read template " + resource, e);
+        }
+    }
+
+    private static FieldNode fieldNode(String tag, boolean inItems, int offset, int wrapAt) {
+        int colon = tag.indexOf(':');
+        if (colon < 0) {
+            return new FieldNode(field(tag, inItems, offset), 0, false, wrapAt);
+        }
+        String width = tag.substring(colon + 1).trim();
+        boolean left = width.startsWith("-");
+        try {
+            int columns = Integer.parseInt(left ? width.substring(1) : width);
+            if (columns <= 0 || columns > SPACES.length()) {
+                throw new NumberFormatException();
+            }
+            return new FieldNode(field(tag.substring(0, colon).trim(), inItems, offset), columns, left, 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad width '" + width + "' at offset " + offset
+                    + "; use 1 to " + SPACES.length() + ", negative to left-align");
+        }
+    }
+
+    private static Field field(String name, boolean inItems, int offset) {
+        Field field = Field.forTag(name);
+        if (field == null) {
+            throw new IllegalArgumentException("Unknown field '" + name + "' at offset " + offset);
+        }
+        if (field.perItem && !inItems) {
+            throw new IllegalArgumentException("Item field '" + name + "' outside {#items} at offset " + offset);
+        }
+        return field;
+    }
+
+    private static void addLiteral(List<Node> nodes, StringBuilder literal) {
+        if (literal.length() > 0) {
+            nodes.add(new Literal(literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    private static boolean isBlank(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}